@@ -0,0 +1,56 @@
+"""
+Writes the golden bin-1 values the Java codec tests (common/src/test, BinaryCodecFixtureTest)
+compare against: each case holds a document in the bridge's JSON layout and the hex of
+what sumo_codec encodes it to. Rerun after any change to the layout and commit the result:
+
+    python codec_fixtures.py
+"""
+import json
+import os
+
+import sumo_codec
+
+OUTPUT = os.path.join(os.path.dirname(os.path.abspath(__file__)), "..", "urbanflow", "common", "src", "test",
+                      "resources", "sumo", "bin-1-fixtures.json")
+
+EDGES = [
+    {"edgeID": "-123456789#2", "edgeName": "Dame Street", "timestamp": 3600.0, "laneNumber": 2, "speed": 8.333,
+     "vehicleCount": 3, "vehicleIDs": ["veh0", "flow_3.17", "veh\u00e9"], "waitTime": 12.75,
+     "waitingVehicleIDs": ["flow_3.17"], "waitingVehicleCount": 1},
+    {"edgeID": "e2", "edgeName": "", "timestamp": 0.5, "laneNumber": 1, "speed": 0.0, "vehicleCount": 0,
+     "vehicleIDs": [], "waitTime": 0.0, "waitingVehicleIDs": [], "waitingVehicleCount": 0},
+    {"edgeID": "e3", "edgeName": "Sr\u00e1id na Life", "timestamp": 7200.25, "laneNumber": 3, "speed": 13.9,
+     "vehicleCount": 70000, "vehicleIDs": [], "waitTime": 1.0e-3, "waitingVehicleIDs": ["w1"],
+     "waitingVehicleCount": 1},
+]
+
+TLS = [
+    {"tlsID": "cluster_1_2", "junction_id": "cluster_1_2", "junction_name": "O'Connell Bridge", "timestamp": 3600.0,
+     "phase": 2, "state": "GGrrGGrr", "duration": 31.0, "connection": [
+         [["a_0", "b_0", ":cluster_1_2_0_0"]],
+         [["a_1", "b_1", ""]],
+         [],
+         [["a_1", "c_0", ":cluster_1_2_2_0"], ["a_1", "d_0", ":cluster_1_2_2_1"]],
+     ], "spendTime": 4.5, "nextSwitchTime": 3626.5},
+    {"tlsID": "t2", "junction_id": "t2", "junction_name": "", "timestamp": 0.0, "phase": 0, "state": "",
+     "duration": 0.0, "connection": [], "spendTime": 0.0, "nextSwitchTime": -1.0},
+]
+
+
+def main():
+    cases = []
+    for edge in EDGES:
+        vehicles = sumo_codec.encode_vehicles(edge)
+        cases.append({"kind": "edge", "json": edge, "edge": sumo_codec.encode_edge(edge).hex(),
+                      "vehicles": vehicles.hex() if vehicles is not None else None})
+    for tls in TLS:
+        cases.append({"kind": "tls", "json": tls, "tls": sumo_codec.encode_tls(tls).hex()})
+    os.makedirs(os.path.dirname(OUTPUT), exist_ok=True)
+    with open(OUTPUT, "w", encoding="utf-8", newline="\n") as out:
+        json.dump(cases, out, indent=2, ensure_ascii=False)
+        out.write("\n")
+    print(f"Wrote {len(cases)} cases to {os.path.normpath(OUTPUT)}")
+
+
+if __name__ == "__main__":
+    main()
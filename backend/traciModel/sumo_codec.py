@@ -0,0 +1,160 @@
+"""
+Compact binary encoding of the sumo:edge, sumo:edge_vehicles and sumo:tls hash values
+(schema "bin-1"). Must stay in step with the Java codecs in
+common/src/main/java/com/ucd/urbanflow/common/sumo (BinaryEdgeCodec, BinaryVehicleCodec,
+BinaryTlsCodec).
+
+All numbers are big-endian. Strings are UTF-8 with an unsigned length prefix: one byte
+for vehicle IDs, two bytes otherwise.
+
+edge      B tag 0xB1, d timestamp, f speed, f waitTime, H vehicleCount,
+          H waitingVehicleCount, B laneNumber, str16 edgeName
+vehicles  B tag 0xB2, H count + str8 vehicleIDs, H count + str8 waitingVehicleIDs
+          (its own hash, so readers that only need counts never transfer the IDs)
+tls       B tag 0xB3, d timestamp, f duration, f spendTime, d nextSwitchTime, H phase,
+          str16 junction_id, str16 junction_name, str16 state,
+          H lane count + str16 lanes (each lane once),
+          H link count, per link B connection count + 3 x H lane index (from, to, via);
+          a missing or empty lane is index 0xFFFF and decodes to ""
+
+codec_fixtures.py writes the golden values the Java codec tests compare against.
+"""
+import struct
+
+EDGE_TAG = 0xB1
+VEHICLES_TAG = 0xB2
+TLS_TAG = 0xB3
+NO_LANE = 0xFFFF
+
+_EDGE = struct.Struct(">BdffHHBH")
+_TLS = struct.Struct(">BdffdH")
+_U8 = struct.Struct(">B")
+_U16 = struct.Struct(">H")
+_TRIPLE = struct.Struct(">HHH")
+
+
+def _u16(value):
+    return max(0, min(int(value), 0xFFFF))
+
+
+def _str16(out, value):
+    data = (value or "").encode("utf-8")
+    out += _U16.pack(len(data))
+    out += data
+
+
+def _ids(out, ids):
+    out += _U16.pack(len(ids))
+    for vehicle_id in ids:
+        data = vehicle_id.encode("utf-8")
+        if len(data) > 0xFF:
+            raise ValueError(f"Vehicle ID longer than 255 bytes: {vehicle_id}")
+        out += _U8.pack(len(data))
+        out += data
+
+
+def encode_edge(edge):
+    name = (edge.get("edgeName") or "").encode("utf-8")
+    return _EDGE.pack(EDGE_TAG, edge.get("timestamp", 0.0), edge.get("speed", 0.0), edge.get("waitTime", 0.0),
+                      _u16(edge.get("vehicleCount", 0)), _u16(edge.get("waitingVehicleCount", 0)),
+                      min(int(edge.get("laneNumber", 0)), 0xFF), len(name)) + name
+
+
+def encode_vehicles(edge):
+    """None when the edge has no vehicle IDs, which are then left out of the hash."""
+    vehicles = edge.get("vehicleIDs") or []
+    waiting = edge.get("waitingVehicleIDs") or []
+    if not vehicles and not waiting:
+        return None
+    out = bytearray(_U8.pack(VEHICLES_TAG))
+    _ids(out, vehicles)
+    _ids(out, waiting)
+    return bytes(out)
+
+
+def encode_tls(tls):
+    out = bytearray(_TLS.pack(TLS_TAG, tls.get("timestamp", 0.0), tls.get("duration", 0.0),
+                              tls.get("spendTime", 0.0), tls.get("nextSwitchTime", -1.0), _u16(tls.get("phase", 0))))
+    _str16(out, tls.get("junction_id"))
+    _str16(out, tls.get("junction_name"))
+    _str16(out, tls.get("state"))
+    lanes = {}
+    links = []
+    for link in tls.get("connection") or []:
+        links.append([tuple(_lane_index(lanes, lane) for lane in _triple(triple)) for triple in link])
+    out += _U16.pack(len(lanes))
+    for lane in lanes:
+        _str16(out, lane)
+    out += _U16.pack(len(links))
+    for link in links:
+        out += _U8.pack(len(link))
+        for triple in link:
+            out += _TRIPLE.pack(*triple)
+    return bytes(out)
+
+
+def _triple(connection):
+    return list(connection[:3]) + [""] * (3 - len(connection[:3]))
+
+
+def _lane_index(lanes, lane):
+    return NO_LANE if not lane else lanes.setdefault(lane, len(lanes))
+
+
+class _Reader:
+    def __init__(self, data):
+        self.data = data
+        self.pos = 0
+
+    def unpack(self, fmt):
+        values = fmt.unpack_from(self.data, self.pos)
+        self.pos += fmt.size
+        return values
+
+    def string(self, length):
+        value = self.data[self.pos:self.pos + length].decode("utf-8")
+        self.pos += length
+        return value
+
+    def str16(self):
+        return self.string(self.unpack(_U16)[0])
+
+    def ids(self):
+        return [self.string(self.unpack(_U8)[0]) for _ in range(self.unpack(_U16)[0])]
+
+
+def decode_edge(edge_id, data, vehicles=None):
+    """The edge document in the JSON layout; the ID lists come from the vehicles value."""
+    reader = _Reader(data)
+    _, timestamp, speed, wait_time, count, waiting_count, lane_number, name_length = reader.unpack(_EDGE)
+    edge = {"edgeID": edge_id, "edgeName": reader.string(name_length), "timestamp": timestamp, "laneNumber": lane_number,
+            "speed": speed, "vehicleCount": count, "vehicleIDs": [], "waitTime": wait_time,
+            "waitingVehicleIDs": [], "waitingVehicleCount": waiting_count}
+    if vehicles:
+        reader = _Reader(vehicles)
+        reader.unpack(_U8)
+        edge["vehicleIDs"] = reader.ids()
+        edge["waitingVehicleIDs"] = reader.ids()
+    return edge
+
+
+def decode_tls(tls_id, data):
+    """The traffic light document in the JSON layout."""
+    reader = _Reader(data)
+    _, timestamp, duration, spend_time, next_switch, phase = reader.unpack(_TLS)
+    junction_id = reader.str16()
+    junction_name = reader.str16()
+    state = reader.str16()
+    lanes = [reader.str16() for _ in range(reader.unpack(_U16)[0])]
+    links = []
+    for _ in range(reader.unpack(_U16)[0]):
+        triples = [reader.unpack(_TRIPLE) for _ in range(reader.unpack(_U8)[0])]
+        links.append([["" if i == NO_LANE else lanes[i] for i in triple] for triple in triples])
+    return {"tlsID": tls_id, "junction_id": junction_id, "junction_name": junction_name, "timestamp": timestamp, "phase": phase,
+            "state": state, "duration": duration, "connection": links, "spendTime": spend_time,
+            "nextSwitchTime": next_switch}
+
+
+def is_binary(data):
+    """True for a bin-1 value; JSON documents start with '{'."""
+    return bool(data) and data[0] != ord("{")
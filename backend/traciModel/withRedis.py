@@ -7,6 +7,7 @@ import asyncio
 from pydantic import BaseModel
 import traci
 import time
+import sumo_codec
 
 
 # SUMO
@@ -40,6 +41,9 @@ class StateDurationPayload(BaseModel):
     state: str
     duration: int
     lightIndex: int
+    # False: answer ACCEPTED once the state is set and leave verification to the caller
+    # (signal-control watches sumo:tls); True keeps the old blocking VERIFIED_AND_RUNNING reply
+    wait: bool = True
 
 
 # Create FastAPI application and global variables
@@ -65,6 +69,14 @@ stop_simulation_event = asyncio.Event()
 KEY_SIM_TIME = "sumo:simulation_time"
 KEY_ALL_EDGES = "sumo:edge"
 KEY_ALL_TLS = "sumo:tls"
+# Vehicle ID lists of the edges, kept apart from sumo:edge under the binary schema
+KEY_EDGE_VEHICLES = "sumo:edge_vehicles"
+# Encoding of the hashes, read by the Java services to pick their decoder:
+# "json-1" (JSON documents) or "bin-1" (sumo_codec). Switch to bin-1 only once every
+# service reading sumo:* understands it.
+KEY_SCHEMA = "sumo:schema"
+SCHEMA_VERSION = redis_config.get('schema', 'json-1')
+BINARY_SCHEMA = SCHEMA_VERSION == "bin-1"
 
 # Global variables to store static data generated at startup
 junction_names_map = {}
@@ -85,6 +97,7 @@ async def simulation_loop():
 
         # Initialize containers for data to be cached in Redis
         edges_to_cache = {}
+        vehicles_to_cache = {}
         tls_to_cache = {}
 
         # Initialize containers for data to be cached in Redis
@@ -156,7 +169,13 @@ async def simulation_loop():
                         'waitingVehicleIDs': list(traci.edge.getPendingVehicles(edgeID) or []),
                         "waitingVehicleCount": traci.edge.getLastStepHaltingNumber(edgeID) or 0
                     }
-                    edges_to_cache[edgeID] = json.dumps(edge_data)
+                    if BINARY_SCHEMA:
+                        edges_to_cache[edgeID] = sumo_codec.encode_edge(edge_data)
+                        vehicles = sumo_codec.encode_vehicles(edge_data)
+                        if vehicles is not None:
+                            vehicles_to_cache[edgeID] = vehicles
+                    else:
+                        edges_to_cache[edgeID] = json.dumps(edge_data)
 
                 for tlsID in traci.trafficlight.getIDList():
                     #correct_junction_id = tlsID  # Default to tlsID itself
@@ -177,7 +196,7 @@ async def simulation_loop():
                         "spendTime": traci.trafficlight.getSpentDuration(tlsID) or 0.0,
                         "nextSwitchTime": traci.trafficlight.getNextSwitch(tlsID) or -1.0
                     }
-                    tls_to_cache[tlsID] = json.dumps(tls_data)
+                    tls_to_cache[tlsID] = sumo_codec.encode_tls(tls_data) if BINARY_SCHEMA else json.dumps(tls_data)
 
 
             except traci.TraCIException as step_error:
@@ -195,15 +214,23 @@ async def simulation_loop():
                 event.set()
         try:
             print("Background data packaging complete, starting Redis cache update...")
-            async with redis_client.pipeline(transaction=False) as pipe:
+            # MULTI/EXEC, so readers never see the tag, the edges and their vehicle lists from different steps
+            async with redis_client.pipeline(transaction=True) as pipe:
                 # Cache simulation time
                 pipe.set(KEY_SIM_TIME, sim_time_to_cache, ex=REDIS_EXPIRATION_SECONDS)
+                pipe.set(KEY_SCHEMA, SCHEMA_VERSION, ex=REDIS_EXPIRATION_SECONDS)
 
                 # If there is edge data, bulk update it to the hash
                 if edges_to_cache:
                     pipe.hset(KEY_ALL_EDGES, mapping=edges_to_cache)
                     pipe.expire(KEY_ALL_EDGES, REDIS_EXPIRATION_SECONDS)
 
+                # Edges without vehicles are left out, so the lists are replaced rather than merged
+                pipe.delete(KEY_EDGE_VEHICLES)
+                if vehicles_to_cache:
+                    pipe.hset(KEY_EDGE_VEHICLES, mapping=vehicles_to_cache)
+                    pipe.expire(KEY_EDGE_VEHICLES, REDIS_EXPIRATION_SECONDS)
+
                 # If there is traffic light data, bulk update it to the hash
                 if tls_to_cache:
                     pipe.hset(KEY_ALL_TLS, mapping=tls_to_cache)
@@ -220,11 +247,10 @@ async def simulation_loop():
             # <<< MODIFICATION START: Read data for the target edge from Redis after writing it.
             print(f"--- Reading data for target edge '{TARGET_EDGE_ID_TO_MONITOR}' from Redis ---")
             # Use HGET to get the specific field (edge ID) from the hash (KEY_ALL_EDGES)
-            target_edge_data_json = await redis_client.hget(KEY_ALL_EDGES, TARGET_EDGE_ID_TO_MONITOR)
+            retrieved_data = await read_edge(TARGET_EDGE_ID_TO_MONITOR)
 
-            if target_edge_data_json:
-                # If data is found, parse the JSON and print it
-                retrieved_data = json.loads(target_edge_data_json)
+            if retrieved_data:
+                # If data is found, print it
                 print(f"SUCCESSFULLY RETRIEVED from Redis: {retrieved_data}")
             else:
                 # If no data is found for that key, print a warning.
@@ -246,7 +272,8 @@ async def start_simulation_and_connect():
     try:
         redis_url = f"redis://{REDIS_HOST}:{REDIS_PORT}/{REDIS_DB}"
         print(f"Connecting to Redis ({redis_url})...")
-        redis_client = redis.from_url(redis_url, decode_responses=True)
+        # values are bytes: under the binary schema they are not text
+        redis_client = redis.from_url(redis_url)
         await redis_client.ping()
         connection_status["redis_connected"] = True
         print("Successfully connected to Redis。")
@@ -293,9 +320,9 @@ async def get_status():
 """Get the complete status of a specific edge"""
 async def get_edge_status(edgeID):
     # Get data for the specified edgeID from the 'sumo:edges' hash
-    edge_data_json = await redis_client.hget(KEY_ALL_EDGES, edgeID)
-    if edge_data_json:
-        return {"edgeID": edgeID, "edgeData": json.loads(edge_data_json)}
+    edge_data = await read_edge(edgeID)
+    if edge_data:
+        return {"edgeID": edgeID, "edgeData": edge_data}
     else:
         # If the edge is not found in the hash, return null data
         return {"edgeID": edgeID, "edgeData": None}
@@ -304,18 +331,39 @@ async def get_edge_status(edgeID):
 """Read the latest status of a specific traffic light"""
 async def get_tls_status(tlsID):
     # Get data for the specified tlsID from the 'sumo:tls' hash
-    light_data_json = await redis_client.hget(KEY_ALL_TLS, tlsID)
-    if light_data_json:
-        return {"tlsID": tlsID, "lightData": json.loads(light_data_json)}
+    light_data = await read_tls(tlsID)
+    if light_data:
+        return {"tlsID": tlsID, "lightData": light_data}
     else:
         # If the traffic light is not found in the hash, return null data
         return {"tlsID": tlsID, "lightData": None}
 
+"""Edge document from the 'sumo:edge' hash in either schema, None if absent"""
+async def read_edge(edgeID):
+    data = await redis_client.hget(KEY_ALL_EDGES, edgeID)
+    if not data:
+        return None
+    if not sumo_codec.is_binary(data):
+        return json.loads(data)
+    return sumo_codec.decode_edge(edgeID, data, await redis_client.hget(KEY_EDGE_VEHICLES, edgeID))
+
+
+"""Traffic light document from the 'sumo:tls' hash in either schema, None if absent"""
+async def read_tls(tlsID):
+    data = await redis_client.hget(KEY_ALL_TLS, tlsID)
+    if not data:
+        return None
+    return sumo_codec.decode_tls(tlsID, data) if sumo_codec.is_binary(data) else json.loads(data)
+
 # Mode 1: Modify duration only
 # 没有被用上，因为后端默认会传state
 @app.post("/trafficlight/set_duration", summary="Restore the default state of a specific traffic light")
 async def modify_tls_duration(payload: DurationPayload):
     tls_id = junction_to_tls_map.get(payload.junctionId)
+    if not connection_status.get("sumo_connected"):
+        return {"status": "error", "message": "SUMO is not connected."}
+    if tls_id is None:
+        return {"status": "error", "message": "Invalid junction ID"}
     async with TRACI_LOCK:
         print(f"[API {tls_id}] Received request: duration={payload.duration}")
         traci.trafficlight.setPhaseDuration(tls_id, payload.duration)
@@ -331,6 +379,10 @@ async def modify_tls_state_duration(payload: StateDurationPayload):
     index = payload.lightIndex
     tls_id = junction_to_tls_map.get(junctionId)
     print(f"[API {tls_id}] Received request: state='{state}', duration={duration}, index={index}")
+    if not connection_status.get("sumo_connected"):
+        return {"status": "error", "message": "SUMO is not connected."}
+    if tls_id is None:
+        return {"status": "error", "message": "Invalid junction ID"}
 
     current_state = await get_tls_status(tls_id)
     current_state_str = current_state["lightData"].get("state")
@@ -385,6 +437,10 @@ async def modify_tls_state_duration(payload: StateDurationPayload):
                                 detail=f"TraCI command execution failed: {e}")
         print(f"[API {tls_id}] Lock released.")
 
+    if not payload.wait:
+        # the simulation loop still verifies and applies the duration; nobody waits for it here
+        return {"status": "ACCEPTED", "junctionId": junctionId, "state": new_state_string}
+
     print(f"[API {tls_id}] Starting to wait for event signal (timeout: 40s)...")
     # Wait for the event to be set by the loop
     try:
@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dedicated fork-join pool for the numeric work of this module, so that controller
+ * cycles never compete with the common pool used by parallel streams elsewhere.
+ */
+@Configuration
+public class ComputePoolConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool computePool(@Value("${ai.compute.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
@@ -0,0 +1,159 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.domain.dto.CorridorPlan;
+import com.ucd.urbanflow.domain.dto.CorridorRequest;
+import com.ucd.urbanflow.domain.dto.EdgeForecast;
+import com.ucd.urbanflow.domain.dto.MaxPressureStatus;
+import com.ucd.urbanflow.domain.dto.RouteResult;
+import com.ucd.urbanflow.domain.dto.SignalRecommendation;
+import com.ucd.urbanflow.domain.dto.WhatIfRequest;
+import com.ucd.urbanflow.service.ForecastService;
+import com.ucd.urbanflow.service.GreenWaveService;
+import com.ucd.urbanflow.service.InferenceService;
+import com.ucd.urbanflow.service.MaxPressureService;
+import com.ucd.urbanflow.service.RoutingService;
+import com.ucd.urbanflow.service.WhatIfService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/ai")
+@RequiredArgsConstructor
+public class AiController {
+
+    private final MaxPressureService maxPressureService;
+    private final ForecastService forecastService;
+    private final InferenceService inferenceService;
+    private final RoutingService routingService;
+    private final WhatIfService whatIfService;
+    private final GreenWaveService greenWaveService;
+
+    @GetMapping("/max-pressure")
+    public ResponseEntity<MaxPressureStatus> getMaxPressureStatus() {
+        return ResponseEntity.ok(maxPressureService.getStatus());
+    }
+
+    @GetMapping("/forecast/{edgeId}")
+    public ResponseEntity<EdgeForecast> getForecast(@PathVariable String edgeId) {
+        EdgeForecast forecast = forecastService.getForecast(edgeId);
+        return forecast == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(forecast);
+    }
+
+    @GetMapping("/forecast")
+    public ResponseEntity<List<EdgeForecast>> getForecasts(@RequestParam List<String> edgeIds) {
+        List<EdgeForecast> result = new ArrayList<>();
+        for (String edgeId : edgeIds) {
+            EdgeForecast forecast = forecastService.getForecast(edgeId);
+            if (forecast != null) {
+                result.add(forecast);
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping("/recommendations")
+    public ResponseEntity<List<SignalRecommendation>> getRecommendations() {
+        return ResponseEntity.ok(inferenceService.getRecommendations());
+    }
+
+    @GetMapping("/recommendations/{junctionId}")
+    public ResponseEntity<SignalRecommendation> getRecommendation(@PathVariable String junctionId) {
+        SignalRecommendation recommendation = inferenceService.getRecommendation(junctionId);
+        return recommendation == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(recommendation);
+    }
+
+    @PostMapping("/recommendations/model/reload")
+    public ResponseEntity<Map<String, String>> reloadModel() {
+        try {
+            return ResponseEntity.ok(Map.of("version", String.valueOf(inferenceService.reload())));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/route")
+    public ResponseEntity<?> getRoute(@RequestParam String from, @RequestParam String to) {
+        try {
+            return ResponseEntity.ok(routingService.route(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/eta")
+    public ResponseEntity<?> getEta(@RequestParam String from, @RequestParam String to) {
+        try {
+            RouteResult route = routingService.route(from, to);
+            return ResponseEntity.ok(Map.of(
+                    "from", from,
+                    "to", to,
+                    "found", route.isFound(),
+                    "etaSeconds", route.getTravelTimeSeconds()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/whatif")
+    public ResponseEntity<?> evaluatePlans(@RequestBody WhatIfRequest request) {
+        try {
+            return ResponseEntity.ok(whatIfService.evaluate(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/greenwave/corridors")
+    public ResponseEntity<?> registerCorridor(@RequestBody CorridorRequest request) {
+        try {
+            return ResponseEntity.ok(greenWaveService.register(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/greenwave/corridors")
+    public ResponseEntity<List<CorridorPlan>> getCorridorPlans() {
+        return ResponseEntity.ok(greenWaveService.getPlans());
+    }
+
+    @GetMapping("/greenwave/corridors/{corridorId}")
+    public ResponseEntity<CorridorPlan> getCorridorPlan(@PathVariable String corridorId) {
+        CorridorPlan plan = greenWaveService.getPlan(corridorId);
+        return plan == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(plan);
+    }
+
+    @PostMapping("/greenwave/corridors/{corridorId}/push")
+    public ResponseEntity<?> pushCorridorPlan(@PathVariable String corridorId) {
+        try {
+            CorridorPlan plan = greenWaveService.push(corridorId);
+            return plan == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(plan);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/greenwave/corridors/{corridorId}")
+    public ResponseEntity<Void> removeCorridor(@PathVariable String corridorId) {
+        return greenWaveService.remove(corridorId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
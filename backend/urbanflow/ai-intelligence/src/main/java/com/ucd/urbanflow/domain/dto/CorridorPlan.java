@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorridorPlan {
+    private String corridorId;
+    private List<String> junctionIds;
+    private String status;
+    private int cycleSeconds;
+    private double outboundBandSeconds;
+    private double inboundBandSeconds;
+    private List<CorridorSignal> signals;
+    private double simTime;
+    private long computeMicros;
+    private long optimizedAt;
+    private long pushedAt;
+    private String lastBatchId;
+}
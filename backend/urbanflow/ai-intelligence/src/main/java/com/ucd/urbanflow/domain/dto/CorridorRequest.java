@@ -0,0 +1,17 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorridorRequest {
+    private String corridorId;
+    private List<String> junctionIds;   // in outbound travel order
+    private Integer cycleSeconds;       // common cycle, longest natural cycle when null
+    private boolean autoPush;
+}
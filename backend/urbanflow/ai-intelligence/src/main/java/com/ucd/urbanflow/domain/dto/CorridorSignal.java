@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One junction of a corridor plan. Green starts are seconds into the junction's own
+ * cycle, the offset shifts that cycle against the corridor origin.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CorridorSignal {
+    private String junctionId;
+    private int offsetSeconds;
+    private int outboundLightIndex;
+    private double outboundGreenStart;
+    private double outboundGreenSeconds;
+    private int inboundLightIndex;
+    private double inboundGreenStart;
+    private double inboundGreenSeconds;
+    private double travelTimeToNextSeconds;
+    private double travelTimeFromNextSeconds;
+}
@@ -0,0 +1,22 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Forecast for one edge. Each metric maps a horizon in minutes to the predicted value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EdgeForecast {
+    private String edgeId;
+    private double baseTime;       // simulation time of the last model update
+    private int samples;           // aggregated steps the model has seen
+    private Map<Integer, Double> vehicleCount;
+    private Map<Integer, Double> speed;
+    private Map<Integer, Double> waitingVehicleCount;
+}
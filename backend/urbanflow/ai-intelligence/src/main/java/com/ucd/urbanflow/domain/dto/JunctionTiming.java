@@ -0,0 +1,16 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JunctionTiming {
+    private String junctionId;
+    private int offsetSeconds;  // start of the first phase relative to the common cycle origin
+    private List<PlanPhase> phases;
+}
@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaxPressureStatus {
+    private boolean enabled;
+    private double simTime;
+    private int junctions;
+    private long computeMicros;
+    private int commandsIssued;
+    private List<PhaseDecision> decisions;
+}
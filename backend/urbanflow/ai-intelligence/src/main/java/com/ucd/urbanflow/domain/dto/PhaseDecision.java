@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhaseDecision {
+    private String junctionId;
+    private String tlsId;
+    private String currentState;
+    private String bestPhaseState;   // green pattern of the chosen phase, 'G' for green links
+    private double currentPressure;
+    private double bestPressure;
+    private int lightIndex;          // link sent to signal-control as the phase anchor
+    private boolean issued;
+}
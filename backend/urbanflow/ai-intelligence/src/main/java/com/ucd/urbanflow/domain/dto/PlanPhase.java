@@ -0,0 +1,13 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanPhase {
+    private String state;       // full signal state string, one character per link
+    private int duration;       // seconds
+}
@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanScore {
+    private int rank;
+    private String planId;
+    private double score;               // lower is better
+    private double totalDelaySeconds;   // vehicle-seconds spent not advancing
+    private double maxQueueVehicles;
+    private double meanQueueVehicles;
+    private double throughputVehicles;  // vehicles that left the modelled area
+    private TimingPlan plan;
+}
@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteResult {
+    private String fromEdge;
+    private String toEdge;
+    private boolean found;
+    private double travelTimeSeconds;   // both end edges included
+    private double lengthMeters;
+    private List<String> edges;
+    private int settledNodes;
+    private long queryMicros;
+}
@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/signalcontrol/batch, mirrors BatchControlRequest in signal-control.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignalBatch {
+    private String batchId;
+    private String source;
+    private List<SignalCommand> commands;
+}
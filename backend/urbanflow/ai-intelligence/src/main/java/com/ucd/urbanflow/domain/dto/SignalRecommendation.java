@@ -0,0 +1,18 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignalRecommendation {
+    private String junctionId;
+    private String tlsId;
+    private int lightIndex;
+    private int durationSeconds;
+    private double confidence;
+    private String modelVersion;
+    private double simTime;
+}
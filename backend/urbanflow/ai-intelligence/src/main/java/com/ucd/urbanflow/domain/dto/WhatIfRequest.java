@@ -0,0 +1,22 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/ai/whatif. Explicit candidates are evaluated as given; when
+ * generate is set, that many plans are also derived from the learned phases of the
+ * listed junctions.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WhatIfRequest {
+    private List<String> junctionIds;
+    private List<TimingPlan> candidates;
+    private Integer generate;
+    private Integer horizonSeconds;
+}
@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WhatIfResult {
+    private double simTime;
+    private int horizonSeconds;
+    private int cells;
+    private int evaluated;
+    private long computeMillis;
+    private List<PlanScore> ranking;
+}
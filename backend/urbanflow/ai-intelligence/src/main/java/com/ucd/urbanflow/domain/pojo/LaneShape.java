@@ -0,0 +1,10 @@
+package com.ucd.urbanflow.domain.pojo;
+
+import lombok.Data;
+
+@Data
+public class LaneShape {
+    private String laneId;
+    private String edgeId;
+    private String laneShape;   // SUMO shape, "x1,y1 x2,y2 ..."
+}
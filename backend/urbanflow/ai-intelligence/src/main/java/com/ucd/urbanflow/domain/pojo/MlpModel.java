@@ -0,0 +1,88 @@
+package com.ucd.urbanflow.domain.pojo;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Serialized form of the signal recommendation MLP.
+ * <p>
+ * Expected JSON layout:
+ * <pre>
+ * {
+ *   "version": "2025-07-01",
+ *   "linkSlots": 16,
+ *   "durationScale": 60.0,
+ *   "featureMean": [...], "featureStd": [...],      // optional, length = input size
+ *   "layers": [ {"in": 68, "out": 64, "activation": "relu", "weights": [...], "bias": [...]}, ... ]
+ * }
+ * </pre>
+ * weights are row-major [out][in]. The input size is 4 * linkSlots + 4 and the last
+ * layer has linkSlots + 1 outputs: one logit per link slot followed by the phase
+ * duration divided by durationScale.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MlpModel {
+    private String version;
+    private int linkSlots;
+    private float durationScale = 1f;
+    private float[] featureMean;
+    private float[] featureStd;
+    private List<Layer> layers;
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Layer {
+        private int in;
+        private int out;
+        private String activation = "linear";
+        private float[] weights;
+        private float[] bias;
+
+        public boolean isRelu() {
+            return "relu".equalsIgnoreCase(activation);
+        }
+    }
+
+    public int inputSize() {
+        return 4 * linkSlots + 4;
+    }
+
+    public int outputSize() {
+        return linkSlots + 1;
+    }
+
+    public int widestLayer() {
+        int widest = inputSize();
+        for (Layer layer : layers) {
+            widest = Math.max(widest, layer.getOut());
+        }
+        return widest;
+    }
+
+    /** Throws IllegalArgumentException when the shapes do not line up. */
+    public void validate() {
+        if (linkSlots <= 0 || layers == null || layers.isEmpty()) {
+            throw new IllegalArgumentException("Model needs linkSlots > 0 and at least one layer");
+        }
+        int width = inputSize();
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.getIn() != width || layer.getWeights() == null || layer.getBias() == null
+                    || layer.getWeights().length != layer.getIn() * layer.getOut()
+                    || layer.getBias().length != layer.getOut()) {
+                throw new IllegalArgumentException("Layer " + i + " has inconsistent shape");
+            }
+            width = layer.getOut();
+        }
+        if (width != outputSize()) {
+            throw new IllegalArgumentException("Last layer must have linkSlots + 1 outputs, got " + width);
+        }
+        if (featureMean != null && featureMean.length != inputSize()
+                || featureStd != null && featureStd.length != inputSize()) {
+            throw new IllegalArgumentException("Feature normalisation must match the input size");
+        }
+    }
+}
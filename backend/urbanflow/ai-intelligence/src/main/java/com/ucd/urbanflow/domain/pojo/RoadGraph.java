@@ -0,0 +1,216 @@
+package com.ucd.urbanflow.domain.pojo;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Edge-based road graph in compressed sparse row form.
+ * <p>
+ * Every SUMO edge is a node; an arc u -> v means a vehicle can leave edge u onto edge v.
+ * The graph is immutable once built, live travel times are kept outside of it.
+ * Successors of node u are outArc[outStart[u] .. outStart[u + 1] - 1], predecessors
+ * the same way through inStart / inArc.
+ */
+@Getter
+public class RoadGraph {
+    private final int nodeCount;
+    private final String[] edgeIds;
+    private final Map<String, Integer> index;
+    private final float[] length;
+    private final float[] startX;
+    private final float[] startY;
+    private final float[] endX;
+    private final float[] endY;
+    private final int[] outStart;
+    private final int[] outArc;
+    private final int[] inStart;
+    private final int[] inArc;
+
+    private RoadGraph(String[] edgeIds, Map<String, Integer> index, float[] length,
+                      float[] startX, float[] startY, float[] endX, float[] endY,
+                      int[] outStart, int[] outArc, int[] inStart, int[] inArc) {
+        this.nodeCount = edgeIds.length;
+        this.edgeIds = edgeIds;
+        this.index = index;
+        this.length = length;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.outStart = outStart;
+        this.outArc = outArc;
+        this.inStart = inStart;
+        this.inArc = inArc;
+    }
+
+    public int indexOf(String edgeId) {
+        Integer i = index.get(edgeId);
+        return i == null ? -1 : i;
+    }
+
+    public int arcCount() {
+        return outArc.length;
+    }
+
+    /**
+     * Builds the graph from lane shapes. SUMO lanes stop at the junction boundary, so an
+     * edge is connected to every edge that starts within snapRadius of where it ends
+     * (its own reverse direction excepted). Exact links, e.g. from TLS connection lists,
+     * can be added through extraLinks as {fromEdgeId, toEdgeId} pairs.
+     * Internal junction edges (IDs starting with ':') are left out.
+     */
+    public static RoadGraph build(List<LaneShape> lanes, List<String[]> extraLinks, float snapRadius) {
+        Map<String, float[]> acc = new LinkedHashMap<>();   // sx, sy, ex, ey, length, laneCount
+        for (LaneShape lane : lanes) {
+            String edgeId = lane.getEdgeId();
+            if (edgeId == null || edgeId.startsWith(":") || lane.getLaneShape() == null) {
+                continue;
+            }
+            float[] points = parseShape(lane.getLaneShape());
+            if (points.length < 4) {
+                continue;
+            }
+            float len = 0f;
+            for (int i = 2; i < points.length; i += 2) {
+                len += (float) Math.hypot(points[i] - points[i - 2], points[i + 1] - points[i - 1]);
+            }
+            float[] a = acc.computeIfAbsent(edgeId, k -> new float[6]);
+            a[0] += points[0];
+            a[1] += points[1];
+            a[2] += points[points.length - 2];
+            a[3] += points[points.length - 1];
+            a[4] = Math.max(a[4], len);
+            a[5] += 1f;
+        }
+
+        int n = acc.size();
+        String[] edgeIds = new String[n];
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        float[] length = new float[n];
+        float[] sx = new float[n];
+        float[] sy = new float[n];
+        float[] ex = new float[n];
+        float[] ey = new float[n];
+        int k = 0;
+        for (Map.Entry<String, float[]> entry : acc.entrySet()) {
+            float[] a = entry.getValue();
+            edgeIds[k] = entry.getKey();
+            index.put(entry.getKey(), k);
+            sx[k] = a[0] / a[5];
+            sy[k] = a[1] / a[5];
+            ex[k] = a[2] / a[5];
+            ey[k] = a[3] / a[5];
+            length[k] = Math.max(1f, a[4]);
+            k++;
+        }
+
+        // spatial hash of start points, cell size = snap radius
+        Map<Long, List<Integer>> grid = new HashMap<>();
+        for (int v = 0; v < n; v++) {
+            grid.computeIfAbsent(cell(sx[v], sy[v], snapRadius), c -> new ArrayList<>()).add(v);
+        }
+
+        List<long[]> arcs = new ArrayList<>();
+        float r2 = snapRadius * snapRadius;
+        for (int u = 0; u < n; u++) {
+            long cx = (long) Math.floor(ex[u] / snapRadius);
+            long cy = (long) Math.floor(ey[u] / snapRadius);
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    List<Integer> candidates = grid.get(((cx + dx) << 32) ^ ((cy + dy) & 0xffffffffL));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (int v : candidates) {
+                        float ddx = sx[v] - ex[u];
+                        float ddy = sy[v] - ey[u];
+                        if (v != u && ddx * ddx + ddy * ddy <= r2 && !isReverse(edgeIds[u], edgeIds[v])) {
+                            arcs.add(new long[]{u, v});
+                        }
+                    }
+                }
+            }
+        }
+        if (extraLinks != null) {
+            for (String[] link : extraLinks) {
+                Integer u = index.get(link[0]);
+                Integer v = index.get(link[1]);
+                if (u != null && v != null && !u.equals(v)) {
+                    arcs.add(new long[]{u, v});
+                }
+            }
+        }
+
+        long[] packed = new long[arcs.size()];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (arcs.get(i)[0] << 32) | arcs.get(i)[1];
+        }
+        Arrays.sort(packed);
+        int unique = 0;
+        for (int i = 0; i < packed.length; i++) {
+            if (i == 0 || packed[i] != packed[i - 1]) {
+                packed[unique++] = packed[i];
+            }
+        }
+
+        int[] outStart = new int[n + 1];
+        int[] inStart = new int[n + 1];
+        for (int i = 0; i < unique; i++) {
+            outStart[(int) (packed[i] >>> 32) + 1]++;
+            inStart[(int) packed[i] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        int[] outArc = new int[unique];
+        int[] inArc = new int[unique];
+        int[] outFill = Arrays.copyOf(outStart, n);
+        int[] inFill = Arrays.copyOf(inStart, n);
+        for (int i = 0; i < unique; i++) {
+            int u = (int) (packed[i] >>> 32);
+            int v = (int) packed[i];
+            outArc[outFill[u]++] = v;
+            inArc[inFill[v]++] = u;
+        }
+        return new RoadGraph(edgeIds, index, length, sx, sy, ex, ey, outStart, outArc, inStart, inArc);
+    }
+
+    private static long cell(float x, float y, float size) {
+        long cx = (long) Math.floor(x / size);
+        long cy = (long) Math.floor(y / size);
+        return (cx << 32) ^ (cy & 0xffffffffL);
+    }
+
+    /** SUMO names the opposite direction of edge "X" as "-X". */
+    private static boolean isReverse(String a, String b) {
+        return a.equals("-" + b) || b.equals("-" + a);
+    }
+
+    /** Parses "x1,y1 x2,y2 ..." (a z component is ignored) into [x1, y1, x2, y2, ...]. */
+    public static float[] parseShape(String shape) {
+        String[] points = shape.trim().split("\\s+");
+        float[] result = new float[points.length * 2];
+        int k = 0;
+        for (String point : points) {
+            String[] xy = point.split(",");
+            if (xy.length < 2) {
+                continue;
+            }
+            try {
+                result[k] = Float.parseFloat(xy[0]);
+                result[k + 1] = Float.parseFloat(xy[1]);
+                k += 2;
+            } catch (NumberFormatException ignored) {
+                // skip malformed point
+            }
+        }
+        return k == result.length ? result : Arrays.copyOf(result, k);
+    }
+}
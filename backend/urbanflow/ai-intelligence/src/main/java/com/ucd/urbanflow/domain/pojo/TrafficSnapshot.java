@@ -0,0 +1,59 @@
+package com.ucd.urbanflow.domain.pojo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+/**
+ * One tick of sumo:edge and sumo:tls laid out as primitive arrays.
+ * <p>
+ * Edge arrays are indexed by the stable edge index handed out by SnapshotService, so
+ * index i refers to the same edge in every snapshot. Edges missing from this tick have
+ * present[i] == false. Only the first edgeCount entries of edgeIds are valid. TLS links are stored CSR style: the links of TLS t are
+ * linkStart[t] .. linkStart[t + 1] - 1, each with the edge index it comes from and
+ * goes to (-1 when the lane could not be resolved).
+ * <p>
+ * A snapshot is never modified after it has been published.
+ */
+@Getter
+@Setter
+public class TrafficSnapshot {
+    private double simTime;
+    private long capturedAt;
+
+    private int edgeCount;
+    private String[] edgeIds;
+    private boolean[] present;
+    private float[] vehicleCount;
+    private float[] waitingCount;
+    private float[] speed;
+    private float[] waitTime;
+    private int[] laneNumber;
+
+    private int tlsCount;
+    private String[] tlsIds;
+    private String[] junctionIds;
+    private String[] junctionNames;
+    private String[] states;
+    private int[] phases;
+    private float[] durations;
+    private float[] spendTimes;
+    private float[] nextSwitchTimes;
+    private int[] linkStart;
+    private int[] linkFromEdge;
+    private int[] linkToEdge;
+
+    private Map<String, Integer> edgeIndex;
+    private Map<String, Integer> tlsIndexByJunction;
+
+    public int edgeIndexOf(String edgeId) {
+        Integer index = edgeIndex.get(edgeId);
+        return index == null || index >= edgeCount ? -1 : index;
+    }
+
+    public int tlsIndexOfJunction(String junctionId) {
+        Integer index = tlsIndexByJunction.get(junctionId);
+        return index == null ? -1 : index;
+    }
+}
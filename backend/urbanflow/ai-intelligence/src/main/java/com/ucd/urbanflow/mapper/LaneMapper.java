@@ -0,0 +1,15 @@
+package com.ucd.urbanflow.mapper;
+
+import com.ucd.urbanflow.domain.pojo.LaneShape;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface LaneMapper {
+
+    /**
+     * All lanes with their edge and shape, used to build the routing graph.
+     */
+    List<LaneShape> findAllLaneShapes();
+}
@@ -0,0 +1,217 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.EdgeForecast;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Online short-term forecasts of vehicle count, speed and waiting vehicles for every edge.
+ * <p>
+ * Each edge and metric carries a damped Holt model (level + trend). Snapshots are
+ * averaged over a fixed step (one minute of simulation time by default) and every
+ * completed step updates all models in one pass over flat float arrays, so the cost
+ * per edge is constant and independent of history. Forecasts for all horizons are
+ * materialised into a fresh table at each step and served from memory.
+ */
+@Service
+@Order(20)
+@Slf4j
+public class ForecastService implements SnapshotListener {
+
+    public static final int VEHICLES = 0;
+    public static final int SPEED = 1;
+    public static final int WAITING = 2;
+    private static final int METRICS = 3;
+    private static final int[] HORIZON_MINUTES = {5, 15, 30};
+
+    private final SnapshotService snapshotService;
+    private final double stepSeconds;
+    private final float alpha;
+    private final float beta;
+    private final float phi;
+    private final float[] dampedSteps;   // phi + phi^2 + ... + phi^h per horizon
+
+    // model state, [metric][edge]; only touched from the snapshot thread
+    private int capacity;
+    private float[][] level = new float[METRICS][0];
+    private float[][] trend = new float[METRICS][0];
+    private float[][] sum = new float[METRICS][0];
+    private int[] observations = new int[0];
+    private int[] samples = new int[0];
+    private double stepStart = -1;
+
+    private volatile ForecastTable table;
+
+    public ForecastService(SnapshotService snapshotService,
+                           @Value("${ai.forecast.step-seconds:60}") double stepSeconds,
+                           @Value("${ai.forecast.alpha:0.3}") float alpha,
+                           @Value("${ai.forecast.beta:0.1}") float beta,
+                           @Value("${ai.forecast.damping:0.98}") float phi) {
+        this.snapshotService = snapshotService;
+        this.stepSeconds = stepSeconds;
+        this.alpha = alpha;
+        this.beta = beta;
+        this.phi = phi;
+
+        this.dampedSteps = new float[HORIZON_MINUTES.length];
+        for (int h = 0; h < HORIZON_MINUTES.length; h++) {
+            int steps = (int) Math.round(HORIZON_MINUTES[h] * 60 / stepSeconds);
+            float acc = 0f;
+            float power = 1f;
+            for (int i = 0; i < steps; i++) {
+                power *= phi;
+                acc += power;
+            }
+            dampedSteps[h] = acc;
+        }
+    }
+
+    @Override
+    public void onSnapshot(TrafficSnapshot snapshot) {
+        ensureCapacity(snapshot.getEdgeCount());
+        double now = snapshot.getSimTime() >= 0 ? snapshot.getSimTime() : snapshot.getCapturedAt() / 1000.0;
+        if (stepStart < 0 || now < stepStart) {
+            // first tick, or the simulation was restarted
+            stepStart = now;
+        }
+
+        accumulate(snapshot);
+        if (now - stepStart >= stepSeconds) {
+            long start = System.nanoTime();
+            int n = snapshot.getEdgeCount();
+            updateModels(n);
+            table = buildTable(n, now);
+            stepStart = now;
+            log.debug("Forecast models updated for {} edges in {} us", n, (System.nanoTime() - start) / 1000);
+        }
+    }
+
+    /** O(1) lookup of the latest forecast for an edge, null when unknown or not yet trained. */
+    public EdgeForecast getForecast(String edgeId) {
+        ForecastTable current = table;
+        int e = snapshotService.edgeIndexOf(edgeId);
+        if (current == null || e < 0 || e >= current.edgeCount || current.samples[e] == 0) {
+            return null;
+        }
+        return new EdgeForecast(edgeId, current.baseTime, current.samples[e],
+                horizons(current, VEHICLES, e), horizons(current, SPEED, e), horizons(current, WAITING, e));
+    }
+
+    /** Raw forecast value, used by other controllers; NaN when not available. */
+    public float forecast(int metric, int horizonSlot, int edgeIndex) {
+        ForecastTable current = table;
+        if (current == null || edgeIndex < 0 || edgeIndex >= current.edgeCount || current.samples[edgeIndex] == 0) {
+            return Float.NaN;
+        }
+        return current.values[metric][horizonSlot][edgeIndex];
+    }
+
+    public static int[] getHorizonMinutes() {
+        return HORIZON_MINUTES.clone();
+    }
+
+    private void accumulate(TrafficSnapshot snapshot) {
+        int n = snapshot.getEdgeCount();
+        boolean[] present = snapshot.getPresent();
+        float[] vehicles = snapshot.getVehicleCount();
+        float[] speed = snapshot.getSpeed();
+        float[] waiting = snapshot.getWaitingCount();
+        float[] sumVehicles = sum[VEHICLES];
+        float[] sumSpeed = sum[SPEED];
+        float[] sumWaiting = sum[WAITING];
+        for (int e = 0; e < n; e++) {
+            if (present[e]) {
+                sumVehicles[e] += vehicles[e];
+                sumSpeed[e] += speed[e];
+                sumWaiting[e] += waiting[e];
+                observations[e]++;
+            }
+        }
+    }
+
+    private void updateModels(int n) {
+        float a = alpha;
+        float oneMinusA = 1f - alpha;
+        float b = beta;
+        float oneMinusB = 1f - beta;
+        for (int m = 0; m < METRICS; m++) {
+            float[] l = level[m];
+            float[] t = trend[m];
+            float[] s = sum[m];
+            for (int e = 0; e < n; e++) {
+                int count = observations[e];
+                if (count == 0) {
+                    continue;
+                }
+                float x = s[e] / count;
+                if (samples[e] == 0) {
+                    l[e] = x;
+                    t[e] = 0f;
+                } else {
+                    float previous = l[e];
+                    float dampedTrend = phi * t[e];
+                    float next = a * x + oneMinusA * (previous + dampedTrend);
+                    l[e] = next;
+                    t[e] = b * (next - previous) + oneMinusB * dampedTrend;
+                }
+                s[e] = 0f;
+            }
+        }
+        for (int e = 0; e < n; e++) {
+            if (observations[e] > 0) {
+                samples[e]++;
+                observations[e] = 0;
+            }
+        }
+    }
+
+    private ForecastTable buildTable(int n, double baseTime) {
+        float[][][] values = new float[METRICS][HORIZON_MINUTES.length][n];
+        for (int m = 0; m < METRICS; m++) {
+            float[] l = level[m];
+            float[] t = trend[m];
+            for (int h = 0; h < HORIZON_MINUTES.length; h++) {
+                float k = dampedSteps[h];
+                float[] out = values[m][h];
+                for (int e = 0; e < n; e++) {
+                    out[e] = Math.max(0f, l[e] + k * t[e]);
+                }
+            }
+        }
+        return new ForecastTable(baseTime, n, Arrays.copyOf(samples, n), values);
+    }
+
+    private Map<Integer, Double> horizons(ForecastTable current, int metric, int e) {
+        Map<Integer, Double> result = new LinkedHashMap<>();
+        for (int h = 0; h < HORIZON_MINUTES.length; h++) {
+            result.put(HORIZON_MINUTES[h], (double) current.values[metric][h][e]);
+        }
+        return result;
+    }
+
+    private void ensureCapacity(int edgeCount) {
+        if (edgeCount <= capacity) {
+            return;
+        }
+        int grown = Math.max(edgeCount, capacity * 2);
+        for (int m = 0; m < METRICS; m++) {
+            level[m] = Arrays.copyOf(level[m], grown);
+            trend[m] = Arrays.copyOf(trend[m], grown);
+            sum[m] = Arrays.copyOf(sum[m], grown);
+        }
+        observations = Arrays.copyOf(observations, grown);
+        samples = Arrays.copyOf(samples, grown);
+        capacity = grown;
+    }
+
+    /** Immutable forecasts of one step, [metric][horizon][edge]. */
+    private record ForecastTable(double baseTime, int edgeCount, int[] samples, float[][][] values) {
+    }
+}
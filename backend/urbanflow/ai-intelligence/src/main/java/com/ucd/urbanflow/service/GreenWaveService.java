@@ -0,0 +1,727 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.CorridorPlan;
+import com.ucd.urbanflow.domain.dto.CorridorRequest;
+import com.ucd.urbanflow.domain.dto.CorridorSignal;
+import com.ucd.urbanflow.domain.dto.RouteResult;
+import com.ucd.urbanflow.domain.dto.SignalBatch;
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Green-wave offsets for arterial corridors.
+ * <p>
+ * A corridor is an ordered list of signalised junctions. The edges between consecutive
+ * junctions are resolved once on the routing graph in both directions; their live travel
+ * times come from {@link RoutingService} on every snapshot. The green window of the
+ * through movement in each direction is taken from the phases learned by the
+ * max-pressure controller and the durations seen for them in sumo:tls, stretched to a
+ * common cycle.
+ * <p>
+ * Offsets maximise outbound plus inbound bandwidth, the width of the time band that
+ * passes every junction on green. Bandwidth for a set of offsets is an intersection of
+ * circular intervals, O(n); offsets are improved one junction at a time over every
+ * second of the cycle from several starting points (each one-way ideal and the previous
+ * plan), which takes a few milliseconds for a 30-junction corridor. Plans are
+ * re-optimised when a segment's travel time moves past the threshold and can be pushed
+ * to signal-control as one staggered batch.
+ */
+@Service
+@Order(50)
+@Slf4j
+public class GreenWaveService implements SnapshotListener {
+
+    private static final String SOURCE = "ai-greenwave";
+    private static final int MAX_ROUTE_CANDIDATES = 8;
+
+    private final RoutingService routingService;
+    private final MaxPressureService maxPressureService;
+    private final SignalControlClient signalControlClient;
+    private final long reoptimizeMillis;
+    private final double speedChangeThreshold;
+    private final long pushIntervalMillis;
+    private final int pushMinChangeSeconds;
+    private final float defaultPhaseSeconds;
+    private final int maxSweeps;
+
+    private final Map<String, Corridor> corridors = new ConcurrentHashMap<>();
+    // tlsId -> green pattern -> last duration seen; only touched from the snapshot thread
+    private final Map<String, Map<String, Float>> phaseDurations = new HashMap<>();
+
+    public GreenWaveService(RoutingService routingService,
+                            MaxPressureService maxPressureService,
+                            SignalControlClient signalControlClient,
+                            @Value("${ai.greenwave.reoptimize-seconds:30}") long reoptimizeSeconds,
+                            @Value("${ai.greenwave.speed-change-threshold:0.1}") double speedChangeThreshold,
+                            @Value("${ai.greenwave.push-interval-seconds:120}") long pushIntervalSeconds,
+                            @Value("${ai.greenwave.push-min-change-seconds:2}") int pushMinChangeSeconds,
+                            @Value("${ai.greenwave.default-phase-seconds:30}") float defaultPhaseSeconds,
+                            @Value("${ai.greenwave.max-sweeps:20}") int maxSweeps) {
+        this.routingService = routingService;
+        this.maxPressureService = maxPressureService;
+        this.signalControlClient = signalControlClient;
+        this.reoptimizeMillis = reoptimizeSeconds * 1000;
+        this.speedChangeThreshold = speedChangeThreshold;
+        this.pushIntervalMillis = pushIntervalSeconds * 1000;
+        this.pushMinChangeSeconds = pushMinChangeSeconds;
+        this.defaultPhaseSeconds = defaultPhaseSeconds;
+        this.maxSweeps = maxSweeps;
+    }
+
+    public CorridorPlan register(CorridorRequest request) {
+        List<String> junctions = request.getJunctionIds();
+        if (junctions == null || junctions.size() < 2) {
+            throw new IllegalArgumentException("A corridor needs at least two junctions");
+        }
+        if (new LinkedHashSet<>(junctions).size() != junctions.size()) {
+            throw new IllegalArgumentException("A corridor may not visit a junction twice");
+        }
+        if (request.getCycleSeconds() != null && request.getCycleSeconds() < 10) {
+            throw new IllegalArgumentException("cycleSeconds must be at least 10");
+        }
+        String id = request.getCorridorId() == null || request.getCorridorId().isBlank()
+                ? UUID.randomUUID().toString() : request.getCorridorId();
+        Corridor corridor = new Corridor(id, List.copyOf(junctions), request.getCycleSeconds(), request.isAutoPush());
+        corridors.put(id, corridor);
+        return corridor.plan;
+    }
+
+    public boolean remove(String corridorId) {
+        return corridors.remove(corridorId) != null;
+    }
+
+    public CorridorPlan getPlan(String corridorId) {
+        Corridor corridor = corridors.get(corridorId);
+        return corridor == null ? null : corridor.plan;
+    }
+
+    public List<CorridorPlan> getPlans() {
+        List<CorridorPlan> plans = new ArrayList<>();
+        for (Corridor corridor : corridors.values()) {
+            plans.add(corridor.plan);
+        }
+        return plans;
+    }
+
+    /** Sends the current plan of a corridor now, regardless of autoPush. */
+    public CorridorPlan push(String corridorId) {
+        Corridor corridor = corridors.get(corridorId);
+        if (corridor == null) {
+            return null;
+        }
+        CorridorPlan plan = corridor.plan;
+        if (plan.getSignals() == null) {
+            throw new IllegalStateException("Corridor " + corridorId + " has no plan yet: " + plan.getStatus());
+        }
+        return send(corridor, plan);
+    }
+
+    @Override
+    public void onSnapshot(TrafficSnapshot snapshot) {
+        if (corridors.isEmpty()) {
+            return;
+        }
+        learnDurations(snapshot);
+        long now = System.currentTimeMillis();
+        for (Corridor corridor : corridors.values()) {
+            try {
+                update(corridor, snapshot, now);
+            } catch (Exception e) {
+                log.warn("Green wave update for corridor {} failed: {}", corridor.id, e.getMessage());
+                corridor.plan = status(corridor, "error: " + e.getMessage());
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------ per snapshot
+
+    private void learnDurations(TrafficSnapshot s) {
+        for (Corridor corridor : corridors.values()) {
+            for (String junctionId : corridor.junctions) {
+                Integer t = s.getTlsIndexByJunction().get(junctionId);
+                if (t == null || s.getStates()[t] == null) {
+                    continue;
+                }
+                phaseDurations.computeIfAbsent(s.getTlsIds()[t], k -> new HashMap<>())
+                        .put(greenPattern(s.getStates()[t]), s.getDurations()[t]);
+            }
+        }
+    }
+
+    private void update(Corridor c, TrafficSnapshot s, long now) {
+        if (c.segments == null) {
+            if (!routingService.isReady()) {
+                c.plan = status(c, "waiting for the routing graph");
+                return;
+            }
+            if (now - c.resolveFailedAt < reoptimizeMillis) {
+                return;
+            }
+            try {
+                resolve(c, s);
+            } catch (RuntimeException e) {
+                c.resolveFailedAt = now;
+                throw e;
+            }
+        }
+
+        int n = c.junctions.size();
+        double[] out = new double[n - 1];
+        double[] in = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            out[i] = travelTime(c.segments[i]);
+            in[i] = travelTime(c.reverse[i]);
+        }
+        boolean changed = c.usedOut == null
+                || exceeds(out, c.usedOut) || exceeds(in, c.usedIn)
+                || now - c.optimizedAt > reoptimizeMillis;
+        if (!changed) {
+            return;
+        }
+
+        CorridorPlan previous = c.plan;
+        CorridorPlan plan = optimize(c, s, out, in, now);
+        c.usedOut = out;
+        c.usedIn = in;
+        c.optimizedAt = now;
+        c.plan = plan;
+
+        if (c.autoPush && now - c.pushedAt >= pushIntervalMillis && differs(previous, plan)) {
+            send(c, plan);
+        }
+    }
+
+    private boolean exceeds(double[] current, double[] used) {
+        for (int i = 0; i < current.length; i++) {
+            if (Math.abs(current[i] - used[i]) > speedChangeThreshold * Math.max(1.0, used[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean differs(CorridorPlan previous, CorridorPlan plan) {
+        if (previous == null || previous.getSignals() == null || previous.getPushedAt() == 0
+                || previous.getCycleSeconds() != plan.getCycleSeconds()) {
+            return true;
+        }
+        for (int i = 0; i < plan.getSignals().size(); i++) {
+            int a = previous.getSignals().get(i).getOffsetSeconds();
+            int b = plan.getSignals().get(i).getOffsetSeconds();
+            int d = Math.floorMod(a - b, plan.getCycleSeconds());
+            if (Math.min(d, plan.getCycleSeconds() - d) >= pushMinChangeSeconds) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double travelTime(String[] path) {
+        double total = 0;
+        for (String edgeId : path) {
+            float t = routingService.travelTime(edgeId);
+            total += Float.isNaN(t) ? 0 : t;
+        }
+        return total;
+    }
+
+    // ------------------------------------------------------------------ topology
+
+    /**
+     * Finds the edge path from each junction to the next and back, and the through link
+     * of every junction in both directions.
+     */
+    private void resolve(Corridor c, TrafficSnapshot s) {
+        int n = c.junctions.size();
+        int[] tls = new int[n];
+        for (int i = 0; i < n; i++) {
+            Integer t = s.getTlsIndexByJunction().get(c.junctions.get(i));
+            if (t == null) {
+                throw new IllegalArgumentException("Junction " + c.junctions.get(i) + " has no traffic light");
+            }
+            tls[i] = t;
+        }
+        String[][] segments = new String[n - 1][];
+        String[][] reverse = new String[n - 1][];
+        for (int i = 0; i < n - 1; i++) {
+            segments[i] = connect(s, tls[i], tls[i + 1]);
+            reverse[i] = connect(s, tls[i + 1], tls[i]);
+        }
+
+        int[] outLink = new int[n];
+        int[] inLink = new int[n];
+        for (int i = 0; i < n; i++) {
+            String outFrom = i > 0 ? last(segments[i - 1]) : null;
+            String outTo = i < n - 1 ? segments[i][0] : null;
+            String inFrom = i < n - 1 ? last(reverse[i]) : null;
+            String inTo = i > 0 ? reverse[i - 1][0] : null;
+            outLink[i] = throughLink(s, tls[i], outFrom, outTo);
+            inLink[i] = throughLink(s, tls[i], inFrom, inTo);
+            if (outLink[i] < 0 || inLink[i] < 0) {
+                throw new IllegalStateException("No through movement along the corridor at " + c.junctions.get(i));
+            }
+        }
+        c.tls = tls;
+        c.segments = segments;
+        c.reverse = reverse;
+        c.outLink = outLink;
+        c.inLink = inLink;
+    }
+
+    /** Edge path from the exit of one junction to the stop line of the next. */
+    private String[] connect(TrafficSnapshot s, int fromTls, int toTls) {
+        Set<String> exits = new LinkedHashSet<>();
+        Set<String> entries = new LinkedHashSet<>();
+        int[] linkStart = s.getLinkStart();
+        for (int l = linkStart[fromTls]; l < linkStart[fromTls + 1]; l++) {
+            if (s.getLinkToEdge()[l] >= 0) {
+                exits.add(s.getEdgeIds()[s.getLinkToEdge()[l]]);
+            }
+        }
+        for (int l = linkStart[toTls]; l < linkStart[toTls + 1]; l++) {
+            if (s.getLinkFromEdge()[l] >= 0) {
+                entries.add(s.getEdgeIds()[s.getLinkFromEdge()[l]]);
+            }
+        }
+        for (String edge : exits) {
+            if (entries.contains(edge)) {
+                return new String[]{edge};
+            }
+        }
+
+        RouteResult best = null;
+        int tried = 0;
+        for (String exit : exits) {
+            for (String entry : entries) {
+                if (tried++ >= MAX_ROUTE_CANDIDATES * MAX_ROUTE_CANDIDATES) {
+                    break;
+                }
+                try {
+                    RouteResult route = routingService.route(exit, entry);
+                    if (route.isFound() && (best == null || route.getTravelTimeSeconds() < best.getTravelTimeSeconds())) {
+                        best = route;
+                    }
+                } catch (IllegalArgumentException ignored) {
+                    // edge not in the routing graph
+                }
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("Junctions " + s.getJunctionIds()[fromTls] + " and "
+                    + s.getJunctionIds()[toTls] + " are not connected");
+        }
+        return best.getEdges().toArray(new String[0]);
+    }
+
+    /**
+     * Link index at a TLS from one edge to another. Either end may be open (corridor
+     * ends); then the straightest candidate is taken, i.e. anything but a U-turn.
+     */
+    private static int throughLink(TrafficSnapshot s, int t, String from, String to) {
+        int base = s.getLinkStart()[t];
+        int fallback = -1;
+        for (int l = base; l < s.getLinkStart()[t + 1]; l++) {
+            int fe = s.getLinkFromEdge()[l];
+            int te = s.getLinkToEdge()[l];
+            if (fe < 0 || te < 0) {
+                continue;
+            }
+            String f = s.getEdgeIds()[fe];
+            String e = s.getEdgeIds()[te];
+            if ((from != null && !from.equals(f)) || (to != null && !to.equals(e))) {
+                continue;
+            }
+            if (!isUTurn(f, e)) {
+                return l - base;
+            }
+            fallback = l - base;
+        }
+        return fallback;
+    }
+
+    private static boolean isUTurn(String from, String to) {
+        return from.equals("-" + to) || to.equals("-" + from);
+    }
+
+    private static String last(String[] path) {
+        return path[path.length - 1];
+    }
+
+    // ------------------------------------------------------------------ optimisation
+
+    private CorridorPlan optimize(Corridor c, TrafficSnapshot s, double[] out, double[] in, long now) {
+        long start = System.nanoTime();
+        int n = c.junctions.size();
+
+        List<List<String>> phases = new ArrayList<>(n);
+        double[][] durations = new double[n][];
+        int cycle = 0;
+        for (int i = 0; i < n; i++) {
+            int t = c.tls[i];
+            int links = s.getLinkStart()[t + 1] - s.getLinkStart()[t];
+            List<String> learned = maxPressureService.getLearnedPhases(s.getTlsIds()[t], links);
+            if (learned.isEmpty()) {
+                learned = List.of(greenPattern(s.getStates()[t]));
+            }
+            Map<String, Float> seen = phaseDurations.getOrDefault(s.getTlsIds()[t], Map.of());
+            durations[i] = new double[learned.size()];
+            double natural = 0;
+            for (int p = 0; p < learned.size(); p++) {
+                Float d = seen.get(learned.get(p));
+                durations[i][p] = d == null || d <= 0 ? defaultPhaseSeconds : d;
+                natural += durations[i][p];
+            }
+            phases.add(learned);
+            cycle = Math.max(cycle, (int) Math.round(natural));
+        }
+        if (c.cycleSeconds != null) {
+            cycle = c.cycleSeconds;
+        }
+
+        // green windows on each junction's cycle, stretched to the common cycle
+        double[] outStart = new double[n];
+        double[] outGreen = new double[n];
+        double[] inStart = new double[n];
+        double[] inGreen = new double[n];
+        for (int i = 0; i < n; i++) {
+            double natural = 0;
+            for (double d : durations[i]) {
+                natural += d;
+            }
+            double scale = cycle / natural;
+            double[] w = window(phases.get(i), durations[i], c.outLink[i]);
+            outStart[i] = w[0] * scale;
+            outGreen[i] = w[1] * scale;
+            w = window(phases.get(i), durations[i], c.inLink[i]);
+            inStart[i] = w[0] * scale;
+            inGreen[i] = w[1] * scale;
+        }
+
+        // arrival shifts relative to junction 0 (outbound) and junction n-1 (inbound)
+        double[] outShift = new double[n];
+        double[] inShift = new double[n];
+        for (int i = 1; i < n; i++) {
+            outShift[i] = outShift[i - 1] + out[i - 1];
+        }
+        for (int i = n - 2; i >= 0; i--) {
+            inShift[i] = inShift[i + 1] + in[i];
+        }
+
+        Bandwidth bw = new Bandwidth(n, cycle, outStart, outGreen, outShift, inStart, inGreen, inShift);
+        int[] best = null;
+        double bestValue = -1;
+        List<int[]> starts = new ArrayList<>();
+        int[] outIdeal = new int[n];
+        int[] inIdeal = new int[n];
+        for (int i = 0; i < n; i++) {
+            outIdeal[i] = Math.floorMod((int) Math.round(outShift[i] - outStart[i] + outStart[0]), cycle);
+            inIdeal[i] = Math.floorMod((int) Math.round(inShift[i] - inStart[i] + inStart[0] - inShift[0]), cycle);
+        }
+        starts.add(outIdeal);
+        starts.add(inIdeal);
+        if (c.plan != null && c.plan.getSignals() != null && c.plan.getCycleSeconds() == cycle) {
+            int[] warm = new int[n];
+            for (int i = 0; i < n; i++) {
+                warm[i] = c.plan.getSignals().get(i).getOffsetSeconds();
+            }
+            starts.add(warm);
+        }
+        for (int[] offsets : starts) {
+            double value = bw.descend(offsets, maxSweeps);
+            if (value > bestValue) {
+                bestValue = value;
+                best = offsets;
+            }
+        }
+
+        List<CorridorSignal> signals = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            signals.add(new CorridorSignal(c.junctions.get(i), best[i], c.outLink[i], outStart[i], outGreen[i],
+                    c.inLink[i], inStart[i], inGreen[i], i < n - 1 ? out[i] : 0, i < n - 1 ? in[i] : 0));
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        CorridorPlan previous = c.plan;
+        return new CorridorPlan(c.id, c.junctions, "optimized", cycle, bw.outbound(best), bw.inbound(best),
+                signals, s.getSimTime(), micros, now,
+                previous == null ? 0 : previous.getPushedAt(), previous == null ? null : previous.getLastBatchId());
+    }
+
+    /**
+     * Start and length of the longest run of consecutive phases (wrapping around the
+     * cycle) in which the link is green.
+     */
+    private static double[] window(List<String> phases, double[] durations, int link) {
+        int p = phases.size();
+        boolean[] green = new boolean[p];
+        boolean any = false;
+        boolean all = true;
+        for (int i = 0; i < p; i++) {
+            String state = phases.get(i);
+            green[i] = link < state.length() && isGreen(state.charAt(link));
+            any |= green[i];
+            all &= green[i];
+        }
+        double total = 0;
+        for (double d : durations) {
+            total += d;
+        }
+        if (!any) {
+            return new double[]{0, 0};
+        }
+        if (all) {
+            return new double[]{0, total};
+        }
+        double bestStart = 0;
+        double bestLength = 0;
+        double offset = 0;
+        for (int i = 0; i < p; i++) {
+            if (green[i] && !green[(i + p - 1) % p]) {
+                double length = 0;
+                for (int k = 0; k < p && green[(i + k) % p]; k++) {
+                    length += durations[(i + k) % p];
+                }
+                if (length > bestLength) {
+                    bestLength = length;
+                    bestStart = offset;
+                }
+            }
+            offset += durations[i];
+        }
+        return new double[]{bestStart, bestLength};
+    }
+
+    private static String greenPattern(String state) {
+        char[] chars = new char[state.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = isGreen(state.charAt(i)) ? 'G' : 'r';
+        }
+        return new String(chars);
+    }
+
+    private static boolean isGreen(char c) {
+        return c == 'G' || c == 'g';
+    }
+
+    // ------------------------------------------------------------------ actuation
+
+    /**
+     * Pushes the plan as one batch: each junction switches to its outbound through green
+     * when its offset comes round, measured from the moment signal-control accepts it.
+     */
+    private CorridorPlan send(Corridor c, CorridorPlan plan) {
+        List<SignalCommand> commands = new ArrayList<>();
+        int cycle = plan.getCycleSeconds();
+        for (CorridorSignal signal : plan.getSignals()) {
+            int green = (int) Math.round(signal.getOutboundGreenSeconds());
+            if (green <= 0) {
+                continue;
+            }
+            long delay = Math.floorMod((int) Math.round(signal.getOffsetSeconds() + signal.getOutboundGreenStart()), cycle);
+            commands.add(new SignalCommand(signal.getJunctionId(), signal.getOutboundLightIndex(), green, "G",
+                    SOURCE, delay * 1000));
+        }
+        String batchId = c.id + "-" + UUID.randomUUID();
+        if (!commands.isEmpty() && signalControlClient.submitBatch(new SignalBatch(batchId, SOURCE, commands))) {
+            long now = System.currentTimeMillis();
+            c.pushedAt = now;
+            plan.setPushedAt(now);
+            plan.setLastBatchId(batchId);
+            log.info("Pushed green wave for corridor {} as batch {} ({} junctions, band {}/{} s)", c.id, batchId,
+                    commands.size(), Math.round(plan.getOutboundBandSeconds()), Math.round(plan.getInboundBandSeconds()));
+        }
+        return plan;
+    }
+
+    private static CorridorPlan status(Corridor c, String status) {
+        CorridorPlan plan = new CorridorPlan();
+        plan.setCorridorId(c.id);
+        plan.setJunctionIds(c.junctions);
+        plan.setStatus(status);
+        return plan;
+    }
+
+    // ------------------------------------------------------------------ state
+
+    private static final class Corridor {
+        final String id;
+        final List<String> junctions;
+        final Integer cycleSeconds;
+        final boolean autoPush;
+        volatile CorridorPlan plan;
+
+        // resolved topology and optimiser state, snapshot thread only
+        int[] tls;
+        String[][] segments;
+        String[][] reverse;
+        int[] outLink;
+        int[] inLink;
+        double[] usedOut;
+        double[] usedIn;
+        long optimizedAt;
+        long resolveFailedAt;
+        volatile long pushedAt;
+
+        Corridor(String id, List<String> junctions, Integer cycleSeconds, boolean autoPush) {
+            this.id = id;
+            this.junctions = junctions;
+            this.cycleSeconds = cycleSeconds;
+            this.autoPush = autoPush;
+            this.plan = status(this, "pending");
+        }
+    }
+
+    /**
+     * Two-way bandwidth of a set of offsets. Every junction contributes one circular
+     * green interval per direction, already shifted by the travel time from the corridor
+     * end; the band is the longest piece of their intersection.
+     */
+    private static final class Bandwidth {
+        private final int n;
+        private final int cycle;
+        private final double[] outStart;
+        private final double[] outGreen;
+        private final double[] outShift;
+        private final double[] inStart;
+        private final double[] inGreen;
+        private final double[] inShift;
+        private final double[] starts;
+        private double[] lo = new double[8];
+        private double[] hi = new double[8];
+        private double[] nextLo = new double[8];
+        private double[] nextHi = new double[8];
+
+        Bandwidth(int n, int cycle, double[] outStart, double[] outGreen, double[] outShift,
+                  double[] inStart, double[] inGreen, double[] inShift) {
+            this.n = n;
+            this.cycle = cycle;
+            this.outStart = outStart;
+            this.outGreen = outGreen;
+            this.outShift = outShift;
+            this.inStart = inStart;
+            this.inGreen = inGreen;
+            this.inShift = inShift;
+            this.starts = new double[n];
+        }
+
+        /** Coordinate ascent in place, junction 0 stays the reference. Returns the objective. */
+        double descend(int[] offsets, int maxSweeps) {
+            double value = objective(offsets);
+            for (int sweep = 0; sweep < maxSweeps; sweep++) {
+                boolean improved = false;
+                for (int i = 1; i < n; i++) {
+                    int keep = offsets[i];
+                    int bestOffset = keep;
+                    for (int o = 0; o < cycle; o++) {
+                        if (o == keep) {
+                            continue;
+                        }
+                        offsets[i] = o;
+                        double v = objective(offsets);
+                        if (v > value + 1e-9) {
+                            value = v;
+                            bestOffset = o;
+                            improved = true;
+                        }
+                    }
+                    offsets[i] = bestOffset;
+                }
+                if (!improved) {
+                    break;
+                }
+            }
+            return value;
+        }
+
+        /** Sum of both bands, with a small bonus for balance between directions. */
+        double objective(int[] offsets) {
+            double out = outbound(offsets);
+            double in = inbound(offsets);
+            return out + in + 0.01 * Math.min(out, in);
+        }
+
+        double outbound(int[] offsets) {
+            for (int i = 0; i < n; i++) {
+                starts[i] = offsets[i] + outStart[i] - outShift[i];
+            }
+            return intersect(starts, outGreen);
+        }
+
+        double inbound(int[] offsets) {
+            for (int i = 0; i < n; i++) {
+                starts[i] = offsets[i] + inStart[i] - inShift[i];
+            }
+            return intersect(starts, inGreen);
+        }
+
+        private double intersect(double[] start, double[] length) {
+            int ref = -1;
+            for (int i = 0; i < n; i++) {
+                if (length[i] <= 0) {
+                    return 0;
+                }
+                if (length[i] < cycle && (ref < 0 || length[i] < length[ref])) {
+                    ref = i;
+                }
+            }
+            if (ref < 0) {
+                return cycle;
+            }
+            int count = 1;
+            lo[0] = 0;
+            hi[0] = length[ref];
+            for (int i = 0; i < n && count > 0; i++) {
+                if (i == ref || length[i] >= cycle) {
+                    continue;
+                }
+                double d = start[i] - start[ref];
+                d -= Math.floor(d / cycle) * cycle;
+                int next = 0;
+                for (int k = 0; k < count; k++) {
+                    next = clip(lo[k], hi[k], d, d + length[i], next);
+                    next = clip(lo[k], hi[k], d - cycle, d - cycle + length[i], next);
+                }
+                double[] swap = lo;
+                lo = nextLo;
+                nextLo = swap;
+                swap = hi;
+                hi = nextHi;
+                nextHi = swap;
+                count = next;
+            }
+            double best = 0;
+            for (int k = 0; k < count; k++) {
+                best = Math.max(best, hi[k] - lo[k]);
+            }
+            return best;
+        }
+
+        private int clip(double a, double b, double c, double d, int next) {
+            double l = Math.max(a, c);
+            double h = Math.min(b, d);
+            if (h - l > 1e-9) {
+                if (next == nextLo.length) {
+                    nextLo = Arrays.copyOf(nextLo, next * 2);
+                    nextHi = Arrays.copyOf(nextHi, next * 2);
+                }
+                nextLo[next] = l;
+                nextHi[next] = h;
+                next++;
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.domain.dto.SignalRecommendation;
+import com.ucd.urbanflow.domain.pojo.MlpModel;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Pure-Java inference of the signal recommendation MLP.
+ * <p>
+ * All junctions of a snapshot are evaluated as one batch: features are written into a
+ * single row-major matrix that is reused from tick to tick, and each layer is one
+ * matrix pass into a pair of ping-pong buffers, split across the compute pool by rows.
+ * Buffers only grow when the junction count or model width grows.
+ * Recommendations are published as an immutable table per tick.
+ * <p>
+ * The model file is polled for changes and swapped in atomically; a file that fails to
+ * load or validate leaves the current model in place.
+ */
+@Service
+@Order(30)
+@Slf4j
+public class InferenceService implements SnapshotListener {
+
+    private static final int FEATURES_PER_LINK = 4;
+    private static final int ROWS_PER_TASK = 64;
+
+    private final ObjectMapper objectMapper;
+    private final ForkJoinPool computePool;
+    private final Path modelPath;
+    private final int minDuration;
+    private final int maxDuration;
+
+    private volatile MlpModel model;
+    private volatile long modelModified = -1;
+
+    // reusable batch buffers, only touched from the snapshot thread
+    private float[] features = new float[0];
+    private float[] bufferA = new float[0];
+    private float[] bufferB = new float[0];
+
+    private volatile RecommendationTable table;
+
+    public InferenceService(ObjectMapper objectMapper,
+                            ForkJoinPool computePool,
+                            @Value("${ai.inference.model-path:models/signal-mlp.json}") String modelPath,
+                            @Value("${ai.inference.min-duration-seconds:5}") int minDuration,
+                            @Value("${ai.inference.max-duration-seconds:90}") int maxDuration) {
+        this.objectMapper = objectMapper;
+        this.computePool = computePool;
+        this.modelPath = Paths.get(modelPath);
+        this.minDuration = minDuration;
+        this.maxDuration = maxDuration;
+    }
+
+    @PostConstruct
+    public void init() {
+        reloadIfChanged();
+    }
+
+    @Scheduled(fixedDelayString = "${ai.inference.reload-check-ms:5000}")
+    public void reloadIfChanged() {
+        try {
+            if (!Files.isRegularFile(modelPath)) {
+                if (modelModified != -2) {
+                    log.info("No signal model at {}, keeping the current one", modelPath.toAbsolutePath());
+                    modelModified = -2;
+                }
+                return;
+            }
+            long modified = Files.getLastModifiedTime(modelPath).toMillis();
+            if (modified != modelModified) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("Model check failed: {}", e.getMessage());
+        }
+    }
+
+    /** Loads the model file now. Returns the loaded version, or throws if it is invalid. */
+    public synchronized String reload() throws Exception {
+        long modified = Files.getLastModifiedTime(modelPath).toMillis();
+        MlpModel loaded = objectMapper.readValue(modelPath.toFile(), MlpModel.class);
+        try {
+            loaded.validate();
+        } catch (IllegalArgumentException e) {
+            modelModified = modified;   // do not retry the same broken file every poll
+            throw e;
+        }
+        model = loaded;
+        modelModified = modified;
+        log.info("Loaded signal model {} ({} link slots, {} layers)", loaded.getVersion(),
+                loaded.getLinkSlots(), loaded.getLayers().size());
+        return loaded.getVersion();
+    }
+
+    public String getModelVersion() {
+        MlpModel current = model;
+        return current == null ? null : current.getVersion();
+    }
+
+    public List<SignalRecommendation> getRecommendations() {
+        RecommendationTable current = table;
+        List<SignalRecommendation> result = new ArrayList<>();
+        if (current == null) {
+            return result;
+        }
+        for (int t = 0; t < current.junctionIds.length; t++) {
+            if (current.lightIndex[t] >= 0) {
+                result.add(current.toRecommendation(t));
+            }
+        }
+        return result;
+    }
+
+    public SignalRecommendation getRecommendation(String junctionId) {
+        RecommendationTable current = table;
+        if (current == null) {
+            return null;
+        }
+        Integer t = current.snapshot.getTlsIndexByJunction().get(junctionId);
+        return t == null || current.lightIndex[t] < 0 ? null : current.toRecommendation(t);
+    }
+
+    @Override
+    public void onSnapshot(TrafficSnapshot snapshot) {
+        MlpModel current = model;
+        int rows = snapshot.getTlsCount();
+        if (current == null || rows == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int inputSize = current.inputSize();
+        int widest = current.widestLayer();
+        if (features.length < rows * inputSize) {
+            features = new float[rows * inputSize];
+        }
+        if (bufferA.length < rows * widest) {
+            bufferA = new float[rows * widest];
+            bufferB = new float[rows * widest];
+        }
+
+        buildFeatures(snapshot, current, rows);
+        float[] output = forward(current, rows);
+        table = decode(snapshot, current, output, rows);
+        log.debug("Inference for {} junctions took {} us", rows, (System.nanoTime() - start) / 1000);
+    }
+
+    private void buildFeatures(TrafficSnapshot s, MlpModel m, int rows) {
+        float[] x = features;
+        int slots = m.getLinkSlots();
+        int inputSize = m.inputSize();
+        float[] mean = m.getFeatureMean();
+        float[] std = m.getFeatureStd();
+        double simTime = Math.max(0, s.getSimTime());
+        float daySin = (float) Math.sin(2 * Math.PI * (simTime % 86400) / 86400);
+        float dayCos = (float) Math.cos(2 * Math.PI * (simTime % 86400) / 86400);
+
+        runRows(rows, (from, to) -> {
+            int[] linkStart = s.getLinkStart();
+            int[] fromEdge = s.getLinkFromEdge();
+            int[] toEdge = s.getLinkToEdge();
+            float[] waiting = s.getWaitingCount();
+            float[] vehicles = s.getVehicleCount();
+            float[] speed = s.getSpeed();
+            int[] lanes = s.getLaneNumber();
+            for (int t = from; t < to; t++) {
+                int row = t * inputSize;
+                int base = linkStart[t];
+                int links = Math.min(slots, linkStart[t + 1] - base);
+                for (int l = 0; l < slots; l++) {
+                    int f = row + l * FEATURES_PER_LINK;
+                    int in = l < links ? fromEdge[base + l] : -1;
+                    int out = l < links ? toEdge[base + l] : -1;
+                    x[f] = in >= 0 ? waiting[in] : 0f;
+                    x[f + 1] = in >= 0 ? vehicles[in] : 0f;
+                    x[f + 2] = in >= 0 ? speed[in] : 0f;
+                    x[f + 3] = out >= 0 ? vehicles[out] / Math.max(1, lanes[out]) : 0f;
+                }
+                int g = row + slots * FEATURES_PER_LINK;
+                x[g] = s.getSpendTimes()[t];
+                x[g + 1] = s.getDurations()[t];
+                x[g + 2] = daySin;
+                x[g + 3] = dayCos;
+                if (mean != null && std != null) {
+                    for (int k = 0; k < inputSize; k++) {
+                        x[row + k] = (x[row + k] - mean[k]) / (std[k] == 0f ? 1f : std[k]);
+                    }
+                }
+            }
+        });
+    }
+
+    /** Runs all layers over the batch and returns the buffer holding the final outputs. */
+    private float[] forward(MlpModel m, int rows) {
+        float[] in = features;
+        float[] out = bufferA;
+        for (MlpModel.Layer layer : m.getLayers()) {
+            float[] src = in;
+            float[] dst = out;
+            int inN = layer.getIn();
+            int outN = layer.getOut();
+            float[] w = layer.getWeights();
+            float[] b = layer.getBias();
+            boolean relu = layer.isRelu();
+            runRows(rows, (from, to) -> {
+                for (int r = from; r < to; r++) {
+                    int x = r * inN;
+                    int y = r * outN;
+                    for (int j = 0; j < outN; j++) {
+                        int wo = j * inN;
+                        float acc = b[j];
+                        for (int k = 0; k < inN; k++) {
+                            acc += w[wo + k] * src[x + k];
+                        }
+                        dst[y + j] = relu && acc < 0f ? 0f : acc;
+                    }
+                }
+            });
+            in = dst;
+            out = dst == bufferA ? bufferB : bufferA;
+        }
+        return in;
+    }
+
+    private RecommendationTable decode(TrafficSnapshot s, MlpModel m, float[] y, int rows) {
+        int slots = m.getLinkSlots();
+        int outN = m.outputSize();
+        int[] lightIndex = new int[rows];
+        int[] duration = new int[rows];
+        float[] confidence = new float[rows];
+        for (int t = 0; t < rows; t++) {
+            int row = t * outN;
+            int links = Math.min(slots, s.getLinkStart()[t + 1] - s.getLinkStart()[t]);
+            if (links == 0) {
+                lightIndex[t] = -1;
+                continue;
+            }
+            int best = 0;
+            for (int l = 1; l < links; l++) {
+                if (y[row + l] > y[row + best]) {
+                    best = l;
+                }
+            }
+            double denom = 0;
+            for (int l = 0; l < links; l++) {
+                denom += Math.exp(y[row + l] - y[row + best]);
+            }
+            lightIndex[t] = best;
+            confidence[t] = (float) (1.0 / denom);
+            int seconds = Math.round(y[row + slots] * m.getDurationScale());
+            duration[t] = Math.max(minDuration, Math.min(maxDuration, seconds));
+        }
+        return new RecommendationTable(s, s.getJunctionIds(), lightIndex, duration, confidence, m.getVersion());
+    }
+
+    private void runRows(int rows, RowRange body) {
+        int tasks = (rows + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+        try {
+            computePool.submit(() -> IntStream.range(0, tasks).parallel().forEach(i ->
+                    body.run(i * ROWS_PER_TASK, Math.min(rows, (i + 1) * ROWS_PER_TASK)))).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Batch inference failed", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowRange {
+        void run(int from, int to);
+    }
+
+    private record RecommendationTable(TrafficSnapshot snapshot, String[] junctionIds, int[] lightIndex,
+                                       int[] duration, float[] confidence, String modelVersion) {
+        SignalRecommendation toRecommendation(int t) {
+            return new SignalRecommendation(junctionIds[t], snapshot.getTlsIds()[t], lightIndex[t], duration[t],
+                    confidence[t], modelVersion, snapshot.getSimTime());
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.MaxPressureStatus;
+import com.ucd.urbanflow.domain.dto.PhaseDecision;
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Closed-loop max-pressure controller.
+ * <p>
+ * The pressure of a link is the queue waiting on its incoming edge minus the per-lane
+ * load of its outgoing edge; the pressure of a phase is the sum over its green links.
+ * Each cycle the phase with the highest pressure is picked per junction, in parallel on
+ * the compute pool, and a switch is requested when it beats the running phase by the
+ * configured margin.
+ * <p>
+ * sumo:tls only carries the running state, so the phases of every TLS are learned from
+ * the distinct green patterns seen in the stream. signal-control switches one link at a
+ * time (it reds the conflicting ones itself), so the highest-pressure link of the
+ * winning phase is sent as the anchor of the switch.
+ */
+@Service
+@Order(10)
+@Slf4j
+public class MaxPressureService implements SnapshotListener {
+
+    private static final int MAX_PHASES_PER_TLS = 16;
+    private static final int SEQUENTIAL_THRESHOLD = 256;
+    private static final String SOURCE = "ai-maxpressure";
+
+    private final SignalControlClient signalControlClient;
+    private final ForkJoinPool computePool;
+    private final boolean enabled;
+    private final double minGreenSeconds;
+    private final int greenSeconds;
+    private final double pressureThreshold;
+    private final double holdSeconds;
+    private final int maxCommandsPerCycle;
+
+    private final Map<String, PhaseCatalogue> catalogues = new ConcurrentHashMap<>();
+    private final Map<String, Double> lastCommandSimTime = new HashMap<>();
+    private volatile MaxPressureStatus status = new MaxPressureStatus();
+
+    public MaxPressureService(SignalControlClient signalControlClient,
+                              ForkJoinPool computePool,
+                              @Value("${ai.maxpressure.enabled:false}") boolean enabled,
+                              @Value("${ai.maxpressure.min-green-seconds:10}") double minGreenSeconds,
+                              @Value("${ai.maxpressure.green-seconds:20}") int greenSeconds,
+                              @Value("${ai.maxpressure.pressure-threshold:3.0}") double pressureThreshold,
+                              @Value("${ai.maxpressure.hold-seconds:15}") double holdSeconds,
+                              @Value("${ai.maxpressure.max-commands-per-cycle:200}") int maxCommandsPerCycle) {
+        this.signalControlClient = signalControlClient;
+        this.computePool = computePool;
+        this.enabled = enabled;
+        this.minGreenSeconds = minGreenSeconds;
+        this.greenSeconds = greenSeconds;
+        this.pressureThreshold = pressureThreshold;
+        this.holdSeconds = holdSeconds;
+        this.maxCommandsPerCycle = maxCommandsPerCycle;
+        this.status.setEnabled(enabled);
+    }
+
+    public MaxPressureStatus getStatus() {
+        return status;
+    }
+
+    /** Green patterns learned so far for a TLS, 'G' for green links, in discovery order. */
+    public List<String> getLearnedPhases(String tlsId, int linkCount) {
+        PhaseCatalogue catalogue = catalogues.get(tlsId);
+        List<String> patterns = new ArrayList<>();
+        if (catalogue != null) {
+            for (int[] greens : catalogue.greenLinks) {
+                patterns.add(pattern(greens, linkCount));
+            }
+        }
+        return patterns;
+    }
+
+    @Override
+    public void onSnapshot(TrafficSnapshot snapshot) {
+        if (!enabled || snapshot.getTlsCount() == 0) {
+            return;
+        }
+        int n = snapshot.getTlsCount();
+        int[][][] phases = learnPhases(snapshot);
+
+        long start = System.nanoTime();
+        float[] linkPressure = new float[snapshot.getLinkFromEdge().length];
+        int[] bestPhase = new int[n];
+        float[] bestPressure = new float[n];
+        float[] currentPressure = new float[n];
+        computePool.invoke(new PressureTask(snapshot, phases, linkPressure, bestPhase, bestPressure, currentPressure, 0, n));
+        long computeMicros = (System.nanoTime() - start) / 1000;
+
+        List<PhaseDecision> decisions = decide(snapshot, phases, linkPressure, bestPhase, bestPressure, currentPressure);
+        int issued = (int) decisions.stream().filter(PhaseDecision::isIssued).count();
+
+        status = new MaxPressureStatus(true, snapshot.getSimTime(), n, computeMicros, issued, decisions);
+        if (issued > 0) {
+            log.info("Max-pressure cycle at t={}: {} junctions in {} us, {} switches requested",
+                    snapshot.getSimTime(), n, computeMicros, issued);
+        }
+    }
+
+    /**
+     * Adds the running green pattern of every TLS to its catalogue and returns the
+     * catalogues as green-link index arrays aligned with the snapshot's TLS order.
+     */
+    private int[][][] learnPhases(TrafficSnapshot snapshot) {
+        int n = snapshot.getTlsCount();
+        int[][][] phases = new int[n][][];
+        for (int t = 0; t < n; t++) {
+            PhaseCatalogue catalogue = catalogues.computeIfAbsent(snapshot.getTlsIds()[t], id -> new PhaseCatalogue());
+            catalogue.observe(snapshot.getStates()[t]);
+            phases[t] = catalogue.greenLinks;
+        }
+        return phases;
+    }
+
+    private List<PhaseDecision> decide(TrafficSnapshot snapshot, int[][][] phases, float[] linkPressure,
+                                       int[] bestPhase, float[] bestPressure, float[] currentPressure) {
+        List<PhaseDecision> decisions = new ArrayList<>();
+        // fall back to wall-clock seconds when the bridge has not published a simulation time
+        double now = snapshot.getSimTime() >= 0 ? snapshot.getSimTime() : snapshot.getCapturedAt() / 1000.0;
+        int issued = 0;
+
+        for (int t = 0; t < snapshot.getTlsCount(); t++) {
+            int best = bestPhase[t];
+            if (best < 0 || bestPressure[t] - currentPressure[t] < pressureThreshold) {
+                continue;
+            }
+            String state = snapshot.getStates()[t];
+            int[] greens = phases[t][best];
+            if (greens.length == 0 || isRunning(state, greens)) {
+                continue;
+            }
+
+            String junctionId = snapshot.getJunctionIds()[t];
+            Double last = lastCommandSimTime.get(junctionId);
+            boolean held = last != null && now - last < holdSeconds;
+            boolean tooEarly = snapshot.getSpendTimes()[t] < minGreenSeconds;
+
+            int base = snapshot.getLinkStart()[t];
+            int anchor = greens[0];
+            for (int l : greens) {
+                if (linkPressure[base + l] > linkPressure[base + anchor]) {
+                    anchor = l;
+                }
+            }
+
+            boolean issue = !held && !tooEarly && issued < maxCommandsPerCycle;
+            if (issue && signalControlClient.submit(new SignalCommand(junctionId, anchor, greenSeconds, "G", SOURCE, null))) {
+                lastCommandSimTime.put(junctionId, now);
+                issued++;
+            } else {
+                issue = false;
+            }
+            decisions.add(new PhaseDecision(junctionId, snapshot.getTlsIds()[t], state,
+                    pattern(greens, state.length()), currentPressure[t], bestPressure[t], anchor, issue));
+        }
+        return decisions;
+    }
+
+    private static boolean isRunning(String state, int[] greens) {
+        for (int l : greens) {
+            if (l >= state.length() || !isGreen(state.charAt(l))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isGreen(char c) {
+        return c == 'G' || c == 'g';
+    }
+
+    private static String pattern(int[] greens, int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'r');
+        for (int l : greens) {
+            if (l < length) {
+                chars[l] = 'G';
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Computes link pressures, then the pressure of every learned phase and of the
+     * running state, for TLS [from, to).
+     */
+    private static final class PressureTask extends RecursiveAction {
+        private final TrafficSnapshot s;
+        private final int[][][] phases;
+        private final float[] linkPressure;
+        private final int[] bestPhase;
+        private final float[] bestPressure;
+        private final float[] currentPressure;
+        private final int from;
+        private final int to;
+
+        PressureTask(TrafficSnapshot s, int[][][] phases, float[] linkPressure, int[] bestPhase,
+                     float[] bestPressure, float[] currentPressure, int from, int to) {
+            this.s = s;
+            this.phases = phases;
+            this.linkPressure = linkPressure;
+            this.bestPhase = bestPhase;
+            this.bestPressure = bestPressure;
+            this.currentPressure = currentPressure;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new PressureTask(s, phases, linkPressure, bestPhase, bestPressure, currentPressure, from, mid),
+                        new PressureTask(s, phases, linkPressure, bestPhase, bestPressure, currentPressure, mid, to));
+                return;
+            }
+
+            int[] linkStart = s.getLinkStart();
+            int[] fromEdge = s.getLinkFromEdge();
+            int[] toEdge = s.getLinkToEdge();
+            float[] waiting = s.getWaitingCount();
+            float[] vehicles = s.getVehicleCount();
+            int[] lanes = s.getLaneNumber();
+
+            for (int t = from; t < to; t++) {
+                int base = linkStart[t];
+                int end = linkStart[t + 1];
+                for (int l = base; l < end; l++) {
+                    int in = fromEdge[l];
+                    int out = toEdge[l];
+                    float upstream = in >= 0 ? waiting[in] : 0f;
+                    float downstream = out >= 0 ? vehicles[out] / Math.max(1, lanes[out]) : 0f;
+                    linkPressure[l] = upstream - downstream;
+                }
+
+                String state = s.getStates()[t];
+                float current = 0f;
+                for (int l = 0; l < end - base && l < state.length(); l++) {
+                    if (isGreen(state.charAt(l))) {
+                        current += linkPressure[base + l];
+                    }
+                }
+                currentPressure[t] = current;
+
+                int best = -1;
+                float bestValue = Float.NEGATIVE_INFINITY;
+                int[][] tlsPhases = phases[t];
+                for (int p = 0; p < tlsPhases.length; p++) {
+                    float sum = 0f;
+                    for (int l : tlsPhases[p]) {
+                        if (base + l < end) {
+                            sum += linkPressure[base + l];
+                        }
+                    }
+                    if (sum > bestValue) {
+                        bestValue = sum;
+                        best = p;
+                    }
+                }
+                bestPhase[t] = best;
+                bestPressure[t] = best < 0 ? current : bestValue;
+            }
+        }
+    }
+
+    /** Distinct green patterns observed for one TLS. Only written from the snapshot thread. */
+    private static final class PhaseCatalogue {
+        private final Set<String> seen = new HashSet<>();
+        private volatile int[][] greenLinks = new int[0][];
+
+        void observe(String state) {
+            if (state == null || state.isEmpty() || greenLinks.length >= MAX_PHASES_PER_TLS) {
+                return;
+            }
+            StringBuilder key = new StringBuilder(state.length());
+            int count = 0;
+            for (int i = 0; i < state.length(); i++) {
+                boolean green = isGreen(state.charAt(i));
+                key.append(green ? 'G' : 'r');
+                if (green) {
+                    count++;
+                }
+            }
+            if (count == 0 || !seen.add(key.toString())) {
+                return;
+            }
+            int[] links = new int[count];
+            for (int i = 0, k = 0; i < key.length(); i++) {
+                if (key.charAt(i) == 'G') {
+                    links[k++] = i;
+                }
+            }
+            int[][] grown = Arrays.copyOf(greenLinks, greenLinks.length + 1);
+            grown[greenLinks.length] = links;
+            greenLinks = grown;
+        }
+    }
+}
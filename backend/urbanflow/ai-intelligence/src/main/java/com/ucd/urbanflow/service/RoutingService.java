@@ -0,0 +1,534 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.RouteResult;
+import com.ucd.urbanflow.domain.pojo.LaneShape;
+import com.ucd.urbanflow.domain.pojo.RoadGraph;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Fastest-route and ETA queries on live travel times.
+ * <p>
+ * The topology is a {@link RoadGraph} built from the lane table. Each snapshot patches
+ * the per-edge travel times in place (length / live speed). Queries run A* with ALT
+ * landmark potentials.
+ * <p>
+ * Landmark distances are computed on a lower-bound metric: length divided by the highest
+ * speed ever seen on the edge (or the default speed before that). Each table set keeps
+ * the bounds it was computed from, and live weights are clamped to those bounds, so the
+ * potentials stay admissible and routes exact while traffic changes. When a faster speed
+ * lowers an edge's bound by more than 5% the tables are re-customized, in the background
+ * on the compute pool, and swapped in atomically. Until the swap, or for smaller drops,
+ * an edge that got faster keeps the weight of its old bound.
+ */
+@Service
+@Order(40)
+@Slf4j
+public class RoutingService implements SnapshotListener {
+
+    private static final long BUILD_RETRY_MILLIS = 60000;
+    private static final float BOUND_TOLERANCE = 0.95f;
+
+    private final LaneMapper laneMapper;
+    private final ForkJoinPool computePool;
+    private final float snapRadius;
+    private final float defaultSpeed;
+    private final float minSpeed;
+    private final int landmarkCount;
+    private final long rebuildMillis;
+
+    private volatile Network network;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private final AtomicBoolean customizing = new AtomicBoolean();
+    private volatile boolean boundsLowered;
+    private long lastBuildAttempt;
+
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<>();
+
+    public RoutingService(LaneMapper laneMapper,
+                          ForkJoinPool computePool,
+                          @Value("${ai.routing.snap-radius-m:30}") float snapRadius,
+                          @Value("${ai.routing.default-speed-mps:13.9}") float defaultSpeed,
+                          @Value("${ai.routing.min-speed-mps:0.5}") float minSpeed,
+                          @Value("${ai.routing.landmarks:8}") int landmarkCount,
+                          @Value("${ai.routing.rebuild-minutes:60}") long rebuildMinutes) {
+        this.laneMapper = laneMapper;
+        this.computePool = computePool;
+        this.snapRadius = snapRadius;
+        this.defaultSpeed = defaultSpeed;
+        this.minSpeed = minSpeed;
+        this.landmarkCount = landmarkCount;
+        this.rebuildMillis = rebuildMinutes * 60000;
+    }
+
+    @Override
+    public void onSnapshot(TrafficSnapshot snapshot) {
+        Network net = network;
+        long now = System.currentTimeMillis();
+        boolean stale = net != null && now - net.builtAt > rebuildMillis;
+        if ((net == null || stale) && now - lastBuildAttempt > BUILD_RETRY_MILLIS
+                && building.compareAndSet(false, true)) {
+            lastBuildAttempt = now;
+            computePool.execute(() -> buildNetwork(snapshot));
+        }
+        if (net != null) {
+            updateWeights(net, snapshot);
+        }
+    }
+
+    public RouteResult route(String fromEdge, String toEdge) {
+        Network net = network;
+        if (net == null) {
+            throw new IllegalStateException("Routing graph is not loaded yet");
+        }
+        int source = net.graph.indexOf(fromEdge);
+        int target = net.graph.indexOf(toEdge);
+        if (source < 0 || target < 0) {
+            throw new IllegalArgumentException("Unknown edge " + (source < 0 ? fromEdge : toEdge));
+        }
+        long start = System.nanoTime();
+        Workspace ws = workspace(net.graph.getNodeCount());
+        int settled = search(net, ws, source, target);
+        long micros = (System.nanoTime() - start) / 1000;
+
+        if (ws.stamp[target] != ws.generation || !ws.closed[target]) {
+            return new RouteResult(fromEdge, toEdge, false, -1, -1, Collections.emptyList(), settled, micros);
+        }
+        List<String> path = new ArrayList<>();
+        double meters = 0;
+        for (int v = target; v != -1; v = ws.parent[v]) {
+            path.add(net.graph.getEdgeIds()[v]);
+            meters += net.graph.getLength()[v];
+        }
+        Collections.reverse(path);
+        return new RouteResult(fromEdge, toEdge, true, ws.g[target], meters, path, settled, micros);
+    }
+
+    public boolean isReady() {
+        return network != null;
+    }
+
+    /** Live travel time of an edge in seconds, NaN when unknown. Used by other planners. */
+    public float travelTime(String edgeId) {
+        Network net = network;
+        int v = net == null ? -1 : net.graph.indexOf(edgeId);
+        return v < 0 ? Float.NaN : net.weight[v];
+    }
+
+    public RoadGraph getGraph() {
+        Network net = network;
+        return net == null ? null : net.graph;
+    }
+
+    // ------------------------------------------------------------------ build
+
+    private void buildNetwork(TrafficSnapshot snapshot) {
+        try {
+            long start = System.currentTimeMillis();
+            List<LaneShape> lanes = laneMapper.findAllLaneShapes();
+            RoadGraph graph = RoadGraph.build(lanes, tlsLinks(snapshot), snapRadius);
+            int n = graph.getNodeCount();
+
+            Network previous = network;
+            float[] maxSpeed = new float[n];
+            Arrays.fill(maxSpeed, defaultSpeed);
+            if (previous != null) {
+                // keep what was learned about edge speeds across topology rebuilds
+                for (int v = 0; v < n; v++) {
+                    int old = previous.graph.indexOf(graph.getEdgeIds()[v]);
+                    if (old >= 0) {
+                        maxSpeed[v] = Math.max(maxSpeed[v], previous.maxSpeed[old]);
+                    }
+                }
+            }
+            float[] bound = new float[n];
+            float[] weight = new float[n];
+            for (int v = 0; v < n; v++) {
+                bound[v] = graph.getLength()[v] / maxSpeed[v];
+                weight[v] = bound[v];
+            }
+            Landmarks landmarks = computeLandmarks(graph, bound.clone());
+
+            network = new Network(graph, weight, bound, maxSpeed, landmarks, System.currentTimeMillis());
+            log.info("Routing graph built: {} edges, {} arcs, {} landmarks in {} ms",
+                    n, graph.arcCount(), landmarks.nodes.length, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Failed to build routing graph: {}", e.getMessage());
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private static List<String[]> tlsLinks(TrafficSnapshot s) {
+        List<String[]> links = new ArrayList<>();
+        if (s == null) {
+            return links;
+        }
+        int[] from = s.getLinkFromEdge();
+        int[] to = s.getLinkToEdge();
+        for (int l = 0; l < from.length; l++) {
+            if (from[l] >= 0 && to[l] >= 0) {
+                links.add(new String[]{s.getEdgeIds()[from[l]], s.getEdgeIds()[to[l]]});
+            }
+        }
+        return links;
+    }
+
+    // ------------------------------------------------------------------ live weights
+
+    private void updateWeights(Network net, TrafficSnapshot s) {
+        int[] mapping = net.snapshotToNode;
+        if (mapping.length < s.getEdgeCount()) {
+            int old = mapping.length;
+            mapping = Arrays.copyOf(mapping, s.getEdgeCount());
+            for (int e = old; e < mapping.length; e++) {
+                mapping[e] = net.graph.indexOf(s.getEdgeIds()[e]);
+            }
+            net.snapshotToNode = mapping;
+        }
+
+        boolean lowered = false;
+        // weights must not drop below what the landmark tables in use assume
+        float[] tableBound = net.landmarks.bound();
+        boolean[] present = s.getPresent();
+        float[] speed = s.getSpeed();
+        float[] length = net.graph.getLength();
+        for (int e = 0; e < s.getEdgeCount(); e++) {
+            int v = mapping[e];
+            if (v < 0 || !present[e]) {
+                continue;
+            }
+            float sp = speed[e];
+            if (sp > net.maxSpeed[v]) {
+                net.maxSpeed[v] = sp;
+                float bound = length[v] / sp;
+                if (bound < net.bound[v] * BOUND_TOLERANCE) {
+                    lowered = true;
+                }
+                net.bound[v] = Math.min(net.bound[v], bound);
+            }
+            net.weight[v] = Math.max(tableBound[v], length[v] / Math.max(sp, minSpeed));
+        }
+
+        if (lowered) {
+            boundsLowered = true;
+        }
+        if (boundsLowered && customizing.compareAndSet(false, true)) {
+            boundsLowered = false;
+            computePool.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    net.landmarks = computeLandmarks(net.graph, net.bound.clone());
+                    log.info("Landmarks re-customized in {} ms", System.currentTimeMillis() - start);
+                } finally {
+                    customizing.set(false);
+                }
+            });
+        }
+    }
+
+    // ------------------------------------------------------------------ landmarks
+
+    /**
+     * Farthest-first landmark selection followed by one forward and one backward
+     * Dijkstra per landmark on the lower-bound metric, all landmarks in parallel.
+     */
+    private Landmarks computeLandmarks(RoadGraph graph, float[] bound) {
+        int n = graph.getNodeCount();
+        int k = Math.min(landmarkCount, n);
+        int[] nodes = new int[k];
+        if (k == 0) {
+            return new Landmarks(nodes, new float[0][], new float[0][], bound);
+        }
+        float[] minDist = new float[n];
+        Arrays.fill(minDist, Float.POSITIVE_INFINITY);
+        int next = 0;
+        for (int i = 0; i < k; i++) {
+            nodes[i] = next;
+            float[] d = dijkstra(graph, bound, next, true);
+            float best = -1f;
+            for (int v = 0; v < n; v++) {
+                minDist[v] = Math.min(minDist[v], d[v]);
+                if (minDist[v] != Float.POSITIVE_INFINITY && minDist[v] > best) {
+                    best = minDist[v];
+                    next = v;
+                }
+            }
+        }
+        float[][] from = new float[k][];
+        float[][] to = new float[k][];
+        try {
+            computePool.submit(() -> IntStream.range(0, 2 * k).parallel().forEach(i -> {
+                if (i < k) {
+                    from[i] = dijkstra(graph, bound, nodes[i], true);
+                } else {
+                    to[i - k] = dijkstra(graph, bound, nodes[i - k], false);
+                }
+            })).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Landmark computation failed", e);
+        }
+        return new Landmarks(nodes, from, to, bound);
+    }
+
+    /** Plain one-to-all Dijkstra, node weights counted on entry. */
+    private static float[] dijkstra(RoadGraph graph, float[] w, int source, boolean forward) {
+        int n = graph.getNodeCount();
+        float[] dist = new float[n];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        MinHeap heap = new MinHeap(n);
+        int[] start = forward ? graph.getOutStart() : graph.getInStart();
+        int[] arcs = forward ? graph.getOutArc() : graph.getInArc();
+        dist[source] = 0f;
+        heap.push(source, 0f);
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            float du = dist[u];
+            for (int a = start[u]; a < start[u + 1]; a++) {
+                int v = arcs[a];
+                // backwards the weight of the node being left is the one paid
+                float nd = du + (forward ? w[v] : w[u]);
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    heap.pushOrDecrease(v, nd);
+                }
+            }
+        }
+        return dist;
+    }
+
+    // ------------------------------------------------------------------ query
+
+    private int search(Network net, Workspace ws, int source, int target) {
+        ws.generation++;
+        RoadGraph graph = net.graph;
+        float[] w = net.weight;
+        Landmarks lm = net.landmarks;
+        int k = lm.nodes.length;
+        float[] fromT = new float[k];
+        float[] toT = new float[k];
+        for (int i = 0; i < k; i++) {
+            fromT[i] = lm.from[i][target];
+            toT[i] = lm.to[i][target];
+        }
+
+        int[] outStart = graph.getOutStart();
+        int[] outArc = graph.getOutArc();
+        MinHeap heap = ws.heap;
+        heap.clear();
+        touch(ws, source);
+        ws.g[source] = w[source];
+        ws.parent[source] = -1;
+        heap.push(source, w[source] + potential(lm, fromT, toT, source));
+
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int u = heap.pop();
+            ws.closed[u] = true;
+            settled++;
+            if (u == target) {
+                break;
+            }
+            float gu = ws.g[u];
+            for (int a = outStart[u]; a < outStart[u + 1]; a++) {
+                int v = outArc[a];
+                float nd = gu + w[v];
+                if (ws.stamp[v] != ws.generation) {
+                    touch(ws, v);
+                } else if (ws.closed[v] || nd >= ws.g[v]) {
+                    continue;
+                }
+                ws.g[v] = nd;
+                ws.parent[v] = u;
+                heap.pushOrDecrease(v, nd + potential(lm, fromT, toT, v));
+            }
+        }
+        return settled;
+    }
+
+    private static void touch(Workspace ws, int v) {
+        ws.stamp[v] = ws.generation;
+        ws.g[v] = Float.POSITIVE_INFINITY;
+        ws.closed[v] = false;
+    }
+
+    /** Lower bound on the cost from v to the target, from the triangle inequality per landmark. */
+    private static float potential(Landmarks lm, float[] fromT, float[] toT, int v) {
+        float best = 0f;
+        for (int i = 0; i < fromT.length; i++) {
+            float a = fromT[i] - lm.from[i][v];
+            if (a > best && a != Float.POSITIVE_INFINITY && lm.from[i][v] != Float.POSITIVE_INFINITY) {
+                best = a;
+            }
+            float b = lm.to[i][v] - toT[i];
+            if (b > best && b != Float.POSITIVE_INFINITY && toT[i] != Float.POSITIVE_INFINITY) {
+                best = b;
+            }
+        }
+        return best;
+    }
+
+    private Workspace workspace(int n) {
+        Workspace ws = workspaces.get();
+        if (ws == null || ws.g.length < n) {
+            ws = new Workspace(n);
+            workspaces.set(ws);
+        }
+        return ws;
+    }
+
+    // ------------------------------------------------------------------ state
+
+    private static final class Network {
+        final RoadGraph graph;
+        final float[] weight;
+        final float[] bound;
+        final float[] maxSpeed;
+        volatile Landmarks landmarks;
+        final long builtAt;
+        /** Snapshot edge index -> node of this graph, extended as the snapshot's edge table grows. */
+        volatile int[] snapshotToNode = new int[0];
+
+        Network(RoadGraph graph, float[] weight, float[] bound, float[] maxSpeed, Landmarks landmarks, long builtAt) {
+            this.graph = graph;
+            this.weight = weight;
+            this.bound = bound;
+            this.maxSpeed = maxSpeed;
+            this.landmarks = landmarks;
+            this.builtAt = builtAt;
+        }
+    }
+
+    /** Landmark distance tables and the per-node bounds they were computed on. */
+    private record Landmarks(int[] nodes, float[][] from, float[][] to, float[] bound) {
+    }
+
+    /** Per-thread query scratch space; generation stamps avoid clearing it between queries. */
+    private static final class Workspace {
+        final float[] g;
+        final int[] parent;
+        final int[] stamp;
+        final boolean[] closed;
+        final MinHeap heap;
+        int generation;
+
+        Workspace(int n) {
+            g = new float[n];
+            parent = new int[n];
+            stamp = new int[n];
+            closed = new boolean[n];
+            heap = new MinHeap(n);
+        }
+    }
+
+    /** Indexed binary min-heap over node ids with decrease-key. */
+    private static final class MinHeap {
+        private final int[] nodes;
+        private final float[] keys;
+        private final int[] position;   // node -> heap slot + 1, 0 when absent
+        private int size;
+
+        MinHeap(int capacity) {
+            nodes = new int[capacity];
+            keys = new float[capacity];
+            position = new int[capacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                position[nodes[i]] = 0;
+            }
+            size = 0;
+        }
+
+        void push(int node, float key) {
+            nodes[size] = node;
+            keys[size] = key;
+            position[node] = size + 1;
+            siftUp(size++);
+        }
+
+        void pushOrDecrease(int node, float key) {
+            int slot = position[node] - 1;
+            if (slot < 0) {
+                push(node, key);
+            } else if (key < keys[slot]) {
+                keys[slot] = key;
+                siftUp(slot);
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            position[top] = 0;
+            size--;
+            if (size > 0) {
+                nodes[0] = nodes[size];
+                keys[0] = keys[size];
+                position[nodes[0]] = 1;
+                siftDown(0);
+            }
+            return top;
+        }
+
+        private void siftUp(int i) {
+            int node = nodes[i];
+            float key = keys[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+            position[node] = i + 1;
+        }
+
+        private void siftDown(int i) {
+            int node = nodes[i];
+            float key = keys[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            nodes[i] = node;
+            keys[i] = key;
+            position[node] = i + 1;
+        }
+
+        private void move(int from, int to) {
+            nodes[to] = nodes[from];
+            keys[to] = keys[from];
+            position[nodes[to]] = to + 1;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.SignalBatch;
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fire-and-forget client for the signal-control API. Commands are posted from a small
+ * bounded pool so a control cycle never waits on HTTP; signal-control itself answers
+ * with a command ID straight away and tracks the rest.
+ */
+@Service
+@Slf4j
+public class SignalControlClient {
+
+    private final RestTemplate restTemplate;
+    private final String manualUrl;
+    private final String batchUrl;
+    private final ThreadPoolExecutor sender;
+
+    public SignalControlClient(@Value("${signalcontrol.base-url:http://localhost:8082}") String baseUrl) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(1000);
+        factory.setReadTimeout(3000);
+        this.restTemplate = new RestTemplate(factory);
+        this.manualUrl = baseUrl + "/api/signalcontrol/manual";
+        this.batchUrl = baseUrl + "/api/signalcontrol/batch";
+        this.sender = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024),
+                r -> {
+                    Thread t = new Thread(r, "signal-command-sender");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Queues the command for sending. Returns false when the send queue is full.
+     */
+    public boolean submit(SignalCommand command) {
+        try {
+            sender.execute(() -> send(command));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Signal command queue full, dropping command for junction {}", command.getJunctionId());
+            return false;
+        }
+    }
+
+    /**
+     * Queues a coordinated batch; signal-control validates and accepts it as a whole.
+     */
+    public boolean submitBatch(SignalBatch batch) {
+        try {
+            sender.execute(() -> {
+                try {
+                    restTemplate.postForObject(batchUrl, batch, Map.class);
+                    log.debug("Signal batch {} accepted", batch.getBatchId());
+                } catch (Exception e) {
+                    log.warn("Signal batch {} failed: {}", batch.getBatchId(), e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Signal command queue full, dropping batch {}", batch.getBatchId());
+            return false;
+        }
+    }
+
+    private void send(SignalCommand command) {
+        try {
+            Map<?, ?> response = restTemplate.postForObject(manualUrl, command, Map.class);
+            log.debug("Signal command for {} accepted: {}", command.getJunctionId(), response);
+        } catch (Exception e) {
+            log.warn("Signal command for junction {} failed: {}", command.getJunctionId(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+
+/**
+ * Callback for components that work on every new traffic snapshot.
+ * Listeners run on the snapshot thread one after another and should stay well below the poll period.
+ */
+public interface SnapshotListener {
+    void onSnapshot(TrafficSnapshot snapshot);
+}
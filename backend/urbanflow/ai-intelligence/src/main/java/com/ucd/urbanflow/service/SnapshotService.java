@@ -0,0 +1,297 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.sumo.EdgeState;
+import com.ucd.urbanflow.common.sumo.SumoFrame;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.common.sumo.TlsLink;
+import com.ucd.urbanflow.common.sumo.TlsState;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Polls sumo:edge and sumo:tls once per control cycle and turns them into a
+ * {@link TrafficSnapshot}. Edge IDs are interned to stable indexes so that consumers
+ * can keep their own per-edge state in plain arrays across ticks.
+ * <p>
+ * Both hashes come from one pipelined {@link SumoStateReader#readFrame} and are decoded
+ * in parallel on the compute pool, into one reused {@link EdgeState} per worker; the
+ * vehicle ID lists are skipped rather than materialised.
+ */
+@Service
+@Slf4j
+public class SnapshotService {
+
+    private static final ThreadLocal<EdgeState> EDGE_STATE = ThreadLocal.withInitial(EdgeState::new);
+
+    private final SumoStateReader sumoStateReader;
+    private final ForkJoinPool computePool;
+    private final ObjectProvider<SnapshotListener> listeners;
+    private final long pollMillis;
+    private final long topologyRefreshMillis;
+
+    // stable edge interning, only grows; slots below registeredEdges are never rewritten
+    private final Map<String, Integer> edgeIndex = new ConcurrentHashMap<>();
+    private volatile String[] edgeRegistry = new String[1024];
+    private volatile int registeredEdges;
+
+    // resolved TLS links, refreshed every topologyRefreshMillis
+    private final Map<String, TlsLinks> linkCache = new ConcurrentHashMap<>();
+
+    private volatile TrafficSnapshot latest;
+
+    public SnapshotService(SumoStateReader sumoStateReader,
+                           ForkJoinPool computePool,
+                           ObjectProvider<SnapshotListener> listeners,
+                           @Value("${ai.snapshot.poll-ms:1000}") long pollMillis,
+                           @Value("${ai.snapshot.topology-refresh-ms:60000}") long topologyRefreshMillis) {
+        this.sumoStateReader = sumoStateReader;
+        this.computePool = computePool;
+        this.listeners = listeners;
+        this.pollMillis = pollMillis;
+        this.topologyRefreshMillis = topologyRefreshMillis;
+    }
+
+    /** Latest published snapshot, or null before the first successful poll. */
+    public TrafficSnapshot getLatest() {
+        return latest;
+    }
+
+    public int edgeIndexOf(String edgeId) {
+        Integer index = edgeIndex.get(edgeId);
+        return index == null ? -1 : index;
+    }
+
+    public String edgeIdOf(int index) {
+        return index >= 0 && index < registeredEdges ? edgeRegistry[index] : null;
+    }
+
+    public int getRegisteredEdges() {
+        return registeredEdges;
+    }
+
+    @Scheduled(fixedRateString = "${ai.snapshot.poll-ms:1000}")
+    public void poll() {
+        long start = System.nanoTime();
+        TrafficSnapshot snapshot;
+        try {
+            snapshot = readSnapshot();
+        } catch (Exception e) {
+            log.warn("Failed to read traffic snapshot from Redis: {}", e.getMessage());
+            return;
+        }
+        if (snapshot == null) {
+            return;
+        }
+        latest = snapshot;
+        long readMillis = (System.nanoTime() - start) / 1_000_000;
+
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onSnapshot(snapshot);
+            } catch (Exception e) {
+                log.error("Snapshot listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        });
+
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+        if (totalMillis > pollMillis) {
+            log.warn("Snapshot cycle took {} ms (read {} ms), longer than the {} ms poll period",
+                    totalMillis, readMillis, pollMillis);
+        } else {
+            log.debug("Snapshot cycle: {} edges, {} TLS, read {} ms, total {} ms",
+                    snapshot.getEdgeCount(), snapshot.getTlsCount(), readMillis, totalMillis);
+        }
+    }
+
+    private TrafficSnapshot readSnapshot() throws Exception {
+        SumoFrame frame = sumoStateReader.readFrame(true, true);
+        if (frame.isEmpty()) {
+            return null;
+        }
+
+        TrafficSnapshot snapshot = new TrafficSnapshot();
+        snapshot.setCapturedAt(System.currentTimeMillis());
+        snapshot.setSimTime(Double.isNaN(frame.getSimulationTime()) ? -1 : frame.getSimulationTime());
+        fillEdges(snapshot, frame);
+        fillTls(snapshot, frame);
+        return snapshot;
+    }
+
+    private void fillEdges(TrafficSnapshot snapshot, SumoFrame frame) throws Exception {
+        // interning is sequential, decoding is parallel
+        int n = frame.getEdgeCount();
+        int[] slots = new int[n];
+        for (int k = 0; k < n; k++) {
+            slots[k] = intern(frame.getEdgeId(k));
+        }
+
+        String[] registry = edgeRegistry;
+        int edgeCount = registeredEdges;
+        boolean[] present = new boolean[edgeCount];
+        float[] vehicleCount = new float[edgeCount];
+        float[] waitingCount = new float[edgeCount];
+        float[] speed = new float[edgeCount];
+        float[] waitTime = new float[edgeCount];
+        int[] laneNumber = new int[edgeCount];
+
+        computePool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            int slot = slots[i];
+            EdgeState edge = EDGE_STATE.get();
+            try {
+                frame.decodeEdge(i, edge);
+            } catch (Exception e) {
+                log.warn("Failed to decode edge {}", registry[slot]);
+                return;
+            }
+            vehicleCount[slot] = edge.getVehicleCount();
+            waitingCount[slot] = edge.getWaitingVehicleCount();
+            speed[slot] = (float) edge.getSpeed();
+            waitTime[slot] = (float) edge.getWaitTime();
+            laneNumber[slot] = edge.getLaneNumber();
+            present[slot] = true;
+        })).get();
+
+        snapshot.setEdgeCount(edgeCount);
+        snapshot.setEdgeIds(registry);
+        snapshot.setPresent(present);
+        snapshot.setVehicleCount(vehicleCount);
+        snapshot.setWaitingCount(waitingCount);
+        snapshot.setSpeed(speed);
+        snapshot.setWaitTime(waitTime);
+        snapshot.setLaneNumber(laneNumber);
+        snapshot.setEdgeIndex(Collections.unmodifiableMap(edgeIndex));
+    }
+
+    private void fillTls(TrafficSnapshot snapshot, SumoFrame frame) throws Exception {
+        int n = frame.getTlsCount();
+        String[] tlsIds = new String[n];
+        for (int k = 0; k < n; k++) {
+            tlsIds[k] = frame.getTlsId(k);
+        }
+
+        String[] junctionIds = new String[n];
+        String[] junctionNames = new String[n];
+        String[] states = new String[n];
+        int[] phases = new int[n];
+        float[] durations = new float[n];
+        float[] spendTimes = new float[n];
+        float[] nextSwitchTimes = new float[n];
+        TlsLinks[] links = new TlsLinks[n];
+        long now = System.currentTimeMillis();
+
+        computePool.submit(() -> IntStream.range(0, n).parallel().forEach(i -> {
+            try {
+                TlsState tls = new TlsState();
+                frame.decodeTls(i, tls);
+                junctionIds[i] = tls.getJunctionId() == null ? tlsIds[i] : tls.getJunctionId();
+                junctionNames[i] = tls.getJunctionName() == null ? "" : tls.getJunctionName();
+                states[i] = tls.getState() == null ? "" : tls.getState();
+                phases[i] = tls.getPhase();
+                durations[i] = (float) tls.getDuration();
+                spendTimes[i] = (float) tls.getSpendTime();
+                nextSwitchTimes[i] = (float) tls.getNextSwitchTime();
+
+                TlsLinks cached = linkCache.get(tlsIds[i]);
+                if (cached == null || now - cached.resolvedAt > topologyRefreshMillis) {
+                    cached = resolveLinks(tls.getLinks(), now);
+                    linkCache.put(tlsIds[i], cached);
+                }
+                links[i] = cached;
+            } catch (Exception e) {
+                log.warn("Failed to decode TLS {}", tlsIds[i]);
+                junctionIds[i] = tlsIds[i];
+                states[i] = "";
+                links[i] = TlsLinks.EMPTY;
+            }
+        })).get();
+
+        int[] linkStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            linkStart[i + 1] = linkStart[i] + links[i].from.length;
+        }
+        int[] linkFromEdge = new int[linkStart[n]];
+        int[] linkToEdge = new int[linkStart[n]];
+        Map<String, Integer> tlsIndexByJunction = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(links[i].from, 0, linkFromEdge, linkStart[i], links[i].from.length);
+            System.arraycopy(links[i].to, 0, linkToEdge, linkStart[i], links[i].to.length);
+            tlsIndexByJunction.put(junctionIds[i], i);
+        }
+
+        snapshot.setTlsCount(n);
+        snapshot.setTlsIds(tlsIds);
+        snapshot.setJunctionIds(junctionIds);
+        snapshot.setJunctionNames(junctionNames);
+        snapshot.setStates(states);
+        snapshot.setPhases(phases);
+        snapshot.setDurations(durations);
+        snapshot.setSpendTimes(spendTimes);
+        snapshot.setNextSwitchTimes(nextSwitchTimes);
+        snapshot.setLinkStart(linkStart);
+        snapshot.setLinkFromEdge(linkFromEdge);
+        snapshot.setLinkToEdge(linkToEdge);
+        snapshot.setTlsIndexByJunction(tlsIndexByJunction);
+    }
+
+    /** The first connection of each link decides its edges. */
+    private TlsLinks resolveLinks(List<TlsLink> connection, long now) {
+        int n = connection.size();
+        int[] from = new int[n];
+        int[] to = new int[n];
+        Arrays.fill(from, -1);
+        Arrays.fill(to, -1);
+        for (int l = 0; l < n; l++) {
+            TlsLink link = connection.get(l);
+            if (link != null) {
+                from[l] = edgeIndexOf(laneToEdge(link.fromLane()));
+                to[l] = edgeIndexOf(laneToEdge(link.toLane()));
+            }
+        }
+        return new TlsLinks(from, to, now);
+    }
+
+    /** SUMO lane IDs are "<edgeId>_<laneIndex>". */
+    public static String laneToEdge(String laneId) {
+        int cut = laneId.lastIndexOf('_');
+        return cut > 0 ? laneId.substring(0, cut) : laneId;
+    }
+
+    private int intern(String edgeId) {
+        Integer index = edgeIndex.get(edgeId);
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            index = edgeIndex.get(edgeId);
+            if (index == null) {
+                index = registeredEdges;
+                String[] registry = edgeRegistry;
+                if (index == registry.length) {
+                    registry = Arrays.copyOf(registry, registry.length * 2);
+                }
+                registry[index] = edgeId;
+                edgeRegistry = registry;
+                edgeIndex.put(edgeId, index);
+                registeredEdges = index + 1;
+            }
+            return index;
+        }
+    }
+
+    private record TlsLinks(int[] from, int[] to, long resolvedAt) {
+        static final TlsLinks EMPTY = new TlsLinks(new int[0], new int[0], 0);
+    }
+}
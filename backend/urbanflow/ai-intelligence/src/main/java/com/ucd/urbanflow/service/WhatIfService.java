@@ -0,0 +1,577 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.JunctionTiming;
+import com.ucd.urbanflow.domain.dto.PlanPhase;
+import com.ucd.urbanflow.domain.dto.PlanScore;
+import com.ucd.urbanflow.domain.dto.TimingPlan;
+import com.ucd.urbanflow.domain.dto.WhatIfRequest;
+import com.ucd.urbanflow.domain.dto.WhatIfResult;
+import com.ucd.urbanflow.domain.pojo.RoadGraph;
+import com.ucd.urbanflow.domain.pojo.TrafficSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * What-if scoring of signal timing plans with a cell transmission model (CTM).
+ * <p>
+ * The edges feeding and leaving the selected junctions are cut into cells of one
+ * free-flow step each and seeded from the latest snapshot: waiting vehicles are stacked
+ * from the stop line back, moving ones spread evenly. Boundary edges keep receiving
+ * their current flow. Every candidate plan then runs over the horizon with the usual
+ * sending/receiving rules and is scored on vehicle-seconds of delay and queue length.
+ * <p>
+ * The network is compiled once per request into flat arrays shared read-only by all
+ * candidates; candidates are split across the compute pool and each leaf task reuses
+ * one set of scratch buffers, so hundreds of plans evaluate in a few seconds.
+ */
+@Service
+@Slf4j
+public class WhatIfService {
+
+    private static final int SEQUENTIAL_THRESHOLD = 2;
+    private static final long GENERATOR_SEED = 20240611L;
+
+    private final SnapshotService snapshotService;
+    private final RoutingService routingService;
+    private final MaxPressureService maxPressureService;
+    private final ForkJoinPool computePool;
+    private final int stepSeconds;
+    private final float freeFlowSpeed;
+    private final float backwardWaveSpeed;
+    private final float jamDensity;
+    private final float saturationFlow;
+    private final float defaultEdgeLength;
+    private final int maxCellsPerEdge;
+    private final int defaultHorizon;
+    private final int maxHorizon;
+    private final int maxCandidates;
+    private final int minGreen;
+    private final int cycleMin;
+    private final int cycleMax;
+    private final double queueWeight;
+
+    public WhatIfService(SnapshotService snapshotService,
+                         RoutingService routingService,
+                         MaxPressureService maxPressureService,
+                         ForkJoinPool computePool,
+                         @Value("${ai.whatif.step-seconds:2}") int stepSeconds,
+                         @Value("${ai.whatif.free-flow-speed-mps:13.9}") float freeFlowSpeed,
+                         @Value("${ai.whatif.backward-wave-mps:5.5}") float backwardWaveSpeed,
+                         @Value("${ai.whatif.jam-density-veh-per-m:0.133}") float jamDensity,
+                         @Value("${ai.whatif.saturation-flow-veh-per-s:0.5}") float saturationFlow,
+                         @Value("${ai.whatif.default-edge-length-m:100}") float defaultEdgeLength,
+                         @Value("${ai.whatif.max-cells-per-edge:32}") int maxCellsPerEdge,
+                         @Value("${ai.whatif.default-horizon-seconds:900}") int defaultHorizon,
+                         @Value("${ai.whatif.max-horizon-seconds:3600}") int maxHorizon,
+                         @Value("${ai.whatif.max-candidates:1000}") int maxCandidates,
+                         @Value("${ai.whatif.min-green-seconds:5}") int minGreen,
+                         @Value("${ai.whatif.cycle-min-seconds:40}") int cycleMin,
+                         @Value("${ai.whatif.cycle-max-seconds:120}") int cycleMax,
+                         @Value("${ai.whatif.queue-weight:10}") double queueWeight) {
+        this.snapshotService = snapshotService;
+        this.routingService = routingService;
+        this.maxPressureService = maxPressureService;
+        this.computePool = computePool;
+        this.stepSeconds = Math.max(1, stepSeconds);
+        this.freeFlowSpeed = freeFlowSpeed;
+        this.backwardWaveSpeed = backwardWaveSpeed;
+        this.jamDensity = jamDensity;
+        this.saturationFlow = saturationFlow;
+        this.defaultEdgeLength = defaultEdgeLength;
+        this.maxCellsPerEdge = maxCellsPerEdge;
+        this.defaultHorizon = defaultHorizon;
+        this.maxHorizon = maxHorizon;
+        this.maxCandidates = maxCandidates;
+        this.minGreen = minGreen;
+        this.cycleMin = cycleMin;
+        this.cycleMax = cycleMax;
+        this.queueWeight = queueWeight;
+    }
+
+    public WhatIfResult evaluate(WhatIfRequest request) {
+        TrafficSnapshot snapshot = snapshotService.getLatest();
+        if (snapshot == null) {
+            throw new IllegalStateException("No traffic snapshot available yet");
+        }
+        if (request.getJunctionIds() == null || request.getJunctionIds().isEmpty()) {
+            throw new IllegalArgumentException("junctionIds must not be empty");
+        }
+        Map<String, Integer> local = new LinkedHashMap<>();
+        for (String junctionId : request.getJunctionIds()) {
+            Integer t = snapshot.getTlsIndexByJunction().get(junctionId);
+            if (t == null) {
+                throw new IllegalArgumentException("Junction " + junctionId + " has no traffic light in the snapshot");
+            }
+            local.putIfAbsent(junctionId, t);
+        }
+        int horizon = request.getHorizonSeconds() == null ? defaultHorizon
+                : Math.max(stepSeconds, Math.min(maxHorizon, request.getHorizonSeconds()));
+
+        List<TimingPlan> candidates = new ArrayList<>();
+        if (request.getCandidates() != null) {
+            candidates.addAll(request.getCandidates());
+        }
+        int generate = request.getGenerate() == null ? 0 : request.getGenerate();
+        if (candidates.size() + generate > maxCandidates) {
+            throw new IllegalArgumentException("At most " + maxCandidates + " candidates per request");
+        }
+        if (generate > 0) {
+            candidates.add(currentPlan(snapshot, local));
+            candidates.addAll(generatePlans(snapshot, local, generate - 1));
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("No candidates given and none requested via generate");
+        }
+
+        long start = System.currentTimeMillis();
+        Model model = compile(snapshot, local);
+        CompiledPlan[] plans = new CompiledPlan[candidates.size()];
+        for (int i = 0; i < plans.length; i++) {
+            plans[i] = compilePlan(model, snapshot, local, candidates.get(i), i);
+        }
+        int steps = (horizon + stepSeconds - 1) / stepSeconds;
+        double[][] metrics = new double[plans.length][];
+        computePool.invoke(new EvaluateTask(model, plans, steps, metrics, 0, plans.length));
+        long elapsed = System.currentTimeMillis() - start;
+
+        List<PlanScore> ranking = new ArrayList<>(plans.length);
+        for (int i = 0; i < plans.length; i++) {
+            double[] m = metrics[i];
+            double score = m[0] + queueWeight * m[1];
+            ranking.add(new PlanScore(0, candidates.get(i).getPlanId(), score, m[0], m[1], m[2], m[3], candidates.get(i)));
+        }
+        ranking.sort(Comparator.comparingDouble(PlanScore::getScore));
+        for (int i = 0; i < ranking.size(); i++) {
+            ranking.get(i).setRank(i + 1);
+        }
+        log.info("What-if: {} plans over {} cells x {} steps in {} ms",
+                plans.length, model.cells, steps, elapsed);
+        return new WhatIfResult(snapshot.getSimTime(), horizon, model.cells, plans.length, elapsed, ranking);
+    }
+
+    // ------------------------------------------------------------------ candidates
+
+    /** The running state of every junction held with its current duration, as a reference. */
+    private TimingPlan currentPlan(TrafficSnapshot s, Map<String, Integer> local) {
+        List<JunctionTiming> timings = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : local.entrySet()) {
+            int t = entry.getValue();
+            List<String> phases = phasesOf(s, t);
+            int duration = Math.max(minGreen, Math.round(s.getDurations()[t]));
+            List<PlanPhase> plan = new ArrayList<>();
+            for (String state : phases) {
+                plan.add(new PlanPhase(state, duration));
+            }
+            timings.add(new JunctionTiming(entry.getKey(), 0, plan));
+        }
+        return new TimingPlan("current", timings);
+    }
+
+    /** Random cycle lengths, splits and offsets over the learned phases, reproducible per request. */
+    private List<TimingPlan> generatePlans(TrafficSnapshot s, Map<String, Integer> local, int count) {
+        Random random = new Random(GENERATOR_SEED + count);
+        Map<String, List<String>> phases = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : local.entrySet()) {
+            phases.put(entry.getKey(), phasesOf(s, entry.getValue()));
+        }
+        List<TimingPlan> plans = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            int cycle = cycleMin + random.nextInt(Math.max(1, cycleMax - cycleMin + 1));
+            List<JunctionTiming> timings = new ArrayList<>();
+            for (String junctionId : local.keySet()) {
+                List<String> states = phases.get(junctionId);
+                double[] weights = new double[states.size()];
+                double total = 0;
+                for (int p = 0; p < weights.length; p++) {
+                    weights[p] = 0.5 + random.nextDouble();
+                    total += weights[p];
+                }
+                List<PlanPhase> plan = new ArrayList<>();
+                for (int p = 0; p < weights.length; p++) {
+                    plan.add(new PlanPhase(states.get(p), Math.max(minGreen, (int) Math.round(cycle * weights[p] / total))));
+                }
+                timings.add(new JunctionTiming(junctionId, random.nextInt(cycle), plan));
+            }
+            plans.add(new TimingPlan("gen-" + (c + 1), timings));
+        }
+        return plans;
+    }
+
+    private List<String> phasesOf(TrafficSnapshot s, int t) {
+        int links = s.getLinkStart()[t + 1] - s.getLinkStart()[t];
+        List<String> phases = maxPressureService.getLearnedPhases(s.getTlsIds()[t], links);
+        if (phases.isEmpty()) {
+            phases = List.of(s.getStates()[t]);
+        }
+        return phases;
+    }
+
+    // ------------------------------------------------------------------ compilation
+
+    private Model compile(TrafficSnapshot s, Map<String, Integer> local) {
+        int[] linkStart = s.getLinkStart();
+        int[] linkFrom = s.getLinkFromEdge();
+        int[] linkTo = s.getLinkToEdge();
+
+        // distinct (from, to) edge pairs per junction become movements
+        Map<Integer, Integer> edgeLocal = new LinkedHashMap<>();
+        Map<Long, Integer> movementIndex = new HashMap<>();
+        List<int[]> movements = new ArrayList<>();       // {tls, from, to}
+        List<List<Integer>> movementLinks = new ArrayList<>();
+        int tlsLocal = 0;
+        for (int t : local.values()) {
+            for (int l = linkStart[t]; l < linkStart[t + 1]; l++) {
+                if (linkFrom[l] < 0 || linkTo[l] < 0) {
+                    continue;
+                }
+                int from = edgeLocal.computeIfAbsent(linkFrom[l], k -> edgeLocal.size());
+                int to = edgeLocal.computeIfAbsent(linkTo[l], k -> edgeLocal.size());
+                long key = ((long) tlsLocal << 42) | ((long) from << 21) | to;
+                Integer m = movementIndex.get(key);
+                if (m == null) {
+                    m = movements.size();
+                    movementIndex.put(key, m);
+                    movements.add(new int[]{tlsLocal, from, to});
+                    movementLinks.add(new ArrayList<>());
+                }
+                movementLinks.get(m).add(l - linkStart[t]);
+            }
+            tlsLocal++;
+        }
+
+        Model model = new Model();
+        int edges = edgeLocal.size();
+        int moves = movements.size();
+        model.edges = edges;
+        model.movFrom = new int[moves];
+        model.movTo = new int[moves];
+        model.movTls = new int[moves];
+        model.movLinks = new int[moves][];
+        model.movShare = new float[moves];
+        int[] outDegree = new int[edges];
+        boolean[] isTarget = new boolean[edges];
+        for (int m = 0; m < moves; m++) {
+            int[] mv = movements.get(m);
+            model.movTls[m] = mv[0];
+            model.movFrom[m] = mv[1];
+            model.movTo[m] = mv[2];
+            model.movLinks[m] = movementLinks.get(m).stream().mapToInt(Integer::intValue).toArray();
+            outDegree[mv[1]]++;
+            isTarget[mv[2]] = true;
+        }
+        for (int m = 0; m < moves; m++) {
+            // without turning counts, demand splits evenly over the reachable edges
+            model.movShare[m] = 1f / outDegree[model.movFrom[m]];
+        }
+
+        RoadGraph graph = routingService.getGraph();
+        float cellLength = freeFlowSpeed * stepSeconds;
+        model.delta = backwardWaveSpeed / freeFlowSpeed;
+        model.cellStart = new int[edges + 1];
+        float[] lengths = new float[edges];
+        int[] snapshotEdge = new int[edges];
+        for (Map.Entry<Integer, Integer> entry : edgeLocal.entrySet()) {
+            int e = entry.getValue();
+            snapshotEdge[e] = entry.getKey();
+            int node = graph == null ? -1 : graph.indexOf(s.getEdgeIds()[entry.getKey()]);
+            lengths[e] = node >= 0 && graph.getLength()[node] > 0 ? graph.getLength()[node] : defaultEdgeLength;
+        }
+        for (int e = 0; e < edges; e++) {
+            int cells = Math.max(1, Math.min(maxCellsPerEdge, (int) (lengths[e] / cellLength)));
+            model.cellStart[e + 1] = model.cellStart[e] + cells;
+        }
+        int cells = model.cellStart[edges];
+        model.cells = cells;
+        model.capacity = new float[cells];
+        model.maxFlow = new float[cells];
+        model.initial = new float[cells];
+        model.entryDemand = new float[edges];
+        model.exit = new boolean[edges];
+
+        for (int e = 0; e < edges; e++) {
+            int se = snapshotEdge[e];
+            int first = model.cellStart[e];
+            int count = model.cellStart[e + 1] - first;
+            int lanes = Math.max(1, s.getLaneNumber()[se]);
+            float len = lengths[e] / count;
+            for (int c = first; c < first + count; c++) {
+                model.capacity[c] = jamDensity * len * lanes;
+                model.maxFlow[c] = saturationFlow * lanes * stepSeconds;
+            }
+            if (s.getPresent()[se]) {
+                seed(model, first, count, s.getVehicleCount()[se], s.getWaitingCount()[se]);
+            }
+            model.exit[e] = outDegree[e] == 0;
+            if (!isTarget[e] && s.getPresent()[se]) {
+                // boundary inflow held at the current flow, q = k * v
+                float flow = s.getVehicleCount()[se] * Math.max(0f, s.getSpeed()[se]) / lengths[e];
+                model.entryDemand[e] = Math.min(model.maxFlow[first], flow * stepSeconds);
+            }
+        }
+        model.tlsCount = local.size();
+        return model;
+    }
+
+    private static void seed(Model model, int first, int count, float vehicles, float waiting) {
+        waiting = Math.min(waiting, vehicles);
+        float remaining = waiting;
+        for (int c = first + count - 1; c >= first && remaining > 0; c--) {
+            float put = Math.min(remaining, model.capacity[c]);
+            model.initial[c] += put;
+            remaining -= put;
+        }
+        float moving = (vehicles - waiting) / count;
+        for (int c = first; c < first + count; c++) {
+            model.initial[c] = Math.min(model.capacity[c], model.initial[c] + moving);
+        }
+    }
+
+    private CompiledPlan compilePlan(Model model, TrafficSnapshot s, Map<String, Integer> local, TimingPlan plan, int position) {
+        if (plan.getPlanId() == null) {
+            plan.setPlanId("plan-" + (position + 1));
+        }
+        Map<String, JunctionTiming> byJunction = new HashMap<>();
+        if (plan.getJunctions() != null) {
+            for (JunctionTiming timing : plan.getJunctions()) {
+                if (!local.containsKey(timing.getJunctionId())) {
+                    throw new IllegalArgumentException("Plan " + plan.getPlanId() + " times junction "
+                            + timing.getJunctionId() + " which is not in junctionIds");
+                }
+                byJunction.put(timing.getJunctionId(), timing);
+            }
+        }
+
+        CompiledPlan compiled = new CompiledPlan();
+        compiled.cycle = new int[model.tlsCount];
+        compiled.offset = new int[model.tlsCount];
+        compiled.phaseEnd = new int[model.tlsCount][];
+        String[][] states = new String[model.tlsCount][];
+        int j = 0;
+        for (Map.Entry<String, Integer> entry : local.entrySet()) {
+            JunctionTiming timing = byJunction.get(entry.getKey());
+            if (timing == null || timing.getPhases() == null || timing.getPhases().isEmpty()) {
+                // untouched junctions keep their running state
+                states[j] = new String[]{s.getStates()[entry.getValue()]};
+                compiled.phaseEnd[j] = new int[]{1};
+                compiled.cycle[j] = 1;
+            } else {
+                List<PlanPhase> phases = timing.getPhases();
+                states[j] = new String[phases.size()];
+                compiled.phaseEnd[j] = new int[phases.size()];
+                int acc = 0;
+                for (int p = 0; p < phases.size(); p++) {
+                    PlanPhase phase = phases.get(p);
+                    if (phase.getState() == null || phase.getDuration() <= 0) {
+                        throw new IllegalArgumentException("Plan " + plan.getPlanId() + " has an invalid phase at "
+                                + entry.getKey());
+                    }
+                    states[j][p] = phase.getState();
+                    acc += phase.getDuration();
+                    compiled.phaseEnd[j][p] = acc;
+                }
+                compiled.cycle[j] = acc;
+                compiled.offset[j] = Math.floorMod(timing.getOffsetSeconds(), acc);
+            }
+            j++;
+        }
+
+        int moves = model.movFrom.length;
+        compiled.green = new boolean[moves][];
+        for (int m = 0; m < moves; m++) {
+            String[] tlsStates = states[model.movTls[m]];
+            compiled.green[m] = new boolean[tlsStates.length];
+            for (int p = 0; p < tlsStates.length; p++) {
+                for (int link : model.movLinks[m]) {
+                    if (link < tlsStates[p].length() && isGreen(tlsStates[p].charAt(link))) {
+                        compiled.green[m][p] = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static boolean isGreen(char c) {
+        return c == 'G' || c == 'g';
+    }
+
+    // ------------------------------------------------------------------ simulation
+
+    /**
+     * Runs one plan and returns {delay vehicle-seconds, max queue, mean queue, throughput}.
+     */
+    private double[] simulate(Model model, CompiledPlan plan, int steps, Scratch sc) {
+        float[] n = sc.n;
+        System.arraycopy(model.initial, 0, n, 0, model.cells);
+        int[] phase = sc.phase;
+        double delay = 0;
+        double maxQueue = 0;
+        double sumQueue = 0;
+        double exited = 0;
+
+        for (int step = 0; step < steps; step++) {
+            int time = step * stepSeconds;
+            for (int j = 0; j < model.tlsCount; j++) {
+                int pos = (time + plan.offset[j]) % plan.cycle[j];
+                int[] ends = plan.phaseEnd[j];
+                int p = 0;
+                while (ends[p] <= pos) {
+                    p++;
+                }
+                phase[j] = p;
+            }
+
+            for (int c = 0; c < model.cells; c++) {
+                sc.send[c] = Math.min(n[c], model.maxFlow[c]);
+                sc.receive[c] = Math.min(model.maxFlow[c], model.delta * (model.capacity[c] - n[c]));
+                sc.out[c] = 0f;
+                sc.in[c] = 0f;
+            }
+            for (int e = 0; e < model.edges; e++) {
+                int last = model.cellStart[e + 1] - 1;
+                for (int c = model.cellStart[e]; c < last; c++) {
+                    float y = Math.min(sc.send[c], sc.receive[c + 1]);
+                    sc.out[c] += y;
+                    sc.in[c + 1] += y;
+                }
+                sc.demandInto[e] = model.entryDemand[e];
+            }
+
+            // junction flows: green movements compete for the receiving cell of their target
+            for (int m = 0; m < model.movFrom.length; m++) {
+                float d = 0f;
+                if (plan.green[m][phase[model.movTls[m]]]) {
+                    d = sc.send[model.cellStart[model.movFrom[m] + 1] - 1] * model.movShare[m];
+                }
+                sc.movDemand[m] = d;
+                sc.demandInto[model.movTo[m]] += d;
+            }
+            for (int e = 0; e < model.edges; e++) {
+                float r = sc.receive[model.cellStart[e]];
+                float d = sc.demandInto[e];
+                sc.scale[e] = d > r ? r / d : 1f;
+            }
+            for (int m = 0; m < model.movFrom.length; m++) {
+                float f = sc.movDemand[m] * sc.scale[model.movTo[m]];
+                if (f > 0f) {
+                    sc.out[model.cellStart[model.movFrom[m] + 1] - 1] += f;
+                    sc.in[model.cellStart[model.movTo[m]]] += f;
+                }
+            }
+            for (int e = 0; e < model.edges; e++) {
+                if (model.exit[e]) {
+                    int last = model.cellStart[e + 1] - 1;
+                    sc.out[last] += sc.send[last];
+                    exited += sc.send[last];
+                }
+                if (model.entryDemand[e] > 0f) {
+                    sc.in[model.cellStart[e]] += model.entryDemand[e] * sc.scale[e];
+                }
+            }
+
+            float queue = 0f;
+            for (int c = 0; c < model.cells; c++) {
+                queue += n[c] - sc.out[c];
+                n[c] += sc.in[c] - sc.out[c];
+            }
+            delay += queue * stepSeconds;
+            sumQueue += queue;
+            maxQueue = Math.max(maxQueue, queue);
+        }
+        return new double[]{delay, maxQueue, sumQueue / Math.max(1, steps), exited};
+    }
+
+    private final class EvaluateTask extends RecursiveAction {
+        private final Model model;
+        private final CompiledPlan[] plans;
+        private final int steps;
+        private final double[][] metrics;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(Model model, CompiledPlan[] plans, int steps, double[][] metrics, int from, int to) {
+            this.model = model;
+            this.plans = plans;
+            this.steps = steps;
+            this.metrics = metrics;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SEQUENTIAL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(model, plans, steps, metrics, from, mid),
+                        new EvaluateTask(model, plans, steps, metrics, mid, to));
+                return;
+            }
+            Scratch scratch = new Scratch(model);
+            for (int i = from; i < to; i++) {
+                metrics[i] = simulate(model, plans[i], steps, scratch);
+            }
+        }
+    }
+
+    /** Network shared by all candidates of one request. Read-only once compiled. */
+    private static final class Model {
+        int edges;
+        int cells;
+        int tlsCount;
+        float delta;
+        int[] cellStart;
+        float[] capacity;
+        float[] maxFlow;
+        float[] initial;
+        float[] entryDemand;
+        boolean[] exit;
+        int[] movFrom;
+        int[] movTo;
+        int[] movTls;
+        int[][] movLinks;
+        float[] movShare;
+    }
+
+    private static final class CompiledPlan {
+        int[] cycle;
+        int[] offset;
+        int[][] phaseEnd;
+        boolean[][] green;   // [movement][phase]
+    }
+
+    private static final class Scratch {
+        final float[] n;
+        final float[] send;
+        final float[] receive;
+        final float[] in;
+        final float[] out;
+        final float[] demandInto;
+        final float[] scale;
+        final float[] movDemand;
+        final int[] phase;
+
+        Scratch(Model model) {
+            n = new float[model.cells];
+            send = new float[model.cells];
+            receive = new float[model.cells];
+            in = new float[model.cells];
+            out = new float[model.cells];
+            demandInto = new float[model.edges];
+            scale = new float[model.edges];
+            movDemand = new float[model.movFrom.length];
+            phase = new int[model.tlsCount];
+        }
+    }
+}
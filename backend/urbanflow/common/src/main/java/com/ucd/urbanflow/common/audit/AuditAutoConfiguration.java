@@ -0,0 +1,30 @@
+package com.ucd.urbanflow.common.audit;
+
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Non-blocking audit publisher towards logging-and-audit, for every service that sets
+ * audit.collector-url; a blank URL keeps the publisher but turns sending off. Events
+ * are attributed to spring.application.name.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = "audit", name = "collector-url")
+public class AuditAutoConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public AuditPublisher auditPublisher(@Value("${spring.application.name}") String service,
+                                         @Value("${audit.collector-url:}") String collectorUrl,
+                                         @Value("${audit.publisher.buffer-capacity:16384}") int capacity,
+                                         @Value("${audit.publisher.batch-size:256}") int batchSize,
+                                         @Value("${audit.publisher.flush-ms:200}") long flushMillis,
+                                         ObjectProvider<InProcessExchange> exchange) {
+        return new AuditPublisher(service, collectorUrl, capacity, batchSize, flushMillis, exchange.getIfAvailable());
+    }
+}
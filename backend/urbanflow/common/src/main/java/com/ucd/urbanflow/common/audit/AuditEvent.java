@@ -0,0 +1,31 @@
+package com.ucd.urbanflow.common.audit;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One audited action. Timestamps are epoch millis. eventId and service are filled in
+ * by {@link AuditPublisher}; target is the command, batch or rule the action refers to.
+ */
+@Data
+@NoArgsConstructor
+public class AuditEvent {
+    private String eventId;
+    private long timestamp;
+    private String service;
+    private String action;
+    private String userId;
+    private String junctionId;
+    private String source;
+    private String target;
+    private String outcome;
+    private String detail;
+
+    public AuditEvent(String action, String junctionId, String target, String outcome) {
+        this.timestamp = System.currentTimeMillis();
+        this.action = action;
+        this.junctionId = junctionId;
+        this.target = target;
+        this.outcome = outcome;
+    }
+}
@@ -0,0 +1,183 @@
+package com.ucd.urbanflow.common.audit;
+
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Producer side of the audit pipeline. {@link #publish} stamps the event and offers it
+ * to an {@link AuditRingBuffer}, so the calling thread pays a CAS and an array store and
+ * never waits on the network. One daemon thread drains the ring and POSTs batches to
+ * logging-and-audit; while the collector is unreachable it retries the same batch with
+ * backoff and the ring absorbs the backlog, dropping new events once it is full.
+ * <p>
+ * When logging-and-audit runs in the same JVM (launcher mode), batches are handed to
+ * its writer through the {@link InProcessExchange} instead of being POSTed.
+ */
+public class AuditPublisher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditPublisher.class);
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final String service;
+    private final String eventsUrl;
+    private final AuditRingBuffer buffer;
+    private final int batchSize;
+    private final long flushNanos;
+    private final RestTemplate restTemplate;
+    private final Thread sender;
+    private final InProcessExchange exchange;
+    private final String idPrefix;
+    private final AtomicLong sent = new AtomicLong();
+    private volatile boolean running = true;
+    private long nextId;
+    private long reportedDrops;
+
+    /**
+     * @param collectorUrl base URL of logging-and-audit; blank disables publishing
+     */
+    public AuditPublisher(String service, String collectorUrl, int capacity, int batchSize, long flushMillis) {
+        this(service, collectorUrl, capacity, batchSize, flushMillis, null);
+    }
+
+    /**
+     * @param exchange the launcher's exchange, or null when running as a separate service
+     */
+    public AuditPublisher(String service, String collectorUrl, int capacity, int batchSize, long flushMillis,
+                          InProcessExchange exchange) {
+        this.service = service;
+        this.exchange = exchange;
+        this.buffer = new AuditRingBuffer(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushMillis));
+        this.idPrefix = service + "-" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        if (collectorUrl == null || collectorUrl.isBlank()) {
+            this.eventsUrl = null;
+            this.restTemplate = null;
+            this.sender = null;
+            logger.info("Audit publishing disabled for {}", service);
+            return;
+        }
+        this.eventsUrl = collectorUrl + "/api/audit/events";
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(1000);
+        factory.setReadTimeout(10_000);
+        this.restTemplate = new RestTemplate(factory);
+        this.sender = new Thread(this::run, "audit-publisher");
+        this.sender.setDaemon(true);
+        this.sender.start();
+    }
+
+    /** Queues the event without blocking. False when publishing is disabled or the buffer is full. */
+    public boolean publish(AuditEvent event) {
+        if (sender == null) {
+            return false;
+        }
+        event.setService(service);
+        if (event.getTimestamp() == 0) {
+            event.setTimestamp(System.currentTimeMillis());
+        }
+        return buffer.offer(event);
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getDropped() {
+        return buffer.rejected();
+    }
+
+    public int getPending() {
+        return buffer.size();
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        long backoff = 0;
+        while (true) {
+            if (batch.isEmpty()) {
+                if (drain(batch) == 0) {
+                    if (!running) {
+                        return;
+                    }
+                    LockSupport.parkNanos(flushNanos);
+                    continue;
+                }
+                if (batch.size() < batchSize && running) {
+                    // linger once so a trickle of events still goes out in a few requests
+                    LockSupport.parkNanos(flushNanos);
+                    drain(batch);
+                }
+            }
+            try {
+                deliver(batch);
+                sent.addAndGet(batch.size());
+                batch.clear();
+                backoff = 0;
+            } catch (Exception e) {
+                if (!running) {
+                    logger.warn("Discarding {} audit events on shutdown: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                if (backoff == 0) {
+                    logger.warn("Audit collector {} unavailable, retrying: {}", eventsUrl, e.getMessage());
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, Math.max(500, backoff * 2));
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+            }
+            reportDrops();
+        }
+    }
+
+    private void deliver(List<AuditEvent> batch) {
+        Function<List<AuditEvent>, Boolean> local = exchange == null ? null : exchange.lookup(InProcessExchange.AUDIT_INGEST);
+        if (local == null) {
+            restTemplate.postForObject(eventsUrl, batch, Map.class);
+        } else if (!local.apply(batch)) {
+            throw new IllegalStateException("in-process audit writer is full");
+        }
+    }
+
+    private int drain(List<AuditEvent> batch) {
+        int from = batch.size();
+        int n = buffer.drain(batch, batchSize - from);
+        for (int i = from; i < batch.size(); i++) {
+            batch.get(i).setEventId(idPrefix + Long.toString(nextId++, 36));
+        }
+        return n;
+    }
+
+    private void reportDrops() {
+        long dropped = buffer.rejected();
+        if (dropped != reportedDrops) {
+            logger.warn("Audit buffer full, {} events dropped so far", dropped);
+            reportedDrops = dropped;
+        }
+    }
+
+    /** Stops the sender after one last attempt to flush what is buffered. */
+    @Override
+    public void close() {
+        if (sender == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(sender);
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.ucd.urbanflow.common.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer ring of audit events.
+ * <p>
+ * Producers claim sequence numbers with one CAS on the head, store the event in its
+ * slot and then publish the slot by writing the sequence into a per-slot marker. The
+ * consumer reads slots in order until it reaches one whose marker is not yet its
+ * sequence, so a slow producer only holds back events claimed after it. A full ring
+ * rejects instead of waiting, which keeps offering wait-free for callers on a hot path.
+ */
+public final class AuditRingBuffer {
+
+    private final AuditEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private volatile long tail;
+
+    public AuditRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new AuditEvent[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /** Enqueues one event; false (and counted as rejected) when the ring is full. */
+    public boolean offer(AuditEvent event) {
+        long seq = claim(1);
+        if (seq < 0) {
+            return false;
+        }
+        put(seq, event);
+        return true;
+    }
+
+    /**
+     * Enqueues all events as one contiguous range or none of them. Returns the sequence
+     * following the last event, which the consumer passes once all of them are drained,
+     * or -1 when the ring has no room for the whole batch.
+     */
+    public long offerAll(List<AuditEvent> events) {
+        int n = events.size();
+        long seq = claim(n);
+        if (seq < 0) {
+            return -1;
+        }
+        for (int i = 0; i < n; i++) {
+            put(seq + i, events.get(i));
+        }
+        return seq + n;
+    }
+
+    /**
+     * Moves up to max published events into out, in sequence order. Must only be called
+     * from the single consumer thread.
+     */
+    public int drain(List<AuditEvent> out, int max) {
+        long next = tail;
+        int n = 0;
+        while (n < max) {
+            int i = (int) (next & mask);
+            if (published.get(i) != next) {
+                break;
+            }
+            out.add(slots[i]);
+            slots[i] = null;
+            next++;
+            n++;
+        }
+        if (n > 0) {
+            tail = next;
+        }
+        return n;
+    }
+
+    /** Sequence of the next event the consumer will read. */
+    public long consumed() {
+        return tail;
+    }
+
+    public int size() {
+        return (int) Math.max(0, head.get() - tail);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    private long claim(int n) {
+        if (n > slots.length) {
+            rejected.add(n);
+            return -1;
+        }
+        while (true) {
+            long seq = head.get();
+            if (seq + n - tail > slots.length) {
+                rejected.add(n);
+                return -1;
+            }
+            if (head.compareAndSet(seq, seq + n)) {
+                return seq;
+            }
+        }
+    }
+
+    private void put(long seq, AuditEvent event) {
+        int i = (int) (seq & mask);
+        slots[i] = event;
+        published.lazySet(i, seq);
+    }
+}
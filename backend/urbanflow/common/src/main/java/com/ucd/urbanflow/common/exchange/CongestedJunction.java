@@ -0,0 +1,7 @@
+package com.ucd.urbanflow.common.exchange;
+
+/**
+ * One entry of the congested-junction ranking, as passed in process between traffic-sensing and status-sync.
+ */
+public record CongestedJunction(String junctionId, String junctionName, int congestionCount) {
+}
@@ -0,0 +1,57 @@
+package com.ucd.urbanflow.common.exchange;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Direct hand-over between modules that the launcher runs in one JVM. It is a bean of
+ * the launcher's shared parent context, so it only exists in that mode: a module asks
+ * for it optionally and keeps using Redis or HTTP when it is absent, or when the module
+ * on the other side is not one of the co-located ones ({@link #isLocal}).
+ * <p>
+ * Values and call arguments must be JDK or common classes, since each module has its
+ * own class loader and only these are shared.
+ */
+public class InProcessExchange {
+
+    /** Latest top congested junctions, a {@code List<CongestedJunction>}, written by traffic-sensing. */
+    public static final String CONGESTED_JUNCTIONS = "traffic:cache:top6_congested_junctions";
+    /** Handler of logging-and-audit taking a {@code List<AuditEvent>}; returns false when it cannot take them now. */
+    public static final String AUDIT_INGEST = "audit.ingest";
+
+    private final Set<String> modules;
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+    private final Map<String, Function<?, ?>> handlers = new ConcurrentHashMap<>();
+
+    public InProcessExchange(Collection<String> modules) {
+        this.modules = Set.copyOf(modules);
+    }
+
+    /** Whether the named module runs in this JVM. */
+    public boolean isLocal(String module) {
+        return modules.contains(module);
+    }
+
+    public void put(String key, Object value) {
+        values.put(key, value);
+    }
+
+    /** The latest value for key, or null when none was put or it has another type. */
+    public <T> T get(String key, Class<T> type) {
+        Object value = values.get(key);
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    public <T, R> void register(String name, Function<T, R> handler) {
+        handlers.put(name, handler);
+    }
+
+    /** The handler registered under name, or null while its module has not started. */
+    @SuppressWarnings("unchecked")
+    public <T, R> Function<T, R> lookup(String name) {
+        return (Function<T, R>) handlers.get(name);
+    }
+}
@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.common.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Revocation broadcast on the auth:events channel. TOKEN_REVOKED ends one token
+ * (tokenId, valid until expiresAt); USER_REVOKED ends every token of subject issued
+ * before at, e.g. after a lockout or a role change.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuthEvent {
+    public static final String TOKEN_REVOKED = "TOKEN_REVOKED";
+    public static final String USER_REVOKED = "USER_REVOKED";
+
+    private String type;
+    private String tokenId;
+    private String subject;
+    private long at;
+    private long expiresAt;
+    private String reason;
+}
@@ -0,0 +1,160 @@
+package com.ucd.urbanflow.common.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pushes revocations to every service instance over Redis pub/sub and applies the ones
+ * it receives to the local {@link TokenValidator}.
+ * <p>
+ * Each revocation is also written to a Redis hash (auth:revoked-tokens, jti to expiry;
+ * auth:user-not-before, subject to time) before it is published, and an instance loads
+ * both hashes when it starts, so one that was down during a broadcast still honours it.
+ * Subscribing happens on a background thread that keeps retrying, so a service starts
+ * and validates tokens even while Redis is unreachable.
+ */
+public class AuthEventBus implements MessageListener, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthEventBus.class);
+    public static final String CHANNEL = "auth:events";
+    private static final String KEY_REVOKED_TOKENS = "auth:revoked-tokens";
+    private static final String KEY_USER_NOT_BEFORE = "auth:user-not-before";
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final StringRedisTemplate redisTemplate;
+    private final TokenValidator validator;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer container;
+    private final Thread subscriber;
+    private volatile boolean running = true;
+
+    public AuthEventBus(RedisConnectionFactory connectionFactory, StringRedisTemplate redisTemplate,
+                        TokenValidator validator, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(this, new ChannelTopic(CHANNEL));
+        container.afterPropertiesSet();
+        this.subscriber = new Thread(this::subscribe, "auth-event-subscriber");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    public void revokeToken(TokenPrincipal principal, String reason) {
+        validator.revokeToken(principal.getTokenId(), principal.getExpiresAt());
+        broadcast(new AuthEvent(AuthEvent.TOKEN_REVOKED, principal.getTokenId(), principal.getSubject(),
+                System.currentTimeMillis(), principal.getExpiresAt(), reason));
+    }
+
+    public void revokeUser(String subject, String reason) {
+        long now = System.currentTimeMillis();
+        validator.revokeUser(subject, now);
+        broadcast(new AuthEvent(AuthEvent.USER_REVOKED, null, subject, now, 0, reason));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            apply(objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), AuthEvent.class));
+        } catch (Exception e) {
+            logger.warn("Ignoring malformed auth event: {}", e.getMessage());
+        }
+    }
+
+    private void apply(AuthEvent event) {
+        if (AuthEvent.TOKEN_REVOKED.equals(event.getType())) {
+            validator.revokeToken(event.getTokenId(), event.getExpiresAt());
+        } else if (AuthEvent.USER_REVOKED.equals(event.getType())) {
+            validator.revokeUser(event.getSubject(), event.getAt());
+        }
+    }
+
+    private void broadcast(AuthEvent event) {
+        try {
+            if (AuthEvent.TOKEN_REVOKED.equals(event.getType())) {
+                redisTemplate.opsForHash().put(KEY_REVOKED_TOKENS, event.getTokenId(), String.valueOf(event.getExpiresAt()));
+            } else {
+                redisTemplate.opsForHash().put(KEY_USER_NOT_BEFORE, event.getSubject(), String.valueOf(event.getAt()));
+            }
+            redisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // the local validator already has it; other instances pick it up on their next start
+            logger.warn("Failed to broadcast {} for {}: {}", event.getType(), event.getSubject(), e.getMessage());
+        }
+    }
+
+    /** Subscribes first and loads afterwards, so nothing published in between is missed. */
+    private void subscribe() {
+        long backoff = 1000;
+        while (running) {
+            try {
+                container.start();
+                load();
+                return;
+            } catch (Exception e) {
+                if (backoff == 1000) {
+                    logger.warn("Redis unavailable, revocation events not subscribed yet: {}", e.getMessage());
+                }
+                try {
+                    container.stop();
+                } catch (Exception ignored) {
+                    // nothing was started
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(MAX_BACKOFF_MS, backoff * 2);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        running = false;
+        LockSupport.unpark(subscriber);
+        container.destroy();
+    }
+
+    /** Loads persisted revocations and drops those whose tokens have expired anyway. */
+    private void load() {
+        List<Object> expired = new ArrayList<>();
+        int tokens = 0;
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(KEY_REVOKED_TOKENS).entrySet()) {
+            if (validator.revokeToken(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()))) {
+                tokens++;
+            } else {
+                expired.add(entry.getKey());
+            }
+        }
+        if (!expired.isEmpty()) {
+            redisTemplate.opsForHash().delete(KEY_REVOKED_TOKENS, expired.toArray());
+        }
+        List<Object> outdated = new ArrayList<>();
+        int users = 0;
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(KEY_USER_NOT_BEFORE).entrySet()) {
+            if (validator.revokeUser(entry.getKey().toString(), Long.parseLong(entry.getValue().toString()))) {
+                users++;
+            } else {
+                outdated.add(entry.getKey());
+            }
+        }
+        if (!outdated.isEmpty()) {
+            redisTemplate.opsForHash().delete(KEY_USER_NOT_BEFORE, outdated.toArray());
+        }
+        logger.info("Loaded {} revoked tokens and {} user revocations", tokens, users);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ucd.urbanflow.common.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Token codec, in-memory validator and the Redis revocation channel, for every service
+ * that sets security.jwt.secret. The secret comes from the JWT_SECRET environment
+ * variable and is never committed; startup fails when it is missing or shorter than
+ * 32 bytes. security.jwt.secret and security.jwt.issuer must match across all services,
+ * and security.jwt.ttl-seconds must not be shorter than user-authentication's.
+ */
+@AutoConfiguration(after = {RedisAutoConfiguration.class, JacksonAutoConfiguration.class})
+@ConditionalOnClass(RedisConnectionFactory.class)
+@ConditionalOnProperty(prefix = "security.jwt", name = "secret")
+public class JwtAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public JwtTokenCodec jwtTokenCodec(@Value("${security.jwt.secret}") String secret,
+                                       @Value("${security.jwt.issuer:urbanflow}") String issuer) {
+        return new JwtTokenCodec(secret, issuer);
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TokenValidator tokenValidator(JwtTokenCodec codec,
+                                         @Value("${security.jwt.cache-size:10000}") int cacheSize,
+                                         @Value("${security.jwt.cache-ttl-seconds:300}") long cacheTtlSeconds,
+                                         @Value("${security.jwt.ttl-seconds:3600}") long tokenTtlSeconds) {
+        return new TokenValidator(codec, cacheSize, cacheTtlSeconds * 1000, tokenTtlSeconds * 1000);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public AuthEventBus authEventBus(RedisConnectionFactory connectionFactory, StringRedisTemplate redisTemplate,
+                                     TokenValidator validator, ObjectMapper objectMapper) {
+        return new AuthEventBus(connectionFactory, redisTemplate, validator, objectMapper);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ucd.urbanflow.common.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Issues and verifies HS256 access tokens shared by all services. Besides the standard
+ * claims a token carries the user id, the role and its issue time in milliseconds, so a
+ * revocation at time t can reject exactly the tokens issued before t.
+ */
+public class JwtTokenCodec {
+
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLE = "role";
+    private static final String CLAIM_ISSUED_MS = "iat_ms";
+
+    private final byte[] key;
+    private final String issuer;
+
+    public JwtTokenCodec(String secret, String issuer) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("security.jwt.secret is not set; provide it through JWT_SECRET");
+        }
+        if (secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+            throw new IllegalArgumentException("security.jwt.secret must be at least 32 bytes for HS256");
+        }
+        this.key = secret.getBytes(StandardCharsets.UTF_8);
+        this.issuer = issuer;
+    }
+
+    public String issue(String subject, Long userId, String role, long ttlMillis) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setIssuer(issuer)
+                .setSubject(subject)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + ttlMillis))
+                .claim(CLAIM_USER_ID, userId)
+                .claim(CLAIM_ROLE, role)
+                .claim(CLAIM_ISSUED_MS, now)
+                .signWith(SignatureAlgorithm.HS256, key)
+                .compact();
+    }
+
+    /** Checks signature, issuer and expiry. */
+    public TokenPrincipal verify(String token) throws JwtException {
+        Claims claims = Jwts.parser()
+                .setSigningKey(key)
+                .requireIssuer(issuer)
+                .parseClaimsJws(token)
+                .getBody();
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        Number issuedMs = claims.get(CLAIM_ISSUED_MS, Number.class);
+        return new TokenPrincipal(claims.getId(), claims.getSubject(),
+                userId == null ? null : userId.longValue(), claims.get(CLAIM_ROLE, String.class),
+                issuedMs != null ? issuedMs.longValue() : claims.getIssuedAt().getTime(),
+                claims.getExpiration().getTime());
+    }
+}
@@ -0,0 +1,35 @@
+package com.ucd.urbanflow.common.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Identity carried by a verified access token. subject is the login email;
+ * timestamps are epoch millis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenPrincipal implements Principal {
+    private String tokenId;
+    private String subject;
+    private Long userId;
+    private String role;
+    private long issuedAt;
+    private long expiresAt;
+
+    @Override
+    public String getName() {
+        return subject;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return role == null ? List.of() : List.of(new SimpleGrantedAuthority(role));
+    }
+}
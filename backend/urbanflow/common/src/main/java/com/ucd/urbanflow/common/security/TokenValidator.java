@@ -0,0 +1,170 @@
+package com.ucd.urbanflow.common.security;
+
+import io.jsonwebtoken.JwtException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory token validation. A verified token is cached with its claims until it
+ * expires or the cache TTL passes, so repeat requests skip the signature check as well
+ * as any database lookup. Revocations are kept next to the cache, per token ID and per
+ * user as a not-before time, and are checked on every call, so a revoked token stops
+ * working as soon as the revocation reaches this instance. A revocation is dropped once
+ * every token it can apply to has expired: a token revocation at the token's expiry, a
+ * user revocation one maximum token lifetime after its not-before time.
+ */
+public class TokenValidator {
+
+    private static final int MIN_PRUNE_AT = 1024;
+
+    private final JwtTokenCodec codec;
+    private final int maxEntries;
+    private final long cacheTtlMillis;
+    private final long maxTokenTtlMillis;
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    private final Map<String, Long> userNotBefore = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger pruneAt = new AtomicInteger(MIN_PRUNE_AT);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param maxTokenTtlMillis the longest lifetime of an issued token; must not be
+     *                          shorter than the issuer's (security.jwt.ttl-seconds)
+     */
+    public TokenValidator(JwtTokenCodec codec, int maxEntries, long cacheTtlMillis, long maxTokenTtlMillis) {
+        this.codec = codec;
+        this.maxEntries = Math.max(16, maxEntries);
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.maxTokenTtlMillis = maxTokenTtlMillis;
+    }
+
+    /** The token's principal, or null when it is malformed, expired or revoked. */
+    public TokenPrincipal validate(String token) {
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(token);
+        TokenPrincipal principal;
+        if (cached != null && cached.validUntil > now) {
+            hits.increment();
+            principal = cached.principal;
+        } else {
+            misses.increment();
+            try {
+                principal = codec.verify(token);
+            } catch (JwtException | IllegalArgumentException e) {
+                rejected.increment();
+                return null;
+            }
+            put(token, new Cached(principal, Math.min(principal.getExpiresAt(), now + cacheTtlMillis)));
+        }
+        if (principal.getExpiresAt() <= now || isRevoked(principal)) {
+            rejected.increment();
+            return null;
+        }
+        return principal;
+    }
+
+    /** Rejects the token until it expires; false when it has expired already. */
+    public boolean revokeToken(String tokenId, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return false;
+        }
+        revokedTokens.put(tokenId, expiresAt);
+        pruneRevocations(now);
+        return true;
+    }
+
+    /**
+     * Rejects every token of the user issued before notBefore; false when all of them
+     * have expired already.
+     */
+    public boolean revokeUser(String subject, long notBefore) {
+        long now = System.currentTimeMillis();
+        if (notBefore + maxTokenTtlMillis <= now) {
+            return false;
+        }
+        userNotBefore.merge(subject, notBefore, Math::max);
+        pruneRevocations(now);
+        return true;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getCacheSize() {
+        return size.get();
+    }
+
+    public int getRevocationCount() {
+        return revokedTokens.size() + userNotBefore.size();
+    }
+
+    private boolean isRevoked(TokenPrincipal principal) {
+        if (!revokedTokens.isEmpty() && principal.getTokenId() != null
+                && revokedTokens.containsKey(principal.getTokenId())) {
+            return true;
+        }
+        Long notBefore = userNotBefore.get(principal.getSubject());
+        return notBefore != null && principal.getIssuedAt() < notBefore;
+    }
+
+    private void put(String token, Cached entry) {
+        if (cache.put(token, entry) == null && size.incrementAndGet() > maxEntries) {
+            evict();
+        }
+    }
+
+    /** Drops expired entries, then arbitrary ones until a quarter of the space is free. */
+    private synchronized void evict() {
+        if (size.get() <= maxEntries) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int target = maxEntries - maxEntries / 4;
+        for (Iterator<Cached> it = cache.values().iterator(); it.hasNext(); ) {
+            if (it.next().validUntil <= now) {
+                it.remove();
+                size.decrementAndGet();
+            }
+        }
+        for (Iterator<Cached> it = cache.values().iterator(); it.hasNext() && size.get() > target; ) {
+            it.next();
+            it.remove();
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drops revocations that no unexpired token can match, each time the maps have
+     * doubled since the last pass, so the cost stays linear in the number of revocations.
+     */
+    private void pruneRevocations(long now) {
+        int limit = pruneAt.get();
+        if (getRevocationCount() < limit || !pruneAt.compareAndSet(limit, Integer.MAX_VALUE)) {
+            return;
+        }
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        userNotBefore.values().removeIf(notBefore -> notBefore + maxTokenTtlMillis <= now);
+        pruneAt.set(Math.max(MIN_PRUNE_AT, 2 * getRevocationCount()));
+    }
+
+    private record Cached(TokenPrincipal principal, long validUntil) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Edge state in the bin-1 layout: a fixed 24-byte record (tag, timestamp, speed, wait
+ * time, vehicle and waiting counts, lane number) followed by the edge name. The vehicle
+ * ID lists are not part of it; {@link BinaryVehicleCodec} stores them in their own hash.
+ * <p>
+ * A JSON document found in place of a record is decoded as json-1, so entries written
+ * before a switch of the bridge's schema still read.
+ */
+public class BinaryEdgeCodec implements StateCodec<EdgeState> {
+
+    private static final JsonEdgeCodec JSON = new JsonEdgeCodec();
+
+    @Override
+    public byte[] encode(EdgeState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BinaryFormat.EDGE_TAG);
+        out.writeDouble(state.getTimestamp());
+        out.writeFloat((float) state.getSpeed());
+        out.writeFloat((float) state.getWaitTime());
+        out.writeShort(BinaryFormat.u16(state.getVehicleCount()));
+        out.writeShort(BinaryFormat.u16(state.getWaitingVehicleCount()));
+        out.writeByte(Math.min(state.getLaneNumber(), 0xFF));
+        BinaryFormat.writeString16(out, state.getEdgeName());
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] data, EdgeState target) throws IOException {
+        if (BinaryFormat.isJson(data)) {
+            JSON.decode(data, target);
+            return;
+        }
+        ByteBuffer in = BinaryFormat.open(data, BinaryFormat.EDGE_TAG, "Edge state");
+        target.setTimestamp(in.getDouble());
+        target.setSpeed(in.getFloat());
+        target.setWaitTime(in.getFloat());
+        target.setVehicleCount(in.getShort() & 0xFFFF);
+        target.setWaitingVehicleCount(in.getShort() & 0xFFFF);
+        target.setLaneNumber(in.get() & 0xFF);
+        target.setEdgeName(BinaryFormat.readString16(in));
+    }
+}
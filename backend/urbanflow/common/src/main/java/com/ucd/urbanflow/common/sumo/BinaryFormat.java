@@ -0,0 +1,72 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Field helpers shared by the bin-1 codecs. Numbers are big-endian; strings are UTF-8
+ * behind an unsigned length, two bytes wide except for vehicle IDs. The layouts are
+ * documented with the bridge's encoder, traciModel/sumo_codec.py.
+ */
+final class BinaryFormat {
+
+    static final int EDGE_TAG = 0xB1;
+    static final int VEHICLES_TAG = 0xB2;
+    static final int TLS_TAG = 0xB3;
+    static final int NO_LANE = 0xFFFF;
+
+    private BinaryFormat() {
+    }
+
+    /** JSON documents start with '{', which no bin-1 tag does. */
+    static boolean isJson(byte[] data) {
+        return data.length > 0 && data[0] == '{';
+    }
+
+    static ByteBuffer open(byte[] data, int tag, String what) throws IOException {
+        if (data.length == 0 || (data[0] & 0xFF) != tag) {
+            throw new IOException(what + " is not in the bin-1 layout");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.position(1);
+        return buffer;
+    }
+
+    static int u16(int value) {
+        return Math.max(0, Math.min(value, 0xFFFF));
+    }
+
+    static void writeString16(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("String longer than 65535 bytes");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeString8(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFF) {
+            throw new IOException("Vehicle ID longer than 255 bytes: " + value);
+        }
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString16(ByteBuffer buffer) {
+        return readString(buffer, buffer.getShort() & 0xFFFF);
+    }
+
+    static String readString8(ByteBuffer buffer) {
+        return readString(buffer, buffer.get() & 0xFF);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
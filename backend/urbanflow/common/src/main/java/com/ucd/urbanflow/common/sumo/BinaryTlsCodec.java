@@ -0,0 +1,132 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Traffic light state in the bin-1 layout: a fixed record (tag, timestamp, duration,
+ * spent time, next switch, phase), the junction ID, name and signal state, then a table
+ * of the lanes the links use, each once, and per link its connections as three lane
+ * indexes. Every connection of a link is stored, so the JSON document can be rebuilt.
+ * A missing or empty lane (a connection without an internal via lane) is stored as
+ * index 0xFFFF rather than as a lane, and decodes to "".
+ * <p>
+ * A JSON document found in place of a record is decoded as json-1.
+ */
+public class BinaryTlsCodec implements StateCodec<TlsState> {
+
+    private static final JsonTlsCodec JSON = new JsonTlsCodec();
+
+    @Override
+    public byte[] encode(TlsState state) throws IOException {
+        Map<String, Integer> lanes = new LinkedHashMap<>();
+        List<List<TlsLink>> links = state.getConnections().isEmpty() ? firstConnections(state) : state.getConnections();
+        for (List<TlsLink> link : links) {
+            for (TlsLink connection : link) {
+                addLane(lanes, connection.fromLane());
+                addLane(lanes, connection.toLane());
+                addLane(lanes, connection.viaLane());
+            }
+        }
+        if (lanes.size() >= BinaryFormat.NO_LANE || links.size() > 0xFFFF) {
+            throw new IOException("Too many lanes or links for traffic light " + state.getTlsId());
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 16 * lanes.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BinaryFormat.TLS_TAG);
+        out.writeDouble(state.getTimestamp());
+        out.writeFloat((float) state.getDuration());
+        out.writeFloat((float) state.getSpendTime());
+        out.writeDouble(state.getNextSwitchTime());
+        out.writeShort(BinaryFormat.u16(state.getPhase()));
+        BinaryFormat.writeString16(out, state.getJunctionId());
+        BinaryFormat.writeString16(out, state.getJunctionName());
+        BinaryFormat.writeString16(out, state.getState());
+        out.writeShort(lanes.size());
+        for (String lane : lanes.keySet()) {
+            BinaryFormat.writeString16(out, lane);
+        }
+        out.writeShort(links.size());
+        for (List<TlsLink> link : links) {
+            out.writeByte(Math.min(link.size(), 0xFF));
+            for (TlsLink connection : link.subList(0, Math.min(link.size(), 0xFF))) {
+                out.writeShort(laneIndex(lanes, connection.fromLane()));
+                out.writeShort(laneIndex(lanes, connection.toLane()));
+                out.writeShort(laneIndex(lanes, connection.viaLane()));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] data, TlsState target) throws IOException {
+        if (BinaryFormat.isJson(data)) {
+            JSON.decode(data, target);
+            return;
+        }
+        ByteBuffer in = BinaryFormat.open(data, BinaryFormat.TLS_TAG, "TLS state");
+        target.setTimestamp(in.getDouble());
+        target.setDuration(in.getFloat());
+        target.setSpendTime(in.getFloat());
+        target.setNextSwitchTime(in.getDouble());
+        target.setPhase(in.getShort() & 0xFFFF);
+        target.setJunctionId(BinaryFormat.readString16(in));
+        target.setJunctionName(BinaryFormat.readString16(in));
+        target.setState(BinaryFormat.readString16(in));
+        String[] lanes = new String[in.getShort() & 0xFFFF];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = BinaryFormat.readString16(in);
+        }
+        int linkCount = in.getShort() & 0xFFFF;
+        boolean keep = target.isKeepConnections();
+        for (int i = 0; i < linkCount; i++) {
+            int count = in.get() & 0xFF;
+            List<TlsLink> connections = keep ? new ArrayList<>(count) : null;
+            TlsLink first = null;
+            for (int c = 0; c < count; c++) {
+                TlsLink connection = new TlsLink(lane(lanes, in.getShort()), lane(lanes, in.getShort()),
+                        lane(lanes, in.getShort()));
+                if (first == null) {
+                    first = connection;
+                }
+                if (keep) {
+                    connections.add(connection);
+                }
+            }
+            target.getLinks().add(first);
+            if (keep) {
+                target.getConnections().add(connections);
+            }
+        }
+    }
+
+    private static List<List<TlsLink>> firstConnections(TlsState state) {
+        List<List<TlsLink>> links = new ArrayList<>(state.getLinks().size());
+        for (TlsLink link : state.getLinks()) {
+            links.add(link == null ? List.of() : List.of(link));
+        }
+        return links;
+    }
+
+    private static void addLane(Map<String, Integer> lanes, String lane) {
+        if (lane != null && !lane.isEmpty()) {
+            lanes.putIfAbsent(lane, lanes.size());
+        }
+    }
+
+    private static int laneIndex(Map<String, Integer> lanes, String lane) {
+        return lane == null || lane.isEmpty() ? BinaryFormat.NO_LANE : lanes.get(lane);
+    }
+
+    private static String lane(String[] lanes, short index) {
+        int i = index & 0xFFFF;
+        return i == BinaryFormat.NO_LANE ? "" : lanes[i];
+    }
+}
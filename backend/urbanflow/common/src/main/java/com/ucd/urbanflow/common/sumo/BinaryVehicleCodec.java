@@ -0,0 +1,63 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * The vehicle ID lists of one edge in the bin-1 layout, stored in
+ * {@link SumoKeys#EDGE_VEHICLES}: a count and the IDs for vehicleIDs, then the same for
+ * waitingVehicleIDs. Decoding adds the IDs the target's vehicle filter accepts and does
+ * nothing without a filter.
+ */
+public class BinaryVehicleCodec implements StateCodec<EdgeState> {
+
+    @Override
+    public byte[] encode(EdgeState state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * (state.getVehicleIds().size() + 1));
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BinaryFormat.VEHICLES_TAG);
+        writeIds(out, state.getVehicleIds());
+        writeIds(out, state.getWaitingVehicleIds());
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] data, EdgeState target) throws IOException {
+        Predicate<String> filter = target.getVehicleFilter();
+        if (filter == null) {
+            return;
+        }
+        ByteBuffer in = BinaryFormat.open(data, BinaryFormat.VEHICLES_TAG, "Vehicle list");
+        readIds(in, filter, target.getVehicleIds());
+        readIds(in, filter, target.getWaitingVehicleIds());
+    }
+
+    /** True when the edge has no IDs to store; such edges are left out of the hash. */
+    public static boolean isEmpty(EdgeState state) {
+        return state.getVehicleIds().isEmpty() && state.getWaitingVehicleIds().isEmpty();
+    }
+
+    private static void writeIds(DataOutputStream out, List<String> ids) throws IOException {
+        if (ids.size() > 0xFFFF) {
+            throw new IOException("More than 65535 vehicle IDs on one edge");
+        }
+        out.writeShort(ids.size());
+        for (String id : ids) {
+            BinaryFormat.writeString8(out, id);
+        }
+    }
+
+    private static void readIds(ByteBuffer in, Predicate<String> filter, List<String> into) {
+        int count = in.getShort() & 0xFFFF;
+        for (int i = 0; i < count; i++) {
+            String id = BinaryFormat.readString8(in);
+            if (filter.test(id)) {
+                into.add(id);
+            }
+        }
+    }
+}
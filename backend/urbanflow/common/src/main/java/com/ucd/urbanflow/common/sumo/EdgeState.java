@@ -0,0 +1,51 @@
+package com.ucd.urbanflow.common.sumo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * State of one edge in one simulation step. Mutable so that a reader can decode a whole
+ * hash into one instance per thread instead of allocating per entry.
+ * <p>
+ * The vehicle ID lists are the bulk of an entry and most consumers only need the counts,
+ * so they are skipped unless a {@link #setVehicleFilter vehicle filter} is set; then
+ * only the IDs it accepts are kept.
+ */
+@Getter
+@Setter
+public class EdgeState {
+    private String edgeId;
+    private String edgeName;
+    private double timestamp;
+    private int laneNumber;
+    private double speed;
+    private int vehicleCount;
+    private double waitTime;
+    private int waitingVehicleCount;
+    private final List<String> vehicleIds = new ArrayList<>();
+    private final List<String> waitingVehicleIds = new ArrayList<>();
+    private Predicate<String> vehicleFilter;
+
+    /** Resets the values before the next decode; the vehicle filter is kept. */
+    public void clear() {
+        edgeId = null;
+        edgeName = null;
+        timestamp = 0;
+        laneNumber = 0;
+        speed = 0;
+        vehicleCount = 0;
+        waitTime = 0;
+        waitingVehicleCount = 0;
+        vehicleIds.clear();
+        waitingVehicleIds.clear();
+    }
+
+    /** Keeps every vehicle ID. */
+    public static Predicate<String> allVehicles() {
+        return id -> true;
+    }
+}
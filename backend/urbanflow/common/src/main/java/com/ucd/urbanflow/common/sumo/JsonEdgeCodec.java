@@ -0,0 +1,95 @@
+package com.ucd.urbanflow.common.sumo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Edge documents in the bridge's JSON layout. Decoding streams over the document, so
+ * unknown fields and, without a vehicle filter, the vehicle ID lists are skipped
+ * rather than materialised.
+ */
+public class JsonEdgeCodec implements StateCodec<EdgeState> {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    @Override
+    public byte[] encode(EdgeState state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("edgeID", state.getEdgeId());
+            json.writeStringField("edgeName", state.getEdgeName() == null ? "" : state.getEdgeName());
+            json.writeNumberField("timestamp", state.getTimestamp());
+            json.writeNumberField("laneNumber", state.getLaneNumber());
+            json.writeNumberField("speed", state.getSpeed());
+            json.writeNumberField("vehicleCount", state.getVehicleCount());
+            writeIds(json, "vehicleIDs", state.getVehicleIds());
+            json.writeNumberField("waitTime", state.getWaitTime());
+            writeIds(json, "waitingVehicleIDs", state.getWaitingVehicleIds());
+            json.writeNumberField("waitingVehicleCount", state.getWaitingVehicleCount());
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] data, EdgeState target) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Edge state is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "edgeID" -> target.setEdgeId(parser.getText());
+                    case "edgeName" -> target.setEdgeName(parser.getText());
+                    case "timestamp" -> target.setTimestamp(parser.getDoubleValue());
+                    case "laneNumber" -> target.setLaneNumber(parser.getIntValue());
+                    case "speed" -> target.setSpeed(parser.getDoubleValue());
+                    case "vehicleCount" -> target.setVehicleCount(parser.getIntValue());
+                    case "waitTime" -> target.setWaitTime(parser.getDoubleValue());
+                    case "waitingVehicleCount" -> target.setWaitingVehicleCount(parser.getIntValue());
+                    case "vehicleIDs" -> readIds(parser, value, target.getVehicleFilter(), target.getVehicleIds());
+                    case "waitingVehicleIDs" ->
+                            readIds(parser, value, target.getVehicleFilter(), target.getWaitingVehicleIds());
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void writeIds(JsonGenerator json, String field, List<String> ids) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (String id : ids) {
+            json.writeString(id);
+        }
+        json.writeEndArray();
+    }
+
+    private static void readIds(JsonParser parser, JsonToken value, Predicate<String> filter, List<String> into)
+            throws IOException {
+        if (value != JsonToken.START_ARRAY || filter == null) {
+            parser.skipChildren();
+            return;
+        }
+        JsonToken item;
+        while ((item = parser.nextToken()) != JsonToken.END_ARRAY && item != null) {
+            if (item == JsonToken.VALUE_STRING) {
+                String id = parser.getText();
+                if (filter.test(id)) {
+                    into.add(id);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+}
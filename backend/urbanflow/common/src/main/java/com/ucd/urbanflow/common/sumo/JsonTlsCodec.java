@@ -0,0 +1,141 @@
+package com.ucd.urbanflow.common.sumo;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Traffic light documents in the bridge's JSON layout. "connection" holds, per link
+ * index, the list of [fromLane, toLane, viaLane] that getControlledLinks returns; only
+ * the first triple of each link is kept, which is the one every consumer uses, unless
+ * the target asks for all connections.
+ */
+public class JsonTlsCodec implements StateCodec<TlsState> {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    @Override
+    public byte[] encode(TlsState state) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(512);
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("tlsID", state.getTlsId());
+            json.writeStringField("junction_id", state.getJunctionId());
+            json.writeStringField("junction_name", state.getJunctionName());
+            json.writeNumberField("timestamp", state.getTimestamp());
+            json.writeNumberField("phase", state.getPhase());
+            json.writeStringField("state", state.getState() == null ? "" : state.getState());
+            json.writeNumberField("duration", state.getDuration());
+            json.writeArrayFieldStart("connection");
+            if (state.getConnections().isEmpty()) {
+                for (TlsLink link : state.getLinks()) {
+                    writeLink(json, link == null ? List.of() : List.of(link));
+                }
+            } else {
+                for (List<TlsLink> link : state.getConnections()) {
+                    writeLink(json, link);
+                }
+            }
+            json.writeEndArray();
+            json.writeNumberField("spendTime", state.getSpendTime());
+            json.writeNumberField("nextSwitchTime", state.getNextSwitchTime());
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void decode(byte[] data, TlsState target) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("TLS state is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "tlsID" -> target.setTlsId(parser.getText());
+                    case "junction_id" -> target.setJunctionId(parser.getText());
+                    case "junction_name" -> target.setJunctionName(parser.getText());
+                    case "timestamp" -> target.setTimestamp(parser.getDoubleValue());
+                    case "phase" -> target.setPhase(parser.getIntValue());
+                    case "state" -> target.setState(parser.getText());
+                    case "duration" -> target.setDuration(parser.getDoubleValue());
+                    case "spendTime" -> target.setSpendTime(parser.getDoubleValue());
+                    case "nextSwitchTime" -> target.setNextSwitchTime(parser.getDoubleValue());
+                    case "connection" -> readLinks(parser, value, target);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private static void writeLink(JsonGenerator json, List<TlsLink> connections) throws IOException {
+        json.writeStartArray();
+        for (TlsLink connection : connections) {
+            json.writeStartArray();
+            json.writeString(connection.fromLane());
+            json.writeString(connection.toLane());
+            json.writeString(connection.viaLane());
+            json.writeEndArray();
+        }
+        json.writeEndArray();
+    }
+
+    private static void readLinks(JsonParser parser, JsonToken value, TlsState target) throws IOException {
+        if (value != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        boolean keep = target.isKeepConnections();
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            // a link is a list of triples; older bridges wrote the triple itself
+            List<String> lanes = new ArrayList<>(3);
+            List<TlsLink> connections = keep ? new ArrayList<>(1) : null;
+            boolean nested = false;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.START_ARRAY) {
+                    if (!nested && lanes.isEmpty()) {
+                        readLanes(parser, lanes);
+                        nested = true;
+                    } else if (keep) {
+                        TlsLink more = toLink(readLanes(parser, new ArrayList<>(3)));
+                        if (more != null) {
+                            connections.add(more);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                } else if (!nested) {
+                    lanes.add(parser.getValueAsString());
+                }
+            }
+            TlsLink first = toLink(lanes);
+            target.getLinks().add(first);
+            if (keep) {
+                if (first != null) {
+                    connections.add(0, first);
+                }
+                target.getConnections().add(connections);
+            }
+        }
+    }
+
+    private static List<String> readLanes(JsonParser parser, List<String> into) throws IOException {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            into.add(parser.getValueAsString());
+        }
+        return into;
+    }
+
+    private static TlsLink toLink(List<String> lanes) {
+        return lanes.size() >= 2 ? new TlsLink(lanes.get(0), lanes.get(1), lanes.size() > 2 ? lanes.get(2) : "") : null;
+    }
+}
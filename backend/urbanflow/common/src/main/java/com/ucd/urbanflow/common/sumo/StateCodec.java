@@ -0,0 +1,14 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.IOException;
+
+/**
+ * Encoding of one state entry as stored in a SUMO hash field.
+ */
+public interface StateCodec<T> {
+
+    byte[] encode(T state) throws IOException;
+
+    /** Decodes data into target, which the caller has cleared or freshly created. */
+    void decode(byte[] data, T target) throws IOException;
+}
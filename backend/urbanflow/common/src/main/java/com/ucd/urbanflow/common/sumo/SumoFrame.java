@@ -0,0 +1,110 @@
+package com.ucd.urbanflow.common.sumo;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * One read of the SUMO hashes, kept as encoded values so that the caller decides what
+ * to decode and on which threads. decodeEdge and decodeTls may be called concurrently
+ * with different targets.
+ * <p>
+ * Under a schema that stores the vehicle ID lists apart, they are only in the frame when
+ * it was read with vehicleIds; decodeEdge adds them to a target that has a vehicle filter.
+ */
+public final class SumoFrame {
+
+    private final SumoSchema schema;
+    private final double simulationTime;
+    private final String[] edgeIds;
+    private final byte[][] edgeValues;
+    private final Map<String, byte[]> vehicleValues;
+    private final String[] tlsIds;
+    private final byte[][] tlsValues;
+
+    SumoFrame(SumoSchema schema, double simulationTime, String[] edgeIds, byte[][] edgeValues,
+              Map<String, byte[]> vehicleValues, String[] tlsIds, byte[][] tlsValues) {
+        this.schema = schema;
+        this.simulationTime = simulationTime;
+        this.edgeIds = edgeIds;
+        this.edgeValues = edgeValues;
+        this.vehicleValues = vehicleValues;
+        this.tlsIds = tlsIds;
+        this.tlsValues = tlsValues;
+    }
+
+    public SumoSchema getSchema() {
+        return schema;
+    }
+
+    /** Simulation time in seconds, NaN when the bridge has not written one. */
+    public double getSimulationTime() {
+        return simulationTime;
+    }
+
+    public boolean isEmpty() {
+        return edgeIds.length == 0 && tlsIds.length == 0;
+    }
+
+    public int getEdgeCount() {
+        return edgeIds.length;
+    }
+
+    public String getEdgeId(int i) {
+        return edgeIds[i];
+    }
+
+    /** Clears target and decodes the i-th edge into it. */
+    public void decodeEdge(int i, EdgeState target) throws IOException {
+        target.clear();
+        schema.edges().decode(edgeValues[i], target);
+        target.setEdgeId(edgeIds[i]);
+        if (target.getVehicleFilter() != null && schema.vehicles() != null) {
+            byte[] vehicles = vehicleValues.get(edgeIds[i]);
+            if (vehicles != null) {
+                schema.vehicles().decode(vehicles, target);
+            }
+        }
+    }
+
+    /**
+     * The i-th edge as a document in the bridge's JSON layout, with its vehicle IDs,
+     * for consumers that pass the state on as JSON. json-1 entries are returned as
+     * stored; others are decoded and re-encoded.
+     */
+    public String edgeJson(int i) throws IOException {
+        if (BinaryFormat.isJson(edgeValues[i])) {
+            return new String(edgeValues[i], StandardCharsets.UTF_8);
+        }
+        EdgeState edge = new EdgeState();
+        edge.setVehicleFilter(EdgeState.allVehicles());
+        decodeEdge(i, edge);
+        return new String(SumoSchema.JSON_V1.edges().encode(edge), StandardCharsets.UTF_8);
+    }
+
+    public int getTlsCount() {
+        return tlsIds.length;
+    }
+
+    public String getTlsId(int i) {
+        return tlsIds[i];
+    }
+
+    /** Clears target and decodes the i-th traffic light into it. */
+    public void decodeTls(int i, TlsState target) throws IOException {
+        target.clear();
+        schema.tls().decode(tlsValues[i], target);
+        target.setTlsId(tlsIds[i]);
+    }
+
+    /** As {@link #edgeJson}, for the i-th traffic light, with every connection of each link. */
+    public String tlsJson(int i) throws IOException {
+        if (BinaryFormat.isJson(tlsValues[i])) {
+            return new String(tlsValues[i], StandardCharsets.UTF_8);
+        }
+        TlsState light = new TlsState();
+        light.setKeepConnections(true);
+        decodeTls(i, light);
+        return new String(SumoSchema.JSON_V1.tls().encode(light), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.common.sumo;
+
+/**
+ * Redis keys written by the TraCI bridge each simulation step.
+ */
+public final class SumoKeys {
+
+    /** Hash edgeID -> edge state. */
+    public static final String EDGES = "sumo:edge";
+    /** Hash edgeID -> vehicle ID lists, for schemas that keep them out of {@link #EDGES}. */
+    public static final String EDGE_VEHICLES = "sumo:edge_vehicles";
+    /** Hash tlsID -> traffic light state. */
+    public static final String TLS = "sumo:tls";
+    /** Simulation time in seconds of the last step written. */
+    public static final String SIMULATION_TIME = "sumo:simulation_time";
+    /** Name of the {@link SumoSchema} the two hashes are encoded with; absent means json-1. */
+    public static final String SCHEMA = "sumo:schema";
+
+    private SumoKeys() {
+    }
+}
@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.common.sumo;
+
+/**
+ * The named codecs for the edge and TLS hashes. The writer records the name in
+ * {@link SumoKeys#SCHEMA}; readers are given the schemas they understand and pick the
+ * one named there, so a new encoding can be rolled out by registering it on the readers
+ * first and switching the writer afterwards.
+ * <p>
+ * vehicles is null when the edge entries carry their vehicle ID lists themselves;
+ * otherwise the lists are stored with it in {@link SumoKeys#EDGE_VEHICLES}, only for
+ * edges that have any.
+ */
+public record SumoSchema(String name, StateCodec<EdgeState> edges, StateCodec<EdgeState> vehicles,
+                         StateCodec<TlsState> tls) {
+
+    /** JSON documents as written by the Python TraCI bridge. */
+    public static final SumoSchema JSON_V1 = new SumoSchema("json-1", new JsonEdgeCodec(), null, new JsonTlsCodec());
+
+    /**
+     * Fixed-layout binary records, with the vehicle IDs in their own hash. Its decoders
+     * also accept json-1 entries, which a hash holds while the bridge switches over.
+     */
+    public static final SumoSchema BINARY_V1 = new SumoSchema("bin-1", new BinaryEdgeCodec(),
+            new BinaryVehicleCodec(), new BinaryTlsCodec());
+}
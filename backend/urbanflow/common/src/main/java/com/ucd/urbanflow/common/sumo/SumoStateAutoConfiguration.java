@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.common.sumo;
+
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * Typed reader of the SUMO state the TraCI bridge keeps in Redis, for every service
+ * with a Redis connection; it reads both schemas until the bridge tags its state.
+ */
+@AutoConfiguration(after = RedisAutoConfiguration.class)
+@ConditionalOnClass(RedisConnectionFactory.class)
+@ConditionalOnBean(RedisConnectionFactory.class)
+public class SumoStateAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public SumoStateReader sumoStateReader(RedisConnectionFactory connectionFactory) {
+        return new SumoStateReader(connectionFactory);
+    }
+}
@@ -0,0 +1,259 @@
+package com.ucd.urbanflow.common.sumo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Typed access to the SUMO state in Redis, shared by every service that reads it.
+ * <ul>
+ * <li>{@link #readFrame} fetches the schema tag, the simulation time and the hashes it
+ * is asked for in one pipelined round trip, for the per-tick pollers.</li>
+ * <li>{@link #readEdges} and {@link #readTls} fetch only the given entries, with HMGET
+ * in pipelined chunks.</li>
+ * <li>{@link #scanEdges} and {@link #scanTls} walk a hash with HSCAN, a page at a time,
+ * so neither Redis nor the caller holds a very large hash at once. An entry may be
+ * visited twice if the hash is resized during the scan.</li>
+ * </ul>
+ * Values are decoded with the {@link SumoSchema} named in {@link SumoKeys#SCHEMA}; the
+ * first schema given is assumed when the tag is absent. Only readFrame fetches vehicle
+ * ID lists that a schema stores apart; the other reads return the edges without them.
+ */
+public class SumoStateReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SumoStateReader.class);
+    private static final byte[] EDGES = bytes(SumoKeys.EDGES);
+    private static final byte[] EDGE_VEHICLES = bytes(SumoKeys.EDGE_VEHICLES);
+    private static final byte[] TLS = bytes(SumoKeys.TLS);
+    private static final byte[] SIMULATION_TIME = bytes(SumoKeys.SIMULATION_TIME);
+    private static final byte[] SCHEMA = bytes(SumoKeys.SCHEMA);
+    private static final int HMGET_CHUNK = 1000;
+    private static final String[] NO_IDS = new String[0];
+    private static final byte[][] NO_VALUES = new byte[0][];
+
+    private final RedisConnectionFactory connectionFactory;
+    private final Map<String, SumoSchema> schemas = new LinkedHashMap<>();
+    private final SumoSchema defaultSchema;
+
+    /** Reads json-1 and bin-1, so the bridge can be switched between them without restarting readers. */
+    public SumoStateReader(RedisConnectionFactory connectionFactory) {
+        this(connectionFactory, List.of(SumoSchema.JSON_V1, SumoSchema.BINARY_V1));
+    }
+
+    public SumoStateReader(RedisConnectionFactory connectionFactory, List<SumoSchema> schemas) {
+        if (schemas.isEmpty()) {
+            throw new IllegalArgumentException("At least one SUMO schema is required");
+        }
+        this.connectionFactory = connectionFactory;
+        for (SumoSchema schema : schemas) {
+            this.schemas.put(schema.name(), schema);
+        }
+        this.defaultSchema = schemas.get(0);
+    }
+
+    public SumoFrame readFrame(boolean edges, boolean tls) {
+        return readFrame(edges, false, tls);
+    }
+
+    /** With vehicleIds, also fetches the vehicle ID lists a schema stores apart from the edges. */
+    public SumoFrame readFrame(boolean edges, boolean vehicleIds, boolean tls) {
+        boolean vehicles = edges && vehicleIds;
+        List<Object> results;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            connection.stringCommands().get(SCHEMA);
+            connection.stringCommands().get(SIMULATION_TIME);
+            if (edges) {
+                connection.hashCommands().hGetAll(EDGES);
+            }
+            if (vehicles) {
+                connection.hashCommands().hGetAll(EDGE_VEHICLES);
+            }
+            if (tls) {
+                connection.hashCommands().hGetAll(TLS);
+            }
+            results = connection.closePipeline();
+        }
+        SumoSchema schema = schema((byte[]) results.get(0));
+        byte[] time = (byte[]) results.get(1);
+        double simulationTime = time == null ? Double.NaN : Double.parseDouble(string(time));
+
+        int next = 2;
+        String[] edgeIds = NO_IDS;
+        byte[][] edgeValues = NO_VALUES;
+        if (edges) {
+            @SuppressWarnings("unchecked")
+            Map<byte[], byte[]> raw = (Map<byte[], byte[]>) results.get(next++);
+            edgeIds = new String[raw.size()];
+            edgeValues = new byte[raw.size()][];
+            unpack(raw, edgeIds, edgeValues);
+        }
+        Map<String, byte[]> vehicleValues = Map.of();
+        if (vehicles) {
+            @SuppressWarnings("unchecked")
+            Map<byte[], byte[]> raw = (Map<byte[], byte[]>) results.get(next++);
+            vehicleValues = new HashMap<>(raw.size() * 2);
+            for (Map.Entry<byte[], byte[]> entry : raw.entrySet()) {
+                vehicleValues.put(string(entry.getKey()), entry.getValue());
+            }
+        }
+        String[] tlsIds = NO_IDS;
+        byte[][] tlsValues = NO_VALUES;
+        if (tls) {
+            @SuppressWarnings("unchecked")
+            Map<byte[], byte[]> raw = (Map<byte[], byte[]>) results.get(next);
+            tlsIds = new String[raw.size()];
+            tlsValues = new byte[raw.size()][];
+            unpack(raw, tlsIds, tlsValues);
+        }
+        return new SumoFrame(schema, simulationTime, edgeIds, edgeValues, vehicleValues, tlsIds, tlsValues);
+    }
+
+    /** Simulation time in seconds, NaN when the bridge has not written one. */
+    public double readSimulationTime() {
+        byte[] time;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            time = connection.stringCommands().get(SIMULATION_TIME);
+        }
+        return time == null ? Double.NaN : Double.parseDouble(string(time));
+    }
+
+    /** The given edges that are present, keyed by edge ID; entries that fail to decode are left out. */
+    public Map<String, EdgeState> readEdges(Collection<String> edgeIds) {
+        return read(EDGES, edgeIds, EdgeState::new, SumoSchema::edges, EdgeState::setEdgeId);
+    }
+
+    /** The given traffic lights that are present, keyed by TLS ID; entries that fail to decode are left out. */
+    public Map<String, TlsState> readTls(Collection<String> tlsIds) {
+        return read(TLS, tlsIds, TlsState::new, SumoSchema::tls, TlsState::setTlsId);
+    }
+
+    /**
+     * Decodes every edge into state, which is reused, and hands it to visitor. Returns
+     * the number of entries visited.
+     */
+    public int scanEdges(int pageSize, EdgeState state, Consumer<EdgeState> visitor) {
+        return scan(EDGES, pageSize, state, SumoSchema::edges, EdgeState::clear, EdgeState::setEdgeId, visitor);
+    }
+
+    /** As {@link #scanEdges}, for the traffic lights. */
+    public int scanTls(int pageSize, TlsState state, Consumer<TlsState> visitor) {
+        return scan(TLS, pageSize, state, SumoSchema::tls, TlsState::clear, TlsState::setTlsId, visitor);
+    }
+
+    private <T> Map<String, T> read(byte[] key, Collection<String> ids, Supplier<T> factory,
+                                    Function<SumoSchema, StateCodec<T>> codecOf,
+                                    BiConsumer<T, String> setId) {
+        List<String> order = new ArrayList<>(ids);
+        Map<String, T> result = new LinkedHashMap<>();
+        if (order.isEmpty()) {
+            return result;
+        }
+        List<Object> results;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            connection.stringCommands().get(SCHEMA);
+            for (int from = 0; from < order.size(); from += HMGET_CHUNK) {
+                List<String> chunk = order.subList(from, Math.min(order.size(), from + HMGET_CHUNK));
+                byte[][] fields = new byte[chunk.size()][];
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = bytes(chunk.get(i));
+                }
+                connection.hashCommands().hMGet(key, fields);
+            }
+            results = connection.closePipeline();
+        }
+        StateCodec<T> codec = codecOf.apply(schema((byte[]) results.get(0)));
+        int index = 0;
+        for (int r = 1; r < results.size(); r++) {
+            @SuppressWarnings("unchecked")
+            List<byte[]> values = (List<byte[]>) results.get(r);
+            for (byte[] value : values) {
+                String id = order.get(index++);
+                if (value == null) {
+                    continue;
+                }
+                T state = factory.get();
+                try {
+                    codec.decode(value, state);
+                    setId.accept(state, id);
+                    result.put(id, state);
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to decode {} entry {}: {}", string(key), id, e.getMessage());
+                }
+            }
+        }
+        return result;
+    }
+
+    private <T> int scan(byte[] key, int pageSize, T state,
+                         Function<SumoSchema, StateCodec<T>> codecOf, Consumer<T> clear,
+                         BiConsumer<T, String> setId, Consumer<T> visitor) {
+        int visited = 0;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            StateCodec<T> codec = codecOf.apply(schema(connection.stringCommands().get(SCHEMA)));
+            ScanOptions options = ScanOptions.scanOptions().count(pageSize).build();
+            try (Cursor<Map.Entry<byte[], byte[]>> cursor = connection.hashCommands().hScan(key, options)) {
+                while (cursor.hasNext()) {
+                    Map.Entry<byte[], byte[]> entry = cursor.next();
+                    String id = string(entry.getKey());
+                    clear.accept(state);
+                    try {
+                        codec.decode(entry.getValue(), state);
+                    } catch (IOException | RuntimeException e) {
+                        logger.warn("Failed to decode {} entry {}: {}", string(key), id, e.getMessage());
+                        continue;
+                    }
+                    setId.accept(state, id);
+                    visitor.accept(state);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    private SumoSchema schema(byte[] tag) {
+        if (tag == null) {
+            return defaultSchema;
+        }
+        SumoSchema schema = schemas.get(string(tag));
+        if (schema == null) {
+            throw new IllegalStateException("SUMO state is written with unknown schema " + string(tag));
+        }
+        return schema;
+    }
+
+    private static void unpack(Map<byte[], byte[]> raw, String[] ids, byte[][] values) {
+        int i = 0;
+        for (Map.Entry<byte[], byte[]> entry : raw.entrySet()) {
+            ids[i] = string(entry.getKey());
+            values[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
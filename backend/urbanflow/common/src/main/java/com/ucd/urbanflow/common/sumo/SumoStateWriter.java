@@ -0,0 +1,87 @@
+package com.ucd.urbanflow.common.sumo;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.ucd.urbanflow.common.sumo.SumoStateReader.bytes;
+
+/**
+ * Writes one simulation step the way the TraCI bridge does: the schema tag, the
+ * simulation time and the hashes in one pipelined MULTI/EXEC, each key expiring after
+ * ttlSeconds so that state from a stopped simulation disappears. Under a schema that
+ * stores vehicle IDs apart, their hash is replaced rather than merged, as edges without
+ * vehicles are left out of it. Used by Java-side producers such as replays and
+ * benchmarks.
+ */
+public class SumoStateWriter {
+
+    private static final int HSET_CHUNK = 1000;
+
+    private final RedisConnectionFactory connectionFactory;
+    private final SumoSchema schema;
+
+    public SumoStateWriter(RedisConnectionFactory connectionFactory, SumoSchema schema) {
+        this.connectionFactory = connectionFactory;
+        this.schema = schema;
+    }
+
+    public void write(double simulationTime, Collection<EdgeState> edges, Collection<TlsState> tls, long ttlSeconds) {
+        Map<byte[], byte[]> edgeEntries = new HashMap<>(edges.size() * 2);
+        Map<byte[], byte[]> vehicleEntries = new HashMap<>();
+        Map<byte[], byte[]> tlsEntries = new HashMap<>(tls.size() * 2);
+        try {
+            for (EdgeState edge : edges) {
+                edgeEntries.put(bytes(edge.getEdgeId()), schema.edges().encode(edge));
+                if (schema.vehicles() != null && !BinaryVehicleCodec.isEmpty(edge)) {
+                    vehicleEntries.put(bytes(edge.getEdgeId()), schema.vehicles().encode(edge));
+                }
+            }
+            for (TlsState light : tls) {
+                tlsEntries.put(bytes(light.getTlsId()), schema.tls().encode(light));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Expiration expiration = Expiration.seconds(ttlSeconds);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            connection.multi();
+            connection.stringCommands().set(bytes(SumoKeys.SCHEMA), bytes(schema.name()), expiration,
+                    RedisStringCommands.SetOption.upsert());
+            connection.stringCommands().set(bytes(SumoKeys.SIMULATION_TIME), bytes(Double.toString(simulationTime)),
+                    expiration, RedisStringCommands.SetOption.upsert());
+            writeHash(connection, bytes(SumoKeys.EDGES), edgeEntries, ttlSeconds);
+            connection.keyCommands().del(bytes(SumoKeys.EDGE_VEHICLES));
+            writeHash(connection, bytes(SumoKeys.EDGE_VEHICLES), vehicleEntries, ttlSeconds);
+            writeHash(connection, bytes(SumoKeys.TLS), tlsEntries, ttlSeconds);
+            connection.exec();
+            connection.closePipeline();
+        }
+    }
+
+    private static void writeHash(RedisConnection connection, byte[] key, Map<byte[], byte[]> entries, long ttlSeconds) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Map<byte[], byte[]> chunk = new HashMap<>();
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            chunk.put(entry.getKey(), entry.getValue());
+            if (chunk.size() == HSET_CHUNK) {
+                connection.hashCommands().hMSet(key, chunk);
+                chunk = new HashMap<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            connection.hashCommands().hMSet(key, chunk);
+        }
+        connection.keyCommands().expire(key, ttlSeconds);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ucd.urbanflow.common.sumo;
+
+/**
+ * First connection of one link index of a traffic light, as SUMO lane IDs ("edgeId_laneIndex").
+ */
+public record TlsLink(String fromLane, String toLane, String viaLane) {
+
+    public String fromEdge() {
+        return laneToEdge(fromLane);
+    }
+
+    public String toEdge() {
+        return laneToEdge(toLane);
+    }
+
+    /** "edgeId_laneIndex" -> edgeId; internal lanes (":...") map to null. */
+    public static String laneToEdge(String laneId) {
+        if (laneId == null || laneId.isEmpty() || laneId.startsWith(":")) {
+            return null;
+        }
+        int cut = laneId.lastIndexOf('_');
+        return cut > 0 ? laneId.substring(0, cut) : laneId;
+    }
+}
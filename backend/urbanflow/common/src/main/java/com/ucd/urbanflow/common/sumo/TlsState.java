@@ -0,0 +1,45 @@
+package com.ucd.urbanflow.common.sumo;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of one traffic light in one simulation step. links holds, per link index, the
+ * first controlled connection of that link, or null for a link without one. A link can
+ * control several connections; all of them are kept in connections, per link index,
+ * only when {@link #setKeepConnections keepConnections} is set.
+ */
+@Getter
+@Setter
+public class TlsState {
+    private String tlsId;
+    private String junctionId;
+    private String junctionName;
+    private double timestamp;
+    private int phase;
+    private String state;
+    private double duration;
+    private double spendTime;
+    private double nextSwitchTime = -1;
+    private final List<TlsLink> links = new ArrayList<>();
+    private final List<List<TlsLink>> connections = new ArrayList<>();
+    private boolean keepConnections;
+
+    /** Resets the values before the next decode; keepConnections is kept. */
+    public void clear() {
+        tlsId = null;
+        junctionId = null;
+        junctionName = null;
+        timestamp = 0;
+        phase = 0;
+        state = null;
+        duration = 0;
+        spendTime = 0;
+        nextSwitchTime = -1;
+        links.clear();
+        connections.clear();
+    }
+}
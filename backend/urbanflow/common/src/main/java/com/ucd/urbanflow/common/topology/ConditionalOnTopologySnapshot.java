@@ -0,0 +1,22 @@
+package com.ucd.urbanflow.common.topology;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Matches when topology.snapshot.path names a compiled topology file, i.e. when
+ * {@link TopologyAutoConfiguration} provides a {@link TopologySnapshot}. Services put it
+ * on the snapshot-backed adapters that replace their MyBatis mappers; an empty path
+ * counts as unset, unlike with @ConditionalOnProperty.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Documented
+@ConditionalOnExpression("!'${topology.snapshot.path:}'.isEmpty()")
+public @interface ConditionalOnTopologySnapshot {
+}
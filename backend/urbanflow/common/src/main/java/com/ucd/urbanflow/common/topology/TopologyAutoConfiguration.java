@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.common.topology;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Maps the compiled topology file named by topology.snapshot.path at startup, failing
+ * fast when it is missing or of another format version. Without the property no
+ * snapshot exists and the services read the topology from MySQL.
+ */
+@AutoConfiguration
+@ConditionalOnTopologySnapshot
+public class TopologyAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public TopologySnapshot topologySnapshot(@Value("${topology.snapshot.path}") String path) throws IOException {
+        return TopologySnapshot.open(Path.of(path));
+    }
+}
@@ -0,0 +1,359 @@
+package com.ucd.urbanflow.common.topology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the network tables (lane, trafficLogic, junction_incoming_edges) into a
+ * {@link TopologySnapshot} file, so that services can map the topology at startup
+ * instead of querying MySQL. Rows are added with the add methods, or read from a
+ * database by {@link #fromDatabase}; {@link #write} replaces the target atomically, so
+ * services that have the previous file mapped keep reading it until they reopen.
+ * <pre>
+ * java -cp common.jar:mysql-connector-j.jar com.ucd.urbanflow.common.topology.TopologyCompiler \
+ *     jdbc:mysql://localhost:3306/urbanflow user password /var/lib/urbanflow/network.topo
+ * </pre>
+ * The file has to be recompiled whenever the network tables change.
+ */
+public class TopologyCompiler {
+
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> edgeIndex = new HashMap<>();
+    private final List<int[]> edges = new ArrayList<>();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final List<TrafficLight> trafficLights = new ArrayList<>();
+    private final Map<String, Junction> junctions = new LinkedHashMap<>();
+
+    public void addLane(String laneId, String edgeId, String edgeName, String shape) {
+        int edge = edgeId == null ? -1 : edge(edgeId, edgeName);
+        lanes.add(new Lane(string(laneId), edge, points(shape)));
+    }
+
+    public void addTrafficLight(String tlsId, String junctionId, double x, double y, String shape) {
+        trafficLights.add(new TrafficLight(string(tlsId), string(junctionId), TopologyFormat.toCentimetres(x),
+                TopologyFormat.toCentimetres(y), points(shape)));
+    }
+
+    public void addIncomingEdge(String junctionId, String junctionName, String edgeId, String edgeName) {
+        Junction junction = junctions.computeIfAbsent(junctionId, id -> new Junction(string(id), string(junctionName)));
+        junction.incoming.add(new int[]{edgeId == null ? -1 : edge(edgeId, edgeName), string(edgeName)});
+    }
+
+    /** Reads the three tables with the same queries as the services' mappers. */
+    public static TopologyCompiler fromDatabase(Connection connection) throws SQLException {
+        TopologyCompiler compiler = new TopologyCompiler();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rows = statement.executeQuery("SELECT lane_id, edge_id, edge_name, lane_shape FROM lane")) {
+                while (rows.next()) {
+                    compiler.addLane(rows.getString(1), rows.getString(2), rows.getString(3), rows.getString(4));
+                }
+            }
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT tls_id, junction_id, junction_x, junction_y, junction_shape FROM trafficLogic")) {
+                while (rows.next()) {
+                    compiler.addTrafficLight(rows.getString(1), rows.getString(2), rows.getDouble(3), rows.getDouble(4),
+                            rows.getString(5));
+                }
+            }
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT junction_id, junction_name, incoming_edge_id, incoming_edge_name FROM junction_incoming_edges")) {
+                while (rows.next()) {
+                    compiler.addIncomingEdge(rows.getString(1), rows.getString(2), rows.getString(3), rows.getString(4));
+                }
+            }
+        }
+        return compiler;
+    }
+
+    public void write(Path target) throws IOException {
+        // lanes grouped by edge, lanes without an edge last, so an edge's lanes are one range
+        List<Lane> ordered = new ArrayList<>(lanes);
+        ordered.sort(Comparator.comparingInt(lane -> lane.edge < 0 ? Integer.MAX_VALUE : lane.edge));
+        int laneCount = ordered.size();
+        int[] laneId = new int[laneCount];
+        int[] laneEdge = new int[laneCount];
+        int[] lanePoints = new int[laneCount + 1];
+        int[] edgeLanes = new int[edges.size() + 1];
+        PointPool pool = new PointPool();
+        for (int l = 0; l < laneCount; l++) {
+            Lane lane = ordered.get(l);
+            laneId[l] = lane.id;
+            laneEdge[l] = lane.edge;
+            lanePoints[l] = pool.size();
+            pool.add(lane.points);
+            if (lane.edge >= 0) {
+                edgeLanes[lane.edge + 1]++;
+            }
+        }
+        lanePoints[laneCount] = pool.size();
+        for (int e = 0; e < edges.size(); e++) {
+            edgeLanes[e + 1] += edgeLanes[e];
+        }
+
+        int tlsCount = trafficLights.size();
+        int[] tlsId = new int[tlsCount];
+        int[] tlsJunction = new int[tlsCount];
+        int[] tlsX = new int[tlsCount];
+        int[] tlsY = new int[tlsCount];
+        int[] tlsPoints = new int[tlsCount + 1];
+        for (int t = 0; t < tlsCount; t++) {
+            TrafficLight light = trafficLights.get(t);
+            tlsId[t] = light.id;
+            tlsJunction[t] = light.junction;
+            tlsX[t] = light.x;
+            tlsY[t] = light.y;
+            tlsPoints[t] = pool.size();
+            pool.add(light.points);
+        }
+        tlsPoints[tlsCount] = pool.size();
+
+        int junctionCount = junctions.size();
+        int[] junctionId = new int[junctionCount];
+        int[] junctionName = new int[junctionCount];
+        int[] junctionIncoming = new int[junctionCount + 1];
+        int incomingCount = junctions.values().stream().mapToInt(j -> j.incoming.size()).sum();
+        int[] incomingEdge = new int[incomingCount];
+        int[] incomingName = new int[incomingCount];
+        int j = 0;
+        int k = 0;
+        for (Junction junction : junctions.values()) {
+            junctionId[j] = junction.id;
+            junctionName[j] = junction.name;
+            junctionIncoming[j++] = k;
+            for (int[] incoming : junction.incoming) {
+                incomingEdge[k] = incoming[0];
+                incomingName[k++] = incoming[1];
+            }
+        }
+        junctionIncoming[junctionCount] = k;
+
+        int[] edgeId = new int[edges.size()];
+        int[] edgeName = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            edgeId[e] = edges.get(e)[0];
+            edgeName[e] = edges.get(e)[1];
+        }
+
+        int[] stringOffsets = new int[strings.size() + 1];
+        byte[][] encoded = new byte[strings.size()][];
+        for (int s = 0; s < strings.size(); s++) {
+            encoded[s] = strings.get(s).getBytes(StandardCharsets.UTF_8);
+            stringOffsets[s + 1] = stringOffsets[s] + encoded[s].length;
+        }
+        byte[] stringBytes = new byte[stringOffsets[strings.size()]];
+        for (int s = 0; s < encoded.length; s++) {
+            System.arraycopy(encoded[s], 0, stringBytes, stringOffsets[s], encoded[s].length);
+        }
+
+        Map<Integer, Object> columns = new LinkedHashMap<>();
+        columns.put(TopologyFormat.STRING_OFFSETS, stringOffsets);
+        columns.put(TopologyFormat.STRING_BYTES, stringBytes);
+        columns.put(TopologyFormat.EDGE_ID, edgeId);
+        columns.put(TopologyFormat.EDGE_NAME, edgeName);
+        columns.put(TopologyFormat.EDGE_LANES, edgeLanes);
+        columns.put(TopologyFormat.LANE_ID, laneId);
+        columns.put(TopologyFormat.LANE_EDGE, laneEdge);
+        columns.put(TopologyFormat.LANE_POINTS, lanePoints);
+        columns.put(TopologyFormat.POINTS, pool.toArray());
+        columns.put(TopologyFormat.TLS_ID, tlsId);
+        columns.put(TopologyFormat.TLS_JUNCTION, tlsJunction);
+        columns.put(TopologyFormat.TLS_X, tlsX);
+        columns.put(TopologyFormat.TLS_Y, tlsY);
+        columns.put(TopologyFormat.TLS_POINTS, tlsPoints);
+        columns.put(TopologyFormat.JUNCTION_ID, junctionId);
+        columns.put(TopologyFormat.JUNCTION_NAME, junctionName);
+        columns.put(TopologyFormat.JUNCTION_INCOMING, junctionIncoming);
+        columns.put(TopologyFormat.INCOMING_EDGE, incomingEdge);
+        columns.put(TopologyFormat.INCOMING_NAME, incomingName);
+        writeColumns(target, columns);
+    }
+
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    public int getEdgeCount() {
+        return edges.size();
+    }
+
+    public int getTrafficLightCount() {
+        return trafficLights.size();
+    }
+
+    public int getJunctionCount() {
+        return junctions.size();
+    }
+
+    private static void writeColumns(Path target, Map<Integer, Object> columns) throws IOException {
+        long offset = align(TopologyFormat.HEADER_BYTES + (long) columns.size() * TopologyFormat.DIRECTORY_ENTRY_BYTES);
+        long end = offset;
+        ByteBuffer directory = ByteBuffer.allocate(TopologyFormat.DIRECTORY_ENTRY_BYTES * columns.size())
+                .order(TopologyFormat.ORDER);
+        for (Map.Entry<Integer, Object> column : columns.entrySet()) {
+            int length = column.getValue() instanceof int[] ints ? ints.length : ((byte[]) column.getValue()).length;
+            directory.putInt(column.getKey()).putInt(length).putLong(offset);
+            end = offset + (column.getValue() instanceof int[] ? 4L * length : length);
+            offset = align(end);
+        }
+        ByteBuffer header = ByteBuffer.allocate(TopologyFormat.HEADER_BYTES).order(TopologyFormat.ORDER)
+                .put(TopologyFormat.MAGIC)
+                .putInt(TopologyFormat.VERSION)
+                .putInt(columns.size())
+                .putLong(System.currentTimeMillis())
+                .putLong(end);
+
+        Path parent = target.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(header.flip());
+                channel.write(directory.flip());
+                for (Object value : columns.values()) {
+                    channel.position(align(channel.position()));
+                    ByteBuffer data;
+                    if (value instanceof int[] ints) {
+                        data = ByteBuffer.allocate(4 * ints.length).order(TopologyFormat.ORDER);
+                        data.asIntBuffer().put(ints);
+                    } else {
+                        data = ByteBuffer.wrap((byte[]) value);
+                    }
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private int string(String value) {
+        if (value == null) {
+            return -1;
+        }
+        return stringIndex.computeIfAbsent(value, v -> {
+            strings.add(v);
+            return strings.size() - 1;
+        });
+    }
+
+    private int edge(String edgeId, String edgeName) {
+        Integer index = edgeIndex.get(edgeId);
+        if (index == null) {
+            index = edges.size();
+            edgeIndex.put(edgeId, index);
+            edges.add(new int[]{string(edgeId), string(edgeName)});
+        } else if (edges.get(index)[1] < 0 && edgeName != null) {
+            edges.get(index)[1] = string(edgeName);
+        }
+        return index;
+    }
+
+    /** SUMO shape "x1,y1 x2,y2 ..." as interleaved centimetres; z values are dropped. */
+    static int[] points(String shape) {
+        if (shape == null || shape.isBlank()) {
+            return new int[0];
+        }
+        String[] parts = shape.trim().split("\\s+");
+        int[] points = new int[parts.length * 2];
+        int n = 0;
+        for (String part : parts) {
+            int comma = part.indexOf(',');
+            if (comma < 0) {
+                continue;
+            }
+            int end = part.indexOf(',', comma + 1);
+            points[n++] = TopologyFormat.toCentimetres(Double.parseDouble(part.substring(0, comma)));
+            points[n++] = TopologyFormat.toCentimetres(Double.parseDouble(
+                    part.substring(comma + 1, end < 0 ? part.length() : end)));
+        }
+        return n == points.length ? points : Arrays.copyOf(points, n);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 4) {
+            System.err.println("Usage: TopologyCompiler <jdbc-url> <user> <password> <output file>");
+            System.exit(2);
+        }
+        long start = System.currentTimeMillis();
+        TopologyCompiler compiler;
+        try (Connection connection = DriverManager.getConnection(args[0], args[1], args[2])) {
+            compiler = fromDatabase(connection);
+        }
+        Path target = Path.of(args[3]);
+        compiler.write(target);
+        System.out.printf("Compiled %d lanes, %d edges, %d traffic lights, %d junctions into %s (%d bytes) in %d ms%n",
+                compiler.getLaneCount(), compiler.getEdgeCount(), compiler.getTrafficLightCount(),
+                compiler.getJunctionCount(), target, Files.size(target), System.currentTimeMillis() - start);
+    }
+
+    private record Lane(int id, int edge, int[] points) {
+    }
+
+    private record TrafficLight(int id, int junction, int x, int y, int[] points) {
+    }
+
+    private static final class Junction {
+        final int id;
+        final int name;
+        final List<int[]> incoming = new ArrayList<>();
+
+        Junction(int id, int name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /** Growable int array of interleaved coordinates; sizes are in points. */
+    private static final class PointPool {
+        private int[] values = new int[1024];
+        private int length;
+
+        void add(int[] points) {
+            if (length + points.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, length + points.length));
+            }
+            System.arraycopy(points, 0, values, length, points.length);
+            length += points.length;
+        }
+
+        int size() {
+            return length / 2;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, length);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.ucd.urbanflow.common.topology;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a compiled topology file. After a fixed header comes a directory of
+ * columns, each a little-endian int array (or the raw UTF-8 of the string table),
+ * aligned to 8 bytes:
+ * <pre>
+ * header    "UFTOPO\0\0", int version, int column count, long compiled-at millis, long file length
+ * directory column count x (int id, int length in elements, long offset)
+ * </pre>
+ * Strings are referenced by index into the string table, -1 for null. Coordinates
+ * are int centimetres, x and y interleaved in one pool; lane and junction shapes are
+ * [from, to) ranges of points in it. Adjacency lists (the lanes of an edge, the
+ * incoming edges of a junction) are CSR: an offsets column with one entry more than
+ * there are rows, over a column of targets.
+ */
+final class TopologyFormat {
+
+    static final byte[] MAGIC = {'U', 'F', 'T', 'O', 'P', 'O', 0, 0};
+    /** Incremented on any incompatible change; readers refuse other versions. */
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int DIRECTORY_ENTRY_BYTES = 16;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // string table
+    static final int STRING_OFFSETS = 1;
+    static final int STRING_BYTES = 2;
+    // edges, with their lanes as CSR (lanes are stored grouped by edge)
+    static final int EDGE_ID = 10;
+    static final int EDGE_NAME = 11;
+    static final int EDGE_LANES = 12;
+    // lanes
+    static final int LANE_ID = 20;
+    static final int LANE_EDGE = 21;
+    static final int LANE_POINTS = 22;
+    // shared coordinate pool, x,y interleaved
+    static final int POINTS = 30;
+    // trafficLogic rows
+    static final int TLS_ID = 40;
+    static final int TLS_JUNCTION = 41;
+    static final int TLS_X = 42;
+    static final int TLS_Y = 43;
+    static final int TLS_POINTS = 44;
+    // junction_incoming_edges, grouped by junction
+    static final int JUNCTION_ID = 50;
+    static final int JUNCTION_NAME = 51;
+    static final int JUNCTION_INCOMING = 52;
+    static final int INCOMING_EDGE = 53;
+    static final int INCOMING_NAME = 54;
+
+    private TopologyFormat() {
+    }
+
+    static int toCentimetres(double metres) {
+        return (int) Math.round(metres * 100);
+    }
+}
@@ -0,0 +1,317 @@
+package com.ucd.urbanflow.common.topology;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A topology file written by {@link TopologyCompiler}, mapped read-only. Opening only
+ * checks the header and directory; rows are read from the mapping when asked for, so
+ * startup costs next to nothing whatever the network size, and services on one host
+ * share the pages through the page cache.
+ * <p>
+ * Rows are addressed by index: edges, lanes (grouped by edge), traffic lights (one per
+ * trafficLogic row) and junctions (with their incoming edges). Coordinates are in
+ * metres, stored to the centimetre. Instances are immutable and safe to share between
+ * threads.
+ */
+public final class TopologySnapshot {
+
+    private final Path path;
+    private final int version;
+    private final long compiledAt;
+    private final IntBuffer stringOffsets;
+    private final ByteBuffer stringBytes;
+    private final IntBuffer edgeId;
+    private final IntBuffer edgeName;
+    private final IntBuffer edgeLanes;
+    private final IntBuffer laneId;
+    private final IntBuffer laneEdge;
+    private final IntBuffer lanePoints;
+    private final IntBuffer points;
+    private final IntBuffer tlsId;
+    private final IntBuffer tlsJunction;
+    private final IntBuffer tlsX;
+    private final IntBuffer tlsY;
+    private final IntBuffer tlsPoints;
+    private final IntBuffer junctionId;
+    private final IntBuffer junctionName;
+    private final IntBuffer junctionIncoming;
+    private final IntBuffer incomingEdge;
+    private final IntBuffer incomingName;
+
+    private TopologySnapshot(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        buffer.order(TopologyFormat.ORDER);
+        byte[] magic = new byte[TopologyFormat.MAGIC.length];
+        buffer.get(0, magic);
+        if (!Arrays.equals(magic, TopologyFormat.MAGIC)) {
+            throw new IOException(path + " is not a compiled topology file");
+        }
+        this.version = buffer.getInt(8);
+        if (version != TopologyFormat.VERSION) {
+            throw new IOException(path + " has topology format version " + version + ", expected "
+                    + TopologyFormat.VERSION + "; recompile it");
+        }
+        int columnCount = buffer.getInt(12);
+        this.compiledAt = buffer.getLong(16);
+        if (buffer.getLong(24) != buffer.capacity()) {
+            throw new IOException(path + " is truncated");
+        }
+
+        Map<Integer, ByteBuffer> columns = new HashMap<>();
+        Map<Integer, Integer> lengths = new HashMap<>();
+        for (int c = 0; c < columnCount; c++) {
+            int entry = TopologyFormat.HEADER_BYTES + c * TopologyFormat.DIRECTORY_ENTRY_BYTES;
+            int id = buffer.getInt(entry);
+            int length = buffer.getInt(entry + 4);
+            long offset = buffer.getLong(entry + 8);
+            long bytes = id == TopologyFormat.STRING_BYTES ? length : 4L * length;
+            if (offset < 0 || offset + bytes > buffer.capacity()) {
+                throw new IOException(path + " has a column outside the file");
+            }
+            columns.put(id, buffer.slice((int) offset, (int) bytes).order(TopologyFormat.ORDER));
+            lengths.put(id, length);
+        }
+        this.stringBytes = column(columns, TopologyFormat.STRING_BYTES);
+        this.stringOffsets = ints(columns, TopologyFormat.STRING_OFFSETS);
+        this.edgeId = ints(columns, TopologyFormat.EDGE_ID);
+        this.edgeName = ints(columns, TopologyFormat.EDGE_NAME);
+        this.edgeLanes = ints(columns, TopologyFormat.EDGE_LANES);
+        this.laneId = ints(columns, TopologyFormat.LANE_ID);
+        this.laneEdge = ints(columns, TopologyFormat.LANE_EDGE);
+        this.lanePoints = ints(columns, TopologyFormat.LANE_POINTS);
+        this.points = ints(columns, TopologyFormat.POINTS);
+        this.tlsId = ints(columns, TopologyFormat.TLS_ID);
+        this.tlsJunction = ints(columns, TopologyFormat.TLS_JUNCTION);
+        this.tlsX = ints(columns, TopologyFormat.TLS_X);
+        this.tlsY = ints(columns, TopologyFormat.TLS_Y);
+        this.tlsPoints = ints(columns, TopologyFormat.TLS_POINTS);
+        this.junctionId = ints(columns, TopologyFormat.JUNCTION_ID);
+        this.junctionName = ints(columns, TopologyFormat.JUNCTION_NAME);
+        this.junctionIncoming = ints(columns, TopologyFormat.JUNCTION_INCOMING);
+        this.incomingEdge = ints(columns, TopologyFormat.INCOMING_EDGE);
+        this.incomingName = ints(columns, TopologyFormat.INCOMING_NAME);
+        if (edgeLanes.limit() != edgeId.limit() + 1 || lanePoints.limit() != laneId.limit() + 1
+                || tlsPoints.limit() != tlsId.limit() + 1 || junctionIncoming.limit() != junctionId.limit() + 1
+                || stringOffsets.limit() < 1 || lengths.get(TopologyFormat.STRING_BYTES) != stringOffsets.get(stringOffsets.limit() - 1)) {
+            throw new IOException(path + " has inconsistent columns");
+        }
+    }
+
+    /** Maps the file; it may be replaced afterwards, the mapping keeps the version it was opened with. */
+    public static TopologySnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TopologyFormat.HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a compiled topology file");
+            }
+            return new TopologySnapshot(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** When the file was compiled, epoch millis. */
+    public long getCompiledAt() {
+        return compiledAt;
+    }
+
+    // ------------------------------------------------------------------ edges
+
+    public int getEdgeCount() {
+        return edgeId.limit();
+    }
+
+    public String edgeId(int edge) {
+        return string(edgeId.get(edge));
+    }
+
+    /** Street name of the edge from the lane table, or null. */
+    public String edgeName(int edge) {
+        return string(edgeName.get(edge));
+    }
+
+    /** First lane of the edge; its lanes are [edgeLaneStart, edgeLaneEnd). */
+    public int edgeLaneStart(int edge) {
+        return edgeLanes.get(edge);
+    }
+
+    public int edgeLaneEnd(int edge) {
+        return edgeLanes.get(edge + 1);
+    }
+
+    // ------------------------------------------------------------------ lanes
+
+    public int getLaneCount() {
+        return laneId.limit();
+    }
+
+    public String laneId(int lane) {
+        return string(laneId.get(lane));
+    }
+
+    /** Edge index of the lane, -1 when the row had none. */
+    public int laneEdge(int lane) {
+        return laneEdge.get(lane);
+    }
+
+    public int lanePointCount(int lane) {
+        return lanePoints.get(lane + 1) - lanePoints.get(lane);
+    }
+
+    public double laneX(int lane, int point) {
+        return x(lanePoints.get(lane) + point);
+    }
+
+    public double laneY(int lane, int point) {
+        return y(lanePoints.get(lane) + point);
+    }
+
+    /** The shape in SUMO's "x1,y1 x2,y2 ..." form, null when the row had none. */
+    public String laneShape(int lane) {
+        return shape(lanePoints.get(lane), lanePoints.get(lane + 1));
+    }
+
+    // ------------------------------------------------------------------ traffic lights
+
+    public int getTrafficLightCount() {
+        return tlsId.limit();
+    }
+
+    public String trafficLightId(int light) {
+        return string(tlsId.get(light));
+    }
+
+    public String trafficLightJunctionId(int light) {
+        return string(tlsJunction.get(light));
+    }
+
+    public double trafficLightX(int light) {
+        return tlsX.get(light) / 100.0;
+    }
+
+    public double trafficLightY(int light) {
+        return tlsY.get(light) / 100.0;
+    }
+
+    /** Shape of the controlled junction, as {@link #laneShape}. */
+    public String trafficLightShape(int light) {
+        return shape(tlsPoints.get(light), tlsPoints.get(light + 1));
+    }
+
+    // ------------------------------------------------------------------ junctions
+
+    public int getJunctionCount() {
+        return junctionId.limit();
+    }
+
+    public String junctionId(int junction) {
+        return string(junctionId.get(junction));
+    }
+
+    public String junctionName(int junction) {
+        return string(junctionName.get(junction));
+    }
+
+    /** First incoming entry of the junction; its entries are [incomingStart, incomingEnd). */
+    public int incomingStart(int junction) {
+        return junctionIncoming.get(junction);
+    }
+
+    public int incomingEnd(int junction) {
+        return junctionIncoming.get(junction + 1);
+    }
+
+    /** Edge index of an incoming entry, -1 when the row had none. */
+    public int incomingEdge(int entry) {
+        return incomingEdge.get(entry);
+    }
+
+    public String incomingEdgeId(int entry) {
+        int edge = incomingEdge.get(entry);
+        return edge < 0 ? null : edgeId(edge);
+    }
+
+    /** Incoming edge name as stored in junction_incoming_edges. */
+    public String incomingEdgeName(int entry) {
+        return string(incomingName.get(entry));
+    }
+
+    // ------------------------------------------------------------------ internals
+
+    private String string(int ref) {
+        if (ref < 0) {
+            return null;
+        }
+        int start = stringOffsets.get(ref);
+        byte[] bytes = new byte[stringOffsets.get(ref + 1) - start];
+        stringBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private double x(int point) {
+        return points.get(2 * point) / 100.0;
+    }
+
+    private double y(int point) {
+        return points.get(2 * point + 1) / 100.0;
+    }
+
+    private String shape(int from, int to) {
+        if (from == to) {
+            return null;
+        }
+        StringBuilder shape = new StringBuilder((to - from) * 20);
+        for (int p = from; p < to; p++) {
+            if (p > from) {
+                shape.append(' ');
+            }
+            appendMetres(shape, points.get(2 * p));
+            shape.append(',');
+            appendMetres(shape, points.get(2 * p + 1));
+        }
+        return shape.toString();
+    }
+
+    /** Centimetres as metres with two decimals, as SUMO writes them. */
+    private static void appendMetres(StringBuilder out, int centimetres) {
+        long value = centimetres;
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        long fraction = value % 100;
+        out.append(value / 100).append('.');
+        if (fraction < 10) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+
+    private ByteBuffer column(Map<Integer, ByteBuffer> columns, int id) throws IOException {
+        ByteBuffer column = columns.get(id);
+        if (column == null) {
+            throw new IOException(path + " lacks column " + id);
+        }
+        return column;
+    }
+
+    private IntBuffer ints(Map<Integer, ByteBuffer> columns, int id) throws IOException {
+        return column(columns, id).asIntBuffer();
+    }
+}
@@ -0,0 +1,113 @@
+package com.ucd.urbanflow.common.sumo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The Java bin-1 codecs against the golden values written by the bridge's encoder
+ * (traciModel/codec_fixtures.py): the same document must encode to the same bytes on
+ * both sides, and the bytes must decode back to the document.
+ */
+class BinaryCodecFixtureTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final JsonEdgeCodec jsonEdges = new JsonEdgeCodec();
+    private final JsonTlsCodec jsonTls = new JsonTlsCodec();
+    private final BinaryEdgeCodec binaryEdges = new BinaryEdgeCodec();
+    private final BinaryVehicleCodec binaryVehicles = new BinaryVehicleCodec();
+    private final BinaryTlsCodec binaryTls = new BinaryTlsCodec();
+
+    @Test
+    void edgesMatchBridgeEncoding() throws IOException {
+        int cases = 0;
+        for (JsonNode fixture : fixtures("edge")) {
+            EdgeState expected = new EdgeState();
+            expected.setVehicleFilter(EdgeState.allVehicles());
+            jsonEdges.decode(json(fixture), expected);
+            byte[] edge = HEX.parseHex(fixture.get("edge").asText());
+            assertArrayEquals(edge, binaryEdges.encode(expected), expected.getEdgeId());
+
+            JsonNode vehicles = fixture.get("vehicles");
+            if (vehicles.isNull()) {
+                assertTrue(BinaryVehicleCodec.isEmpty(expected), expected.getEdgeId());
+            } else {
+                assertArrayEquals(HEX.parseHex(vehicles.asText()), binaryVehicles.encode(expected), expected.getEdgeId());
+            }
+
+            EdgeState decoded = new EdgeState();
+            decoded.setVehicleFilter(EdgeState.allVehicles());
+            binaryEdges.decode(edge, decoded);
+            if (!vehicles.isNull()) {
+                binaryVehicles.decode(HEX.parseHex(vehicles.asText()), decoded);
+            }
+            assertEquals(expected.getEdgeName(), decoded.getEdgeName());
+            assertEquals(expected.getTimestamp(), decoded.getTimestamp());
+            assertEquals(expected.getLaneNumber(), decoded.getLaneNumber());
+            assertEquals((float) expected.getSpeed(), (float) decoded.getSpeed());
+            assertEquals((float) expected.getWaitTime(), (float) decoded.getWaitTime());
+            assertEquals(Math.min(expected.getVehicleCount(), 0xFFFF), decoded.getVehicleCount());
+            assertEquals(expected.getWaitingVehicleCount(), decoded.getWaitingVehicleCount());
+            assertEquals(expected.getVehicleIds(), decoded.getVehicleIds());
+            assertEquals(expected.getWaitingVehicleIds(), decoded.getWaitingVehicleIds());
+            cases++;
+        }
+        assertTrue(cases > 0);
+    }
+
+    @Test
+    void trafficLightsMatchBridgeEncoding() throws IOException {
+        int cases = 0;
+        for (JsonNode fixture : fixtures("tls")) {
+            TlsState expected = new TlsState();
+            expected.setKeepConnections(true);
+            jsonTls.decode(json(fixture), expected);
+            byte[] tls = HEX.parseHex(fixture.get("tls").asText());
+            assertArrayEquals(tls, binaryTls.encode(expected), expected.getTlsId());
+
+            TlsState decoded = new TlsState();
+            decoded.setKeepConnections(true);
+            binaryTls.decode(tls, decoded);
+            assertEquals(expected.getJunctionId(), decoded.getJunctionId());
+            assertEquals(expected.getJunctionName(), decoded.getJunctionName());
+            assertEquals(expected.getState(), decoded.getState());
+            assertEquals(expected.getPhase(), decoded.getPhase());
+            assertEquals(expected.getTimestamp(), decoded.getTimestamp());
+            assertEquals(expected.getNextSwitchTime(), decoded.getNextSwitchTime());
+            assertEquals((float) expected.getDuration(), (float) decoded.getDuration());
+            assertEquals((float) expected.getSpendTime(), (float) decoded.getSpendTime());
+            assertEquals(expected.getLinks(), decoded.getLinks());
+            assertEquals(expected.getConnections(), decoded.getConnections());
+            cases++;
+        }
+        assertTrue(cases > 0);
+    }
+
+    private static byte[] json(JsonNode fixture) throws IOException {
+        return MAPPER.writeValueAsBytes(fixture.get("json"));
+    }
+
+    private static List<JsonNode> fixtures(String kind) throws IOException {
+        try (InputStream in = BinaryCodecFixtureTest.class.getResourceAsStream("/sumo/bin-1-fixtures.json")) {
+            List<JsonNode> cases = new ArrayList<>();
+            for (JsonNode node : MAPPER.readTree(in)) {
+                if (kind.equals(node.get("kind").asText())) {
+                    cases.add(node);
+                }
+            }
+            return cases;
+        }
+    }
+}
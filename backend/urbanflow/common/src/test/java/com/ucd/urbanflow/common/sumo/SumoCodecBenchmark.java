@@ -0,0 +1,132 @@
+package com.ucd.urbanflow.common.sumo;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the sumo:edge schemas on a synthetic network: encoded size, and the time to
+ * decode every edge with and without the vehicle IDs. With a host:port argument, the
+ * state is also written to that Redis (overwriting the sumo:* keys) and the memory the
+ * hashes take there is reported.
+ * <pre>
+ * mvn -pl common test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp common/target/test-classes:common/target/classes:$(cat common/cp.txt) \
+ *     com.ucd.urbanflow.common.sumo.SumoCodecBenchmark [edges] [host:port]
+ * </pre>
+ */
+public final class SumoCodecBenchmark {
+
+    private static final int ROUNDS = 10;
+    /** Keeps the decode loop's result alive. */
+    static volatile long blackhole;
+
+    private SumoCodecBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        String redis = args.length > 1 ? args[1] : null;
+        List<EdgeState> edges = network(count, new Random(42));
+        System.out.printf("%d edges, %d vehicles%n", count, edges.stream().mapToInt(e -> e.getVehicleIds().size()).sum());
+        System.out.printf("%-7s %14s %14s %16s %16s %14s%n", "schema", "edge bytes", "vehicle bytes",
+                "decode ns/edge", "+ IDs ns/edge", "redis bytes");
+        for (SumoSchema schema : List.of(SumoSchema.JSON_V1, SumoSchema.BINARY_V1)) {
+            run(schema, edges, redis);
+        }
+    }
+
+    private static void run(SumoSchema schema, List<EdgeState> edges, String redis) throws Exception {
+        int n = edges.size();
+        byte[][] values = new byte[n][];
+        byte[][] vehicles = new byte[n][];
+        long edgeBytes = 0;
+        long vehicleBytes = 0;
+        for (int i = 0; i < n; i++) {
+            values[i] = schema.edges().encode(edges.get(i));
+            edgeBytes += values[i].length;
+            if (schema.vehicles() != null && !BinaryVehicleCodec.isEmpty(edges.get(i))) {
+                vehicles[i] = schema.vehicles().encode(edges.get(i));
+                vehicleBytes += vehicles[i].length;
+            }
+        }
+        double countsOnly = decode(schema, values, vehicles, false);
+        double withIds = decode(schema, values, vehicles, true);
+        String memory = redis == null ? "-" : Long.toString(redisMemory(schema, edges, redis));
+        System.out.printf("%-7s %14d %14d %16.0f %16.0f %14s%n", schema.name(), edgeBytes, vehicleBytes,
+                countsOnly, withIds, memory);
+    }
+
+    /** Best of ROUNDS passes over every edge, in ns per edge. */
+    private static double decode(SumoSchema schema, byte[][] values, byte[][] vehicles, boolean ids) throws IOException {
+        EdgeState state = new EdgeState();
+        state.setVehicleFilter(ids ? EdgeState.allVehicles() : null);
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < values.length; i++) {
+                state.clear();
+                schema.edges().decode(values[i], state);
+                if (ids && vehicles[i] != null) {
+                    schema.vehicles().decode(vehicles[i], state);
+                }
+                sink += state.getVehicleCount() + state.getVehicleIds().size();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        blackhole += sink;
+        return (double) best / values.length;
+    }
+
+    private static long redisMemory(SumoSchema schema, List<EdgeState> edges, String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1))));
+        factory.afterPropertiesSet();
+        factory.start();
+        try {
+            new SumoStateWriter(factory, schema).write(0, edges, List.of(), 600);
+            try (RedisConnection connection = factory.getConnection()) {
+                return memoryUsage(connection, SumoKeys.EDGES) + memoryUsage(connection, SumoKeys.EDGE_VEHICLES);
+            }
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private static long memoryUsage(RedisConnection connection, String key) {
+        Object bytes = connection.execute("MEMORY", SumoStateReader.bytes("USAGE"), SumoStateReader.bytes(key),
+                SumoStateReader.bytes("SAMPLES"), SumoStateReader.bytes("0"));
+        return bytes instanceof Long value ? value : 0;
+    }
+
+    /** Edges shaped like the bridge's output: most are empty, busy ones carry a handful of vehicles. */
+    private static List<EdgeState> network(int count, Random random) {
+        List<EdgeState> edges = new ArrayList<>(count);
+        int vehicle = 0;
+        for (int i = 0; i < count; i++) {
+            EdgeState edge = new EdgeState();
+            edge.setEdgeId((random.nextBoolean() ? "-" : "") + (100_000_000 + random.nextInt(900_000_000)) + "#" + random.nextInt(6));
+            edge.setEdgeName(random.nextInt(4) == 0 ? "" : "Street " + random.nextInt(5000));
+            edge.setTimestamp(3600.0);
+            edge.setLaneNumber(1 + random.nextInt(3));
+            int vehicles = random.nextInt(10) < 7 ? 0 : 1 + random.nextInt(8);
+            for (int v = 0; v < vehicles; v++) {
+                edge.getVehicleIds().add(random.nextBoolean() ? "veh" + vehicle++ : "flow_" + random.nextInt(40) + "." + vehicle++);
+            }
+            int waiting = vehicles == 0 ? 0 : random.nextInt(vehicles + 1);
+            edge.setVehicleCount(vehicles);
+            edge.setWaitingVehicleCount(waiting);
+            edge.setSpeed(vehicles == 0 ? 0 : random.nextDouble() * 15);
+            edge.setWaitTime(waiting * random.nextDouble() * 30);
+            edges.add(edge);
+        }
+        return edges;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ucd.urbanflow;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+
+// the gateway keeps no data of its own; the parent pom still puts MyBatis and MySQL on the classpath
+@SpringBootApplication(exclude = DataSourceAutoConfiguration.class)
+public class GatewayApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(GatewayApplication.class, args);
+	}
+
+}
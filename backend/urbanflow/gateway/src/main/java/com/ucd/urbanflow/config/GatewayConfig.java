@@ -0,0 +1,25 @@
+package com.ucd.urbanflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * One HTTP client for all backend calls; it keeps connections to each service alive
+ * and reuses them across requests.
+ */
+@Configuration
+public class GatewayConfig {
+
+    @Bean
+    public HttpClient backendHttpClient(@Value("${gateway.connect-timeout-ms:2000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+}
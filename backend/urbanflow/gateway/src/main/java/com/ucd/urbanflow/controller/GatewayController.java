@@ -0,0 +1,29 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.domain.dto.GatewayStats;
+import com.ucd.urbanflow.service.ProxyService;
+import com.ucd.urbanflow.service.ResponseCache;
+import com.ucd.urbanflow.websocket.WebSocketRelayHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/gateway")
+@RequiredArgsConstructor
+public class GatewayController {
+
+    private final ProxyService proxyService;
+    private final ResponseCache responseCache;
+    private final WebSocketRelayHandler webSocketRelayHandler;
+
+    @GetMapping("/stats")
+    public ResponseEntity<GatewayStats> getStats() {
+        return ResponseEntity.ok(new GatewayStats(proxyService.getRequests(), proxyService.getCacheHits(),
+                proxyService.getCoalesced(), proxyService.getBackendCalls(), proxyService.getBackendErrors(),
+                responseCache.size(), responseCache.bytes(),
+                webSocketRelayHandler.getUpstreamCount(), webSocketRelayHandler.getClientCount()));
+    }
+}
@@ -0,0 +1,27 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.service.ProxyService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Catch-all for routed API calls. WebSocket upgrades are left to the WebSocket handler mapping.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ProxyController {
+
+    private final ProxyService proxyService;
+
+    @RequestMapping(value = "/**", headers = "!Upgrade")
+    public CompletableFuture<ResponseEntity<byte[]>> proxy(HttpServletRequest request,
+                                                           @RequestBody(required = false) byte[] body) {
+        return proxyService.forward(request, body);
+    }
+}
@@ -0,0 +1,24 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters since start: requests received, GETs answered from the cache or by joining an
+ * identical in-flight call, and the calls actually made to backends.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GatewayStats {
+    private long requests;
+    private long cacheHits;
+    private long coalesced;
+    private long backendCalls;
+    private long backendErrors;
+    private int cacheEntries;
+    private long cacheBytes;
+    private int webSocketUpstreams;
+    private int webSocketClients;
+}
@@ -0,0 +1,14 @@
+package com.ucd.urbanflow.domain.dto;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * A buffered backend response. Shared between coalesced callers and cache hits, so it
+ * must not be modified; expiresAt is 0 when the response may not be cached.
+ */
+public record ProxyResponse(int status, HttpHeaders headers, byte[] body, long expiresAt) {
+
+    public int size() {
+        return body.length + 64 * headers.size();
+    }
+}
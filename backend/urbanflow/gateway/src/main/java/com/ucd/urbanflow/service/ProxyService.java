@@ -0,0 +1,236 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.ProxyResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forwards requests to the backend chosen by {@link RouteTable} over one pooled
+ * keep-alive {@link HttpClient}, without holding a servlet thread while the backend
+ * works.
+ * <p>
+ * GETs go through two layers before reaching a backend. The {@link ResponseCache}
+ * answers repeats within the response's lifetime (Cache-Control max-age, otherwise
+ * gateway.cache.default-ttl-ms; no-store, no-cache, private and Set-Cookie responses are
+ * not cached). Identical GETs that arrive while one is already on its way (same path,
+ * query and Authorization) wait for that call instead of making their own, so the
+ * burst of polls a dashboard page fires on load costs each backend one request.
+ * Backend responses are requested uncompressed and compressed once for the client by
+ * the gateway's own server compression.
+ */
+@Slf4j
+@Service
+public class ProxyService {
+
+    private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "proxy-connection", "te", "trailer", "transfer-encoding", "upgrade", "host",
+            "content-length", "expect", "http2-settings");
+    public static final String CACHE_HEADER = "X-Gateway-Cache";
+
+    private final RouteTable routeTable;
+    private final ResponseCache cache;
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final long defaultTtlMillis;
+    private final Map<String, CompletableFuture<ProxyResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder backendCalls = new LongAdder();
+    private final LongAdder backendErrors = new LongAdder();
+
+    public ProxyService(RouteTable routeTable, ResponseCache cache, HttpClient httpClient,
+                        @Value("${gateway.read-timeout-ms:30000}") long readTimeoutMs,
+                        @Value("${gateway.cache.default-ttl-ms:1000}") long defaultTtlMillis) {
+        this.routeTable = routeTable;
+        this.cache = cache;
+        this.httpClient = httpClient;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    public CompletableFuture<ResponseEntity<byte[]>> forward(HttpServletRequest request, byte[] body) {
+        requests.increment();
+        String path = request.getRequestURI();
+        RouteTable.Route route = routeTable.match(path);
+        if (route == null) {
+            return CompletableFuture.completedFuture(toEntity(error(404, "No route for " + path), null));
+        }
+        String method = request.getMethod();
+        URI target = routeTable.resolve(route, path, request.getQueryString(), false);
+        HttpRequest backendRequest = buildRequest(request, method, target, body);
+        if (!"GET".equals(method)) {
+            return send(backendRequest, false).thenApply(response -> toEntity(response, null));
+        }
+
+        String key = path + '?' + request.getQueryString() + '|' + request.getHeader(HttpHeaders.AUTHORIZATION);
+        long now = System.currentTimeMillis();
+        if (route.cacheable()) {
+            ProxyResponse cached = cache.get(key, now);
+            if (cached != null) {
+                cacheHits.increment();
+                return CompletableFuture.completedFuture(toEntity(cached, "HIT"));
+            }
+        }
+        CompletableFuture<ProxyResponse> call = new CompletableFuture<>();
+        CompletableFuture<ProxyResponse> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.thenApply(response -> toEntity(response, "COALESCED"));
+        }
+        send(backendRequest, route.cacheable()).whenComplete((response, e) -> {
+            if (response != null) {
+                cache.put(key, response, System.currentTimeMillis());
+            }
+            inFlight.remove(key, call);
+            if (e != null) {
+                call.completeExceptionally(e);
+            } else {
+                call.complete(response);
+            }
+        });
+        return call.thenApply(response -> toEntity(response, "MISS"));
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getBackendCalls() {
+        return backendCalls.sum();
+    }
+
+    public long getBackendErrors() {
+        return backendErrors.sum();
+    }
+
+    private HttpRequest buildRequest(HttpServletRequest request, String method, URI target, byte[] body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target)
+                .timeout(readTimeout)
+                .method(method, body == null || body.length == 0
+                        ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(lower) || lower.equals("accept-encoding") || lower.startsWith("x-forwarded-")) {
+                continue;
+            }
+            for (String value : Collections.list(request.getHeaders(name))) {
+                builder.header(name, value);
+            }
+        }
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        builder.header("X-Forwarded-For", forwardedFor == null
+                ? request.getRemoteAddr() : forwardedFor + ", " + request.getRemoteAddr());
+        builder.header("X-Forwarded-Proto", request.getScheme());
+        String host = request.getHeader(HttpHeaders.HOST);
+        if (host != null) {
+            builder.header("X-Forwarded-Host", host);
+        }
+        return builder.build();
+    }
+
+    private CompletableFuture<ProxyResponse> send(HttpRequest request, boolean cacheable) {
+        backendCalls.increment();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, e) -> {
+                    if (e == null) {
+                        return toProxyResponse(request, response, cacheable);
+                    }
+                    backendErrors.increment();
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.warn("{} {} failed: {}", request.method(), request.uri(), cause.toString());
+                    if (cause instanceof HttpTimeoutException) {
+                        return error(504, "Upstream timed out");
+                    }
+                    return error(502, cause instanceof ConnectException ? "Upstream unavailable" : "Upstream error");
+                });
+    }
+
+    private ProxyResponse toProxyResponse(HttpRequest request, HttpResponse<byte[]> response, boolean cacheable) {
+        HttpHeaders headers = new HttpHeaders();
+        for (Map.Entry<String, List<String>> header : response.headers().map().entrySet()) {
+            String name = header.getKey();
+            if (!name.startsWith(":") && !HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.put(name, header.getValue());
+            }
+        }
+        long expiresAt = 0;
+        if (cacheable && "GET".equals(request.method()) && response.statusCode() == 200) {
+            expiresAt = expiry(headers);
+        }
+        return new ProxyResponse(response.statusCode(), HttpHeaders.readOnlyHttpHeaders(headers), response.body(), expiresAt);
+    }
+
+    private long expiry(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return 0;
+        }
+        long ttl = defaultTtlMillis;
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                    return 0;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        ttl = Long.parseLong(directive.substring(8)) * 1000;
+                    } catch (NumberFormatException ignored) {
+                        // keep the default
+                    }
+                }
+            }
+        }
+        return ttl > 0 ? System.currentTimeMillis() + ttl : 0;
+    }
+
+    private static ProxyResponse error(int status, String message) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String escaped = message.replace("\\", "\\\\").replace("\"", "\\\"");
+        String json = "{\"statusCode\":" + status + ",\"message\":\"" + escaped + "\",\"timestamp\":"
+                + System.currentTimeMillis() + "}";
+        return new ProxyResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), json.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    private static ResponseEntity<byte[]> toEntity(ProxyResponse response, String cacheStatus) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.headers());
+        if (cacheStatus != null) {
+            headers.set(CACHE_HEADER, cacheStatus);
+        }
+        return ResponseEntity.status(response.status()).headers(headers).body(response.body());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.ProxyResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Byte-bounded LRU cache of GET responses. Entries expire at the time the proxy computed
+ * from the backend's Cache-Control or the default TTL; the least recently used entries
+ * are evicted once the total size passes gateway.cache.max-bytes. Responses larger than
+ * a sixteenth of the budget are not cached at all.
+ */
+@Component
+public class ResponseCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, ProxyResponse> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes;
+
+    public ResponseCache(@Value("${gateway.cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized ProxyResponse get(String key, long now) {
+        ProxyResponse response = entries.get(key);
+        if (response == null) {
+            return null;
+        }
+        if (response.expiresAt() <= now) {
+            remove(key);
+            return null;
+        }
+        return response;
+    }
+
+    public synchronized void put(String key, ProxyResponse response, long now) {
+        long size = response.size() + key.length();
+        if (response.expiresAt() <= now || size > maxBytes / 16) {
+            return;
+        }
+        remove(key);
+        entries.put(key, response);
+        bytes += size;
+        for (Iterator<Map.Entry<String, ProxyResponse>> it = entries.entrySet().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            Map.Entry<String, ProxyResponse> eldest = it.next();
+            bytes -= eldest.getValue().size() + eldest.getKey().length();
+            it.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private void remove(String key) {
+        ProxyResponse old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.size() + key.length();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ucd.urbanflow.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Path-prefix routes to the backend services, from gateway.routes: comma-separated
+ * entries of prefix=baseUrl with optional ;strip (remove the prefix before forwarding,
+ * like the frontend dev proxy does for /api-user) and ;nocache (never serve GETs from
+ * the response cache). The longest matching prefix wins.
+ */
+@Slf4j
+@Component
+public class RouteTable {
+
+    public record Route(String prefix, String target, boolean strip, boolean cacheable) {
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+
+    public RouteTable(@Value("${gateway.routes}") String spec) {
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            String[] parts = entry.split(";");
+            int eq = parts[0].indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Invalid gateway route: " + entry);
+            }
+            boolean strip = false;
+            boolean cacheable = true;
+            for (int i = 1; i < parts.length; i++) {
+                switch (parts[i].trim()) {
+                    case "strip" -> strip = true;
+                    case "nocache" -> cacheable = false;
+                    default -> throw new IllegalArgumentException("Unknown route option " + parts[i] + " in " + entry);
+                }
+            }
+            String target = parts[0].substring(eq + 1).trim();
+            routes.add(new Route(parts[0].substring(0, eq).trim(),
+                    target.endsWith("/") ? target.substring(0, target.length() - 1) : target, strip, cacheable));
+        }
+        routes.sort(Comparator.comparingInt((Route route) -> route.prefix().length()).reversed());
+        routes.forEach(route -> log.info("Route {} -> {}{}{}", route.prefix(), route.target(),
+                route.strip() ? " (strip)" : "", route.cacheable() ? "" : " (nocache)"));
+    }
+
+    /** The route for path, or null when no prefix matches on a segment boundary. */
+    public Route match(String path) {
+        for (Route route : routes) {
+            String prefix = route.prefix();
+            if (path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    /** Backend URI for path and raw query; scheme "ws" or "wss" switches an http(s) target. */
+    public URI resolve(Route route, String path, String query, boolean webSocket) {
+        String rest = route.strip() ? path.substring(route.prefix().length()) : path;
+        String target = route.target();
+        if (webSocket) {
+            target = target.startsWith("https:") ? "wss:" + target.substring(6) : "ws:" + target.substring(target.indexOf(':') + 1);
+        }
+        return URI.create(target + (rest.isEmpty() ? "/" : rest) + (query == null ? "" : "?" + query));
+    }
+
+    public List<Route> getRoutes() {
+        return List.copyOf(routes);
+    }
+}
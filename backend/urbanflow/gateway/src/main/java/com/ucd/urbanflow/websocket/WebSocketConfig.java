@@ -0,0 +1,23 @@
+package com.ucd.urbanflow.websocket;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.*;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final WebSocketRelayHandler relayHandler;
+    private final String[] paths;
+
+    public WebSocketConfig(WebSocketRelayHandler relayHandler, @Value("${gateway.websocket.paths}") String[] paths) {
+        this.relayHandler = relayHandler;
+        this.paths = paths;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(relayHandler, paths).setAllowedOrigins("*");
+    }
+}
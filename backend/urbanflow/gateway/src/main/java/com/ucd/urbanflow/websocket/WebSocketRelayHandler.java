@@ -0,0 +1,243 @@
+package com.ucd.urbanflow.websocket;
+
+import com.ucd.urbanflow.service.RouteTable;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Multiplexes browser WebSocket connections onto one backend connection per stream.
+ * <p>
+ * The status, KPI and command sockets are server-push broadcasts: every client of the
+ * same URL (path and query) receives the same messages. The first client of a URL
+ * opens the backend connection, later ones join it, and every backend message is fanned
+ * out to all of them; the last message is replayed to a client that joins late, so it
+ * does not wait for the next change. The backend connection is closed with the last
+ * client, and when it drops, its clients are closed so that they reconnect. Messages
+ * from clients are not forwarded, since one backend connection is shared.
+ * <p>
+ * Each client is wrapped in a {@link ConcurrentWebSocketSessionDecorator}: a slow client
+ * buffers up to a limit and is then disconnected, instead of stalling the others.
+ */
+@Slf4j
+@Component
+public class WebSocketRelayHandler extends AbstractWebSocketHandler {
+
+    private static final String STREAM_ATTRIBUTE = "gateway.stream";
+
+    private final RouteTable routeTable;
+    private final StandardWebSocketClient client;
+    private final int sendTimeLimitMs;
+    private final int clientBufferBytes;
+    private final Map<String, Stream> streams = new ConcurrentHashMap<>();
+
+    public WebSocketRelayHandler(RouteTable routeTable,
+                                 @Value("${gateway.websocket.max-message-bytes:16777216}") int maxMessageBytes,
+                                 @Value("${gateway.websocket.send-time-limit-ms:5000}") int sendTimeLimitMs,
+                                 @Value("${gateway.websocket.client-buffer-bytes:8388608}") int clientBufferBytes) {
+        this.routeTable = routeTable;
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        // full status frames are far larger than the container's 8 KB default
+        container.setDefaultMaxTextMessageBufferSize(maxMessageBytes);
+        container.setDefaultMaxBinaryMessageBufferSize(maxMessageBytes);
+        this.client = new StandardWebSocketClient(container);
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.clientBufferBytes = clientBufferBytes;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        URI uri = session.getUri();
+        RouteTable.Route route = uri == null ? null : routeTable.match(uri.getPath());
+        if (route == null) {
+            session.close(CloseStatus.POLICY_VIOLATION.withReason("No route"));
+            return;
+        }
+        URI target = routeTable.resolve(route, uri.getPath(), uri.getRawQuery(), true);
+        WebSocketSession downstream = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, clientBufferBytes);
+        while (true) {
+            Stream stream = streams.computeIfAbsent(target.toString(), key -> connect(key, target));
+            if (stream.join(downstream)) {
+                session.getAttributes().put(STREAM_ATTRIBUTE, stream);
+                return;
+            }
+            // lost a race with the stream closing; the closed one has left the map
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Stream stream = (Stream) session.getAttributes().get(STREAM_ATTRIBUTE);
+        if (stream != null) {
+            stream.leave(session.getId());
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        log.debug("Dropping client message on shared stream {}", session.getUri());
+    }
+
+    public int getUpstreamCount() {
+        return streams.size();
+    }
+
+    public int getClientCount() {
+        return streams.values().stream().mapToInt(Stream::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streams.values().forEach(stream -> stream.close(CloseStatus.GOING_AWAY));
+    }
+
+    private Stream connect(String key, URI target) {
+        Stream stream = new Stream(key);
+        client.execute(stream, new WebSocketHttpHeaders(), target).whenComplete((upstream, e) -> {
+            if (e != null) {
+                log.warn("WebSocket upstream {} unavailable: {}", target, e.getMessage());
+                stream.close(CloseStatus.SERVICE_RESTARTED);
+            }
+        });
+        log.info("Opening WebSocket upstream {}", target);
+        return stream;
+    }
+
+    /** One backend connection and the clients sharing it. */
+    private final class Stream implements WebSocketHandler {
+
+        private final String key;
+        private final Map<String, WebSocketSession> clients = new ConcurrentHashMap<>();
+        private volatile WebSocketSession upstream;
+        private volatile WebSocketMessage<?> last;
+        private boolean closed;
+
+        Stream(String key) {
+            this.key = key;
+        }
+
+        synchronized boolean join(WebSocketSession client) {
+            if (closed) {
+                return false;
+            }
+            clients.put(client.getId(), client);
+            WebSocketMessage<?> replay = last;
+            if (replay != null) {
+                send(client, replay);
+            }
+            return true;
+        }
+
+        void leave(String clientId) {
+            WebSocketSession upstreamToClose = null;
+            synchronized (this) {
+                if (clients.remove(clientId) != null && clients.isEmpty() && !closed) {
+                    closed = true;
+                    streams.remove(key, this);
+                    upstreamToClose = upstream;
+                }
+            }
+            closeQuietly(upstreamToClose, CloseStatus.NORMAL);
+        }
+
+        int size() {
+            return clients.size();
+        }
+
+        void close(CloseStatus status) {
+            synchronized (this) {
+                closed = true;
+                streams.remove(key, this);
+            }
+            closeQuietly(upstream, status);
+            for (WebSocketSession client : clients.values()) {
+                closeQuietly(client, status);
+            }
+            clients.clear();
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession session) {
+            boolean abandoned;
+            synchronized (this) {
+                upstream = session;
+                abandoned = closed;
+            }
+            if (abandoned) {
+                // every client left while the handshake was in progress
+                closeQuietly(session, CloseStatus.NORMAL);
+            }
+        }
+
+        @Override
+        public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) {
+            if (!(message instanceof TextMessage) && !(message instanceof BinaryMessage)) {
+                return;
+            }
+            last = message;
+            for (WebSocketSession client : clients.values()) {
+                send(client, message);
+            }
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) {
+            log.warn("WebSocket upstream {} error: {}", key, exception.getMessage());
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) {
+            boolean expected;
+            synchronized (this) {
+                expected = closed;
+            }
+            if (!expected) {
+                log.info("WebSocket upstream {} closed ({}), disconnecting {} clients", key, closeStatus, clients.size());
+                close(CloseStatus.SERVICE_RESTARTED);
+            }
+        }
+
+        @Override
+        public boolean supportsPartialMessages() {
+            return false;
+        }
+
+        private void send(WebSocketSession client, WebSocketMessage<?> message) {
+            try {
+                client.sendMessage(message);
+            } catch (Exception e) {
+                // over the buffer or time limit, or already gone; leave() runs once it is closed
+                closeQuietly(client, CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+    }
+
+    private static void closeQuietly(WebSocketSession session, CloseStatus status) {
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        try {
+            session.close(status);
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ucd.urbanflow;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class UrbanflowApplicationTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
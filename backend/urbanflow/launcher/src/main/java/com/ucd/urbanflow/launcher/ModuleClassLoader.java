@@ -0,0 +1,64 @@
+package com.ucd.urbanflow.launcher;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Class loader of one module, over its classes directory or plain jar, looking there
+ * before its parent.
+ * <p>
+ * Every module has the same base package, and several have classes of the same name
+ * (config.SecurityConfig, websocket.WebSocketConfig...), so each needs its own loader.
+ * Looking locally first also makes application.properties and mapper/*.xml resolve to
+ * the module's own. Libraries and the common module come from the parent, which makes
+ * them, and the beans of the shared context, the same classes in every module.
+ */
+class ModuleClassLoader extends URLClassLoader {
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    ModuleClassLoader(String module, URL location, ClassLoader parent) {
+        super(module, new URL[]{location}, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> type = findLoadedClass(name);
+            if (type == null) {
+                try {
+                    type = findClass(name);
+                } catch (ClassNotFoundException e) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve) {
+                resolveClass(type);
+            }
+            return type;
+        }
+    }
+
+    @Override
+    public URL getResource(String name) {
+        URL url = findResource(name);
+        return url != null ? url : super.getResource(name);
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+        List<URL> urls = new ArrayList<>(Collections.list(findResources(name)));
+        ClassLoader parent = getParent();
+        if (parent != null) {
+            urls.addAll(Collections.list(parent.getResources(name)));
+        }
+        return Collections.enumeration(urls);
+    }
+}
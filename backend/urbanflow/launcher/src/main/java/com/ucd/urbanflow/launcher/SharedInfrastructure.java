@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.launcher;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+
+/**
+ * Source of the launcher's parent context: one Hikari pool, one Redis connection
+ * factory with its templates and one ObjectMapper, configured from launcher.properties.
+ * The module auto-configurations back off when they find these beans in the parent,
+ * so every module uses them instead of opening pools of its own.
+ * <p>
+ * Deliberately not a @Configuration: the modules scan the whole com.ucd.urbanflow
+ * package and must not pick it up.
+ */
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, RedisAutoConfiguration.class,
+        JacksonAutoConfiguration.class})
+class SharedInfrastructure {
+}
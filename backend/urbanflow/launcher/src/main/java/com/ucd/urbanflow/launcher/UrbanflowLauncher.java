@@ -0,0 +1,117 @@
+package com.ucd.urbanflow.launcher;
+
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the backend modules in one JVM, as a modular monolith.
+ * <p>
+ * A parent context ({@link SharedInfrastructure}) holds the MySQL pool, the Redis
+ * connection factory, the ObjectMapper and the {@link InProcessExchange}; each module
+ * in launcher.modules is then started as a child of it with its own class loader
+ * ({@link ModuleClassLoader}) and its own application.properties, so it keeps its
+ * port, security and scheduling exactly as when run alone. Besides sharing the pools,
+ * heap and JIT work, modules use the exchange to reach a co-located module directly,
+ * e.g. traffic-sensing hands its congestion ranking to status-sync and the audit
+ * publishers hand their batches to logging-and-audit.
+ * <p>
+ * Modules are loaded from launcher.module-dir/&lt;module&gt;/target/classes unless
+ * launcher.module.&lt;module&gt;.location names another directory or a plain jar, so
+ * build them first: {@code mvn package -DskipTests}, then
+ * {@code java -jar launcher/target/launcher-0.0.1-SNAPSHOT.jar} from backend/urbanflow.
+ * Every setting can be overridden with -D or --name=value.
+ */
+public final class UrbanflowLauncher {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrbanflowLauncher.class);
+
+    private UrbanflowLauncher() {
+    }
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        ConfigurableApplicationContext shared = new SpringApplicationBuilder(SharedInfrastructure.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.config.name=launcher")
+                .registerShutdownHook(false)
+                .run(args);
+        Environment env = shared.getEnvironment();
+        List<String> modules = Arrays.stream(env.getRequiredProperty("launcher.modules").split(","))
+                .map(String::trim).filter(name -> !name.isEmpty()).toList();
+        shared.getBeanFactory().registerSingleton("inProcessExchange", new InProcessExchange(modules));
+
+        List<ConfigurableApplicationContext> started = new ArrayList<>();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> close(started, shared), "launcher-shutdown"));
+        for (String module : modules) {
+            long moduleStart = System.nanoTime();
+            try {
+                started.add(startModule(module, env, shared, args));
+            } catch (Exception e) {
+                logger.error("Module {} failed to start, stopping", module, e);
+                System.exit(1);
+            }
+            logger.info("Started {} in {} ms", module, (System.nanoTime() - moduleStart) / 1_000_000);
+        }
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        logger.info("Started {} modules in {} ms, heap used {} MB", modules.size(),
+                (System.nanoTime() - start) / 1_000_000, heap.getUsed() >> 20);
+    }
+
+    private static ConfigurableApplicationContext startModule(String module, Environment env,
+                                                              ConfigurableApplicationContext shared, String[] args)
+            throws ClassNotFoundException, MalformedURLException {
+        String mainClass = env.getRequiredProperty("launcher.module." + module + ".main");
+        File location = new File(env.getProperty("launcher.module." + module + ".location",
+                env.getProperty("launcher.module-dir", ".") + "/" + module + "/target/classes"));
+        if (!location.exists()) {
+            throw new IllegalStateException(location.getAbsolutePath() + " not found, build " + module + " first");
+        }
+        URL url = location.toURI().toURL();
+        ClassLoader loader = new ModuleClassLoader(module, url, UrbanflowLauncher.class.getClassLoader());
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        // Boot, Tomcat and MyBatis resolve classes and resources through the context class loader
+        thread.setContextClassLoader(loader);
+        try {
+            Class<?> application = loader.loadClass(mainClass);
+            return new SpringApplicationBuilder()
+                    .sources(application)
+                    .main(application)
+                    .resourceLoader(new DefaultResourceLoader(loader))
+                    .parent(shared)
+                    .bannerMode(Banner.Mode.OFF)
+                    .registerShutdownHook(false)
+                    .run(args);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    /** Modules in reverse start order, then the shared pools they use. */
+    private static void close(List<ConfigurableApplicationContext> started, ConfigurableApplicationContext shared) {
+        for (int i = started.size() - 1; i >= 0; i--) {
+            try {
+                started.get(i).close();
+            } catch (Exception e) {
+                logger.warn("Error closing {}", started.get(i).getId(), e);
+            }
+        }
+        shared.close();
+    }
+}
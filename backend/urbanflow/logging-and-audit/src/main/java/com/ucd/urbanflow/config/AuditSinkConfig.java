@@ -0,0 +1,49 @@
+package com.ucd.urbanflow.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.service.AuditSink;
+import com.ucd.urbanflow.service.FileAuditSink;
+import com.ucd.urbanflow.service.JdbcAuditSink;
+import com.ucd.urbanflow.service.SegmentAuditSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Selects where group-committed audit events go: segment (indexed, time-partitioned
+ * files), jdbc (audit_event table) or file (plain append-only log).
+ */
+@Configuration
+public class AuditSinkConfig {
+
+    @Bean(destroyMethod = "close")
+    public AuditSink auditSink(@Value("${audit.sink:segment}") String sink,
+                               @Value("${audit.file.path:./audit/audit-events.log}") String filePath,
+                               @Value("${audit.file.fsync-ms:0}") long fsyncMillis,
+                               @Value("${audit.segment.dir:./audit/segments}") String segmentDir,
+                               @Value("${audit.segment.partition-minutes:60}") long partitionMinutes,
+                               @Value("${audit.segment.block-events:1024}") int blockEvents,
+                               @Value("${audit.segment.memtable-events:50000}") int memtableEvents,
+                               @Value("${audit.segment.seal-seconds:300}") long sealSeconds,
+                               @Value("${audit.segment.compact-after-hours:24}") long compactAfterHours,
+                               @Value("${audit.segment.compacted-partition-hours:24}") long compactedPartitionHours,
+                               @Value("${audit.segment.retention-days:0}") long retentionDays,
+                               @Value("${audit.segment.dedupe-events:100000}") int dedupeEvents,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper) throws IOException {
+        return switch (sink.trim().toLowerCase()) {
+            case "segment" -> new SegmentAuditSink(Path.of(segmentDir), objectMapper, partitionMinutes, blockEvents,
+                    memtableEvents, sealSeconds, compactAfterHours, compactedPartitionHours, retentionDays, fsyncMillis,
+                    dedupeEvents);
+            case "jdbc" -> new JdbcAuditSink(jdbcTemplate, transactionTemplate);
+            case "file" -> new FileAuditSink(Path.of(filePath), objectMapper, fsyncMillis);
+            default -> throw new IllegalArgumentException("Unknown audit.sink: " + sink);
+        };
+    }
+}
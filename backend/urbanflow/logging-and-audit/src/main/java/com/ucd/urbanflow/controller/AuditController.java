@@ -0,0 +1,78 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.domain.dto.AuditQuery;
+import com.ucd.urbanflow.domain.dto.AuditStats;
+import com.ucd.urbanflow.service.AuditSink;
+import com.ucd.urbanflow.service.AuditWriterService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ingest endpoint for the audit publishers in the other services, and audit search.
+ */
+@RestController
+@RequestMapping("/api/audit")
+@RequiredArgsConstructor
+public class AuditController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final AuditWriterService auditWriterService;
+    private final AuditSink auditSink;
+
+    /** 202 once accepted; 503 when the buffer is full and 504 on a commit timeout, both retryable. */
+    @PostMapping("/events")
+    public ResponseEntity<Map<String, Object>> ingest(@RequestBody List<AuditEvent> events) {
+        AuditWriterService.Ack ack = auditWriterService.ingest(events);
+        HttpStatus status = switch (ack) {
+            case BUFFERED, COMMITTED -> HttpStatus.ACCEPTED;
+            case FULL -> HttpStatus.SERVICE_UNAVAILABLE;
+            case TIMEOUT -> HttpStatus.GATEWAY_TIMEOUT;
+        };
+        return ResponseEntity.status(status).body(Map.of("status", ack, "events", events.size()));
+    }
+
+    /**
+     * Newest events matching every given field, e.g. junctionId=J1&userId=alice&from=...;
+     * from and to are epoch millis.
+     */
+    @GetMapping("/events")
+    public ResponseEntity<?> search(@RequestParam(required = false) Long from,
+                                    @RequestParam(required = false) Long to,
+                                    @RequestParam(required = false) String junctionId,
+                                    @RequestParam(required = false) String userId,
+                                    @RequestParam(required = false) String source,
+                                    @RequestParam(required = false) String action,
+                                    @RequestParam(required = false) String service,
+                                    @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and " + MAX_LIMIT));
+        }
+        AuditQuery query = new AuditQuery(from == null ? 0 : from, to == null ? Long.MAX_VALUE : to,
+                junctionId, userId, source, action, service, limit);
+        if (query.getFrom() > query.getTo()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+        }
+        try {
+            return ResponseEntity.ok(auditSink.query(query));
+        } catch (UnsupportedOperationException e) {
+            return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/stats")
+    public AuditStats stats() {
+        return auditWriterService.getStats();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ucd.urbanflow.domain.dto;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Audit search: a time range in epoch millis plus optional exact-match fields.
+ * junctionId, userId and source are indexed; action and service are filtered after.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditQuery {
+    private long from;
+    private long to;
+    private String junctionId;
+    private String userId;
+    private String source;
+    private String action;
+    private String service;
+    private int limit;
+
+    public boolean matches(AuditEvent event) {
+        return event.getTimestamp() >= from && event.getTimestamp() <= to
+                && (junctionId == null || junctionId.equals(event.getJunctionId()))
+                && (userId == null || userId.equals(event.getUserId()))
+                && (source == null || source.equals(event.getSource()))
+                && (action == null || action.equals(event.getAction()))
+                && (service == null || service.equals(event.getService()));
+    }
+}
@@ -0,0 +1,23 @@
+package com.ucd.urbanflow.domain.dto;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Matching events, newest first, with how much of the store the search had to touch.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditQueryResult {
+    private List<AuditEvent> events;
+    private int segments;
+    private int segmentsSkipped;
+    private int segmentsSearched;
+    private int blocksRead;
+    private long tookMicros;
+}
@@ -0,0 +1,24 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Collector counters since startup; commitMicros is the duration of the last group commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditStats {
+    private String sink;
+    private String durability;
+    private long received;
+    private long rejected;
+    private long written;
+    private long commits;
+    private double averageGroupSize;
+    private long commitMicros;
+    private int pending;
+    private int capacity;
+}
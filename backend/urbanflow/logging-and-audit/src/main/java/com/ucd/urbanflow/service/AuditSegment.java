@@ -0,0 +1,630 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.domain.dto.AuditQuery;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * One immutable, time-partitioned file of audit events.
+ * <p>
+ * Events are stored in time order in Deflate-compressed blocks. After the blocks comes a
+ * compressed index: a bloom filter per indexed field (junctionId, userId, source), the
+ * lineage of the segment, the block table with each block's first ordinal and timestamp,
+ * and an inverted index from every field value to the delta-encoded ordinals of its
+ * events. A fixed-size trailer at the end of the file locates the index.
+ * <p>
+ * The lineage lists the segments a compacted segment replaces and the (write-ahead log,
+ * partition) pairs whose events it holds, so a store reopened after a crash can drop
+ * inputs and logs that were already folded in. Version 1 files have no lineage.
+ * <p>
+ * Only the trailer values, the bloom filters and the lineage stay in memory. A search reads the
+ * index, intersects the posting lists of the requested values and inflates just the
+ * blocks that hold matches, newest first.
+ */
+final class AuditSegment {
+
+    static final int FIELDS = 3;
+    private static final int MAGIC = 0x55464153;
+    private static final int VERSION = 2;
+    private static final int TRAILER_BYTES = 56;
+    private static final int MAX_STRING = 4096;
+
+    final Path path;
+    final long id;
+    final long partitionStart;
+    final long minTime;
+    final long maxTime;
+    final int count;
+    // ids of the segments this one replaces
+    final long[] supersedes;
+    // write-ahead log sequence and partition of every log slice folded into this segment
+    final long[] walSeqs;
+    final long[] walPartitions;
+    private final int version;
+    private final long indexOffset;
+    private final int indexLength;
+    private final BloomFilter[] blooms;
+
+    private AuditSegment(Path path, long id, long partitionStart, long minTime, long maxTime, int count,
+                         long[] supersedes, long[] walSeqs, long[] walPartitions, int version,
+                         long indexOffset, int indexLength, BloomFilter[] blooms) {
+        this.path = path;
+        this.id = id;
+        this.partitionStart = partitionStart;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.count = count;
+        this.supersedes = supersedes;
+        this.walSeqs = walSeqs;
+        this.walPartitions = walPartitions;
+        this.version = version;
+        this.indexOffset = indexOffset;
+        this.indexLength = indexLength;
+        this.blooms = blooms;
+    }
+
+    /** Reads the trailer and bloom filters of an existing segment file. */
+    static AuditSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TRAILER_BYTES) {
+                throw new IOException("Truncated audit segment " + path);
+            }
+            ByteBuffer trailer = read(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Not an audit segment: " + path);
+            }
+            int version = trailer.getInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported audit segment version " + version + ": " + path);
+            }
+            long id = trailer.getLong();
+            long partitionStart = trailer.getLong();
+            long minTime = trailer.getLong();
+            long maxTime = trailer.getLong();
+            int count = trailer.getInt();
+            long indexOffset = trailer.getLong();
+            int indexLength = trailer.getInt();
+            BloomFilter[] blooms = new BloomFilter[FIELDS];
+            long[] supersedes = new long[0];
+            long[] walSeqs = new long[0];
+            long[] walPartitions = new long[0];
+            try (DataInputStream in = inflate(read(channel, indexOffset, indexLength))) {
+                for (int f = 0; f < FIELDS; f++) {
+                    blooms[f] = BloomFilter.read(in);
+                }
+                if (version >= 2) {
+                    supersedes = new long[in.readInt()];
+                    for (int i = 0; i < supersedes.length; i++) {
+                        supersedes[i] = in.readLong();
+                    }
+                    walSeqs = new long[in.readInt()];
+                    walPartitions = new long[walSeqs.length];
+                    for (int i = 0; i < walSeqs.length; i++) {
+                        walSeqs[i] = in.readLong();
+                        walPartitions[i] = in.readLong();
+                    }
+                }
+            }
+            return new AuditSegment(path, id, partitionStart, minTime, maxTime, count, supersedes, walSeqs,
+                    walPartitions, version, indexOffset, indexLength, blooms);
+        }
+    }
+
+    boolean overlaps(long from, long to) {
+        return maxTime >= from && minTime <= to;
+    }
+
+    /** False only when some requested indexed value is certainly absent. */
+    boolean mightMatch(AuditQuery query) {
+        String[] values = indexedValues(query);
+        for (int f = 0; f < FIELDS; f++) {
+            if (values[f] != null && !blooms[f].mightContain(values[f])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds matching events to top, a min-heap by timestamp bounded to limit. Returns the
+     * number of blocks inflated.
+     */
+    int search(AuditQuery query, PriorityQueue<AuditEvent> top, int limit) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            BlockTable blocks;
+            int[] candidates = null;
+            String[] values = indexedValues(query);
+            try (DataInputStream in = inflate(read(channel, indexOffset, indexLength))) {
+                skipHeader(in);
+                blocks = BlockTable.read(in, count, maxTime);
+                for (int f = 0; f < FIELDS; f++) {
+                    int[] postings = readPostings(in, values[f]);
+                    if (values[f] == null) {
+                        continue;
+                    }
+                    if (postings == null) {
+                        return 0;
+                    }
+                    candidates = candidates == null ? postings : intersect(candidates, postings);
+                    if (candidates.length == 0) {
+                        return 0;
+                    }
+                }
+            }
+
+            int read = 0;
+            int c = candidates == null ? -1 : candidates.length - 1;
+            for (int b = blocks.size() - 1; b >= 0; b--) {
+                int last = c;
+                if (candidates != null) {
+                    while (c >= 0 && candidates[c] >= blocks.firstOrdinal[b]) {
+                        c--;
+                    }
+                    if (last == c) {
+                        continue;
+                    }
+                }
+                if (blocks.firstTime[b] > query.getTo()) {
+                    continue;
+                }
+                if (blocks.lastTime(b) < query.getFrom()
+                        || (top.size() >= limit && blocks.lastTime(b) < top.peek().getTimestamp())) {
+                    break;
+                }
+                List<AuditEvent> events = readBlock(channel, blocks, b);
+                read++;
+                if (candidates != null) {
+                    for (int i = last; i > c; i--) {
+                        offer(top, limit, events.get(candidates[i] - blocks.firstOrdinal[b]), query);
+                    }
+                } else {
+                    for (int i = events.size() - 1; i >= 0; i--) {
+                        offer(top, limit, events.get(i), query);
+                    }
+                }
+            }
+            return read;
+        }
+    }
+
+    /** Streams all events of the segment in time order, used by compaction. */
+    Cursor cursor() throws IOException {
+        return new Cursor();
+    }
+
+    static void offer(PriorityQueue<AuditEvent> top, int limit, AuditEvent event, AuditQuery query) {
+        if (!query.matches(event)) {
+            return;
+        }
+        if (top.size() < limit) {
+            top.add(event);
+        } else if (event.getTimestamp() > top.peek().getTimestamp()) {
+            top.poll();
+            top.add(event);
+        }
+    }
+
+    private static String[] indexedValues(AuditQuery query) {
+        return new String[]{query.getJunctionId(), query.getUserId(), query.getSource()};
+    }
+
+    private static String[] indexedValues(AuditEvent event) {
+        return new String[]{event.getJunctionId(), event.getUserId(), event.getSource()};
+    }
+
+    private List<AuditEvent> readBlock(FileChannel channel, BlockTable blocks, int b) throws IOException {
+        int n = (b + 1 < blocks.size() ? blocks.firstOrdinal[b + 1] : count) - blocks.firstOrdinal[b];
+        List<AuditEvent> events = new ArrayList<>(n);
+        try (DataInputStream in = inflate(read(channel, blocks.offset[b], blocks.length[b]))) {
+            for (int i = 0; i < n; i++) {
+                events.add(decode(in));
+            }
+        }
+        return events;
+    }
+
+    /** Decodes the posting list of value, skipping every other term; null when absent. */
+    private static int[] readPostings(DataInputStream in, String value) throws IOException {
+        int terms = in.readInt();
+        int[] found = null;
+        for (int t = 0; t < terms; t++) {
+            String term = in.readUTF();
+            int n = in.readInt();
+            int bytes = in.readInt();
+            if (found != null || value == null || !value.equals(term)) {
+                in.skipNBytes(bytes);
+                continue;
+            }
+            found = new int[n];
+            int ordinal = 0;
+            for (int i = 0; i < n; i++) {
+                ordinal += readVarint(in);
+                found[i] = ordinal;
+            }
+        }
+        return found;
+    }
+
+    /** Skips the bloom filters and the lineage, up to the block table. */
+    private void skipHeader(DataInputStream in) throws IOException {
+        for (int f = 0; f < FIELDS; f++) {
+            in.readInt();
+            in.skipNBytes(in.readInt() * 8L);
+        }
+        if (version >= 2) {
+            in.skipNBytes(in.readInt() * 8L);
+            in.skipNBytes(in.readInt() * 16L);
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of audit segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static DataInputStream inflate(ByteBuffer buffer) {
+        return new DataInputStream(new InflaterInputStream(
+                new ByteArrayInputStream(buffer.array(), buffer.position(), buffer.remaining())));
+    }
+
+    private static void encode(DataOutputStream out, AuditEvent event) throws IOException {
+        out.writeLong(event.getTimestamp());
+        writeString(out, event.getEventId());
+        writeString(out, event.getService());
+        writeString(out, event.getAction());
+        writeString(out, event.getUserId());
+        writeString(out, event.getJunctionId());
+        writeString(out, event.getSource());
+        writeString(out, event.getTarget());
+        writeString(out, event.getOutcome());
+        writeString(out, event.getDetail());
+    }
+
+    private static AuditEvent decode(DataInputStream in) throws IOException {
+        AuditEvent event = new AuditEvent();
+        event.setTimestamp(in.readLong());
+        event.setEventId(readString(in));
+        event.setService(readString(in));
+        event.setAction(readString(in));
+        event.setUserId(readString(in));
+        event.setJunctionId(readString(in));
+        event.setSource(readString(in));
+        event.setTarget(readString(in));
+        event.setOutcome(readString(in));
+        event.setDetail(readString(in));
+        return event;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value.length() > MAX_STRING ? value.substring(0, MAX_STRING) : value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /** Per-block file position, size, first ordinal and first timestamp. */
+    private static final class BlockTable {
+        final long[] offset;
+        final int[] length;
+        final int[] firstOrdinal;
+        final long[] firstTime;
+        final long maxTime;
+
+        private BlockTable(int n, long maxTime) {
+            this.offset = new long[n];
+            this.length = new int[n];
+            this.firstOrdinal = new int[n];
+            this.firstTime = new long[n];
+            this.maxTime = maxTime;
+        }
+
+        static BlockTable read(DataInputStream in, int count, long maxTime) throws IOException {
+            BlockTable table = new BlockTable(in.readInt(), maxTime);
+            for (int b = 0; b < table.size(); b++) {
+                table.offset[b] = in.readLong();
+                table.length[b] = in.readInt();
+                table.firstOrdinal[b] = in.readInt();
+                table.firstTime[b] = in.readLong();
+            }
+            return table;
+        }
+
+        int size() {
+            return offset.length;
+        }
+
+        /** Upper bound for the timestamps in block b; events are in time order. */
+        long lastTime(int b) {
+            return b + 1 < size() ? firstTime[b + 1] : maxTime;
+        }
+    }
+
+    /** Sequential reader over all blocks. */
+    final class Cursor implements Closeable {
+        private final FileChannel channel;
+        private final BlockTable blocks;
+        private List<AuditEvent> current = List.of();
+        private int block;
+        private int position;
+
+        private Cursor() throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try (DataInputStream in = inflate(read(channel, indexOffset, indexLength))) {
+                skipHeader(in);
+                this.blocks = BlockTable.read(in, count, maxTime);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /** Next event in time order, null at the end. */
+        AuditEvent next() throws IOException {
+            while (position == current.size()) {
+                if (block == blocks.size()) {
+                    return null;
+                }
+                current = readBlock(channel, blocks, block++);
+                position = 0;
+            }
+            return current.get(position++);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Builds a segment from events added in time order. Blocks are compressed and
+     * written as they fill; postings are kept in memory until {@link #finish}.
+     */
+    static final class Writer implements Closeable {
+        private final Path tmp;
+        private final long id;
+        private final long partitionStart;
+        private final int blockSize;
+        private final FileOutputStream file;
+        private final BufferedOutputStream out;
+        private final ByteArrayOutputStream block = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream blockOut = new DataOutputStream(block);
+        private final List<long[]> blockTable = new ArrayList<>();
+        private final List<Map<String, IntList>> postings = new ArrayList<>(FIELDS);
+        private long[] supersedes = new long[0];
+        private final Map<Long, Set<Long>> walSlices = new TreeMap<>();
+        private long offset;
+        private int blockEvents;
+        private int count;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+
+        Writer(Path tmp, long id, long partitionStart, int blockSize) throws IOException {
+            this.tmp = tmp;
+            this.id = id;
+            this.partitionStart = partitionStart;
+            this.blockSize = Math.max(1, blockSize);
+            this.file = new FileOutputStream(tmp.toFile());
+            this.out = new BufferedOutputStream(file, 64 * 1024);
+            for (int f = 0; f < FIELDS; f++) {
+                postings.add(new HashMap<>());
+            }
+        }
+
+        long id() {
+            return id;
+        }
+
+        /** Records the segments this one replaces. */
+        void supersedes(long[] ids) {
+            this.supersedes = ids.clone();
+        }
+
+        /** Records that the events of partition from write-ahead log walSeq are in this segment. */
+        void covers(long walSeq, long partition) {
+            walSlices.computeIfAbsent(walSeq, k -> new TreeSet<>()).add(partition);
+        }
+
+        void add(AuditEvent event) throws IOException {
+            if (blockEvents == 0) {
+                blockTable.add(new long[]{0, 0, count, event.getTimestamp()});
+            }
+            encode(blockOut, event);
+            String[] values = indexedValues(event);
+            for (int f = 0; f < FIELDS; f++) {
+                if (values[f] != null) {
+                    postings.get(f).computeIfAbsent(values[f], k -> new IntList()).add(count);
+                }
+            }
+            minTime = Math.min(minTime, event.getTimestamp());
+            maxTime = Math.max(maxTime, event.getTimestamp());
+            count++;
+            if (++blockEvents == blockSize) {
+                flushBlock();
+            }
+        }
+
+        /** Writes index and trailer, syncs the file and moves it to target atomically. */
+        AuditSegment finish(Path target) throws IOException {
+            flushBlock();
+            int slices = 0;
+            for (Set<Long> partitions : walSlices.values()) {
+                slices += partitions.size();
+            }
+            long[] walSeqs = new long[slices];
+            long[] walPartitions = new long[slices];
+            int slice = 0;
+            for (Map.Entry<Long, Set<Long>> wal : walSlices.entrySet()) {
+                for (long partition : wal.getValue()) {
+                    walSeqs[slice] = wal.getKey();
+                    walPartitions[slice++] = partition;
+                }
+            }
+            BloomFilter[] blooms = new BloomFilter[FIELDS];
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(index))) {
+                for (int f = 0; f < FIELDS; f++) {
+                    blooms[f] = BloomFilter.of(postings.get(f).keySet());
+                    blooms[f].write(data);
+                }
+                data.writeInt(supersedes.length);
+                for (long superseded : supersedes) {
+                    data.writeLong(superseded);
+                }
+                data.writeInt(walSeqs.length);
+                for (int i = 0; i < walSeqs.length; i++) {
+                    data.writeLong(walSeqs[i]);
+                    data.writeLong(walPartitions[i]);
+                }
+                data.writeInt(blockTable.size());
+                for (long[] entry : blockTable) {
+                    data.writeLong(entry[0]);
+                    data.writeInt((int) entry[1]);
+                    data.writeInt((int) entry[2]);
+                    data.writeLong(entry[3]);
+                }
+                ByteArrayOutputStream list = new ByteArrayOutputStream();
+                DataOutputStream listOut = new DataOutputStream(list);
+                for (int f = 0; f < FIELDS; f++) {
+                    data.writeInt(postings.get(f).size());
+                    for (Map.Entry<String, IntList> term : postings.get(f).entrySet()) {
+                        list.reset();
+                        IntList ordinals = term.getValue();
+                        int previous = 0;
+                        for (int i = 0; i < ordinals.size; i++) {
+                            writeVarint(listOut, ordinals.values[i] - previous);
+                            previous = ordinals.values[i];
+                        }
+                        data.writeUTF(term.getKey().length() > MAX_STRING
+                                ? term.getKey().substring(0, MAX_STRING) : term.getKey());
+                        data.writeInt(ordinals.size);
+                        data.writeInt(list.size());
+                        list.writeTo(data);
+                    }
+                }
+            }
+            long indexOffset = offset;
+            index.writeTo(out);
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            trailer.putInt(MAGIC).putInt(VERSION).putLong(id).putLong(partitionStart)
+                    .putLong(minTime).putLong(maxTime).putInt(count)
+                    .putLong(indexOffset).putInt(index.size());
+            out.write(trailer.array());
+            out.flush();
+            file.getFD().sync();
+            out.close();
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            return new AuditSegment(target, id, partitionStart, minTime, maxTime, count, supersedes, walSeqs,
+                    walPartitions, VERSION, indexOffset, index.size(), blooms);
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockEvents == 0) {
+                return;
+            }
+            blockOut.flush();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.size() / 3 + 64);
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+                block.writeTo(deflater);
+            }
+            long[] entry = blockTable.get(blockTable.size() - 1);
+            entry[0] = offset;
+            entry[1] = compressed.size();
+            compressed.writeTo(out);
+            offset += compressed.size();
+            block.reset();
+            blockEvents = 0;
+        }
+
+        /** Closes and deletes an unfinished file; a no-op after {@link #finish}. */
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
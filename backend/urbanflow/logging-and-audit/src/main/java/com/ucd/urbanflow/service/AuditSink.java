@@ -0,0 +1,29 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.domain.dto.AuditQuery;
+import com.ucd.urbanflow.domain.dto.AuditQueryResult;
+
+import java.util.List;
+
+/**
+ * Durable destination for audit events. {@link AuditWriterService} calls write from its
+ * single writer thread with one group of events at a time; when write returns, the
+ * group is committed as far as this sink's durability setting goes.
+ */
+public interface AuditSink {
+
+    void write(List<AuditEvent> events) throws Exception;
+
+    /** Newest events matching the query; not every sink can search. */
+    default AuditQueryResult query(AuditQuery query) {
+        throw new UnsupportedOperationException("Search is not supported by this audit sink");
+    }
+
+    /** Periodic housekeeping such as sealing and compaction. */
+    default void maintain() {
+    }
+
+    default void close() {
+    }
+}
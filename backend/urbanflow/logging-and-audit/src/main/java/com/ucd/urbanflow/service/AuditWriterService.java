@@ -0,0 +1,190 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditRingBuffer;
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import com.ucd.urbanflow.domain.dto.AuditStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects audit events from every producer into one lock-free ring and writes them
+ * with a single writer thread. The writer takes everything that arrived while the
+ * previous group was being committed and commits it as the next group, so the number
+ * of commits stays flat as the event rate grows.
+ * <p>
+ * With audit.durability=buffered a request is acknowledged once its events are in the
+ * ring; with committed the request thread waits until the group holding its last event
+ * has been written to the sink. A failing sink is retried with backoff; the ring then
+ * fills up and further batches are refused, which producers treat as a retryable error.
+ * <p>
+ * Under the launcher, producers in the same JVM call {@link #ingest} directly through
+ * the {@link InProcessExchange} rather than over HTTP.
+ */
+@Service
+@Slf4j
+public class AuditWriterService {
+
+    public enum Ack { BUFFERED, COMMITTED, FULL, TIMEOUT }
+
+    private static final long MAX_BACKOFF_MS = 10_000;
+
+    private final AuditSink sink;
+    private final AuditRingBuffer buffer;
+    private final int maxBatch;
+    private final long idleNanos;
+    private final boolean waitForCommit;
+    private final long commitTimeoutMillis;
+    private final String sinkName;
+    private final Thread writer;
+
+    private final Object commitLock = new Object();
+    private volatile long committed;
+    private volatile boolean running = true;
+
+    private final AtomicLong received = new AtomicLong();
+    private volatile long written;
+    private volatile long commits;
+    private volatile long commitMicros;
+
+    public AuditWriterService(AuditSink sink,
+                              @Value("${audit.sink:segment}") String sinkName,
+                              @Value("${audit.buffer-capacity:65536}") int capacity,
+                              @Value("${audit.group.max-batch:1000}") int maxBatch,
+                              @Value("${audit.writer.idle-ms:2}") long idleMillis,
+                              @Value("${audit.durability:buffered}") String durability,
+                              @Value("${audit.commit-timeout-ms:5000}") long commitTimeoutMillis,
+                              ObjectProvider<InProcessExchange> exchange) {
+        this.sink = sink;
+        this.sinkName = sinkName;
+        this.buffer = new AuditRingBuffer(capacity);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleMillis));
+        this.waitForCommit = "committed".equalsIgnoreCase(durability.trim());
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.writer = new Thread(this::run, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        exchange.ifAvailable(e -> e.register(InProcessExchange.AUDIT_INGEST, (List<AuditEvent> events) -> {
+            Ack ack = ingest(events);
+            return ack == Ack.BUFFERED || ack == Ack.COMMITTED;
+        }));
+    }
+
+    /**
+     * Enqueues a producer batch as a whole or not at all and, in committed mode, waits
+     * for its group commit.
+     */
+    public Ack ingest(List<AuditEvent> events) {
+        if (events.isEmpty()) {
+            return waitForCommit ? Ack.COMMITTED : Ack.BUFFERED;
+        }
+        long end = buffer.offerAll(events);
+        if (end < 0) {
+            return Ack.FULL;
+        }
+        received.addAndGet(events.size());
+        if (!waitForCommit) {
+            return Ack.BUFFERED;
+        }
+        long deadline = System.currentTimeMillis() + commitTimeoutMillis;
+        synchronized (commitLock) {
+            while (committed < end) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return Ack.TIMEOUT;
+                }
+                try {
+                    commitLock.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Ack.TIMEOUT;
+                }
+            }
+        }
+        return Ack.COMMITTED;
+    }
+
+    public AuditStats getStats() {
+        long groups = commits;
+        long events = written;
+        return new AuditStats(sinkName, waitForCommit ? "committed" : "buffered", received.get(), buffer.rejected(),
+                events, groups, groups == 0 ? 0 : Math.round(events * 10.0 / groups) / 10.0, commitMicros,
+                buffer.size(), buffer.capacity());
+    }
+
+    @Scheduled(fixedDelayString = "${audit.maintenance-ms:60000}")
+    public void maintain() {
+        sink.maintain();
+    }
+
+    private void run() {
+        List<AuditEvent> group = new ArrayList<>(maxBatch);
+        while (running || buffer.size() > 0) {
+            if (buffer.drain(group, maxBatch) == 0) {
+                LockSupport.parkNanos(idleNanos);
+                continue;
+            }
+            if (!commit(group)) {
+                return;
+            }
+            group.clear();
+        }
+    }
+
+    /** Writes one group, retrying until it succeeds; false when given up on shutdown. */
+    private boolean commit(List<AuditEvent> group) {
+        long backoff = 0;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                sink.write(group);
+                commitMicros = (System.nanoTime() - start) / 1000;
+                written += group.size();
+                commits++;
+                break;
+            } catch (Exception e) {
+                if (!running) {
+                    log.error("Audit sink failed on shutdown, {} events not written: {}", group.size(), e.getMessage());
+                    return false;
+                }
+                if (backoff == 0) {
+                    log.warn("Audit sink write failed, retrying: {}", e.getMessage());
+                }
+                backoff = Math.min(MAX_BACKOFF_MS, Math.max(100, backoff * 2));
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+            }
+        }
+        long end = buffer.consumed();
+        if (waitForCommit) {
+            synchronized (commitLock) {
+                committed = end;
+                commitLock.notifyAll();
+            }
+        } else {
+            committed = end;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
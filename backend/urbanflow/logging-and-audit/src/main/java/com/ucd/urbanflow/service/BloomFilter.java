@@ -0,0 +1,91 @@
+package com.ucd.urbanflow.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Fixed-size bloom filter over strings, about 1% false positives at ten bits per key.
+ * The k probe positions come from two halves of one 64-bit hash (double hashing).
+ */
+final class BloomFilter {
+
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] words;
+    private final int hashes;
+
+    private BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    static BloomFilter of(Collection<String> keys) {
+        int bits = Math.max(64, keys.size() * BITS_PER_KEY);
+        BloomFilter filter = new BloomFilter(new long[(bits + 63) >>> 6], HASHES);
+        for (String key : keys) {
+            filter.add(key);
+        }
+        return filter;
+    }
+
+    static BloomFilter read(DataInputStream in) throws IOException {
+        int hashes = in.readInt();
+        long[] words = new long[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        return new BloomFilter(words, hashes);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(hashes);
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    boolean mightContain(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long bits = (long) words.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        long bits = (long) words.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /** FNV-1a over the UTF-8 bytes followed by a murmur3 finaliser, stable across JVMs. */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
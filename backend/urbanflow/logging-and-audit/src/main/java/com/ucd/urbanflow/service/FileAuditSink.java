@@ -0,0 +1,89 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each group as JSON lines with a single write call. fsyncMillis sets the
+ * durability: 0 forces the file after every group, a positive value forces at most
+ * that often, and a negative value leaves flushing to the operating system. With a
+ * positive value the last group before a pause is forced by the next maintenance run.
+ */
+@Slf4j
+public class FileAuditSink implements AuditSink {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final long fsyncMillis;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private long lastSync;
+    private boolean unsynced;
+
+    public FileAuditSink(Path path, ObjectMapper objectMapper, long fsyncMillis) throws IOException {
+        this.objectMapper = objectMapper;
+        this.fsyncMillis = fsyncMillis;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        log.info("Audit events are appended to {}", path.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void write(List<AuditEvent> events) throws IOException {
+        buffer.reset();
+        for (AuditEvent event : events) {
+            objectMapper.writeValue(buffer, event);
+            buffer.write('\n');
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        unsynced = true;
+        long now = System.currentTimeMillis();
+        if (fsyncMillis == 0 || (fsyncMillis > 0 && now - lastSync >= fsyncMillis)) {
+            channel.force(false);
+            lastSync = now;
+            unsynced = false;
+        }
+    }
+
+    /** Forces what the last groups left unsynced, so a pause in writes does not hold it back. */
+    @Override
+    public synchronized void maintain() {
+        if (!unsynced || fsyncMillis <= 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            lastSync = System.currentTimeMillis();
+            unsynced = false;
+        } catch (IOException e) {
+            log.warn("Failed to force audit log: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (unsynced) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close audit log: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.domain.dto.AuditQuery;
+import com.ucd.urbanflow.domain.dto.AuditQueryResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Audit store made of time-partitioned {@link AuditSegment} files.
+ * <p>
+ * Each group is appended to a write-ahead log and then added to an in-memory table
+ * keyed by partition (event time floored to audit.segment.partition-minutes). When the
+ * table is large or old enough it is swapped for an empty one and every partition in it
+ * is sealed into a segment; the log files it covered are deleted once the segments are
+ * on disk. After a crash the remaining logs are replayed into the table, except for the
+ * partitions a segment already records as sealed from that log.
+ * <p>
+ * Maintenance merges the segments of each closed partition into one, and merges
+ * partitions older than audit.segment.compact-after-hours into larger windows, so old
+ * history ends up in few files. Replaced segments are deleted one maintenance run later,
+ * which lets searches that already picked them up finish; the merged segment lists them,
+ * so any still on disk after a crash are dropped when the store is opened.
+ * <p>
+ * Publishers resend a group whose acknowledgement they did not see, with the same event
+ * ids. The ids of the last audit.segment.dedupe-events events written are kept in memory,
+ * refilled from the log on restart, and an event whose id is among them is dropped before
+ * it reaches the log.
+ * <p>
+ * A search skips every segment whose time range, bloom filters or newest event rule it
+ * out before touching the file, so queries over months of history open only the few
+ * segments that can contain matches.
+ */
+@Slf4j
+public class SegmentAuditSink implements AuditSink {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String WAL_PREFIX = "wal-";
+    private static final String WAL_SUFFIX = ".log";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final long partitionMillis;
+    private final int blockEvents;
+    private final int memtableLimit;
+    private final long sealMillis;
+    private final long compactAfterMillis;
+    private final long compactedPartitionMillis;
+    private final long retentionMillis;
+    private final long fsyncMillis;
+    private final int dedupeEvents;
+
+    // memtable, pending seals and the write-ahead log
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, List<AuditEvent>> memtable = new HashMap<>();
+    private int memtableEvents;
+    private long memtableOpenedAt;
+    private List<Path> memtableWals = new ArrayList<>();
+    private final List<PendingSeal> sealing = new ArrayList<>();
+    private FileAuditSink wal;
+    private long walSeq;
+    // ids of the most recently written events, oldest first
+    private final LinkedHashMap<String, Boolean> recentIds;
+
+    // sealing, compaction and retention run one at a time
+    private final ReentrantLock maintenance = new ReentrantLock();
+    private final List<AuditSegment> retired = new ArrayList<>();
+    private final AtomicLong nextSegmentId = new AtomicLong();
+    private volatile List<AuditSegment> segments = List.of();
+
+    public SegmentAuditSink(Path dir, ObjectMapper objectMapper, long partitionMinutes, int blockEvents,
+                            int memtableLimit, long sealSeconds, long compactAfterHours,
+                            long compactedPartitionHours, long retentionDays, long fsyncMillis,
+                            int dedupeEvents) throws IOException {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.partitionMillis = TimeUnit.MINUTES.toMillis(Math.max(1, partitionMinutes));
+        this.blockEvents = blockEvents;
+        this.memtableLimit = Math.max(1, memtableLimit);
+        this.sealMillis = TimeUnit.SECONDS.toMillis(sealSeconds);
+        this.compactAfterMillis = TimeUnit.HOURS.toMillis(compactAfterHours);
+        this.compactedPartitionMillis = Math.max(partitionMillis, TimeUnit.HOURS.toMillis(compactedPartitionHours));
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+        this.fsyncMillis = fsyncMillis;
+        this.dedupeEvents = Math.max(0, dedupeEvents);
+        this.recentIds = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SegmentAuditSink.this.dedupeEvents;
+            }
+        };
+        Files.createDirectories(dir);
+        Map<Long, Set<Long>> sealedSlices = loadSegments();
+        recoverWals(sealedSlices);
+        openWal();
+        log.info("Audit segment store {}: {} segments, {} events recovered from the log",
+                dir.toAbsolutePath(), segments.size(), memtableEvents);
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        boolean full;
+        lock.writeLock().lock();
+        try {
+            events = unseen(events);
+            if (events.isEmpty()) {
+                return;
+            }
+            wal.write(events);
+            add(events);
+            full = memtableEvents >= memtableLimit;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // never wait behind a running compaction, the next group will try again
+        if (full && maintenance.tryLock()) {
+            try {
+                seal();
+            } finally {
+                maintenance.unlock();
+            }
+        }
+    }
+
+    @Override
+    public AuditQueryResult query(AuditQuery query) {
+        long start = System.nanoTime();
+        int limit = query.getLimit();
+        PriorityQueue<AuditEvent> top = new PriorityQueue<>(limit + 1, Comparator.comparingLong(AuditEvent::getTimestamp));
+        lock.readLock().lock();
+        try {
+            scan(memtable, query, top, limit);
+            for (PendingSeal pending : sealing) {
+                scan(pending.tables, query, top, limit);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<AuditSegment> snapshot = segments;
+        int skipped = 0;
+        int searched = 0;
+        int blocks = 0;
+        for (AuditSegment segment : snapshot) {
+            if (!segment.overlaps(query.getFrom(), query.getTo())
+                    || (top.size() >= limit && segment.maxTime < top.peek().getTimestamp())
+                    || !segment.mightMatch(query)) {
+                skipped++;
+                continue;
+            }
+            try {
+                blocks += segment.search(query, top, limit);
+                searched++;
+            } catch (IOException e) {
+                log.warn("Failed to search audit segment {}: {}", segment.path.getFileName(), e.getMessage());
+            }
+        }
+        List<AuditEvent> events = new ArrayList<>(top);
+        events.sort(Comparator.comparingLong(AuditEvent::getTimestamp).reversed());
+        return new AuditQueryResult(events, snapshot.size(), skipped, searched, blocks,
+                (System.nanoTime() - start) / 1000);
+    }
+
+    @Override
+    public void maintain() {
+        maintenance.lock();
+        try {
+            boolean due;
+            lock.writeLock().lock();
+            try {
+                wal.maintain();
+                due = !sealing.isEmpty() || (memtableEvents > 0
+                        && System.currentTimeMillis() - memtableOpenedAt >= sealMillis);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (due) {
+                seal();
+            }
+            deleteRetired();
+            expire();
+            compact();
+        } catch (IOException e) {
+            log.warn("Audit segment maintenance failed: {}", e.getMessage());
+        } finally {
+            maintenance.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        maintenance.lock();
+        try {
+            seal();
+            deleteRetired();
+        } finally {
+            maintenance.unlock();
+            lock.writeLock().lock();
+            try {
+                wal.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Moves the memtable to the pending list and writes every pending table out. */
+    private void seal() {
+        lock.writeLock().lock();
+        try {
+            if (memtableEvents > 0) {
+                sealing.add(new PendingSeal(memtable, memtableWals));
+                memtable = new HashMap<>();
+                memtableEvents = 0;
+                memtableWals = new ArrayList<>();
+                wal.close();
+                openWal();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to rotate the audit write-ahead log: {}", e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        while (true) {
+            PendingSeal pending;
+            lock.readLock().lock();
+            try {
+                if (sealing.isEmpty()) {
+                    return;
+                }
+                pending = sealing.get(0);
+            } finally {
+                lock.readLock().unlock();
+            }
+            List<AuditSegment> written = new ArrayList<>();
+            try {
+                for (Map.Entry<Long, List<AuditEvent>> partition : new TreeMap<>(pending.tables).entrySet()) {
+                    // sort a copy, searches may still be reading the pending table
+                    List<AuditEvent> events = new ArrayList<>(partition.getValue());
+                    events.sort(Comparator.comparingLong(AuditEvent::getTimestamp));
+                    try (AuditSegment.Writer writer = newWriter(partition.getKey())) {
+                        for (Path walFile : pending.wals) {
+                            writer.covers(walSeq(walFile), partition.getKey());
+                        }
+                        for (AuditEvent event : events) {
+                            writer.add(event);
+                        }
+                        written.add(writer.finish(segmentPath(partition.getKey(), writer)));
+                    }
+                }
+            } catch (IOException e) {
+                // keep the table and its logs, the next maintenance run retries
+                log.warn("Failed to seal audit events into segments: {}", e.getMessage());
+                for (AuditSegment segment : written) {
+                    deleteQuietly(segment.path);
+                }
+                return;
+            }
+            publish(written, List.of());
+            lock.writeLock().lock();
+            try {
+                sealing.remove(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            for (Path walFile : pending.wals) {
+                deleteQuietly(walFile);
+            }
+        }
+    }
+
+    /** Merges segments that share a compaction window, oldest windows first. */
+    private void compact() throws IOException {
+        long now = System.currentTimeMillis();
+        long cutoff = now - compactAfterMillis;
+        Map<Long, List<AuditSegment>> windows = new TreeMap<>();
+        for (AuditSegment segment : segments) {
+            boolean old = segment.partitionStart < cutoff;
+            long size = old ? compactedPartitionMillis : partitionMillis;
+            long window = Math.floorDiv(segment.partitionStart, size) * size;
+            if (window + size > now) {
+                continue;
+            }
+            windows.computeIfAbsent(window, k -> new ArrayList<>()).add(segment);
+        }
+        for (Map.Entry<Long, List<AuditSegment>> window : windows.entrySet()) {
+            if (window.getValue().size() < 2) {
+                continue;
+            }
+            AuditSegment merged = merge(window.getKey(), window.getValue());
+            publish(List.of(merged), window.getValue());
+            retired.addAll(window.getValue());
+            log.info("Compacted {} audit segments into {} ({} events)", window.getValue().size(),
+                    merged.path.getFileName(), merged.count);
+        }
+    }
+
+    /** k-way merge of time-ordered segments into one. */
+    private AuditSegment merge(long partitionStart, List<AuditSegment> inputs) throws IOException {
+        List<AuditSegment.Cursor> cursors = new ArrayList<>(inputs.size());
+        try (AuditSegment.Writer writer = newWriter(partitionStart)) {
+            long[] ids = new long[inputs.size()];
+            for (int i = 0; i < ids.length; i++) {
+                AuditSegment input = inputs.get(i);
+                ids[i] = input.id;
+                for (int w = 0; w < input.walSeqs.length; w++) {
+                    writer.covers(input.walSeqs[w], input.walPartitions[w]);
+                }
+            }
+            writer.supersedes(ids);
+            PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparingLong(h -> h.event.getTimestamp()));
+            for (AuditSegment input : inputs) {
+                AuditSegment.Cursor cursor = input.cursor();
+                cursors.add(cursor);
+                AuditEvent first = cursor.next();
+                if (first != null) {
+                    heads.add(new Head(first, cursor));
+                }
+            }
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                writer.add(head.event);
+                AuditEvent next = head.cursor.next();
+                if (next != null) {
+                    heads.add(new Head(next, head.cursor));
+                }
+            }
+            return writer.finish(segmentPath(partitionStart, writer));
+        } finally {
+            for (AuditSegment.Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    private void expire() {
+        if (retentionMillis <= 0) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<AuditSegment> expired = new ArrayList<>();
+        for (AuditSegment segment : segments) {
+            if (segment.maxTime < cutoff) {
+                expired.add(segment);
+            }
+        }
+        if (!expired.isEmpty()) {
+            publish(List.of(), expired);
+            retired.addAll(expired);
+            log.info("Expired {} audit segments older than the retention period", expired.size());
+        }
+    }
+
+    /** Deletes replaced segments; one that cannot be deleted is tried again next time. */
+    private void deleteRetired() {
+        retired.removeIf(segment -> deleteQuietly(segment.path));
+    }
+
+    /** Replaces the segment list; newest data first so searches can stop early. */
+    private synchronized void publish(List<AuditSegment> added, List<AuditSegment> removed) {
+        List<AuditSegment> next = new ArrayList<>(segments);
+        next.removeAll(removed);
+        next.addAll(added);
+        next.sort(Comparator.comparingLong((AuditSegment s) -> s.maxTime).reversed());
+        segments = List.copyOf(next);
+    }
+
+    private AuditSegment.Writer newWriter(long partitionStart) throws IOException {
+        long id = nextSegmentId.incrementAndGet();
+        return new AuditSegment.Writer(dir.resolve("seg-" + partitionStart + "-" + id + SEGMENT_SUFFIX + ".tmp"),
+                id, partitionStart, blockEvents);
+    }
+
+    private Path segmentPath(long partitionStart, AuditSegment.Writer writer) {
+        return dir.resolve("seg-" + partitionStart + "-" + writer.id() + SEGMENT_SUFFIX);
+    }
+
+    /** The events whose id was not written recently, nor earlier in the same group. */
+    private List<AuditEvent> unseen(List<AuditEvent> events) {
+        if (dedupeEvents == 0) {
+            return events;
+        }
+        List<AuditEvent> fresh = null;
+        for (int i = 0; i < events.size(); i++) {
+            AuditEvent event = events.get(i);
+            boolean seen = event.getEventId() != null && recentIds.containsKey(event.getEventId());
+            if (seen && fresh == null) {
+                fresh = new ArrayList<>(events.subList(0, i));
+            } else if (!seen) {
+                if (event.getEventId() != null) {
+                    recentIds.put(event.getEventId(), Boolean.TRUE);
+                }
+                if (fresh != null) {
+                    fresh.add(event);
+                }
+            }
+        }
+        return fresh == null ? events : fresh;
+    }
+
+    private void add(List<AuditEvent> events) {
+        if (memtableEvents == 0) {
+            memtableOpenedAt = System.currentTimeMillis();
+        }
+        for (AuditEvent event : events) {
+            memtable.computeIfAbsent(partitionOf(event), k -> new ArrayList<>()).add(event);
+        }
+        memtableEvents += events.size();
+    }
+
+    private long partitionOf(AuditEvent event) {
+        return Math.floorDiv(event.getTimestamp(), partitionMillis) * partitionMillis;
+    }
+
+    private static void scan(Map<Long, List<AuditEvent>> tables, AuditQuery query,
+                             PriorityQueue<AuditEvent> top, int limit) {
+        for (List<AuditEvent> events : tables.values()) {
+            for (AuditEvent event : events) {
+                AuditSegment.offer(top, limit, event, query);
+            }
+        }
+    }
+
+    /**
+     * Opens every segment, drops those a compacted segment replaces, and returns the
+     * partitions already sealed from each write-ahead log.
+     */
+    private Map<Long, Set<Long>> loadSegments() throws IOException {
+        List<AuditSegment> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    deleteQuietly(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        AuditSegment segment = AuditSegment.open(file);
+                        loaded.add(segment);
+                        nextSegmentId.accumulateAndGet(segment.id, Math::max);
+                    } catch (IOException e) {
+                        log.warn("Ignoring unreadable audit segment {}: {}", name, e.getMessage());
+                    }
+                }
+            }
+        }
+        Set<Long> superseded = new HashSet<>();
+        for (AuditSegment segment : loaded) {
+            for (long id : segment.supersedes) {
+                superseded.add(id);
+            }
+        }
+        List<AuditSegment> live = new ArrayList<>(loaded.size());
+        Map<Long, Set<Long>> sealedSlices = new HashMap<>();
+        for (AuditSegment segment : loaded) {
+            if (superseded.contains(segment.id)) {
+                // compaction finished but the inputs were not deleted before the crash
+                log.info("Deleting audit segment {}, already merged", segment.path.getFileName());
+                deleteQuietly(segment.path);
+                continue;
+            }
+            live.add(segment);
+            for (int w = 0; w < segment.walSeqs.length; w++) {
+                sealedSlices.computeIfAbsent(segment.walSeqs[w], k -> new HashSet<>()).add(segment.walPartitions[w]);
+                // never reuse a log sequence a segment refers to
+                walSeq = Math.max(walSeq, segment.walSeqs[w]);
+            }
+        }
+        publish(live, List.of());
+        return sealedSlices;
+    }
+
+    private void recoverWals(Map<Long, Set<Long>> sealedSlices) throws IOException {
+        TreeMap<Long, Path> wals = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, WAL_PREFIX + "*" + WAL_SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    wals.put(walSeq(file), file);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring unexpected file {}", file.getFileName());
+                }
+            }
+        }
+        for (Map.Entry<Long, Path> entry : wals.entrySet()) {
+            Set<Long> sealed = sealedSlices.getOrDefault(entry.getKey(), Set.of());
+            List<AuditEvent> events = new ArrayList<>();
+            int skipped = 0;
+            try (BufferedReader reader = Files.newBufferedReader(entry.getValue())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    AuditEvent event;
+                    try {
+                        event = objectMapper.readValue(line, AuditEvent.class);
+                    } catch (IOException e) {
+                        // a torn last line from a crash mid-write
+                        log.warn("Skipping unreadable line in {}", entry.getValue().getFileName());
+                        continue;
+                    }
+                    if (sealed.contains(partitionOf(event))) {
+                        skipped++;
+                    } else {
+                        events.add(event);
+                    }
+                }
+            }
+            walSeq = Math.max(walSeq, entry.getKey());
+            if (events.isEmpty() && skipped > 0) {
+                // sealed before the crash, only the delete was missing
+                deleteQuietly(entry.getValue());
+                continue;
+            }
+            add(unseen(events));
+            memtableWals.add(entry.getValue());
+        }
+    }
+
+    private void openWal() throws IOException {
+        Path file = dir.resolve(WAL_PREFIX + (++walSeq) + WAL_SUFFIX);
+        wal = new FileAuditSink(file, objectMapper, fsyncMillis);
+        memtableWals.add(file);
+    }
+
+    private static long walSeq(Path walFile) {
+        String name = walFile.getFileName().toString();
+        return Long.parseLong(name.substring(WAL_PREFIX.length(), name.length() - WAL_SUFFIX.length()));
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    private record PendingSeal(Map<Long, List<AuditEvent>> tables, List<Path> wals) {
+    }
+
+    private record Head(AuditEvent event, AuditSegment.Cursor cursor) {
+    }
+}
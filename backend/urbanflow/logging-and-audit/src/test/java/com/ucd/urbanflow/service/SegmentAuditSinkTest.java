@@ -0,0 +1,131 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.domain.dto.AuditQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Restarts of the segment store at the points where a crash used to leave the same
+ * events on disk twice: after a compaction published its merged segment but before the
+ * inputs were deleted, and after a seal published its segment but before the log was
+ * deleted. A sink that is dropped without {@code close()} stands in for the crash.
+ * Also groups resent by a publisher that missed the acknowledgement.
+ */
+class SegmentAuditSinkTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // a closed hourly partition, so compaction picks it up straight away
+    private final long base = (System.currentTimeMillis() / HOUR - 3) * HOUR;
+
+    @Test
+    void restartMidCompactionKeepsEachEventOnce() throws IOException {
+        SegmentAuditSink sink = open(10);
+        sink.write(events(0, 10));
+        sink.write(events(10, 10));
+        assertEquals(2, segmentFiles());
+
+        // merges both segments; the inputs stay on disk until the next maintenance run
+        sink.maintain();
+        assertEquals(3, segmentFiles());
+
+        SegmentAuditSink reopened = open(10);
+        assertEquals(20, uniqueEvents(reopened, 20));
+        assertEquals(1, segmentFiles());
+
+        reopened.maintain();
+        assertEquals(20, uniqueEvents(reopened, 20));
+        reopened.close();
+    }
+
+    @Test
+    void restartBeforeSealedLogIsDeletedKeepsEachEventOnce() throws IOException {
+        SegmentAuditSink sink = open(1000);
+        sink.write(events(0, 10));
+        Path wal = dir.resolve("wal-1.log");
+        byte[] logged = Files.readAllBytes(wal);
+        sink.maintain();
+        assertFalse(Files.exists(wal));
+        // as if the process died between publishing the segment and deleting the log
+        Files.write(wal, logged);
+
+        SegmentAuditSink reopened = open(1000);
+        assertEquals(10, uniqueEvents(reopened, 10));
+        assertFalse(Files.exists(wal));
+
+        // the next log must not take a sequence number the segment already refers to
+        reopened.write(events(10, 5));
+        SegmentAuditSink again = open(1000);
+        assertEquals(15, uniqueEvents(again, 15));
+        again.close();
+    }
+
+    @Test
+    void resentGroupIsWrittenOnce() throws IOException {
+        SegmentAuditSink sink = open(1000);
+        sink.write(events(0, 10));
+        sink.write(events(5, 10));
+        assertEquals(15, uniqueEvents(sink, 15));
+
+        // the window outlives a seal and a restart replaying the log
+        sink.maintain();
+        sink.write(events(0, 15));
+        sink.write(events(15, 5));
+        SegmentAuditSink reopened = open(1000);
+        reopened.write(events(15, 5));
+        assertEquals(20, uniqueEvents(reopened, 20));
+        reopened.close();
+    }
+
+    private SegmentAuditSink open(int memtableLimit) throws IOException {
+        return new SegmentAuditSink(dir, objectMapper, 60, 4, memtableLimit, 0, 24, 24, 0, 0, 1000);
+    }
+
+    private List<AuditEvent> events(int first, int n) {
+        List<AuditEvent> events = new ArrayList<>(n);
+        for (int i = first; i < first + n; i++) {
+            AuditEvent event = new AuditEvent("MANUAL_CONTROL", "J" + (i % 3), "cmd-" + i, "APPLIED");
+            event.setEventId("event-" + i);
+            event.setTimestamp(base + i * 1000L);
+            events.add(event);
+        }
+        return events;
+    }
+
+    /** Number of events found, after checking that none of them is there twice. */
+    private int uniqueEvents(SegmentAuditSink sink, int expected) {
+        List<AuditEvent> found = sink.query(new AuditQuery(0, Long.MAX_VALUE, null, null, null, null, null,
+                expected * 2)).getEvents();
+        Set<String> ids = new HashSet<>();
+        for (AuditEvent event : found) {
+            ids.add(event.getEventId());
+        }
+        assertEquals(ids.size(), found.size(), "duplicated events");
+        return found.size();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.ucd.urbanflow.controller;
 
+import com.ucd.urbanflow.dto.service.BatchControlRequest;
+import com.ucd.urbanflow.dto.service.BridgeCircuitBreaker;
+import com.ucd.urbanflow.dto.service.BridgeHealth;
 import com.ucd.urbanflow.dto.service.ManualControlRequest;
 import com.ucd.urbanflow.dto.service.ManualControlResponse;
 import com.ucd.urbanflow.service.SignalControlService;
@@ -17,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 public class SignalControlController{
     private static final Logger logger = LoggerFactory.getLogger(SignalControlController.class);
     private final SignalControlService signalControlService;
+    private final BridgeCircuitBreaker bridgeCircuitBreaker;
 
     @PostMapping("/manual")
     public ResponseEntity<ManualControlResponse<?>> manualControl(@RequestBody ManualControlRequest request) {
@@ -24,4 +28,31 @@ public class SignalControlController{
         return signalControlService.handleManualControl(request);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ManualControlResponse<?>> batchControl(@RequestBody BatchControlRequest request) {
+        logger.info("API called: POST /api/signalcontrol/batch with {} commands, source {}",
+                request.getCommands() == null ? 0 : request.getCommands().size(), request.getSource());
+        return signalControlService.handleBatchControl(request);
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<ManualControlResponse<?>> getBatch(@PathVariable String batchId) {
+        return signalControlService.getBatch(batchId);
+    }
+
+    @GetMapping("/commands/{commandId}")
+    public ResponseEntity<ManualControlResponse<?>> getCommand(@PathVariable String commandId) {
+        return signalControlService.getCommand(commandId);
+    }
+
+    @GetMapping("/commands")
+    public ResponseEntity<ManualControlResponse<?>> getRecentCommands(@RequestParam(required = false) String junctionId) {
+        return signalControlService.getRecentCommands(junctionId);
+    }
+
+    @GetMapping("/bridge/health")
+    public ResponseEntity<ManualControlResponse<BridgeHealth>> bridgeHealth() {
+        return ResponseEntity.ok(ManualControlResponse.success("OK", bridgeCircuitBreaker.health()));
+    }
+
 }
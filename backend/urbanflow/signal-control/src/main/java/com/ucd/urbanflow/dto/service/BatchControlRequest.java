@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.dto.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A coordinated set of commands, e.g. a corridor offset plan. Every entry is validated
+ * before any is queued; delayMs on each entry staggers dispatch relative to acceptance.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchControlRequest {
+    private String batchId;
+    private String source;
+    private List<ManualControlRequest> commands;
+}
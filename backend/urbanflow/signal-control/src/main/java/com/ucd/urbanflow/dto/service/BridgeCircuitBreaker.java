@@ -0,0 +1,175 @@
+package com.ucd.urbanflow.dto.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker plus bulkhead for calls to the TraCI bridge.
+ * <p>
+ * CLOSED counts consecutive failures, where a call slower than the slow-call threshold
+ * also counts as a failure. Reaching the threshold opens the circuit and every call is
+ * rejected immediately. After the open period a limited number of probe calls are let
+ * through (HALF_OPEN); enough successful probes close the circuit again, any failure
+ * re-opens it. Independently, a semaphore caps how many threads may wait on the bridge.
+ */
+@Component
+public class BridgeCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(BridgeCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final int halfOpenProbes;
+    private final int maxConcurrentCalls;
+    private final long bulkheadWaitMillis;
+    private final Semaphore bulkhead;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int probesInFlight;
+    private int probeSuccesses;
+    private long openedAt;
+
+    private final AtomicLong totalCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong slowCalls = new AtomicLong();
+    private final AtomicLong rejectedByBreaker = new AtomicLong();
+    private final AtomicLong rejectedByBulkhead = new AtomicLong();
+
+    public BridgeCircuitBreaker(@Value("${traci.breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${traci.breaker.slow-call-ms:5000}") long slowCallMillis,
+                                @Value("${traci.breaker.open-ms:10000}") long openMillis,
+                                @Value("${traci.breaker.half-open-probes:2}") int halfOpenProbes,
+                                @Value("${traci.bulkhead.max-concurrent-calls:8}") int maxConcurrentCalls,
+                                @Value("${traci.bulkhead.max-wait-ms:50}") long bulkheadWaitMillis) {
+        this.failureThreshold = failureThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.halfOpenProbes = halfOpenProbes;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * Runs the call if both the breaker and the bulkhead allow it.
+     * Exceptions from the call are recorded as failures and rethrown.
+     */
+    public <T> T execute(Supplier<T> call) {
+        boolean probe = acquirePermission();
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            releaseProbe(probe);
+            rejectedByBulkhead.incrementAndGet();
+            throw new BridgeUnavailableException("TraCI bridge bulkhead is full.");
+        }
+
+        totalCalls.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMillis > slowCallMillis) {
+                slowCalls.incrementAndGet();
+                onFailure(probe, "slow call (" + elapsedMillis + " ms)");
+            } else {
+                onSuccess(probe);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            failedCalls.incrementAndGet();
+            onFailure(probe, e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /** Returns true when the call is a half-open probe. */
+    private synchronized boolean acquirePermission() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejectedByBreaker.incrementAndGet();
+                throw new BridgeUnavailableException("TraCI bridge circuit is open.");
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+            probeSuccesses = 0;
+            logger.info("TraCI bridge circuit half-open, probing");
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= halfOpenProbes) {
+                rejectedByBreaker.incrementAndGet();
+                throw new BridgeUnavailableException("TraCI bridge circuit is half-open, probe in progress.");
+            }
+            probesInFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized void releaseProbe(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+    }
+
+    private synchronized void onSuccess(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+            if (++probeSuccesses >= halfOpenProbes) {
+                state = State.CLOSED;
+                logger.info("TraCI bridge circuit closed");
+            }
+        }
+        consecutiveFailures = 0;
+    }
+
+    private synchronized void onFailure(boolean probe, String reason) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+            open(reason);
+            return;
+        }
+        if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open(reason);
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        logger.warn("TraCI bridge circuit opened after {} consecutive failures, last: {}", consecutiveFailures, reason);
+    }
+
+    /** Calls slower than this count as failures; bridge reads are cut off here too. */
+    public long getSlowCallMillis() {
+        return slowCallMillis;
+    }
+
+    /** True while calls are being refused without touching the bridge. */
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openMillis;
+    }
+
+    public synchronized BridgeHealth health() {
+        return new BridgeHealth(state.name(), consecutiveFailures, totalCalls.get(), failedCalls.get(),
+                slowCalls.get(), rejectedByBreaker.get(), rejectedByBulkhead.get(),
+                bulkhead.availablePermits(), maxConcurrentCalls, openedAt);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.dto.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BridgeHealth {
+    private String state;
+    private int consecutiveFailures;
+    private long totalCalls;
+    private long failedCalls;
+    private long slowCalls;
+    private long rejectedByBreaker;
+    private long rejectedByBulkhead;
+    private int availableSlots;
+    private int maxConcurrentCalls;
+    private long openedAt;
+}
@@ -0,0 +1,11 @@
+package com.ucd.urbanflow.dto.service;
+
+/**
+ * Thrown when a call to the TraCI bridge is refused locally, either because the
+ * circuit breaker is open or because the bulkhead has no free slot.
+ */
+public class BridgeUnavailableException extends RuntimeException {
+    public BridgeUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.ucd.urbanflow.dto.service;
+
+/**
+ * Lifecycle of a signal control command.
+ * QUEUED -> SENT -> APPLIED -> VERIFIED, or FAILED / EXPIRED on the way.
+ */
+public enum CommandStatus {
+    QUEUED,     // accepted, waiting for a dispatch thread
+    SENT,       // request is on its way to the TraCI bridge
+    APPLIED,    // bridge acknowledged the change
+    VERIFIED,   // change observed in the live sumo:tls stream
+    FAILED,     // rejected by validation or by the bridge
+    EXPIRED;    // applied but never observed before the verify timeout
+
+    public boolean isFinal() {
+        return this == VERIFIED || this == FAILED || this == EXPIRED;
+    }
+}
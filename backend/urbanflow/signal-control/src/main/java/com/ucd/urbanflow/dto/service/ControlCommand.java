@@ -0,0 +1,44 @@
+package com.ucd.urbanflow.dto.service;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A tracked signal control command. Timestamps are epoch millis,
+ * sentSimTime is the SUMO time seen just before it went to the bridge.
+ * Commands submitted together share a batchId and may be due at different times.
+ */
+@Data
+@NoArgsConstructor
+public class ControlCommand {
+    private String commandId;
+    private String junctionId;
+    private Integer lightIndex;
+    private Integer duration;
+    private String state;
+    private String source;
+    private String batchId;
+    private long dueAt;
+    private volatile CommandStatus status;
+    private String message;
+    private long createdAt;
+    private long updatedAt;
+    private double sentSimTime = -1;
+
+    public ControlCommand(String commandId, ManualControlRequest request) {
+        this.commandId = commandId;
+        this.junctionId = request.getJunctionId();
+        this.lightIndex = request.getLightIndex();
+        this.duration = request.getDuration();
+        this.state = request.getState();
+        this.source = request.getSource();
+        this.status = CommandStatus.QUEUED;
+        this.createdAt = System.currentTimeMillis();
+        this.updatedAt = this.createdAt;
+        this.dueAt = this.createdAt + (request.getDelayMs() == null ? 0 : Math.max(0, request.getDelayMs()));
+    }
+
+    public boolean isStateChange() {
+        return state != null && !state.trim().isEmpty();
+    }
+}
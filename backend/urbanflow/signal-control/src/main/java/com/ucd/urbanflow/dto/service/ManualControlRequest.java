@@ -14,4 +14,5 @@ public class ManualControlRequest {
     private Integer duration;
     private String state;
     private String source = "manual";
+    private Long delayMs;      // optional, dispatch no earlier than this many ms after acceptance
 }
@@ -1,6 +1,7 @@
 package com.ucd.urbanflow.dto.service;
 
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
@@ -10,26 +11,43 @@ import org.springframework.web.util.UriComponentsBuilder;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * HTTP client for the TraCI bridge. Every call goes through {@link BridgeCircuitBreaker};
+ * a refused call surfaces as {@link BridgeUnavailableException}, any other error as false.
+ * The read timeout never exceeds the breaker's slow-call threshold, so a hung bridge
+ * fails the call there instead of holding the caller.
+ */
 @Component
 public class TraCIClient {
     private RestTemplate restTemplate = new RestTemplate();
-    private final String BASE_URL = "http://10.241.114.122:8000";
+    private final String BASE_URL;
+    private final BridgeCircuitBreaker circuitBreaker;
 
-    public TraCIClient() {
+    public TraCIClient(BridgeCircuitBreaker circuitBreaker,
+                       @Value("${traci.bridge.base-url:http://10.241.114.122:8000}") String baseUrl,
+                       @Value("${traci.bridge.connect-timeout-ms:2000}") int connectTimeout,
+                       @Value("${traci.bridge.read-timeout-ms:5000}") int readTimeout) {
         SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(20000);
-        factory.setReadTimeout(60000);
+        factory.setConnectTimeout(connectTimeout);
+        factory.setReadTimeout((int) Math.min(readTimeout, circuitBreaker.getSlowCallMillis()));
         this.restTemplate = new RestTemplate(factory);
+        this.circuitBreaker = circuitBreaker;
+        this.BASE_URL = baseUrl;
     }
 
     public boolean checkSUMOStatus(){
         String url = BASE_URL + "/status";
         try {
-            Map<?, ?> response = restTemplate.getForObject(url, Map.class);
-            if (response != null && response.containsKey("connection")){
-                Map<?, ?> conn = (Map<?, ?>) response.get("connection");
-                return Boolean.TRUE.equals(conn.get("sumo_connected"));
-            }
+            return circuitBreaker.execute(() -> {
+                Map<?, ?> response = restTemplate.getForObject(url, Map.class);
+                if (response != null && response.containsKey("connection")){
+                    Map<?, ?> conn = (Map<?, ?>) response.get("connection");
+                    return Boolean.TRUE.equals(conn.get("sumo_connected"));
+                }
+                return false;
+            });
+        } catch (BridgeUnavailableException e) {
+            throw e;
         } catch (Exception e){
             e.printStackTrace();
         }
@@ -40,44 +58,62 @@ public class TraCIClient {
     public boolean checkJunctionExists(String junctionId){
         String url = UriComponentsBuilder.fromHttpUrl(BASE_URL + "/junction/exists").queryParam("junctionId", junctionId).toUriString();
         try {
-            Map<?, ?> response = restTemplate.getForObject(url, Map.class);
-            return Boolean.TRUE.equals(response.get("exists"));
+            return circuitBreaker.execute(() -> {
+                Map<?, ?> response = restTemplate.getForObject(url, Map.class);
+                return Boolean.TRUE.equals(response.get("exists"));
+            });
+        } catch (BridgeUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
         }
         return false;
     }
 
-    // set duration
-    public boolean setSignalDuration(String junctionId, int duration){
+    /**
+     * Sets the duration of the current phase.
+     * Returns null when the bridge took the change, otherwise the reason it gave.
+     */
+    public String setSignalDuration(String junctionId, int duration){
         String url = BASE_URL + "/trafficlight/set_duration";
         Map<String, Object> body = new HashMap<>();
         body.put("junctionId", junctionId);
         body.put("duration", duration);
-        try {
-            Map<?, ?> response = restTemplate.postForObject(url, body, Map.class);
-            return "success".equals(response.get("status"));
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return false;
+        return post(url, body, "success");
     }
 
-    // set state+duration
-    public boolean setSignalStateAndDuration(String junctionId, int lightIndex, String state, int duration) {
+    /**
+     * Sets one link of the junction's signal and the duration of the resulting phase.
+     * The bridge answers as soon as the state is set instead of waiting for its own
+     * verification; the change is confirmed from sumo:tls by TlsStateVerifier.
+     * Returns null when the bridge took the change, otherwise the reason it gave.
+     */
+    public String submitSignalStateAndDuration(String junctionId, int lightIndex, String state, int duration) {
         String url = BASE_URL + "/trafficlight/set_state_duration";
         Map<String, Object> body = new HashMap<>();
         body.put("junctionId", junctionId);
         body.put("state", state);
         body.put("duration", duration);
         body.put("lightIndex", lightIndex);
+        body.put("wait", false);
+        return post(url, body, "ACCEPTED");
+    }
 
+    private String post(String url, Map<String, Object> body, String acceptedStatus) {
         try {
-            Map<?, ?> response = restTemplate.postForObject(url, body, Map.class);
-            return "VERIFIED_AND_RUNNING".equals(response.get("status"));
+            return circuitBreaker.execute(() -> {
+                Map<?, ?> response = restTemplate.postForObject(url, body, Map.class);
+                if (response != null && acceptedStatus.equals(response.get("status"))) {
+                    return null;
+                }
+                Object message = response == null ? null : response.get("message");
+                return message == null ? "Failed to control signal." : message.toString();
+            });
+        } catch (BridgeUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return false;
+        return "Failed to control signal.";
     }
 }
@@ -0,0 +1,268 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditPublisher;
+import com.ucd.urbanflow.dto.service.BridgeUnavailableException;
+import com.ucd.urbanflow.dto.service.CommandStatus;
+import com.ucd.urbanflow.dto.service.ControlCommand;
+import com.ucd.urbanflow.dto.service.ManualControlRequest;
+import com.ucd.urbanflow.dto.service.TraCIClient;
+import com.ucd.urbanflow.websocket.CommandWebSocketHandler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Accepts control commands, hands them to the TraCI bridge on a small dispatch pool
+ * and keeps track of their lifecycle. Verification against the live sumo:tls stream
+ * is done by {@link TlsStateVerifier}.
+ */
+@Service
+public class ControlCommandService {
+    private static final Logger logger = LoggerFactory.getLogger(ControlCommandService.class);
+    private static final String KEY_SIM_TIME = "sumo:simulation_time";
+
+    private final TraCIClient traCIClient;
+    private final StringRedisTemplate redisTemplate;
+    private final CommandWebSocketHandler commandWebSocketHandler;
+    private final AuditPublisher auditPublisher;
+    private final ThreadPoolExecutor dispatchPool;
+    private final ScheduledExecutorService delayScheduler;
+    private final long retentionMillis;
+    private final long maxDelayMillis;
+
+    private final Map<String, ControlCommand> commands = new ConcurrentHashMap<>();
+
+    public ControlCommandService(TraCIClient traCIClient,
+                                 StringRedisTemplate redisTemplate,
+                                 CommandWebSocketHandler commandWebSocketHandler,
+                                 AuditPublisher auditPublisher,
+                                 @Value("${signalcontrol.command.dispatch-threads:4}") int dispatchThreads,
+                                 @Value("${signalcontrol.command.queue-capacity:256}") int queueCapacity,
+                                 @Value("${signalcontrol.command.retention-minutes:30}") long retentionMinutes,
+                                 @Value("${signalcontrol.command.max-delay-ms:600000}") long maxDelayMillis) {
+        this.traCIClient = traCIClient;
+        this.redisTemplate = redisTemplate;
+        this.commandWebSocketHandler = commandWebSocketHandler;
+        this.auditPublisher = auditPublisher;
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.maxDelayMillis = maxDelayMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatchPool = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "command-dispatch-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "command-delay");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.delayScheduler = scheduler;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Registers the command and queues it for dispatch. Never waits on the bridge.
+     */
+    public ControlCommand submit(ManualControlRequest request) {
+        ControlCommand command = register(request, null);
+        schedule(command);
+        return command;
+    }
+
+    /**
+     * Registers all commands of a batch before any of them is dispatched, so the whole
+     * plan is visible (and cancellable by expiry) as one unit, then schedules each at
+     * its own due time.
+     */
+    public List<ControlCommand> submitBatch(String batchId, List<ManualControlRequest> requests) {
+        List<ControlCommand> batch = new ArrayList<>(requests.size());
+        for (ManualControlRequest request : requests) {
+            batch.add(register(request, batchId));
+        }
+        for (ControlCommand command : batch) {
+            schedule(command);
+        }
+        return batch;
+    }
+
+    public List<ControlCommand> getBatch(String batchId) {
+        List<ControlCommand> result = new ArrayList<>();
+        for (ControlCommand command : commands.values()) {
+            if (batchId.equals(command.getBatchId())) {
+                result.add(command);
+            }
+        }
+        result.sort(Comparator.comparingLong(ControlCommand::getDueAt));
+        return result;
+    }
+
+    private ControlCommand register(ManualControlRequest request, String batchId) {
+        ControlCommand command = new ControlCommand(UUID.randomUUID().toString(), request);
+        command.setBatchId(batchId);
+        commands.put(command.getCommandId(), command);
+        commandWebSocketHandler.publish(command);
+        audit(command, "ACCEPTED", currentUser(), command.getState());
+        return command;
+    }
+
+    private void schedule(ControlCommand command) {
+        long delay = command.getDueAt() - System.currentTimeMillis();
+        if (delay <= 0) {
+            enqueue(command);
+            return;
+        }
+        try {
+            delayScheduler.schedule(() -> enqueue(command), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            transition(command, CommandStatus.FAILED, "Command scheduler is shut down.");
+        }
+    }
+
+    private void enqueue(ControlCommand command) {
+        try {
+            dispatchPool.execute(() -> dispatch(command));
+        } catch (RejectedExecutionException e) {
+            transition(command, CommandStatus.FAILED, "Command queue is full.");
+        }
+    }
+
+    public ControlCommand getCommand(String commandId) {
+        return commands.get(commandId);
+    }
+
+    public List<ControlCommand> getRecentCommands(String junctionId) {
+        List<ControlCommand> result = new ArrayList<>();
+        for (ControlCommand command : commands.values()) {
+            if (junctionId == null || junctionId.equals(command.getJunctionId())) {
+                result.add(command);
+            }
+        }
+        result.sort(Comparator.comparingLong(ControlCommand::getCreatedAt).reversed());
+        return result;
+    }
+
+    /** Commands the bridge has acknowledged but that are not yet seen in sumo:tls. */
+    public List<ControlCommand> getAwaitingVerification() {
+        List<ControlCommand> result = new ArrayList<>();
+        for (ControlCommand command : commands.values()) {
+            if (command.getStatus() == CommandStatus.APPLIED) {
+                result.add(command);
+            }
+        }
+        return result;
+    }
+
+    public void transition(ControlCommand command, CommandStatus status, String message) {
+        synchronized (command) {
+            if (command.getStatus().isFinal()) {
+                return;
+            }
+            command.setStatus(status);
+            command.setMessage(message);
+            command.setUpdatedAt(System.currentTimeMillis());
+        }
+        logger.info("Command {} for junction {} -> {} {}", command.getCommandId(), command.getJunctionId(), status,
+                message == null ? "" : message);
+        commandWebSocketHandler.publish(command);
+        audit(command, status.name(), null, message);
+    }
+
+    /** Records a lifecycle step of the command; the audit publisher never blocks. */
+    private void audit(ControlCommand command, String outcome, String userId, String detail) {
+        AuditEvent event = new AuditEvent(command.getBatchId() == null ? "MANUAL_CONTROL" : "BATCH_CONTROL",
+                command.getJunctionId(), command.getCommandId(), outcome);
+        event.setUserId(userId);
+        event.setSource(command.getSource());
+        event.setDetail(detail);
+        auditPublisher.publish(event);
+    }
+
+    /** Authenticated caller of the current request thread, null for anonymous requests. */
+    static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private void dispatch(ControlCommand command) {
+        String junctionId = command.getJunctionId();
+        try {
+            command.setSentSimTime(currentSimTime());
+            transition(command, CommandStatus.SENT, null);
+
+            // one bridge call per command: the bridge itself rejects an unknown junction or a
+            // missing SUMO connection, and does not wait for the change to show up
+            String rejection;
+            if (command.isStateChange()) {
+                rejection = traCIClient.submitSignalStateAndDuration(junctionId, command.getLightIndex(),
+                        command.getState(), command.getDuration());
+            } else {
+                rejection = traCIClient.setSignalDuration(junctionId, command.getDuration());
+            }
+
+            if (rejection == null) {
+                transition(command, CommandStatus.APPLIED, null);
+            } else {
+                transition(command, CommandStatus.FAILED, rejection);
+            }
+        } catch (BridgeUnavailableException e) {
+            transition(command, CommandStatus.FAILED, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Dispatch of command {} failed", command.getCommandId(), e);
+            transition(command, CommandStatus.FAILED, "Failed to control signal.");
+        }
+    }
+
+    private double currentSimTime() {
+        try {
+            String simTime = redisTemplate.opsForValue().get(KEY_SIM_TIME);
+            return simTime == null ? -1 : Double.parseDouble(simTime);
+        } catch (Exception e) {
+            logger.warn("Could not read {} from Redis: {}", KEY_SIM_TIME, e.getMessage());
+            return -1;
+        }
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictFinishedCommands() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        commands.values().removeIf(c -> c.getStatus().isFinal() && c.getUpdatedAt() < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        delayScheduler.shutdownNow();
+        dispatchPool.shutdownNow();
+    }
+}
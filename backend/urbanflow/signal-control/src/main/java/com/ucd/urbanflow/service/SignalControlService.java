@@ -1,18 +1,21 @@
 package com.ucd.urbanflow.service;
 
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditPublisher;
+import com.ucd.urbanflow.dto.service.BatchControlRequest;
+import com.ucd.urbanflow.dto.service.BridgeCircuitBreaker;
+import com.ucd.urbanflow.dto.service.ControlCommand;
 import com.ucd.urbanflow.dto.service.ManualControlRequest;
 import com.ucd.urbanflow.dto.service.ManualControlResponse;
-import com.ucd.urbanflow.dto.service.TraCIClient;
 //import org.slf4j.Logger;
 //import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 public class SignalControlService {
@@ -21,17 +24,23 @@ public class SignalControlService {
     private static final String CONTROL_TIME_PREFIX = "last_control_time:";
 
     @Autowired
-    private TraCIClient traCIClient;
+    private ControlCommandService controlCommandService;
+
+    @Autowired
+    private BridgeCircuitBreaker bridgeCircuitBreaker;
+
+    @Autowired
+    private AuditPublisher auditPublisher;
 
 //    @Autowired
 //    private StringRedisTemplate redisTemplate;
 
+    /**
+     * Validates the request and queues it as a command. SUMO connectivity, junction
+     * existence and the bridge call itself are handled asynchronously by
+     * {@link ControlCommandService}; the caller gets the command ID straight away.
+     */
     public ResponseEntity<ManualControlResponse<?>> handleManualControl(ManualControlRequest request){
-        String junctionId = request.getJunctionId();
-        String state = request.getState();
-        Integer duration = request.getDuration();
-        Integer lightIndex = request.getLightIndex();
-
 //        logger.info("Received Request: {}", request);
 
 //        // check frequency from Redis
@@ -48,39 +57,115 @@ public class SignalControlService {
 //            }
 //        }
 
-        // check SUMO connection status
-        if (!traCIClient.checkSUMOStatus()){
+        String invalid = validate(request);
+        if (invalid != null) {
+            auditRejected("MANUAL_CONTROL", request.getJunctionId(), null, request.getSource(), invalid);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ManualControlResponse.fail(400, invalid));
+        }
+
+        // fail fast while the bridge circuit is open instead of queueing a doomed command
+        if (bridgeCircuitBreaker.isOpen()) {
+            auditRejected("MANUAL_CONTROL", request.getJunctionId(), null, request.getSource(), "SUMO bridge unavailable");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
+                    ManualControlResponse.fail(503, "SUMO bridge is unavailable, please retry shortly.")
+            );
+        }
+
+        ControlCommand command = controlCommandService.submit(request);
+
+//        // update redis control time
+//        redisTemplate.opsForValue().set(redisKey, String.valueOf(now), 10, TimeUnit.MINUTES);
+//
+        // return the command ID, progress is pushed over /api/signalcontrol/ws
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ManualControlResponse<>(HttpStatus.ACCEPTED.value(), "Signal control command accepted.", command));
+    }
+
+    /**
+     * Queues a coordinated batch. The batch is rejected as a whole if any entry is
+     * invalid, so a plan is never applied partially because of a bad request.
+     */
+    public ResponseEntity<ManualControlResponse<?>> handleBatchControl(BatchControlRequest request) {
+        List<ManualControlRequest> entries = request.getCommands();
+        if (entries == null || entries.isEmpty()) {
+            auditRejected("BATCH_CONTROL", null, request.getBatchId(), request.getSource(), "Batch has no commands.");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ManualControlResponse.fail(400, "Batch has no commands."));
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            String invalid = validate(entries.get(i));
+            if (invalid != null) {
+                auditRejected("BATCH_CONTROL", entries.get(i).getJunctionId(), request.getBatchId(), request.getSource(),
+                        "Command " + i + ": " + invalid);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+                        ManualControlResponse.fail(400, "Command " + i + ": " + invalid));
+            }
+        }
+        if (bridgeCircuitBreaker.isOpen()) {
+            auditRejected("BATCH_CONTROL", null, request.getBatchId(), request.getSource(), "SUMO bridge unavailable");
             return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(
-                    ManualControlResponse.fail(503, "SUMO is not connected.")
+                    ManualControlResponse.fail(503, "SUMO bridge is unavailable, please retry shortly.")
             );
         }
 
-        // check junction exists
-        if (!traCIClient.checkJunctionExists(junctionId)){
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ManualControlResponse.fail(400, "Invalid junction ID"));
+        String batchId = request.getBatchId() == null || request.getBatchId().isBlank()
+                ? UUID.randomUUID().toString() : request.getBatchId();
+        if (request.getSource() != null) {
+            entries.forEach(e -> e.setSource(request.getSource()));
+        }
+        List<ControlCommand> commands = controlCommandService.submitBatch(batchId, entries);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(
+                new ManualControlResponse<>(HttpStatus.ACCEPTED.value(), "Batch " + batchId + " accepted.", commands));
+    }
+
+    public ResponseEntity<ManualControlResponse<?>> getBatch(String batchId) {
+        List<ControlCommand> commands = controlCommandService.getBatch(batchId);
+        if (commands.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ManualControlResponse.fail(404, "Unknown batch ID"));
         }
+        return ResponseEntity.ok(ManualControlResponse.success("OK", commands));
+    }
+
+    private void auditRejected(String action, String junctionId, String batchId, String source, String reason) {
+        AuditEvent event = new AuditEvent(action, junctionId, batchId, "REJECTED");
+        event.setUserId(ControlCommandService.currentUser());
+        event.setSource(source);
+        event.setDetail(reason);
+        auditPublisher.publish(event);
+    }
+
+    /** Returns the reason the request is invalid, or null. */
+    private String validate(ManualControlRequest request) {
+        String junctionId = request.getJunctionId();
+        String state = request.getState();
+        Integer duration = request.getDuration();
+        Integer lightIndex = request.getLightIndex();
 
-        // call traci
-        boolean controlSuccess = false;
-        if ((state == null || state.trim().isEmpty()) && duration != null){
-            // only duration is provided
-            controlSuccess = traCIClient.setSignalDuration(junctionId, duration);
+        if (junctionId == null || junctionId.trim().isEmpty()) {
+            return "Invalid junction ID";
         }
-        else if (state != null && !state.trim().isEmpty() && duration != null && lightIndex != null){
-            controlSuccess = traCIClient.setSignalStateAndDuration(junctionId, lightIndex, state, duration);
+
+        boolean durationOnly = (state == null || state.trim().isEmpty()) && duration != null;
+        boolean stateAndDuration = state != null && !state.trim().isEmpty() && duration != null && lightIndex != null;
+        if (!durationOnly && !stateAndDuration) {
+            return "Invalid control request: duration or state missing.";
         }
-        else {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ManualControlResponse.fail(400, "Invalid control request: duration or state missing."));
+        Long delayMs = request.getDelayMs();
+        if (delayMs != null && (delayMs < 0 || delayMs > controlCommandService.getMaxDelayMillis())) {
+            return "Invalid control request: delayMs out of range.";
         }
+        return null;
+    }
 
-        if (!controlSuccess){
-            return  ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ManualControlResponse.fail(500, "Failed to control signal."));
+    public ResponseEntity<ManualControlResponse<?>> getCommand(String commandId) {
+        ControlCommand command = controlCommandService.getCommand(commandId);
+        if (command == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ManualControlResponse.fail(404, "Unknown command ID"));
         }
+        return ResponseEntity.ok(ManualControlResponse.success("OK", command));
+    }
 
-//        // update redis control time
-//        redisTemplate.opsForValue().set(redisKey, String.valueOf(now), 10, TimeUnit.MINUTES);
-//
-        // return success
-        return ResponseEntity.ok(ManualControlResponse.success("Signal control executed successfully.", null));
+    public ResponseEntity<ManualControlResponse<?>> getRecentCommands(String junctionId) {
+        List<ControlCommand> commands = controlCommandService.getRecentCommands(junctionId);
+        return ResponseEntity.ok(ManualControlResponse.success("OK", commands));
     }
-}
\ No newline at end of file
+}
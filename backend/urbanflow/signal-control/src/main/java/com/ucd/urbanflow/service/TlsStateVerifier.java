@@ -0,0 +1,132 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.common.sumo.TlsState;
+import com.ucd.urbanflow.dto.service.CommandStatus;
+import com.ucd.urbanflow.dto.service.ControlCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Confirms applied commands against the live sumo:tls hash written by the TraCI bridge.
+ * Only the TLS entries of junctions with pending commands are fetched each poll.
+ */
+@Service
+public class TlsStateVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(TlsStateVerifier.class);
+    private static final long MAPPING_REFRESH_MILLIS = 10000;
+    private static final int MAPPING_SCAN_PAGE = 500;
+
+    private final ControlCommandService controlCommandService;
+    private final SumoStateReader sumoStateReader;
+    private final long verifyTimeoutMillis;
+
+    // junction_id -> tlsID, both are needed because the hash is keyed by tlsID
+    private volatile Map<String, String> junctionToTls = new HashMap<>();
+    private long lastMappingRefresh;
+
+    public TlsStateVerifier(ControlCommandService controlCommandService,
+                            SumoStateReader sumoStateReader,
+                            @Value("${signalcontrol.command.verify-timeout-ms:15000}") long verifyTimeoutMillis) {
+        this.controlCommandService = controlCommandService;
+        this.sumoStateReader = sumoStateReader;
+        this.verifyTimeoutMillis = verifyTimeoutMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${signalcontrol.command.verify-poll-ms:500}")
+    public void verifyPendingCommands() {
+        List<ControlCommand> pending = controlCommandService.getAwaitingVerification();
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            Map<String, TlsState> tlsByJunction = fetchTlsStates(pending);
+            long now = System.currentTimeMillis();
+
+            for (ControlCommand command : pending) {
+                TlsState tls = tlsByJunction.get(command.getJunctionId());
+                if (tls != null && matches(command, tls)) {
+                    controlCommandService.transition(command, CommandStatus.VERIFIED, null);
+                } else if (now - command.getUpdatedAt() > verifyTimeoutMillis) {
+                    controlCommandService.transition(command, CommandStatus.EXPIRED,
+                            "Change was not observed in sumo:tls within " + verifyTimeoutMillis + " ms.");
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Verification poll failed: {}", e.getMessage());
+        }
+    }
+
+    private Map<String, TlsState> fetchTlsStates(List<ControlCommand> pending) {
+        Set<String> junctionIds = new LinkedHashSet<>();
+        for (ControlCommand command : pending) {
+            junctionIds.add(command.getJunctionId());
+        }
+        if (!junctionToTls.keySet().containsAll(junctionIds)
+                && System.currentTimeMillis() - lastMappingRefresh > MAPPING_REFRESH_MILLIS) {
+            refreshJunctionMapping();
+        }
+
+        Map<String, String> tlsOfJunction = new HashMap<>();
+        for (String junctionId : junctionIds) {
+            // junctions that never showed up in the hash are tried under their own id
+            tlsOfJunction.put(junctionId, junctionToTls.getOrDefault(junctionId, junctionId));
+        }
+
+        Map<String, TlsState> states = sumoStateReader.readTls(new LinkedHashSet<>(tlsOfJunction.values()));
+        Map<String, TlsState> result = new HashMap<>();
+        for (Map.Entry<String, String> entry : tlsOfJunction.entrySet()) {
+            TlsState tls = states.get(entry.getValue());
+            if (tls != null) {
+                result.put(entry.getKey(), tls);
+            }
+        }
+        return result;
+    }
+
+    private void refreshJunctionMapping() {
+        Map<String, String> mapping = new HashMap<>();
+        sumoStateReader.scanTls(MAPPING_SCAN_PAGE, new TlsState(), tls -> {
+            if (tls.getJunctionId() != null) {
+                mapping.put(tls.getJunctionId(), tls.getTlsId());
+            }
+        });
+        junctionToTls = mapping;
+        lastMappingRefresh = System.currentTimeMillis();
+    }
+
+    /**
+     * A state command is verified when the requested link shows the requested colour,
+     * a duration-only command when the next switch lands on the requested duration.
+     * Either way the sample has to be newer than the moment the command was sent.
+     */
+    private boolean matches(ControlCommand command, TlsState tls) {
+        double timestamp = tls.getTimestamp();
+        if (command.getSentSimTime() >= 0 && timestamp <= command.getSentSimTime()) {
+            return false;
+        }
+
+        if (command.isStateChange()) {
+            String state = tls.getState() == null ? "" : tls.getState();
+            int index = command.getLightIndex();
+            if (index < 0 || index >= state.length()) {
+                return false;
+            }
+            char actual = state.charAt(index);
+            return Character.toLowerCase(actual) == Character.toLowerCase(command.getState().trim().charAt(0));
+        }
+
+        double nextSwitch = tls.getNextSwitchTime();
+        double sentAt = command.getSentSimTime() >= 0 ? command.getSentSimTime() : timestamp;
+        return nextSwitch >= 0 && Math.abs(nextSwitch - sentAt - command.getDuration()) <= 2.0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.ucd.urbanflow.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.dto.service.ControlCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes command state changes to subscribers of /api/signalcontrol/ws.
+ * Clients may pass ?junctionId=... to receive updates for a single junction only.
+ */
+@Component
+public class CommandWebSocketHandler extends TextWebSocketHandler {
+    private static final Logger logger = LoggerFactory.getLogger(CommandWebSocketHandler.class);
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    // session -> junction filter ("" means all junctions)
+    private final Map<WebSocketSession, String> subscriptions = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+
+    public CommandWebSocketHandler(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        String junctionId = session.getUri() == null ? null
+                : UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("junctionId");
+        WebSocketSession decorated = new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+        subscriptions.put(decorated, junctionId == null ? "" : junctionId);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        subscriptions.keySet().removeIf(s -> s.getId().equals(session.getId()));
+    }
+
+    public void publish(ControlCommand command) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        TextMessage message;
+        try {
+            message = new TextMessage(objectMapper.writeValueAsString(command));
+        } catch (Exception e) {
+            logger.warn("Failed to serialize command {}: {}", command.getCommandId(), e.getMessage());
+            return;
+        }
+        for (Map.Entry<WebSocketSession, String> entry : subscriptions.entrySet()) {
+            String filter = entry.getValue();
+            WebSocketSession session = entry.getKey();
+            if (!session.isOpen() || !(filter.isEmpty() || filter.equals(command.getJunctionId()))) {
+                continue;
+            }
+            try {
+                session.sendMessage(message);
+            } catch (Exception e) {
+                logger.warn("Failed to push command {} to session {}: {}", command.getCommandId(), session.getId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.websocket;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.*;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final CommandWebSocketHandler commandHandler;
+
+    public WebSocketConfig(CommandWebSocketHandler commandHandler) {
+        this.commandHandler = commandHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(commandHandler, "/api/signalcontrol/ws").setAllowedOrigins("*");
+    }
+}
@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Fork-join pool for parsing the live feed, kept apart from the common pool.
+ */
+@Configuration
+public class ComputePoolConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool computePool(@Value("${event.compute.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ucd.urbanflow.config;
+
+import com.ucd.urbanflow.common.topology.ConditionalOnTopologySnapshot;
+import com.ucd.urbanflow.common.topology.TopologySnapshot;
+import com.ucd.urbanflow.domain.pojo.LaneShape;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When topology.snapshot.path names a compiled topology file, lane shapes are read from
+ * it instead of MySQL. Without the property the MyBatis mapper is used as before.
+ */
+@Configuration
+@ConditionalOnTopologySnapshot
+public class TopologyConfig {
+
+    @Bean
+    @Primary
+    public LaneMapper snapshotLaneMapper(TopologySnapshot snapshot) {
+        return () -> {
+            List<LaneShape> lanes = new ArrayList<>(snapshot.getLaneCount());
+            for (int lane = 0; lane < snapshot.getLaneCount(); lane++) {
+                LaneShape shape = new LaneShape();
+                shape.setLaneId(snapshot.laneId(lane));
+                int edge = snapshot.laneEdge(lane);
+                shape.setEdgeId(edge < 0 ? null : snapshot.edgeId(edge));
+                shape.setLaneShape(snapshot.laneShape(lane));
+                lanes.add(shape);
+            }
+            return lanes;
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.domain.dto.EmergencyVehicleStatus;
+import com.ucd.urbanflow.domain.dto.PreemptionEvent;
+import com.ucd.urbanflow.service.EmergencyPreemptionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/event/emergency")
+@RequiredArgsConstructor
+public class EmergencyController {
+
+    private final EmergencyPreemptionService emergencyPreemptionService;
+
+    @PostMapping("/vehicles/{vehicleId}")
+    public ResponseEntity<EmergencyVehicleStatus> register(@PathVariable String vehicleId,
+                                                           @RequestBody(required = false) List<String> route) {
+        return ResponseEntity.ok(emergencyPreemptionService.register(vehicleId, route));
+    }
+
+    @DeleteMapping("/vehicles/{vehicleId}")
+    public ResponseEntity<Void> unregister(@PathVariable String vehicleId) {
+        return emergencyPreemptionService.unregister(vehicleId)
+                ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/vehicles")
+    public ResponseEntity<List<EmergencyVehicleStatus>> getVehicles() {
+        return ResponseEntity.ok(emergencyPreemptionService.getVehicles());
+    }
+
+    @GetMapping("/preemptions")
+    public ResponseEntity<List<PreemptionEvent>> getPreemptions() {
+        return ResponseEntity.ok(emergencyPreemptionService.getEvents());
+    }
+}
@@ -0,0 +1,31 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.domain.dto.Incident;
+import com.ucd.urbanflow.service.IncidentDetectionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/event")
+@RequiredArgsConstructor
+public class IncidentController {
+
+    private final IncidentDetectionService incidentDetectionService;
+
+    @GetMapping("/incidents")
+    public ResponseEntity<List<Incident>> getIncidents() {
+        return ResponseEntity.ok(incidentDetectionService.getActiveIncidents());
+    }
+
+    @GetMapping("/incidents/{edgeId}")
+    public ResponseEntity<Incident> getIncident(@PathVariable String edgeId) {
+        Incident incident = incidentDetectionService.getIncident(edgeId);
+        return incident == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(incident);
+    }
+}
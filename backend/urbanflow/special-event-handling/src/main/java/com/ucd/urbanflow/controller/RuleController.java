@@ -0,0 +1,78 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.domain.dto.EventRule;
+import com.ucd.urbanflow.domain.dto.RuleStatus;
+import com.ucd.urbanflow.service.RuleEngineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/event/rules")
+@RequiredArgsConstructor
+public class RuleController {
+
+    private final RuleEngineService ruleEngineService;
+
+    @GetMapping
+    public ResponseEntity<List<RuleStatus>> getRules() {
+        return ResponseEntity.ok(ruleEngineService.getRules());
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(ruleEngineService.getStats());
+    }
+
+    @GetMapping("/{ruleId}")
+    public ResponseEntity<RuleStatus> getRule(@PathVariable String ruleId) {
+        RuleStatus status = ruleEngineService.getRule(ruleId);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createRule(@RequestBody EventRule rule) {
+        try {
+            return ResponseEntity.ok(ruleEngineService.save(rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PutMapping("/{ruleId}")
+    public ResponseEntity<?> saveRule(@PathVariable String ruleId, @RequestBody EventRule rule) {
+        rule.setId(ruleId);
+        try {
+            return ResponseEntity.ok(ruleEngineService.save(rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{ruleId}/enable")
+    public ResponseEntity<RuleStatus> enable(@PathVariable String ruleId) {
+        RuleStatus status = ruleEngineService.setEnabled(ruleId, true);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @PostMapping("/{ruleId}/disable")
+    public ResponseEntity<RuleStatus> disable(@PathVariable String ruleId) {
+        RuleStatus status = ruleEngineService.setEnabled(ruleId, false);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/{ruleId}")
+    public ResponseEntity<Void> deleteRule(@PathVariable String ruleId) {
+        return ruleEngineService.delete(ruleId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
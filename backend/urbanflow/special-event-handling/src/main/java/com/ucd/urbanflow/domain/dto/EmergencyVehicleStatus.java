@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmergencyVehicleStatus {
+    private String vehicleId;
+    private String state;               // WAITING (not seen yet), TRACKING or LOST
+    private String edgeId;
+    private double enteredSimTime;
+    private String nextJunctionId;
+    private double etaSeconds;          // to the stop line of nextJunctionId, -1 when unknown
+    private String preemptedJunctionId;
+    private double lastSeenSimTime;
+}
@@ -0,0 +1,26 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A declarative special-event rule: when its conditions hold (all of them, or any for
+ * match ANY), its actions are sent to signal-control. While the rule stays active the
+ * actions are re-issued before they run out when refresh is set.
+ */
+@Data
+@NoArgsConstructor
+public class EventRule {
+    private String id;
+    private String name;
+    private String description;
+    private boolean enabled = true;
+    private String match = "ALL";               // ALL or ANY
+    private List<RuleCondition> conditions = new ArrayList<>();
+    private List<RuleAction> actions = new ArrayList<>();
+    private double cooldownSeconds = 0;         // minimum simulation time between two firings
+    private boolean refresh = true;
+}
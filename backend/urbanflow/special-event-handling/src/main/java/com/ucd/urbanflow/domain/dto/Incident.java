@@ -0,0 +1,27 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A detected incident on one edge. Published to the Redis hash and channel
+ * event:incident on every change; times are simulation seconds unless noted.
+ */
+@Data
+@NoArgsConstructor
+public class Incident {
+    private String incidentId;
+    private String edgeId;
+    private String edgeName;
+    private String type;            // SPEED_DROP, QUEUE_GROWTH or SPEED_DROP_AND_QUEUE
+    private String severity;        // LOW, MEDIUM, HIGH
+    private double severityScore;   // detector statistic over its threshold
+    private String status;          // ACTIVE or CLEARED
+    private double startSimTime;
+    private double lastSimTime;
+    private double speed;
+    private double baselineSpeed;
+    private double waitingVehicles;
+    private double baselineWaitingVehicles;
+    private long detectedAt;        // epoch millis
+}
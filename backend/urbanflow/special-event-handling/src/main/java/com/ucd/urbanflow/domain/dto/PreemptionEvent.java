@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreemptionEvent {
+    private String vehicleId;
+    private String junctionId;
+    private String action;              // PREEMPT or RESTORE
+    private int lightIndex;
+    private double etaSeconds;
+    private int durationSeconds;
+    private long decisionMicros;        // from frame read to command hand-off
+    private double simTime;
+    private long issuedAt;
+}
@@ -0,0 +1,17 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A signal-control command issued when a rule fires. Without a state it extends the
+ * junction's current phase by the duration, as the manual control endpoint does.
+ */
+@Data
+@NoArgsConstructor
+public class RuleAction {
+    private String junctionId;
+    private Integer lightIndex;
+    private String state;
+    private Integer duration;
+}
@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares an aggregate of one metric over a group of edges with a threshold, for
+ * example the average occupancy of the edges around a venue.
+ */
+@Data
+@NoArgsConstructor
+public class RuleCondition {
+    private List<String> edges = new ArrayList<>();
+    private String metric;                      // OCCUPANCY, SPEED, VEHICLES or WAITING
+    private String aggregate = "AVG";           // AVG, MAX, MIN or SUM
+    private String operator;                    // >, >=, < or <=
+    private double threshold;
+}
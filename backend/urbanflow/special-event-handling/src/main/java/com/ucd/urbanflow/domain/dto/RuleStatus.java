@@ -0,0 +1,20 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A loaded rule with its evaluation state; times are simulation seconds.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleStatus {
+    private EventRule rule;
+    private boolean active;
+    private int satisfiedConditions;
+    private long fireCount;
+    private double activatedSimTime;
+    private double lastFiredSimTime;
+}
@@ -0,0 +1,19 @@
+package com.ucd.urbanflow.domain.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of POST /api/signalcontrol/manual, mirrors ManualControlRequest in signal-control.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignalCommand {
+    private String junctionId;
+    private Integer lightIndex;
+    private Integer duration;
+    private String state;
+    private String source;
+}
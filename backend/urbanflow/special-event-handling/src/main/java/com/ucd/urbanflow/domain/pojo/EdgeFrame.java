@@ -0,0 +1,66 @@
+package com.ucd.urbanflow.domain.pojo;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * One tick of sumo:edge in flat arrays indexed by the feed's stable edge index.
+ * <p>
+ * The frame is reused from tick to tick: arrays only grow when new edges appear, so
+ * listeners can scan it without allocating. It is only valid for the duration of a
+ * {@code onFrame} call.
+ * <p>
+ * Vehicle ID lists are not kept; only vehicles registered with
+ * {@code EdgeFeedService#watch} are reported, as sightings.
+ */
+@Getter
+public class EdgeFrame {
+    private double simTime;
+    private long capturedAt;
+    private int edgeCount;
+    private String[] edgeIds = new String[0];
+    private String[] edgeNames = new String[0];
+    private boolean[] present = new boolean[0];
+    private float[] speed = new float[0];
+    private float[] vehicleCount = new float[0];
+    private float[] waitingCount = new float[0];
+    private int[] laneNumber = new int[0];
+
+    // watched vehicles seen in this frame, vehicle ID and edge index pairs
+    private int sightingCount;
+    private String[] sightedVehicles = new String[16];
+    private int[] sightedEdges = new int[16];
+    private long capturedNanos;
+
+    public void begin(double simTime, long capturedAt, String[] edgeIds, int edgeCount) {
+        this.simTime = simTime;
+        this.capturedAt = capturedAt;
+        this.capturedNanos = System.nanoTime();
+        this.sightingCount = 0;
+        this.edgeIds = edgeIds;
+        this.edgeCount = edgeCount;
+        if (present.length < edgeCount) {
+            int capacity = Math.max(edgeCount, present.length * 2);
+            edgeNames = Arrays.copyOf(edgeNames, capacity);
+            present = new boolean[capacity];
+            speed = Arrays.copyOf(speed, capacity);
+            vehicleCount = Arrays.copyOf(vehicleCount, capacity);
+            waitingCount = Arrays.copyOf(waitingCount, capacity);
+            laneNumber = Arrays.copyOf(laneNumber, capacity);
+        } else {
+            Arrays.fill(present, 0, edgeCount, false);
+        }
+    }
+
+    /** Records a watched vehicle on an edge; called from the parser threads. */
+    public synchronized void sight(String vehicleId, int edge) {
+        if (sightingCount == sightedVehicles.length) {
+            sightedVehicles = Arrays.copyOf(sightedVehicles, sightingCount * 2);
+            sightedEdges = Arrays.copyOf(sightedEdges, sightingCount * 2);
+        }
+        sightedVehicles[sightingCount] = vehicleId;
+        sightedEdges[sightingCount] = edge;
+        sightingCount++;
+    }
+}
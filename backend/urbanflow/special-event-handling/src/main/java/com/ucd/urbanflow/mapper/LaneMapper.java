@@ -0,0 +1,11 @@
+package com.ucd.urbanflow.mapper;
+
+import com.ucd.urbanflow.domain.pojo.LaneShape;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface LaneMapper {
+    List<LaneShape> findAllLaneShapes();
+}
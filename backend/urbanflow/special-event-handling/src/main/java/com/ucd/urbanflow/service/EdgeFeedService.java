@@ -0,0 +1,185 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.sumo.EdgeState;
+import com.ucd.urbanflow.common.sumo.SumoFrame;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Reads sumo:edge once per second into a reusable {@link EdgeFrame} and hands it to
+ * every {@link FrameListener}. Edge IDs are interned to stable indexes so detectors
+ * can keep per-edge state in primitive arrays across ticks.
+ * <p>
+ * Entries are decoded in parallel into one reused {@link EdgeState} per worker; vehicle
+ * ID lists are only fetched while some vehicle is watched, and only watched IDs are kept.
+ */
+@Service
+@Slf4j
+public class EdgeFeedService {
+
+    private final SumoStateReader sumoStateReader;
+    private final ForkJoinPool computePool;
+    private final ObjectProvider<FrameListener> listeners;
+    private final long pollMillis;
+
+    // interning, only touched from the polling thread
+    private final Map<String, Integer> edgeIndex = new HashMap<>();
+    private String[] edgeRegistry = new String[1024];
+    private int registeredEdges;
+
+    // vehicles whose position is reported in each frame
+    private final Set<String> watched = ConcurrentHashMap.newKeySet();
+    private volatile List<String> watchedPrefixes = List.of();
+
+    private final EdgeFrame frame = new EdgeFrame();
+    private final ThreadLocal<EdgeState> edgeState = ThreadLocal.withInitial(() -> {
+        EdgeState state = new EdgeState();
+        state.setVehicleFilter(this::isWatched);
+        return state;
+    });
+    private int[] slots = new int[0];
+
+    public EdgeFeedService(SumoStateReader sumoStateReader,
+                           ForkJoinPool computePool,
+                           ObjectProvider<FrameListener> listeners,
+                           @Value("${event.feed.poll-ms:1000}") long pollMillis) {
+        this.sumoStateReader = sumoStateReader;
+        this.computePool = computePool;
+        this.listeners = listeners;
+        this.pollMillis = pollMillis;
+    }
+
+    public void watch(String vehicleId) {
+        watched.add(vehicleId);
+    }
+
+    public void unwatch(String vehicleId) {
+        watched.remove(vehicleId);
+    }
+
+    /** Vehicles whose ID starts with one of these are watched without registration. */
+    public void watchPrefixes(List<String> prefixes) {
+        watchedPrefixes = List.copyOf(prefixes);
+    }
+
+    private boolean isWatched(String vehicleId) {
+        if (watched.contains(vehicleId)) {
+            return true;
+        }
+        for (String prefix : watchedPrefixes) {
+            if (vehicleId.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Scheduled(fixedRateString = "${event.feed.poll-ms:1000}")
+    public void poll() {
+        long start = System.nanoTime();
+        try {
+            if (!read()) {
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read sumo:edge from Redis: {}", e.getMessage());
+            return;
+        }
+        long readMillis = (System.nanoTime() - start) / 1_000_000;
+
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onFrame(frame);
+            } catch (Exception e) {
+                log.error("Frame listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        });
+
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+        if (totalMillis > pollMillis) {
+            log.warn("Edge feed cycle took {} ms (read {} ms), longer than the {} ms poll period",
+                    totalMillis, readMillis, pollMillis);
+        }
+    }
+
+    private boolean read() throws Exception {
+        boolean tracking = !watched.isEmpty() || !watchedPrefixes.isEmpty();
+        SumoFrame raw = sumoStateReader.readFrame(true, tracking, false);
+        if (raw.getEdgeCount() == 0) {
+            return false;
+        }
+
+        int n = raw.getEdgeCount();
+        if (slots.length < n) {
+            slots = new int[n];
+        }
+        for (int k = 0; k < n; k++) {
+            slots[k] = intern(raw.getEdgeId(k));
+        }
+
+        long now = System.currentTimeMillis();
+        double simTime = raw.getSimulationTime();
+        frame.begin(Double.isNaN(simTime) ? now / 1000.0 : simTime, now, edgeRegistry, registeredEdges);
+        int[] slotsRef = slots;
+        computePool.submit(() -> IntStream.range(0, n).parallel()
+                .forEach(i -> decode(raw, i, slotsRef[i], tracking))).get();
+        return true;
+    }
+
+    private void decode(SumoFrame raw, int i, int slot, boolean tracking) {
+        EdgeState edge = edgeState.get();
+        if (!tracking) {
+            // nothing is watched, skip the vehicle lists entirely
+            edge.setVehicleFilter(null);
+        } else if (edge.getVehicleFilter() == null) {
+            edge.setVehicleFilter(this::isWatched);
+        }
+        try {
+            raw.decodeEdge(i, edge);
+        } catch (Exception e) {
+            log.warn("Failed to decode edge {}", frame.getEdgeIds()[slot]);
+            return;
+        }
+        frame.getSpeed()[slot] = (float) edge.getSpeed();
+        frame.getVehicleCount()[slot] = edge.getVehicleCount();
+        frame.getWaitingCount()[slot] = edge.getWaitingVehicleCount();
+        frame.getLaneNumber()[slot] = edge.getLaneNumber();
+        String name = edge.getEdgeName();
+        if (name != null && !name.equals(frame.getEdgeNames()[slot])) {
+            frame.getEdgeNames()[slot] = name;
+        }
+        for (String vehicleId : edge.getVehicleIds()) {
+            frame.sight(vehicleId, slot);
+        }
+        frame.getPresent()[slot] = true;
+    }
+
+    private int intern(String edgeId) {
+        Integer index = edgeIndex.get(edgeId);
+        if (index != null) {
+            return index;
+        }
+        int slot = registeredEdges;
+        if (slot == edgeRegistry.length) {
+            edgeRegistry = Arrays.copyOf(edgeRegistry, slot * 2);
+        }
+        edgeRegistry[slot] = edgeId;
+        edgeIndex.put(edgeId, slot);
+        registeredEdges = slot + 1;
+        return slot;
+    }
+}
@@ -0,0 +1,318 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.EmergencyVehicleStatus;
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditPublisher;
+import com.ucd.urbanflow.domain.dto.PreemptionEvent;
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signal preemption for emergency vehicles.
+ * <p>
+ * Registered vehicles are watched by the edge feed, which reports only their sightings
+ * instead of materialising every vehicleIDs list. The vehicle-to-edge index is updated
+ * incrementally: an entry changes only when its vehicle shows up on a different edge,
+ * and that moment is kept as the entry time. The next signal is looked for at the end of
+ * the current edge and, when the vehicle was registered with its route, along the next
+ * few route edges; the arrival there is predicted from the edge lengths, the time on the
+ * current edge and its live speed. Once it is within the lead time, that approach is
+ * switched to green through signal-control for the predicted arrival plus a clearance,
+ * and released again when the vehicle's next signal is a different one.
+ * <p>
+ * Vehicles that stay lost are forgotten after a while. Unregistered IDs are remembered
+ * for as long as they keep being sighted (and a while after), so a prefix match does not
+ * bring them straight back.
+ * <p>
+ * This listener runs first on the frame thread and does a few hash lookups per watched
+ * vehicle; the HTTP call is handed off, so the decision path stays far below the 100 ms
+ * budget. The measured time from frame read to hand-off is recorded with every event.
+ */
+@Service
+@Order(5)
+@Slf4j
+public class EmergencyPreemptionService implements FrameListener {
+
+    private static final String SOURCE = "emergency-preemption";
+    private static final int MAX_EVENTS = 200;
+
+    private final EdgeFeedService edgeFeedService;
+    private final SignalTopologyService topology;
+    private final SignalControlClient signalControlClient;
+    private final AuditPublisher auditPublisher;
+    private final double leadSeconds;
+    private final double clearanceSeconds;
+    private final float minSpeed;
+    private final float speedFactor;
+    private final float defaultEdgeLength;
+    private final int lostTicks;
+    private final int forgetTicks;
+    private final int lookaheadEdges;
+    private final boolean restoreOnPass;
+    private final List<String> idPrefixes;
+
+    private final Map<String, Tracked> vehicles = new ConcurrentHashMap<>();
+    // unregistered vehicle ID -> tick it was last unregistered or sighted
+    private final Map<String, Long> unregistered = new ConcurrentHashMap<>();
+    private final Deque<PreemptionEvent> events = new ArrayDeque<>();
+    private volatile long tick;
+
+    public EmergencyPreemptionService(EdgeFeedService edgeFeedService,
+                                      SignalTopologyService topology,
+                                      SignalControlClient signalControlClient,
+                                      AuditPublisher auditPublisher,
+                                      @Value("${event.preemption.lead-seconds:20}") double leadSeconds,
+                                      @Value("${event.preemption.clearance-seconds:8}") double clearanceSeconds,
+                                      @Value("${event.preemption.min-speed-mps:2}") float minSpeed,
+                                      @Value("${event.preemption.speed-factor:1.2}") float speedFactor,
+                                      @Value("${event.preemption.default-edge-length-m:100}") float defaultEdgeLength,
+                                      @Value("${event.preemption.lost-ticks:5}") int lostTicks,
+                                      @Value("${event.preemption.forget-ticks:300}") int forgetTicks,
+                                      @Value("${event.preemption.lookahead-edges:5}") int lookaheadEdges,
+                                      @Value("${event.preemption.restore-on-pass:true}") boolean restoreOnPass,
+                                      @Value("${event.preemption.id-prefixes:}") List<String> idPrefixes) {
+        this.edgeFeedService = edgeFeedService;
+        this.topology = topology;
+        this.signalControlClient = signalControlClient;
+        this.auditPublisher = auditPublisher;
+        this.leadSeconds = leadSeconds;
+        this.clearanceSeconds = clearanceSeconds;
+        this.minSpeed = minSpeed;
+        this.speedFactor = speedFactor;
+        this.defaultEdgeLength = defaultEdgeLength;
+        this.lostTicks = lostTicks;
+        this.forgetTicks = forgetTicks;
+        this.lookaheadEdges = lookaheadEdges;
+        this.restoreOnPass = restoreOnPass;
+        this.idPrefixes = idPrefixes.stream().filter(p -> !p.isBlank()).toList();
+    }
+
+    @PostConstruct
+    public void init() {
+        edgeFeedService.watchPrefixes(idPrefixes);
+    }
+
+    /** Starts tracking the vehicle; the route (edge IDs, may be null) enables the lookahead. */
+    public EmergencyVehicleStatus register(String vehicleId, List<String> route) {
+        unregistered.remove(vehicleId);
+        Tracked tracked = vehicles.computeIfAbsent(vehicleId, Tracked::new);
+        if (route != null) {
+            tracked.route = List.copyOf(route);
+            tracked.routeChanged = true;
+        }
+        edgeFeedService.watch(vehicleId);
+        return tracked.status();
+    }
+
+    /**
+     * Stops tracking the vehicle. The entry itself is dropped, and a held signal released,
+     * by the frame thread on its next tick.
+     */
+    public boolean unregister(String vehicleId) {
+        edgeFeedService.unwatch(vehicleId);
+        unregistered.put(vehicleId, tick);
+        return vehicles.containsKey(vehicleId);
+    }
+
+    public List<EmergencyVehicleStatus> getVehicles() {
+        List<EmergencyVehicleStatus> result = new ArrayList<>();
+        for (Tracked tracked : vehicles.values()) {
+            if (!unregistered.containsKey(tracked.vehicleId)) {
+                result.add(tracked.status());
+            }
+        }
+        return result;
+    }
+
+    public List<PreemptionEvent> getEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    @Override
+    public void onFrame(EdgeFrame frame) {
+        long tick = ++this.tick;
+        double now = frame.getSimTime();
+        String[] sighted = frame.getSightedVehicles();
+        int[] sightedEdges = frame.getSightedEdges();
+
+        for (int i = 0; i < frame.getSightingCount(); i++) {
+            if (unregistered.computeIfPresent(sighted[i], (id, seen) -> tick) != null) {
+                continue;
+            }
+            Tracked t = vehicles.computeIfAbsent(sighted[i], Tracked::new);
+            int edge = sightedEdges[i];
+            t.lastSeenTick = tick;
+            t.lastSeenSimTime = now;
+
+            if (edge != t.edge || t.routeChanged) {
+                if (edge != t.edge) {
+                    t.edge = edge;
+                    t.edgeId = frame.getEdgeIds()[edge];
+                    t.enteredSimTime = now;
+                }
+                t.routeChanged = false;
+                lookAhead(t);
+                // the next signal is a different one, so the held signal was passed or left behind
+                if (t.preemptedJunction != null
+                        && (t.approach == null || !t.preemptedJunction.equals(t.approach.junctionId()))) {
+                    if (restoreOnPass) {
+                        restore(frame, t);
+                    }
+                    t.preemptedJunction = null;
+                }
+            }
+            t.state = "TRACKING";
+
+            if (t.approach == null) {
+                t.eta = -1;
+                continue;
+            }
+            float speed = Math.max(minSpeed, frame.getSpeed()[edge] * speedFactor);
+            double remaining = Math.max(0.0, t.distanceToStop - speed * (now - t.enteredSimTime));
+            t.eta = remaining / speed;
+
+            if (t.preemptedJunction == null && t.eta <= leadSeconds) {
+                preempt(frame, t);
+            }
+        }
+
+        for (Iterator<Tracked> it = vehicles.values().iterator(); it.hasNext(); ) {
+            Tracked t = it.next();
+            if (unregistered.containsKey(t.vehicleId)) {
+                if (t.preemptedJunction != null && restoreOnPass) {
+                    restore(frame, t);
+                }
+                it.remove();
+            } else if ("TRACKING".equals(t.state) && tick - t.lastSeenTick >= lostTicks) {
+                // left the network or the feed lost it; release a held signal
+                if (t.preemptedJunction != null && restoreOnPass) {
+                    restore(frame, t);
+                }
+                t.state = "LOST";
+                t.edge = -1;
+                t.preemptedJunction = null;
+            } else if ("LOST".equals(t.state) && tick - t.lastSeenTick >= forgetTicks) {
+                it.remove();
+                edgeFeedService.unwatch(t.vehicleId);
+            }
+        }
+        if (!unregistered.isEmpty()) {
+            unregistered.values().removeIf(seen -> tick - seen >= forgetTicks);
+        }
+    }
+
+    /**
+     * Finds the next signal: at the end of the current edge, or else at the end of one of
+     * the next route edges, and the distance to its stop line from the start of the
+     * current edge. Without a route, or off it, only the current edge is looked at.
+     */
+    private void lookAhead(Tracked t) {
+        List<String> route = t.route;
+        int position = -1;
+        if (route != null) {
+            int from = Math.max(t.routeIndex, 0);
+            int found = route.subList(from, route.size()).indexOf(t.edgeId);
+            position = found < 0 ? -1 : from + found;
+        }
+        t.routeIndex = position;
+
+        String edgeId = t.edgeId;
+        double distance = edgeLength(edgeId);
+        SignalTopologyService.Approach approach = topology.approachOf(edgeId);
+        for (int k = 1; approach == null && position >= 0 && k <= lookaheadEdges
+                && position + k < route.size(); k++) {
+            edgeId = route.get(position + k);
+            distance += edgeLength(edgeId);
+            approach = topology.approachOf(edgeId);
+        }
+        t.approach = approach;
+        t.distanceToStop = distance;
+    }
+
+    private float edgeLength(String edgeId) {
+        float length = topology.lengthOf(edgeId);
+        return Float.isNaN(length) ? defaultEdgeLength : length;
+    }
+
+    private void preempt(EdgeFrame frame, Tracked t) {
+        int duration = (int) Math.ceil(t.eta + clearanceSeconds);
+        SignalCommand command = new SignalCommand(t.approach.junctionId(), t.approach.lightIndex(), duration, "G", SOURCE);
+        if (!signalControlClient.submit(command)) {
+            return;
+        }
+        long micros = (System.nanoTime() - frame.getCapturedNanos()) / 1000;
+        t.preemptedJunction = t.approach.junctionId();
+        record(new PreemptionEvent(t.vehicleId, t.preemptedJunction, "PREEMPT", t.approach.lightIndex(), t.eta,
+                duration, micros, frame.getSimTime(), System.currentTimeMillis()));
+        log.info("Preempting junction {} for {} (eta {} s, decided in {} us)", t.preemptedJunction, t.vehicleId,
+                Math.round(t.eta), micros);
+    }
+
+    /** Ends the forced green early so the junction resumes its own program. */
+    private void restore(EdgeFrame frame, Tracked t) {
+        SignalCommand command = new SignalCommand(t.preemptedJunction, null, 1, null, SOURCE);
+        if (signalControlClient.submit(command)) {
+            long micros = (System.nanoTime() - frame.getCapturedNanos()) / 1000;
+            record(new PreemptionEvent(t.vehicleId, t.preemptedJunction, "RESTORE", -1, 0, 1, micros,
+                    frame.getSimTime(), System.currentTimeMillis()));
+        }
+    }
+
+    private void record(PreemptionEvent event) {
+        synchronized (events) {
+            if (events.size() == MAX_EVENTS) {
+                events.removeFirst();
+            }
+            events.addLast(event);
+        }
+        AuditEvent audit = new AuditEvent(event.getAction(), event.getJunctionId(), event.getVehicleId(), "SUBMITTED");
+        audit.setSource(SOURCE);
+        audit.setDetail("lightIndex=" + event.getLightIndex() + " eta=" + Math.round(event.getEtaSeconds())
+                + "s duration=" + event.getDurationSeconds() + "s");
+        auditPublisher.publish(audit);
+    }
+
+    /** Tracking state of one vehicle, written only from the frame thread apart from the route. */
+    private static final class Tracked {
+        final String vehicleId;
+        volatile String state = "WAITING";
+        volatile int edge = -1;
+        volatile String edgeId;
+        volatile double enteredSimTime;
+        // edge IDs from registration, null when unknown; routeIndex is the current edge's position
+        volatile List<String> route;
+        volatile boolean routeChanged;
+        int routeIndex = -1;
+        volatile SignalTopologyService.Approach approach;
+        double distanceToStop;
+        volatile double eta = -1;
+        volatile String preemptedJunction;
+        volatile double lastSeenSimTime = -1;
+        long lastSeenTick;
+
+        Tracked(String vehicleId) {
+            this.vehicleId = vehicleId;
+        }
+
+        EmergencyVehicleStatus status() {
+            SignalTopologyService.Approach a = approach;
+            return new EmergencyVehicleStatus(vehicleId, state, edgeId, enteredSimTime,
+                    a == null ? null : a.junctionId(), eta, preemptedJunction, lastSeenSimTime);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+
+/**
+ * Receives every frame read by {@link EdgeFeedService}, on the polling thread and in
+ * {@link org.springframework.core.annotation.Order} order.
+ */
+public interface FrameListener {
+
+    void onFrame(EdgeFrame frame);
+}
@@ -0,0 +1,274 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.domain.dto.Incident;
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming incident detection on every edge of the live feed.
+ * <p>
+ * Each edge keeps a baseline of speed and waiting vehicles per time-of-day bucket
+ * (exponentially weighted mean and variance, learned online and frozen while the edge
+ * is alarming). Every tick the standardised residuals feed two one-sided CUSUM
+ * statistics, one for a speed drop and one for queue growth; crossing the threshold
+ * opens an incident, staying below a fraction of it for a number of ticks clears it.
+ * <p>
+ * All state is in primitive arrays indexed by the feed's edge index, [edge * buckets +
+ * bucket] for the baselines, so the scan over all edges allocates nothing. Objects are
+ * only created when an incident opens, changes severity or clears.
+ */
+@Service
+@Order(10)
+@Slf4j
+public class IncidentDetectionService implements FrameListener {
+
+    public static final String KEY_INCIDENTS = "event:incident";
+    private static final String SPEED_DROP = "SPEED_DROP";
+    private static final String QUEUE_GROWTH = "QUEUE_GROWTH";
+    private static final String BOTH = "SPEED_DROP_AND_QUEUE";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final int buckets;
+    private final double bucketSeconds;
+    private final int minSamples;
+    private final float slack;
+    private final float threshold;
+    private final float clearRatio;
+    private final int clearTicks;
+    private final float minSpeedSd;
+    private final float minWaitingSd;
+    private final float minSpeedDrop;
+    private final float minWaitingExcess;
+    private final float alphaMin;
+
+    // per edge and bucket
+    private int capacity;
+    private float[] speedMean = new float[0];
+    private float[] speedVar = new float[0];
+    private float[] waitMean = new float[0];
+    private float[] waitVar = new float[0];
+    private int[] samples = new int[0];
+    // per edge
+    private float[] speedStat = new float[0];
+    private float[] waitStat = new float[0];
+    private int[] quietTicks = new int[0];
+    private byte[] level = new byte[0];        // 0 none, 1..3 severity of the open incident
+    private double lastSimTime = Double.NaN;
+
+    private final Map<String, Incident> active = new ConcurrentHashMap<>();
+
+    public IncidentDetectionService(StringRedisTemplate redisTemplate,
+                                    ObjectMapper objectMapper,
+                                    @Value("${event.incident.bucket-minutes:60}") int bucketMinutes,
+                                    @Value("${event.incident.min-samples:30}") int minSamples,
+                                    @Value("${event.incident.slack:0.5}") float slack,
+                                    @Value("${event.incident.threshold:8}") float threshold,
+                                    @Value("${event.incident.clear-ratio:0.3}") float clearRatio,
+                                    @Value("${event.incident.clear-ticks:30}") int clearTicks,
+                                    @Value("${event.incident.min-speed-sd:0.5}") float minSpeedSd,
+                                    @Value("${event.incident.min-waiting-sd:1.0}") float minWaitingSd,
+                                    @Value("${event.incident.min-speed-drop-mps:2}") float minSpeedDrop,
+                                    @Value("${event.incident.min-waiting-excess:3}") float minWaitingExcess,
+                                    @Value("${event.incident.alpha-min:0.01}") float alphaMin) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.buckets = Math.max(1, 24 * 60 / Math.max(1, bucketMinutes));
+        this.bucketSeconds = 86400.0 / buckets;
+        this.minSamples = minSamples;
+        this.slack = slack;
+        this.threshold = threshold;
+        this.clearRatio = clearRatio;
+        this.clearTicks = clearTicks;
+        this.minSpeedSd = minSpeedSd;
+        this.minWaitingSd = minWaitingSd;
+        this.minSpeedDrop = minSpeedDrop;
+        this.minWaitingExcess = minWaitingExcess;
+        this.alphaMin = alphaMin;
+    }
+
+    public List<Incident> getActiveIncidents() {
+        return new ArrayList<>(active.values());
+    }
+
+    public Incident getIncident(String edgeId) {
+        return active.get(edgeId);
+    }
+
+    @Override
+    public void onFrame(EdgeFrame frame) {
+        double simTime = frame.getSimTime();
+        if (simTime == lastSimTime) {
+            return;   // simulation paused, nothing new to learn from
+        }
+        lastSimTime = simTime;
+        ensureCapacity(frame.getEdgeCount());
+
+        int bucket = (int) (((simTime % 86400) + 86400) % 86400 / bucketSeconds);
+        boolean[] present = frame.getPresent();
+        float[] speed = frame.getSpeed();
+        float[] waiting = frame.getWaitingCount();
+        float hold = threshold * 0.5f;
+        float clear = threshold * clearRatio;
+
+        for (int e = 0; e < frame.getEdgeCount(); e++) {
+            if (!present[e]) {
+                continue;
+            }
+            int b = e * buckets + bucket;
+            float x = speed[e];
+            float w = waiting[e];
+            int n = samples[b];
+
+            if (n >= minSamples) {
+                float speedSd = (float) Math.sqrt(Math.max(speedVar[b], minSpeedSd * minSpeedSd));
+                float waitSd = (float) Math.sqrt(Math.max(waitVar[b], minWaitingSd * minWaitingSd));
+                float zs = (speedMean[b] - x) / speedSd;
+                float zw = (w - waitMean[b]) / waitSd;
+                // capped so that a long incident clears promptly once traffic recovers
+                speedStat[e] = Math.min(2 * threshold, Math.max(0f, speedStat[e] + zs - slack));
+                waitStat[e] = Math.min(2 * threshold, Math.max(0f, waitStat[e] + zw - slack));
+
+                if (level[e] == 0) {
+                    boolean speedAlarm = speedStat[e] > threshold && speedMean[b] - x >= minSpeedDrop;
+                    boolean waitAlarm = waitStat[e] > threshold && w - waitMean[b] >= minWaitingExcess;
+                    if (speedAlarm || waitAlarm) {
+                        open(frame, e, b, speedAlarm, waitAlarm);
+                    }
+                } else if (speedStat[e] < clear && waitStat[e] < clear) {
+                    if (++quietTicks[e] >= clearTicks) {
+                        close(frame, e, b);
+                    }
+                } else {
+                    quietTicks[e] = 0;
+                    int severity = severity(e);
+                    if (severity != level[e]) {
+                        level[e] = (byte) severity;
+                        publish(update(frame, e, b));
+                    }
+                }
+            }
+
+            // learn the baseline only from normal traffic
+            if (level[e] == 0 && speedStat[e] < hold && waitStat[e] < hold) {
+                float a = Math.max(alphaMin, 1f / (n + 1));
+                float ds = x - speedMean[b];
+                speedMean[b] += a * ds;
+                speedVar[b] = (1 - a) * (speedVar[b] + a * ds * ds);
+                float dw = w - waitMean[b];
+                waitMean[b] += a * dw;
+                waitVar[b] = (1 - a) * (waitVar[b] + a * dw * dw);
+                if (n < Integer.MAX_VALUE) {
+                    samples[b] = n + 1;
+                }
+            }
+        }
+    }
+
+    private int severity(int e) {
+        float score = Math.max(speedStat[e], waitStat[e]) / threshold;
+        return score >= 1.75f ? 3 : score >= 1.25f ? 2 : 1;
+    }
+
+    private void open(EdgeFrame frame, int e, int b, boolean speedAlarm, boolean waitAlarm) {
+        level[e] = (byte) severity(e);
+        quietTicks[e] = 0;
+        Incident incident = new Incident();
+        incident.setIncidentId(UUID.randomUUID().toString());
+        incident.setEdgeId(frame.getEdgeIds()[e]);
+        incident.setEdgeName(frame.getEdgeNames()[e]);
+        incident.setType(speedAlarm && waitAlarm ? BOTH : speedAlarm ? SPEED_DROP : QUEUE_GROWTH);
+        incident.setStartSimTime(frame.getSimTime());
+        incident.setDetectedAt(System.currentTimeMillis());
+        active.put(incident.getEdgeId(), incident);
+        fill(incident, frame, e, b);
+        log.info("Incident {} on edge {}: {} {}", incident.getIncidentId(), incident.getEdgeId(),
+                incident.getType(), incident.getSeverity());
+        publish(incident);
+    }
+
+    private Incident update(EdgeFrame frame, int e, int b) {
+        Incident incident = active.get(frame.getEdgeIds()[e]);
+        if (incident != null) {
+            fill(incident, frame, e, b);
+        }
+        return incident;
+    }
+
+    private void close(EdgeFrame frame, int e, int b) {
+        level[e] = 0;
+        quietTicks[e] = 0;
+        speedStat[e] = 0f;
+        waitStat[e] = 0f;
+        Incident incident = active.remove(frame.getEdgeIds()[e]);
+        if (incident == null) {
+            return;
+        }
+        fill(incident, frame, e, b);
+        incident.setStatus("CLEARED");
+        incident.setSeverity("NONE");
+        log.info("Incident {} on edge {} cleared", incident.getIncidentId(), incident.getEdgeId());
+        publish(incident);
+    }
+
+    private void fill(Incident incident, EdgeFrame frame, int e, int b) {
+        incident.setStatus("ACTIVE");
+        incident.setSeverity(level[e] == 3 ? "HIGH" : level[e] == 2 ? "MEDIUM" : "LOW");
+        incident.setSeverityScore(Math.max(speedStat[e], waitStat[e]) / threshold);
+        incident.setLastSimTime(frame.getSimTime());
+        incident.setSpeed(frame.getSpeed()[e]);
+        incident.setBaselineSpeed(speedMean[b]);
+        incident.setWaitingVehicles(frame.getWaitingCount()[e]);
+        incident.setBaselineWaitingVehicles(waitMean[b]);
+    }
+
+    /**
+     * Active incidents live in the event:incident hash for late joiners; every change is
+     * also published on the event:incident channel.
+     */
+    private void publish(Incident incident) {
+        if (incident == null) {
+            return;
+        }
+        try {
+            String json = objectMapper.writeValueAsString(incident);
+            if ("CLEARED".equals(incident.getStatus())) {
+                redisTemplate.opsForHash().delete(KEY_INCIDENTS, incident.getEdgeId());
+            } else {
+                redisTemplate.opsForHash().put(KEY_INCIDENTS, incident.getEdgeId(), json);
+            }
+            redisTemplate.convertAndSend(KEY_INCIDENTS, json);
+        } catch (Exception e) {
+            log.warn("Failed to publish incident {}: {}", incident.getIncidentId(), e.getMessage());
+        }
+    }
+
+    private void ensureCapacity(int edges) {
+        if (edges <= capacity) {
+            return;
+        }
+        int grown = Math.max(edges, capacity * 2);
+        speedMean = Arrays.copyOf(speedMean, grown * buckets);
+        speedVar = Arrays.copyOf(speedVar, grown * buckets);
+        waitMean = Arrays.copyOf(waitMean, grown * buckets);
+        waitVar = Arrays.copyOf(waitVar, grown * buckets);
+        samples = Arrays.copyOf(samples, grown * buckets);
+        speedStat = Arrays.copyOf(speedStat, grown);
+        waitStat = Arrays.copyOf(waitStat, grown);
+        quietTicks = Arrays.copyOf(quietTicks, grown);
+        level = Arrays.copyOf(level, grown);
+        capacity = grown;
+    }
+}
@@ -0,0 +1,348 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditPublisher;
+import com.ucd.urbanflow.domain.dto.EventRule;
+import com.ucd.urbanflow.domain.dto.RuleAction;
+import com.ucd.urbanflow.domain.dto.RuleCondition;
+import com.ucd.urbanflow.domain.dto.RuleStatus;
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Declarative special-event rules (stadium egress, closures, parades) evaluated
+ * incrementally against the edge feed.
+ * <p>
+ * Enabled rules are compiled into a {@link RuleNetwork}; a frame only re-evaluates the
+ * conditions whose edges changed, and only rules whose conditions flipped change state.
+ * When a rule becomes active its actions go to signal-control, and they are re-issued
+ * shortly before they expire for as long as the rule stays active. Rules come from the
+ * file at event.rules.location on startup and from the REST API; any change recompiles
+ * the network, which the frame thread picks up on its next frame.
+ */
+@Service
+@Order(20)
+@Slf4j
+public class RuleEngineService implements FrameListener {
+
+    private static final String SOURCE = "event-rules";
+
+    private final SignalTopologyService topology;
+    private final SignalControlClient signalControlClient;
+    private final AuditPublisher auditPublisher;
+    private final ObjectMapper objectMapper;
+    private final ResourceLoader resourceLoader;
+    private final String rulesLocation;
+    private final float epsilon;
+    private final float vehicleSpacing;
+    private final float defaultEdgeLength;
+    private final double refreshLeadSeconds;
+
+    private final Map<String, EventRule> rules = new ConcurrentHashMap<>();
+    private final Map<String, RuleState> states = new ConcurrentHashMap<>();
+    private volatile RuleNetwork network;
+
+    // counters of the last frame, for the stats endpoint
+    private volatile long frames;
+    private volatile int lastChangedInputs;
+    private volatile int lastAggregatesEvaluated;
+    private volatile int lastRulesEvaluated;
+    private volatile long lastFrameMicros;
+    private volatile long firings;
+
+    public RuleEngineService(SignalTopologyService topology,
+                             SignalControlClient signalControlClient,
+                             AuditPublisher auditPublisher,
+                             ObjectMapper objectMapper,
+                             ResourceLoader resourceLoader,
+                             @Value("${event.rules.location:}") String rulesLocation,
+                             @Value("${event.rules.epsilon:0.01}") float epsilon,
+                             @Value("${event.rules.vehicle-spacing-m:7.5}") float vehicleSpacing,
+                             @Value("${event.preemption.default-edge-length-m:100}") float defaultEdgeLength,
+                             @Value("${event.rules.refresh-lead-seconds:3}") double refreshLeadSeconds) {
+        this.topology = topology;
+        this.signalControlClient = signalControlClient;
+        this.auditPublisher = auditPublisher;
+        this.objectMapper = objectMapper;
+        this.resourceLoader = resourceLoader;
+        this.rulesLocation = rulesLocation;
+        this.epsilon = epsilon;
+        this.vehicleSpacing = vehicleSpacing;
+        this.defaultEdgeLength = defaultEdgeLength;
+        this.refreshLeadSeconds = refreshLeadSeconds;
+        this.network = RuleNetwork.compile(List.of(), epsilon, vehicleSpacing, defaultEdgeLength);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (rulesLocation == null || rulesLocation.isBlank()) {
+            return;
+        }
+        Resource resource = resourceLoader.getResource(rulesLocation);
+        if (!resource.exists()) {
+            log.warn("Rule file {} not found", rulesLocation);
+            return;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            List<EventRule> loaded = objectMapper.readValue(in, new TypeReference<List<EventRule>>() {});
+            for (EventRule rule : loaded) {
+                try {
+                    validate(rule);
+                    rules.put(rule.getId(), rule);
+                    states.putIfAbsent(rule.getId(), new RuleState());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping rule {} from {}: {}", rule.getId(), rulesLocation, e.getMessage());
+                }
+            }
+            recompile();
+            log.info("Loaded {} event rules from {}", rules.size(), rulesLocation);
+        } catch (Exception e) {
+            log.warn("Failed to load event rules from {}: {}", rulesLocation, e.getMessage());
+        }
+    }
+
+    /** Adds or replaces a rule. Throws IllegalArgumentException for an invalid rule. */
+    public RuleStatus save(EventRule rule) {
+        if (rule.getId() == null || rule.getId().isBlank()) {
+            rule.setId(UUID.randomUUID().toString().substring(0, 8));
+        }
+        validate(rule);
+        rules.put(rule.getId(), rule);
+        states.putIfAbsent(rule.getId(), new RuleState());
+        recompile();
+        return getRule(rule.getId());
+    }
+
+    public boolean delete(String ruleId) {
+        if (rules.remove(ruleId) == null) {
+            return false;
+        }
+        states.remove(ruleId);
+        recompile();
+        return true;
+    }
+
+    public RuleStatus setEnabled(String ruleId, boolean enabled) {
+        EventRule rule = rules.get(ruleId);
+        if (rule == null) {
+            return null;
+        }
+        rule.setEnabled(enabled);
+        if (!enabled) {
+            RuleState state = states.get(ruleId);
+            if (state != null) {
+                state.active = false;
+            }
+        }
+        recompile();
+        return getRule(ruleId);
+    }
+
+    public List<RuleStatus> getRules() {
+        List<RuleStatus> result = new ArrayList<>();
+        for (EventRule rule : rules.values()) {
+            result.add(status(rule));
+        }
+        result.sort(Comparator.comparing(s -> s.getRule().getId()));
+        return result;
+    }
+
+    public RuleStatus getRule(String ruleId) {
+        EventRule rule = rules.get(ruleId);
+        return rule == null ? null : status(rule);
+    }
+
+    public Map<String, Object> getStats() {
+        RuleNetwork net = network;
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rules", rules.size());
+        stats.put("compiledRules", net.ruleCount());
+        stats.put("edgeInputs", net.slotCount());
+        stats.put("aggregateNodes", net.aggregateCount());
+        stats.put("testNodes", net.testCount());
+        stats.put("frames", frames);
+        stats.put("firings", firings);
+        stats.put("lastChangedInputs", lastChangedInputs);
+        stats.put("lastAggregatesEvaluated", lastAggregatesEvaluated);
+        stats.put("lastRulesEvaluated", lastRulesEvaluated);
+        stats.put("lastFrameMicros", lastFrameMicros);
+        return stats;
+    }
+
+    @Override
+    public void onFrame(EdgeFrame frame) {
+        RuleNetwork net = network;
+        if (net.ruleCount() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        double now = frame.getSimTime();
+
+        net.resolve(frame.getEdgeIds(), frame.getEdgeCount());
+        int changed = net.scan(frame, topology);
+        int aggregates = net.propagate();
+
+        BitSet active = net.activeRules();
+        int dirty = net.dirtyRuleCount();
+        for (int i = 0; i < dirty; i++) {
+            int r = net.dirtyRule(i);
+            EventRule rule = net.rule(r);
+            RuleState state = states.get(rule.getId());
+            if (state == null) {
+                continue;
+            }
+            boolean satisfied = net.isSatisfied(r);
+            if (satisfied) {
+                active.set(r);
+                if (!state.active) {
+                    state.active = true;
+                    state.activatedSimTime = now;
+                    state.dueAt = Math.max(now, state.cooldownUntil);
+                    log.info("Event rule {} activated at {}", rule.getId(), now);
+                }
+            } else {
+                active.clear(r);
+                if (state.active) {
+                    state.active = false;
+                    log.info("Event rule {} cleared at {}", rule.getId(), now);
+                }
+            }
+        }
+        net.clearDirtyRules();
+
+        for (int r = active.nextSetBit(0); r >= 0; r = active.nextSetBit(r + 1)) {
+            EventRule rule = net.rule(r);
+            RuleState state = states.get(rule.getId());
+            if (state != null && now >= state.dueAt) {
+                fire(rule, state, now);
+            }
+        }
+
+        frames++;
+        lastChangedInputs = changed;
+        lastAggregatesEvaluated = aggregates;
+        lastRulesEvaluated = dirty;
+        lastFrameMicros = (System.nanoTime() - start) / 1000;
+    }
+
+    private void fire(EventRule rule, RuleState state, double now) {
+        int shortest = Integer.MAX_VALUE;
+        for (RuleAction action : rule.getActions()) {
+            SignalCommand command = new SignalCommand(action.getJunctionId(), action.getLightIndex(),
+                    action.getDuration(), action.getState(), SOURCE);
+            boolean queued = signalControlClient.submit(command);
+            AuditEvent audit = new AuditEvent("RULE_FIRED", action.getJunctionId(), rule.getId(),
+                    queued ? "SUBMITTED" : "DROPPED");
+            audit.setSource(SOURCE);
+            audit.setDetail("state=" + action.getState() + " duration=" + action.getDuration() + "s simTime=" + now);
+            auditPublisher.publish(audit);
+            shortest = Math.min(shortest, action.getDuration());
+        }
+        state.fireCount++;
+        state.lastFiredSimTime = now;
+        state.cooldownUntil = now + rule.getCooldownSeconds();
+        double next = rule.isRefresh() ? now + Math.max(1.0, shortest - refreshLeadSeconds) : Double.POSITIVE_INFINITY;
+        state.dueAt = Math.max(next, state.cooldownUntil);
+        firings++;
+        log.debug("Event rule {} fired {} actions at {}", rule.getId(), rule.getActions().size(), now);
+    }
+
+    private synchronized void recompile() {
+        List<EventRule> enabled = new ArrayList<>();
+        for (EventRule rule : rules.values()) {
+            if (rule.isEnabled()) {
+                enabled.add(rule);
+            }
+        }
+        enabled.sort(Comparator.comparing(EventRule::getId));
+        network = RuleNetwork.compile(enabled, epsilon, vehicleSpacing, defaultEdgeLength);
+    }
+
+    private RuleStatus status(EventRule rule) {
+        RuleNetwork net = network;
+        int r = net.indexOfRule(rule.getId());
+        RuleState state = states.get(rule.getId());
+        if (state == null) {
+            state = new RuleState();
+        }
+        return new RuleStatus(rule, state.active, r < 0 ? 0 : net.satisfiedConditions(r), state.fireCount,
+                state.activatedSimTime, state.lastFiredSimTime);
+    }
+
+    private static void validate(EventRule rule) {
+        if (rule.getId() == null || rule.getId().isBlank()) {
+            throw new IllegalArgumentException("Rule id is required");
+        }
+        String match = rule.getMatch();
+        if (match != null && !"ALL".equalsIgnoreCase(match) && !"ANY".equalsIgnoreCase(match)) {
+            throw new IllegalArgumentException("match must be ALL or ANY");
+        }
+        if (rule.getConditions() == null || rule.getConditions().isEmpty()) {
+            throw new IllegalArgumentException("Rule " + rule.getId() + " has no conditions");
+        }
+        for (RuleCondition condition : rule.getConditions()) {
+            if (condition.getEdges() == null || condition.getEdges().isEmpty()) {
+                throw new IllegalArgumentException("Condition without edges in rule " + rule.getId());
+            }
+            if (RuleNetwork.metricOf(condition.getMetric()) < 0) {
+                throw new IllegalArgumentException("Unknown metric " + condition.getMetric()
+                        + ", expected OCCUPANCY, SPEED, VEHICLES or WAITING");
+            }
+            if (RuleNetwork.aggregateOf(condition.getAggregate()) < 0) {
+                throw new IllegalArgumentException("Unknown aggregate " + condition.getAggregate()
+                        + ", expected AVG, MAX, MIN or SUM");
+            }
+            if (RuleNetwork.operatorOf(condition.getOperator()) < 0) {
+                throw new IllegalArgumentException("Unknown operator " + condition.getOperator()
+                        + ", expected >, >=, < or <=");
+            }
+        }
+        if (rule.getActions() == null || rule.getActions().isEmpty()) {
+            throw new IllegalArgumentException("Rule " + rule.getId() + " has no actions");
+        }
+        for (RuleAction action : rule.getActions()) {
+            if (action.getJunctionId() == null || action.getJunctionId().isBlank()) {
+                throw new IllegalArgumentException("Action without junctionId in rule " + rule.getId());
+            }
+            if (action.getDuration() == null || action.getDuration() <= 0) {
+                throw new IllegalArgumentException("Action for " + action.getJunctionId() + " needs a positive duration");
+            }
+            boolean hasState = action.getState() != null && !action.getState().isBlank();
+            if (hasState && action.getLightIndex() == null) {
+                throw new IllegalArgumentException("Action for " + action.getJunctionId() + " sets a state without lightIndex");
+            }
+        }
+        if (rule.getCooldownSeconds() < 0) {
+            throw new IllegalArgumentException("cooldownSeconds must not be negative");
+        }
+    }
+
+    /** Evaluation state of one rule, kept across recompilations. */
+    private static final class RuleState {
+        volatile boolean active;
+        volatile double activatedSimTime = -1;
+        volatile double lastFiredSimTime = -1;
+        volatile double cooldownUntil = Double.NEGATIVE_INFINITY;
+        volatile double dueAt = Double.POSITIVE_INFINITY;
+        volatile long fireCount;
+    }
+}
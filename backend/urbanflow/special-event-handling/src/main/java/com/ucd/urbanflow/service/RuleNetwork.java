@@ -0,0 +1,463 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.EventRule;
+import com.ucd.urbanflow.domain.dto.RuleCondition;
+import com.ucd.urbanflow.domain.pojo.EdgeFrame;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The enabled rules compiled into a discrimination network in the style of RETE.
+ * <p>
+ * Edge slots hold the last value of every metric some rule reads on that edge. An
+ * aggregate node (metric, aggregate, edge group) subscribes to its slots, a test node
+ * (aggregate, operator, threshold) to its aggregate, and a rule node counts how many of
+ * its tests hold. Identical aggregates and tests are shared between rules. Per frame
+ * only slots whose value changed wake their aggregates, only tests of recomputed
+ * aggregates are re-checked, and only rules whose test flipped are marked dirty, so a
+ * steady network costs one comparison per watched edge and metric.
+ * <p>
+ * The structure is immutable after compilation; the node state is only touched by the
+ * frame thread. Rules are recompiled into a fresh network when the rule set changes.
+ */
+final class RuleNetwork {
+
+    static final int OCCUPANCY = 0;
+    static final int SPEED = 1;
+    static final int VEHICLES = 2;
+    static final int WAITING = 3;
+    private static final int METRICS = 4;
+    private static final String[] METRIC_NAMES = {"OCCUPANCY", "SPEED", "VEHICLES", "WAITING"};
+
+    private static final int AVG = 0;
+    private static final int MAX = 1;
+    private static final int MIN = 2;
+    private static final int SUM = 3;
+    private static final String[] AGGREGATE_NAMES = {"AVG", "MAX", "MIN", "SUM"};
+
+    private static final int GT = 0;
+    private static final int GE = 1;
+    private static final int LT = 2;
+    private static final int LE = 3;
+    private static final String[] OPERATORS = {">", ">=", "<", "<="};
+
+    private final EventRule[] rules;
+    private final Map<String, Integer> ruleIndex = new HashMap<>();
+    private final float epsilon;
+    private final float vehicleSpacing;
+    private final float defaultEdgeLength;
+
+    // edge slots
+    private final String[] slotEdges;
+    private final int[] slotFeedIndex;
+    private final float[] slotLength;
+    private final int[][] slotAggs;             // slot * METRICS + metric -> aggregate nodes, null if unused
+    private final float[] slotValue;            // slot * METRICS + metric
+    private final Map<String, Integer> unresolved = new HashMap<>();
+    private int resolvedUpTo;
+    private boolean primed;
+
+    // aggregate nodes
+    private final int[] aggMetric;
+    private final int[] aggType;
+    private final int[][] aggSlots;
+    private final int[][] aggTests;
+    private final float[] aggValue;
+    private final boolean[] aggDirty;
+    private final int[] dirtyAggs;
+    private int dirtyAggCount;
+
+    // test nodes
+    private final int[] testAgg;
+    private final int[] testOp;
+    private final float[] testThreshold;
+    private final boolean[] testState;
+    private final int[][] testRules;
+
+    // rule nodes
+    private final int[] ruleConditions;
+    private final boolean[] ruleMatchAll;
+    private final int[] ruleSatisfied;
+    private final boolean[] ruleDirty;
+    private final int[] dirtyRules;
+    private int dirtyRuleCount;
+    private final BitSet activeRules = new BitSet();
+
+    private RuleNetwork(List<EventRule> rules, List<String> slots, List<int[]> aggs, List<int[]> aggSlotList,
+                        List<float[]> tests, List<List<Integer>> testRuleList, float epsilon,
+                        float vehicleSpacing, float defaultEdgeLength) {
+        this.rules = rules.toArray(new EventRule[0]);
+        this.epsilon = epsilon;
+        this.vehicleSpacing = vehicleSpacing;
+        this.defaultEdgeLength = defaultEdgeLength;
+
+        int slotCount = slots.size();
+        this.slotEdges = slots.toArray(new String[0]);
+        this.slotFeedIndex = new int[slotCount];
+        this.slotLength = new float[slotCount];
+        this.slotValue = new float[slotCount * METRICS];
+        for (int s = 0; s < slotCount; s++) {
+            slotFeedIndex[s] = -1;
+            slotLength[s] = Float.NaN;
+            unresolved.put(slotEdges[s], s);
+        }
+
+        int aggCount = aggs.size();
+        this.aggMetric = new int[aggCount];
+        this.aggType = new int[aggCount];
+        this.aggSlots = aggSlotList.toArray(new int[0][]);
+        this.aggValue = new float[aggCount];
+        this.aggDirty = new boolean[aggCount];
+        this.dirtyAggs = new int[aggCount];
+        List<List<Integer>> slotAggList = new ArrayList<>();
+        for (int i = 0; i < slotCount * METRICS; i++) {
+            slotAggList.add(null);
+        }
+        for (int a = 0; a < aggCount; a++) {
+            aggMetric[a] = aggs.get(a)[0];
+            aggType[a] = aggs.get(a)[1];
+            aggValue[a] = Float.NaN;
+            for (int s : aggSlots[a]) {
+                int key = s * METRICS + aggMetric[a];
+                if (slotAggList.get(key) == null) {
+                    slotAggList.set(key, new ArrayList<>());
+                }
+                slotAggList.get(key).add(a);
+            }
+        }
+        this.slotAggs = new int[slotCount * METRICS][];
+        for (int k = 0; k < slotAggs.length; k++) {
+            slotAggs[k] = slotAggList.get(k) == null ? null : toArray(slotAggList.get(k));
+        }
+
+        int testCount = tests.size();
+        this.testAgg = new int[testCount];
+        this.testOp = new int[testCount];
+        this.testThreshold = new float[testCount];
+        this.testState = new boolean[testCount];
+        this.testRules = new int[testCount][];
+        List<List<Integer>> aggTestList = new ArrayList<>();
+        for (int a = 0; a < aggCount; a++) {
+            aggTestList.add(new ArrayList<>());
+        }
+        for (int t = 0; t < testCount; t++) {
+            testAgg[t] = (int) tests.get(t)[0];
+            testOp[t] = (int) tests.get(t)[1];
+            testThreshold[t] = tests.get(t)[2];
+            testRules[t] = toArray(testRuleList.get(t));
+            aggTestList.get(testAgg[t]).add(t);
+        }
+        this.aggTests = new int[aggCount][];
+        for (int a = 0; a < aggCount; a++) {
+            aggTests[a] = toArray(aggTestList.get(a));
+        }
+
+        int ruleCount = this.rules.length;
+        this.ruleConditions = new int[ruleCount];
+        this.ruleMatchAll = new boolean[ruleCount];
+        this.ruleSatisfied = new int[ruleCount];
+        this.ruleDirty = new boolean[ruleCount];
+        this.dirtyRules = new int[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            ruleIndex.put(this.rules[r].getId(), r);
+            ruleConditions[r] = this.rules[r].getConditions().size();
+            ruleMatchAll[r] = !"ANY".equalsIgnoreCase(this.rules[r].getMatch());
+            // every rule is settled once on the first frame, so state carried over
+            // from a previous network is re-checked
+            markRuleDirty(r);
+        }
+    }
+
+    /** Compiles validated rules, sharing identical aggregate and test nodes. */
+    static RuleNetwork compile(List<EventRule> rules, float epsilon, float vehicleSpacing, float defaultEdgeLength) {
+        Map<String, Integer> slotIds = new HashMap<>();
+        List<String> slots = new ArrayList<>();
+        Map<String, Integer> aggIds = new HashMap<>();
+        List<int[]> aggs = new ArrayList<>();
+        List<int[]> aggSlots = new ArrayList<>();
+        Map<String, Integer> testIds = new HashMap<>();
+        List<float[]> tests = new ArrayList<>();
+        List<List<Integer>> testRules = new ArrayList<>();
+
+        for (int r = 0; r < rules.size(); r++) {
+            for (RuleCondition condition : rules.get(r).getConditions()) {
+                int metric = metricOf(condition.getMetric());
+                int type = aggregateOf(condition.getAggregate());
+                TreeSet<String> edges = new TreeSet<>(condition.getEdges());
+                String aggKey = metric + "|" + type + "|" + String.join(",", edges);
+                Integer agg = aggIds.get(aggKey);
+                if (agg == null) {
+                    int[] members = new int[edges.size()];
+                    int i = 0;
+                    for (String edge : edges) {
+                        Integer slot = slotIds.get(edge);
+                        if (slot == null) {
+                            slot = slots.size();
+                            slotIds.put(edge, slot);
+                            slots.add(edge);
+                        }
+                        members[i++] = slot;
+                    }
+                    agg = aggs.size();
+                    aggIds.put(aggKey, agg);
+                    aggs.add(new int[]{metric, type});
+                    aggSlots.add(members);
+                }
+                int op = operatorOf(condition.getOperator());
+                float threshold = (float) condition.getThreshold();
+                String testKey = agg + "|" + op + "|" + threshold;
+                Integer test = testIds.get(testKey);
+                if (test == null) {
+                    test = tests.size();
+                    testIds.put(testKey, test);
+                    tests.add(new float[]{agg, op, threshold});
+                    testRules.add(new ArrayList<>());
+                }
+                testRules.get(test).add(r);
+            }
+        }
+        return new RuleNetwork(rules, slots, aggs, aggSlots, tests, testRules, epsilon, vehicleSpacing, defaultEdgeLength);
+    }
+
+    static int metricOf(String name) {
+        return indexOf(METRIC_NAMES, name == null ? null : name.toUpperCase());
+    }
+
+    static int aggregateOf(String name) {
+        return indexOf(AGGREGATE_NAMES, name == null ? "AVG" : name.toUpperCase());
+    }
+
+    static int operatorOf(String name) {
+        return indexOf(OPERATORS, name == null ? null : name.trim());
+    }
+
+    /** Binds edge slots to the feed's edge indices for edges that appeared since the last call. */
+    void resolve(String[] edgeIds, int edgeCount) {
+        if (unresolved.isEmpty()) {
+            resolvedUpTo = edgeCount;
+            return;
+        }
+        for (int i = resolvedUpTo; i < edgeCount; i++) {
+            Integer slot = unresolved.remove(edgeIds[i]);
+            if (slot != null) {
+                slotFeedIndex[slot] = i;
+            }
+        }
+        resolvedUpTo = edgeCount;
+    }
+
+    /**
+     * Reads the watched edges from the frame and wakes the aggregates of every value
+     * that changed. Returns the number of changed edge metrics.
+     */
+    int scan(EdgeFrame frame, SignalTopologyService topology) {
+        boolean[] present = frame.getPresent();
+        int changed = 0;
+        for (int s = 0; s < slotEdges.length; s++) {
+            int e = slotFeedIndex[s];
+            boolean live = e >= 0 && present[e];
+            for (int m = 0; m < METRICS; m++) {
+                int key = s * METRICS + m;
+                int[] subscribers = slotAggs[key];
+                if (subscribers == null) {
+                    continue;
+                }
+                float value = live ? value(frame, e, s, m, topology) : Float.NaN;
+                if (primed && same(value, slotValue[key])) {
+                    continue;
+                }
+                slotValue[key] = value;
+                changed++;
+                for (int a : subscribers) {
+                    if (!aggDirty[a]) {
+                        aggDirty[a] = true;
+                        dirtyAggs[dirtyAggCount++] = a;
+                    }
+                }
+            }
+        }
+        primed = true;
+        return changed;
+    }
+
+    /**
+     * Recomputes the woken aggregates, re-checks their tests and updates the
+     * satisfied-condition count of every rule whose test flipped. Returns the number
+     * of aggregates recomputed.
+     */
+    int propagate() {
+        int evaluated = dirtyAggCount;
+        for (int i = 0; i < dirtyAggCount; i++) {
+            int a = dirtyAggs[i];
+            aggDirty[a] = false;
+            float value = aggregate(a);
+            aggValue[a] = value;
+            for (int t : aggTests[a]) {
+                boolean holds = compare(testOp[t], value, testThreshold[t]);
+                if (holds == testState[t]) {
+                    continue;
+                }
+                testState[t] = holds;
+                for (int r : testRules[t]) {
+                    ruleSatisfied[r] += holds ? 1 : -1;
+                    markRuleDirty(r);
+                }
+            }
+        }
+        dirtyAggCount = 0;
+        return evaluated;
+    }
+
+    int ruleCount() {
+        return rules.length;
+    }
+
+    EventRule rule(int r) {
+        return rules[r];
+    }
+
+    int indexOfRule(String ruleId) {
+        Integer r = ruleIndex.get(ruleId);
+        return r == null ? -1 : r;
+    }
+
+    int satisfiedConditions(int r) {
+        return ruleSatisfied[r];
+    }
+
+    boolean isSatisfied(int r) {
+        return ruleMatchAll[r] ? ruleSatisfied[r] == ruleConditions[r] : ruleSatisfied[r] > 0;
+    }
+
+    int dirtyRuleCount() {
+        return dirtyRuleCount;
+    }
+
+    int dirtyRule(int i) {
+        return dirtyRules[i];
+    }
+
+    void clearDirtyRules() {
+        for (int i = 0; i < dirtyRuleCount; i++) {
+            ruleDirty[dirtyRules[i]] = false;
+        }
+        dirtyRuleCount = 0;
+    }
+
+    /** Rules currently active in this network, maintained by the caller. */
+    BitSet activeRules() {
+        return activeRules;
+    }
+
+    int slotCount() {
+        return slotEdges.length;
+    }
+
+    int aggregateCount() {
+        return aggValue.length;
+    }
+
+    int testCount() {
+        return testState.length;
+    }
+
+    private void markRuleDirty(int r) {
+        if (!ruleDirty[r]) {
+            ruleDirty[r] = true;
+            dirtyRules[dirtyRuleCount++] = r;
+        }
+    }
+
+    private float value(EdgeFrame frame, int e, int s, int metric, SignalTopologyService topology) {
+        switch (metric) {
+            case SPEED:
+                return frame.getSpeed()[e];
+            case VEHICLES:
+                return frame.getVehicleCount()[e];
+            case WAITING:
+                return frame.getWaitingCount()[e];
+            default:
+                // share of the edge's lane length taken up by vehicles at jam spacing
+                float length = slotLength[s];
+                if (Float.isNaN(length)) {
+                    length = topology.lengthOf(slotEdges[s]);
+                    slotLength[s] = length;
+                }
+                if (Float.isNaN(length) || length <= 0) {
+                    length = defaultEdgeLength;
+                }
+                int lanes = Math.max(1, frame.getLaneNumber()[e]);
+                return Math.min(1f, frame.getVehicleCount()[e] * vehicleSpacing / (lanes * length));
+        }
+    }
+
+    private float aggregate(int a) {
+        int metric = aggMetric[a];
+        int type = aggType[a];
+        float result = type == MAX ? Float.NEGATIVE_INFINITY : type == MIN ? Float.POSITIVE_INFINITY : 0f;
+        int n = 0;
+        for (int s : aggSlots[a]) {
+            float v = slotValue[s * METRICS + metric];
+            if (Float.isNaN(v)) {
+                continue;
+            }
+            n++;
+            if (type == MAX) {
+                result = Math.max(result, v);
+            } else if (type == MIN) {
+                result = Math.min(result, v);
+            } else {
+                result += v;
+            }
+        }
+        if (n == 0) {
+            return Float.NaN;
+        }
+        return type == AVG ? result / n : result;
+    }
+
+    private static boolean compare(int op, float value, float threshold) {
+        if (Float.isNaN(value)) {
+            return false;
+        }
+        switch (op) {
+            case GT:
+                return value > threshold;
+            case GE:
+                return value >= threshold;
+            case LT:
+                return value < threshold;
+            default:
+                return value <= threshold;
+        }
+    }
+
+    private boolean same(float a, float b) {
+        if (Float.isNaN(a) || Float.isNaN(b)) {
+            return Float.isNaN(a) && Float.isNaN(b);
+        }
+        return Math.abs(a - b) <= epsilon;
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.domain.dto.SignalCommand;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fire-and-forget client for POST /api/signalcontrol/manual. Commands are handed to a
+ * small bounded pool so the frame thread never waits on HTTP.
+ */
+@Service
+@Slf4j
+public class SignalControlClient {
+
+    private final RestTemplate restTemplate;
+    private final String manualUrl;
+    private final ThreadPoolExecutor sender;
+
+    public SignalControlClient(@Value("${signalcontrol.base-url:http://localhost:8082}") String baseUrl) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(500);
+        factory.setReadTimeout(2000);
+        this.restTemplate = new RestTemplate(factory);
+        this.manualUrl = baseUrl + "/api/signalcontrol/manual";
+        this.sender = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256),
+                r -> {
+                    Thread t = new Thread(r, "preemption-sender");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.sender.prestartAllCoreThreads();
+    }
+
+    /** Queues the command. Returns false when the send queue is full. */
+    public boolean submit(SignalCommand command) {
+        try {
+            sender.execute(() -> {
+                try {
+                    restTemplate.postForObject(manualUrl, command, Map.class);
+                } catch (Exception e) {
+                    log.warn("Signal command for junction {} failed: {}", command.getJunctionId(), e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Signal command queue full, dropping command for junction {}", command.getJunctionId());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+}
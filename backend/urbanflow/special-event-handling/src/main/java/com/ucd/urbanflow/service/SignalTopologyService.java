@@ -0,0 +1,132 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.common.sumo.TlsLink;
+import com.ucd.urbanflow.common.sumo.TlsState;
+import com.ucd.urbanflow.domain.pojo.LaneShape;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Slow-changing topology needed on the preemption path: which signalised junction
+ * each edge leads into (and through which link), from the connection lists in
+ * sumo:tls, and edge lengths from the lane table. Refreshed in the background and
+ * swapped in as immutable maps, so lookups from the frame thread never block.
+ */
+@Service
+@Slf4j
+public class SignalTopologyService {
+
+    private static final int SCAN_PAGE = 500;
+
+    private final SumoStateReader sumoStateReader;
+    private final LaneMapper laneMapper;
+
+    private volatile Map<String, Approach> approaches = Map.of();
+    private volatile Map<String, Float> edgeLengths = Map.of();
+
+    public SignalTopologyService(SumoStateReader sumoStateReader, LaneMapper laneMapper) {
+        this.sumoStateReader = sumoStateReader;
+        this.laneMapper = laneMapper;
+    }
+
+    /** The controlled approach an edge ends at, or null when it does not end at a signal. */
+    public Approach approachOf(String edgeId) {
+        return approaches.get(edgeId);
+    }
+
+    /** Edge length in metres, NaN when unknown. */
+    public float lengthOf(String edgeId) {
+        Float length = edgeLengths.get(edgeId);
+        return length == null ? Float.NaN : length;
+    }
+
+    @Scheduled(fixedDelayString = "${event.topology.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            approaches = readApproaches();
+        } catch (Exception e) {
+            log.warn("Failed to read signal topology from sumo:tls: {}", e.getMessage());
+        }
+        if (edgeLengths.isEmpty()) {
+            try {
+                edgeLengths = readLengths();
+                log.info("Loaded lengths for {} edges", edgeLengths.size());
+            } catch (Exception e) {
+                log.warn("Failed to load lane shapes: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Approach> readApproaches() {
+        Map<String, Approach> result = new HashMap<>();
+        sumoStateReader.scanTls(SCAN_PAGE, new TlsState(), tls -> {
+            String junctionId = tls.getJunctionId();
+            if (junctionId == null) {
+                return;
+            }
+            List<TlsLink> links = tls.getLinks();
+            for (int l = 0; l < links.size(); l++) {
+                TlsLink link = links.get(l);
+                if (link == null) {
+                    continue;
+                }
+                String from = link.fromEdge();
+                String to = link.toEdge();
+                if (from == null || isUTurn(from, to)) {
+                    continue;
+                }
+                // the first non-U-turn link of an approach anchors its green
+                result.putIfAbsent(from, new Approach(junctionId, l));
+            }
+        });
+        return Map.copyOf(result);
+    }
+
+    private Map<String, Float> readLengths() {
+        List<LaneShape> lanes = laneMapper.findAllLaneShapes();
+        Map<String, Float> result = new HashMap<>();
+        for (LaneShape lane : lanes) {
+            if (lane.getEdgeId() == null || lane.getLaneShape() == null) {
+                continue;
+            }
+            float length = polylineLength(lane.getLaneShape());
+            result.merge(lane.getEdgeId(), length, Math::max);
+        }
+        return Map.copyOf(result);
+    }
+
+    private static float polylineLength(String shape) {
+        String[] points = shape.trim().split("\\s+");
+        double total = 0;
+        double px = Double.NaN;
+        double py = Double.NaN;
+        for (String point : points) {
+            int comma = point.indexOf(',');
+            if (comma < 0) {
+                continue;
+            }
+            double x = Double.parseDouble(point.substring(0, comma));
+            double y = Double.parseDouble(point.substring(comma + 1));
+            if (!Double.isNaN(px)) {
+                total += Math.hypot(x - px, y - py);
+            }
+            px = x;
+            py = y;
+        }
+        return (float) total;
+    }
+
+    private static boolean isUTurn(String from, String to) {
+        return to != null && (from.equals("-" + to) || to.equals("-" + from));
+    }
+
+    public record Approach(String junctionId, int lightIndex) {
+    }
+}
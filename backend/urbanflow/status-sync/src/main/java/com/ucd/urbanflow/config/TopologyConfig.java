@@ -0,0 +1,62 @@
+package com.ucd.urbanflow.config;
+
+import com.ucd.urbanflow.common.topology.ConditionalOnTopologySnapshot;
+import com.ucd.urbanflow.common.topology.TopologySnapshot;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import com.ucd.urbanflow.mapper.TlsJunctionMapper;
+import com.ucd.urbanflow.model.LaneEdgeInfo;
+import com.ucd.urbanflow.model.TlsJunctionInfo;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When topology.snapshot.path names a compiled topology file, lanes and traffic lights
+ * are read from it instead of MySQL. Without the property the MyBatis mappers are used
+ * as before.
+ */
+@Configuration
+@ConditionalOnTopologySnapshot
+public class TopologyConfig {
+
+    @Bean
+    @Primary
+    public LaneMapper snapshotLaneMapper(TopologySnapshot snapshot) {
+        return () -> {
+            List<LaneEdgeInfo> lanes = new ArrayList<>(snapshot.getLaneCount());
+            for (int lane = 0; lane < snapshot.getLaneCount(); lane++) {
+                LaneEdgeInfo info = new LaneEdgeInfo();
+                info.setLaneId(snapshot.laneId(lane));
+                info.setLaneShape(snapshot.laneShape(lane));
+                int edge = snapshot.laneEdge(lane);
+                if (edge >= 0) {
+                    info.setEdgeId(snapshot.edgeId(edge));
+                    info.setEdgeName(snapshot.edgeName(edge));
+                }
+                lanes.add(info);
+            }
+            return lanes;
+        };
+    }
+
+    @Bean
+    @Primary
+    public TlsJunctionMapper snapshotTlsJunctionMapper(TopologySnapshot snapshot) {
+        return () -> {
+            List<TlsJunctionInfo> lights = new ArrayList<>(snapshot.getTrafficLightCount());
+            for (int light = 0; light < snapshot.getTrafficLightCount(); light++) {
+                TlsJunctionInfo info = new TlsJunctionInfo();
+                info.setTlsId(snapshot.trafficLightId(light));
+                info.setJunctionId(snapshot.trafficLightJunctionId(light));
+                info.setJunctionX(snapshot.trafficLightX(light));
+                info.setJunctionY(snapshot.trafficLightY(light));
+                info.setJunctionShape(snapshot.trafficLightShape(light));
+                lights.add(info);
+            }
+            return lights;
+        };
+    }
+}
@@ -0,0 +1,51 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.service.HeatmapService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api-status/heatmap")
+public class HeatmapController {
+
+    @Autowired
+    private HeatmapService heatmapService;
+
+    @Value("${status.heatmap.tile-ttl-seconds:2}")
+    private long tileTtlSeconds;
+
+    // grid origin, cell sizes and tile counts per level
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getLayout() {
+        Map<String, Object> layout = heatmapService.getLayout();
+        return layout == null ? ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build() : ResponseEntity.ok(layout);
+    }
+
+    // one tile of cells [x, y, vehicles, speedRatio, waitTime], cacheable for a short TTL
+    @GetMapping("/tiles/{level}/{x}/{y}")
+    public ResponseEntity<byte[]> getTile(@PathVariable int level, @PathVariable int x, @PathVariable int y,
+                                          @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        HeatmapService.RenderedTile tile = heatmapService.getTile(level, x, y);
+        if (tile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + level + "-" + x + "-" + y + "-" + tile.version() + "\"";
+        CacheControl cache = CacheControl.maxAge(tileTtlSeconds, TimeUnit.SECONDS).cachePublic();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cache).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cache)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(tile.bytes());
+    }
+}
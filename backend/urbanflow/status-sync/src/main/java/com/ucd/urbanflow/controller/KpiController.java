@@ -0,0 +1,33 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.model.Kpi;
+import com.ucd.urbanflow.model.KpiSnapshot;
+import com.ucd.urbanflow.service.KpiService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api-status/kpi")
+public class KpiController {
+
+    @Autowired
+    private KpiService kpiService;
+
+    // network KPIs and every district, as of the last status read
+    @GetMapping
+    public ResponseEntity<KpiSnapshot> getKpis() {
+        return ResponseEntity.ok(kpiService.getSnapshot());
+    }
+
+    @GetMapping("/network")
+    public ResponseEntity<Kpi> getNetworkKpi() {
+        return ResponseEntity.ok(kpiService.getSnapshot().getNetwork());
+    }
+
+    @GetMapping("/districts/{districtId}")
+    public ResponseEntity<Kpi> getDistrictKpi(@PathVariable String districtId) {
+        Kpi kpi = kpiService.getDistrict(districtId);
+        return kpi == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(kpi);
+    }
+}
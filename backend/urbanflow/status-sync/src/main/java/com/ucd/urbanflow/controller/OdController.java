@@ -0,0 +1,56 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.model.OdMatrix;
+import com.ucd.urbanflow.service.OdMatrixService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api-status/od")
+public class OdController {
+
+    @Autowired
+    private OdMatrixService odMatrixService;
+
+    // OD matrix over the live trajectories of the last N minutes
+    @GetMapping("/live")
+    public ResponseEntity<?> getLiveMatrix(@RequestParam(defaultValue = "60") double minutes,
+                                           @RequestParam(defaultValue = "15") double sliceMinutes) {
+        try {
+            return ResponseEntity.ok(odMatrixService.live(minutes, sliceMinutes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // recorded trajectory files a batch job can run over
+    @GetMapping("/recordings")
+    public ResponseEntity<List<String>> getRecordings() throws IOException {
+        return ResponseEntity.ok(odMatrixService.getRecordings());
+    }
+
+    // start a batch OD job over one recorded day
+    @PostMapping("/jobs")
+    public ResponseEntity<?> startJob(@RequestParam String file,
+                                      @RequestParam(defaultValue = "15") double sliceMinutes) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(odMatrixService.startJob(file, sliceMinutes));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<OdMatrix> getJob(@PathVariable String jobId) {
+        OdMatrix matrix = odMatrixService.getJob(jobId);
+        return matrix == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(matrix);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ucd.urbanflow.controller;
+
+import com.ucd.urbanflow.model.PathStep;
+import com.ucd.urbanflow.model.TravelTimeStats;
+import com.ucd.urbanflow.model.VehiclePosition;
+import com.ucd.urbanflow.service.VehicleTrackingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api-status/vehicles")
+public class VehicleController {
+
+    @Autowired
+    private VehicleTrackingService vehicleTrackingService;
+
+    // tracking store size and last ingested simulation time
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(vehicleTrackingService.getStats());
+    }
+
+    // travel time between two edges over the last N minutes
+    @GetMapping("/travel-time")
+    public ResponseEntity<TravelTimeStats> getTravelTime(@RequestParam String fromEdge,
+                                                         @RequestParam String toEdge,
+                                                         @RequestParam(defaultValue = "15") double minutes) {
+        return ResponseEntity.ok(vehicleTrackingService.getTravelTime(fromEdge, toEdge, minutes));
+    }
+
+    // where a vehicle is now
+    @GetMapping("/{vehicleId}")
+    public ResponseEntity<VehiclePosition> getPosition(@PathVariable String vehicleId) {
+        VehiclePosition position = vehicleTrackingService.getPosition(vehicleId);
+        return position != null ? ResponseEntity.ok(position) : ResponseEntity.notFound().build();
+    }
+
+    // edges a vehicle used over the last N minutes, oldest first
+    @GetMapping("/{vehicleId}/path")
+    public ResponseEntity<List<PathStep>> getPath(@PathVariable String vehicleId,
+                                                  @RequestParam(defaultValue = "10") double minutes) {
+        List<PathStep> path = vehicleTrackingService.getPath(vehicleId, minutes);
+        return path != null ? ResponseEntity.ok(path) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ucd.urbanflow.model;
+
+/**
+ * Traffic KPIs of the whole network or of one district. meanSpeed is weighted by
+ * vehicles (the edge average when the scope is empty); a junction counts as congested when
+ * one of its incoming edges holds at least the configured number of vehicles.
+ */
+public class Kpi {
+    private String scope;
+    private int edges;
+    private double vehicles;
+    private double meanSpeed;
+    private double waitingVehicles;
+    private int junctions;
+    private int congestedJunctions;
+
+    public Kpi() {
+    }
+
+    public Kpi(String scope, int edges, double vehicles, double meanSpeed, double waitingVehicles, int junctions, int congestedJunctions) {
+        this.scope = scope;
+        this.edges = edges;
+        this.vehicles = vehicles;
+        this.meanSpeed = meanSpeed;
+        this.waitingVehicles = waitingVehicles;
+        this.junctions = junctions;
+        this.congestedJunctions = congestedJunctions;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public int getEdges() {
+        return edges;
+    }
+
+    public void setEdges(int edges) {
+        this.edges = edges;
+    }
+
+    public double getVehicles() {
+        return vehicles;
+    }
+
+    public void setVehicles(double vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public double getMeanSpeed() {
+        return meanSpeed;
+    }
+
+    public void setMeanSpeed(double meanSpeed) {
+        this.meanSpeed = meanSpeed;
+    }
+
+    public double getWaitingVehicles() {
+        return waitingVehicles;
+    }
+
+    public void setWaitingVehicles(double waitingVehicles) {
+        this.waitingVehicles = waitingVehicles;
+    }
+
+    public int getJunctions() {
+        return junctions;
+    }
+
+    public void setJunctions(int junctions) {
+        this.junctions = junctions;
+    }
+
+    public int getCongestedJunctions() {
+        return congestedJunctions;
+    }
+
+    public void setCongestedJunctions(int congestedJunctions) {
+        this.congestedJunctions = congestedJunctions;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ucd.urbanflow.model;
+
+import java.util.List;
+
+/**
+ * Network and district KPIs as of one status read; version increases with every
+ * change so clients can skip identical snapshots.
+ */
+public class KpiSnapshot {
+    private long version;
+    private long updatedAt;
+    private Kpi network;
+    private List<Kpi> districts;
+
+    public KpiSnapshot() {
+    }
+
+    public KpiSnapshot(long version, long updatedAt, Kpi network, List<Kpi> districts) {
+        this.version = version;
+        this.updatedAt = updatedAt;
+        this.network = network;
+        this.districts = districts;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Kpi getNetwork() {
+        return network;
+    }
+
+    public void setNetwork(Kpi network) {
+        this.network = network;
+    }
+
+    public List<Kpi> getDistricts() {
+        return districts;
+    }
+
+    public void setDistricts(List<Kpi> districts) {
+        this.districts = districts;
+    }
+}
@@ -0,0 +1,63 @@
+package com.ucd.urbanflow.model;
+
+/**
+ * Trips from one zone to another that departed in one time slice.
+ */
+public class OdCell {
+    private int slice;
+    private double sliceStartSimTime;
+    private String origin;
+    private String destination;
+    private int trips;
+
+    public OdCell() {
+    }
+
+    public OdCell(int slice, double sliceStartSimTime, String origin, String destination, int trips) {
+        this.slice = slice;
+        this.sliceStartSimTime = sliceStartSimTime;
+        this.origin = origin;
+        this.destination = destination;
+        this.trips = trips;
+    }
+
+    public int getSlice() {
+        return slice;
+    }
+
+    public void setSlice(int slice) {
+        this.slice = slice;
+    }
+
+    public double getSliceStartSimTime() {
+        return sliceStartSimTime;
+    }
+
+    public void setSliceStartSimTime(double sliceStartSimTime) {
+        this.sliceStartSimTime = sliceStartSimTime;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public void setOrigin(String origin) {
+        this.origin = origin;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public void setDestination(String destination) {
+        this.destination = destination;
+    }
+
+    public int getTrips() {
+        return trips;
+    }
+
+    public void setTrips(int trips) {
+        this.trips = trips;
+    }
+}
@@ -0,0 +1,150 @@
+package com.ucd.urbanflow.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Origin-destination matrix by time slice, sparse: only zone pairs with trips are
+ * listed. Batch jobs are returned with status RUNNING first and polled until DONE or
+ * FAILED; times are simulation seconds.
+ */
+public class OdMatrix {
+    private String jobId;
+    private String source;
+    private String status;
+    private String error;
+    private double sliceSeconds;
+    private double fromSimTime;
+    private double toSimTime;
+    private int zoneCount;
+    private long transitions;
+    private int vehicles;
+    private long trips;
+    private long unzonedTrips;
+    private long openTrips;
+    private long computeMillis;
+    private List<OdCell> cells = new ArrayList<>();
+
+    public OdMatrix() {
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public double getSliceSeconds() {
+        return sliceSeconds;
+    }
+
+    public void setSliceSeconds(double sliceSeconds) {
+        this.sliceSeconds = sliceSeconds;
+    }
+
+    public double getFromSimTime() {
+        return fromSimTime;
+    }
+
+    public void setFromSimTime(double fromSimTime) {
+        this.fromSimTime = fromSimTime;
+    }
+
+    public double getToSimTime() {
+        return toSimTime;
+    }
+
+    public void setToSimTime(double toSimTime) {
+        this.toSimTime = toSimTime;
+    }
+
+    public int getZoneCount() {
+        return zoneCount;
+    }
+
+    public void setZoneCount(int zoneCount) {
+        this.zoneCount = zoneCount;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    public void setTransitions(long transitions) {
+        this.transitions = transitions;
+    }
+
+    public int getVehicles() {
+        return vehicles;
+    }
+
+    public void setVehicles(int vehicles) {
+        this.vehicles = vehicles;
+    }
+
+    public long getTrips() {
+        return trips;
+    }
+
+    public void setTrips(long trips) {
+        this.trips = trips;
+    }
+
+    public long getUnzonedTrips() {
+        return unzonedTrips;
+    }
+
+    public void setUnzonedTrips(long unzonedTrips) {
+        this.unzonedTrips = unzonedTrips;
+    }
+
+    public long getOpenTrips() {
+        return openTrips;
+    }
+
+    public void setOpenTrips(long openTrips) {
+        this.openTrips = openTrips;
+    }
+
+    public long getComputeMillis() {
+        return computeMillis;
+    }
+
+    public void setComputeMillis(long computeMillis) {
+        this.computeMillis = computeMillis;
+    }
+
+    public List<OdCell> getCells() {
+        return cells;
+    }
+
+    public void setCells(List<OdCell> cells) {
+        this.cells = cells;
+    }
+}
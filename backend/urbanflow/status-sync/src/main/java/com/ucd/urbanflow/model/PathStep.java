@@ -0,0 +1,43 @@
+package com.ucd.urbanflow.model;
+
+/**
+ * One edge of a vehicle trajectory; leftSimTime is -1 while the vehicle is still on it.
+ */
+public class PathStep {
+    private String edgeId;
+    private double enteredSimTime;
+    private double leftSimTime;
+
+    public PathStep() {
+    }
+
+    public PathStep(String edgeId, double enteredSimTime, double leftSimTime) {
+        this.edgeId = edgeId;
+        this.enteredSimTime = enteredSimTime;
+        this.leftSimTime = leftSimTime;
+    }
+
+    public String getEdgeId() {
+        return edgeId;
+    }
+
+    public void setEdgeId(String edgeId) {
+        this.edgeId = edgeId;
+    }
+
+    public double getEnteredSimTime() {
+        return enteredSimTime;
+    }
+
+    public void setEnteredSimTime(double enteredSimTime) {
+        this.enteredSimTime = enteredSimTime;
+    }
+
+    public double getLeftSimTime() {
+        return leftSimTime;
+    }
+
+    public void setLeftSimTime(double leftSimTime) {
+        this.leftSimTime = leftSimTime;
+    }
+}
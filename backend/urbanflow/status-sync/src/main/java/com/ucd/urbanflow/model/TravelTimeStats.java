@@ -0,0 +1,93 @@
+package com.ucd.urbanflow.model;
+
+/**
+ * Observed travel times from entering one edge to entering another.
+ */
+public class TravelTimeStats {
+    private String fromEdge;
+    private String toEdge;
+    private int samples;
+    private double meanSeconds;
+    private double medianSeconds;
+    private double p90Seconds;
+    private double minSeconds;
+    private double maxSeconds;
+
+    public TravelTimeStats() {
+    }
+
+    public TravelTimeStats(String fromEdge, String toEdge, int samples, double meanSeconds, double medianSeconds, double p90Seconds, double minSeconds, double maxSeconds) {
+        this.fromEdge = fromEdge;
+        this.toEdge = toEdge;
+        this.samples = samples;
+        this.meanSeconds = meanSeconds;
+        this.medianSeconds = medianSeconds;
+        this.p90Seconds = p90Seconds;
+        this.minSeconds = minSeconds;
+        this.maxSeconds = maxSeconds;
+    }
+
+    public String getFromEdge() {
+        return fromEdge;
+    }
+
+    public void setFromEdge(String fromEdge) {
+        this.fromEdge = fromEdge;
+    }
+
+    public String getToEdge() {
+        return toEdge;
+    }
+
+    public void setToEdge(String toEdge) {
+        this.toEdge = toEdge;
+    }
+
+    public int getSamples() {
+        return samples;
+    }
+
+    public void setSamples(int samples) {
+        this.samples = samples;
+    }
+
+    public double getMeanSeconds() {
+        return meanSeconds;
+    }
+
+    public void setMeanSeconds(double meanSeconds) {
+        this.meanSeconds = meanSeconds;
+    }
+
+    public double getMedianSeconds() {
+        return medianSeconds;
+    }
+
+    public void setMedianSeconds(double medianSeconds) {
+        this.medianSeconds = medianSeconds;
+    }
+
+    public double getP90Seconds() {
+        return p90Seconds;
+    }
+
+    public void setP90Seconds(double p90Seconds) {
+        this.p90Seconds = p90Seconds;
+    }
+
+    public double getMinSeconds() {
+        return minSeconds;
+    }
+
+    public void setMinSeconds(double minSeconds) {
+        this.minSeconds = minSeconds;
+    }
+
+    public double getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    public void setMaxSeconds(double maxSeconds) {
+        this.maxSeconds = maxSeconds;
+    }
+}
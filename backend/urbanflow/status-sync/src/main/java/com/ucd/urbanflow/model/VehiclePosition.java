@@ -0,0 +1,60 @@
+package com.ucd.urbanflow.model;
+
+public class VehiclePosition {
+    private String vehicleId;
+    private String edgeId;   // null once the vehicle has left the network
+    private double enteredSimTime;
+    private double lastSeenSimTime;
+    private boolean active;
+
+    public VehiclePosition() {
+    }
+
+    public VehiclePosition(String vehicleId, String edgeId, double enteredSimTime, double lastSeenSimTime, boolean active) {
+        this.vehicleId = vehicleId;
+        this.edgeId = edgeId;
+        this.enteredSimTime = enteredSimTime;
+        this.lastSeenSimTime = lastSeenSimTime;
+        this.active = active;
+    }
+
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(String vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
+    public String getEdgeId() {
+        return edgeId;
+    }
+
+    public void setEdgeId(String edgeId) {
+        this.edgeId = edgeId;
+    }
+
+    public double getEnteredSimTime() {
+        return enteredSimTime;
+    }
+
+    public void setEnteredSimTime(double enteredSimTime) {
+        this.enteredSimTime = enteredSimTime;
+    }
+
+    public double getLastSeenSimTime() {
+        return lastSeenSimTime;
+    }
+
+    public void setLastSeenSimTime(double lastSeenSimTime) {
+        this.lastSeenSimTime = lastSeenSimTime;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ucd.urbanflow.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A planning zone for OD estimation: an ID and a polygon as [x, y] points in network
+ * coordinates, the same system as lane shapes.
+ */
+public class ZoneDefinition {
+    private String id;
+    private List<List<Double>> polygon = new ArrayList<>();
+
+    public ZoneDefinition() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<List<Double>> getPolygon() {
+        return polygon;
+    }
+
+    public void setPolygon(List<List<Double>> polygon) {
+        this.polygon = polygon;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ucd.urbanflow.service;
+
+/**
+ * Receives per-edge changes from {@link EdgeStateService}, on the status broadcast thread.
+ */
+public interface EdgeDeltaListener {
+
+    /** An edge whose values changed; previous is null the first time the edge is seen. */
+    void onEdgeChanged(String edgeId, EdgeValues previous, EdgeValues current);
+
+    /** An edge that is no longer in sumo:edge; previous are the last values it had. */
+    void onEdgeRemoved(String edgeId, EdgeValues previous);
+
+    /** End of one read; state can replay every edge to a listener that needs a full pass. */
+    default void afterUpdate(EdgeStateService state) {
+    }
+}
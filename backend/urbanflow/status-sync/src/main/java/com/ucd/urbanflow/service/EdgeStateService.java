@@ -0,0 +1,126 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest numeric values of every edge, kept so consumers can work on deltas.
+ * <p>
+ * Each read of sumo:edge is compared with the previous one by JSON text; only edges
+ * whose text changed are parsed, and every {@link EdgeDeltaListener} is told the old
+ * and new values. An edge missing from a read is dropped and reported as removed with
+ * its last values. Aggregates built on top (heatmap cells, KPIs) therefore only touch
+ * what moved.
+ */
+@Service
+public class EdgeStateService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EdgeStateService.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private List<EdgeDeltaListener> listeners;
+
+    private final Map<String, String> lastJson = new HashMap<>();
+    private final Map<String, EdgeValues> values = new HashMap<>();
+
+    /** Applies one read (edgeId -> JSON) and notifies the listeners of the changed edges. */
+    public synchronized void update(Map<String, String> edges) {
+        for (Map.Entry<String, String> entry : edges.entrySet()) {
+            String edgeId = entry.getKey();
+            String json = entry.getValue();
+            if (json.equals(lastJson.get(edgeId))) {
+                continue;
+            }
+            lastJson.put(edgeId, json);
+            EdgeValues current = parse(json);
+            if (current == null) {
+                continue;
+            }
+            EdgeValues previous = values.put(edgeId, current);
+            if (current.equals(previous)) {
+                continue;
+            }
+            for (EdgeDeltaListener listener : listeners) {
+                listener.onEdgeChanged(edgeId, previous, current);
+            }
+        }
+        if (values.size() > 0) {
+            removeMissing(edges);
+        }
+        for (EdgeDeltaListener listener : listeners) {
+            listener.afterUpdate(this);
+        }
+    }
+
+    /** Drops the edges the read no longer has, so aggregates stop counting them. */
+    private void removeMissing(Map<String, String> edges) {
+        lastJson.keySet().retainAll(edges.keySet());
+        Iterator<Map.Entry<String, EdgeValues>> it = values.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, EdgeValues> entry = it.next();
+            if (edges.containsKey(entry.getKey())) {
+                continue;
+            }
+            it.remove();
+            for (EdgeDeltaListener listener : listeners) {
+                listener.onEdgeRemoved(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /** Sends every known edge to the listener as if it had just appeared. */
+    public synchronized void replay(EdgeDeltaListener listener) {
+        for (Map.Entry<String, EdgeValues> entry : values.entrySet()) {
+            listener.onEdgeChanged(entry.getKey(), null, entry.getValue());
+        }
+    }
+
+    public synchronized int getEdgeCount() {
+        return values.size();
+    }
+
+    private EdgeValues parse(String json) {
+        float vehicles = 0;
+        float speed = Float.NaN;
+        float waitingVehicles = 0;
+        float waitTime = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY || value == JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                } else if (value.isNumeric()) {
+                    switch (field) {
+                        case "vehicleCount" -> vehicles = parser.getFloatValue();
+                        case "speed" -> speed = parser.getFloatValue();
+                        case "waitingVehicleCount" -> waitingVehicles = parser.getFloatValue();
+                        case "waitTime" -> waitTime = parser.getFloatValue();
+                        default -> {
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Skipped unreadable edge JSON: {}", e.getMessage());
+            return null;
+        }
+        return new EdgeValues(vehicles, speed, waitingVehicles, waitTime);
+    }
+}
@@ -0,0 +1,7 @@
+package com.ucd.urbanflow.service;
+
+/**
+ * Numeric fields of one sumo:edge entry as read by {@link EdgeStateService}.
+ */
+public record EdgeValues(float vehicles, float speed, float waitingVehicles, float waitTime) {
+}
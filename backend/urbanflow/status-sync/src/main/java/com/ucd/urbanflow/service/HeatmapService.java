@@ -0,0 +1,484 @@
+package com.ucd.urbanflow.service;
+
+import com.ucd.urbanflow.mapper.LaneMapper;
+import com.ucd.urbanflow.model.LaneEdgeInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Live congestion heatmap over a square grid, served as small JSON tiles.
+ * <p>
+ * Lane shapes are rasterised once: every edge gets the cells its lanes pass through,
+ * with the lane length inside each cell, at every zoom level (level L cells are 2^L base
+ * cells wide). For every edge delta from {@link EdgeStateService} the edge's old
+ * contribution is subtracted from its cells and the new one added, and the tiles
+ * holding those cells are marked stale. A tile is re-rendered only when it is requested
+ * while stale, so an unchanged area costs nothing and a city overview is a handful of
+ * coarse tiles. Accumulators are rebuilt from scratch every rebuild-ticks reads so
+ * floating point drift cannot build up.
+ * <p>
+ * Per cell: vehicles (edge vehicles weighted by the share of the edge's length in the
+ * cell), speed ratio (live speed over the highest speed seen on the edge, weighted by
+ * length over the edges that have a ratio) and waiting time (edge waitTime weighted like
+ * vehicles). An edge only gets a ratio after min-speed-samples valid speeds, so its
+ * free-flow reference means something; a cell with no rated edge shows free flow (1).
+ */
+@Service
+public class HeatmapService implements EdgeDeltaListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeatmapService.class);
+    private static final int RETRY_TICKS = 60;
+
+    @Autowired
+    private LaneMapper laneMapper;
+
+    @Value("${status.heatmap.cell-size-m:50}")
+    private double cellSize;
+
+    @Value("${status.heatmap.levels:6}")
+    private int levelCount;
+
+    @Value("${status.heatmap.tile-cells:32}")
+    private int tileCells;
+
+    @Value("${status.heatmap.rebuild-ticks:600}")
+    private int rebuildTicks;
+
+    @Value("${status.heatmap.min-speed-samples:5}")
+    private int minSpeedSamples;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // geometry, fixed once loaded
+    private boolean loaded;
+    private int ticksSinceAttempt = RETRY_TICKS;
+    private double originX;
+    private double originY;
+    private double extentX;
+    private double extentY;
+    private Map<String, Integer> edgeIndex = new HashMap<>();
+    private float[] edgeLength = new float[0];
+    private int[][][] edgeCells;            // edge -> level -> cell indices
+    private float[][][] edgeCellLength;     // edge -> level -> lane length inside the cell
+    private Level[] levels = new Level[0];
+
+    // live edge state
+    private boolean[] seen = new boolean[0];
+    private float[] vehicles = new float[0];
+    private float[] speedRatio = new float[0];
+    private float[] waiting = new float[0];
+    private float[] freeFlow = new float[0];
+    private int[] speedSamples = new int[0];
+    private int tick;
+
+    @Override
+    public void onEdgeChanged(String edgeId, EdgeValues previous, EdgeValues current) {
+        lock.writeLock().lock();
+        try {
+            Integer e = loaded ? edgeIndex.get(edgeId) : null;
+            if (e == null) {
+                return;
+            }
+            apply(e, -1f);
+            vehicles[e] = current.vehicles();
+            waiting[e] = current.waitTime();
+            float speed = current.speed();
+            if (!Float.isNaN(speed) && speed >= 0) {
+                freeFlow[e] = Math.max(freeFlow[e], speed);
+                speedRatio[e] = freeFlow[e] > 0 ? speed / freeFlow[e] : 1f;
+                if (speedSamples[e] < minSpeedSamples) {
+                    speedSamples[e]++;
+                }
+            }
+            seen[e] = true;
+            apply(e, 1f);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onEdgeRemoved(String edgeId, EdgeValues previous) {
+        lock.writeLock().lock();
+        try {
+            Integer e = loaded ? edgeIndex.get(edgeId) : null;
+            if (e == null) {
+                return;
+            }
+            // free-flow speed and sample count stay, the edge may come back
+            apply(e, -1f);
+            vehicles[e] = 0;
+            waiting[e] = 0;
+            seen[e] = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void afterUpdate(EdgeStateService state) {
+        boolean justLoaded;
+        lock.writeLock().lock();
+        try {
+            justLoaded = !loaded && load();
+            if (loaded && !justLoaded) {
+                tick++;
+                if (rebuildTicks > 0 && tick % rebuildTicks == 0) {
+                    for (Level level : levels) {
+                        level.clear();
+                    }
+                    for (int e = 0; e < seen.length; e++) {
+                        apply(e, 1f);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (justLoaded) {
+            state.replay(this);
+        }
+    }
+
+    /** Grid layout for clients; null until the lane geometry is loaded. */
+    public Map<String, Object> getLayout() {
+        lock.readLock().lock();
+        try {
+            if (!loaded) {
+                return null;
+            }
+            Map<String, Object> layout = new LinkedHashMap<>();
+            layout.put("originX", originX);
+            layout.put("originY", originY);
+            layout.put("extentX", extentX);
+            layout.put("extentY", extentY);
+            layout.put("tileCells", tileCells);
+            List<Map<String, Object>> levelList = new ArrayList<>();
+            for (Level level : levels) {
+                double tileSize = level.cellSize * tileCells;
+                levelList.add(Map.of(
+                        "level", level.level,
+                        "cellSize", level.cellSize,
+                        "tilesX", (int) Math.ceil(extentX / tileSize),
+                        "tilesY", (int) Math.ceil(extentY / tileSize),
+                        "cells", level.count));
+            }
+            layout.put("levels", levelList);
+            return layout;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rendered tile as UTF-8 JSON with its version, re-rendered only if a cell in it
+     * changed since the last render. Null for an unknown level or before geometry is loaded.
+     */
+    public RenderedTile getTile(int level, int x, int y) {
+        lock.readLock().lock();
+        try {
+            if (!loaded || level < 0 || level >= levels.length) {
+                return null;
+            }
+            Level l = levels[level];
+            Tile tile = l.tiles.get(key(x, y));
+            if (tile == null) {
+                return new RenderedTile(render(l, x, y, null, 0), 0);
+            }
+            synchronized (tile) {
+                if (tile.stale || tile.json == null) {
+                    tile.version++;
+                    tile.json = render(l, x, y, tile, tile.version);
+                    tile.stale = false;
+                }
+                return new RenderedTile(tile.json, tile.version);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean load() {
+        if (ticksSinceAttempt++ < RETRY_TICKS) {
+            return false;
+        }
+        ticksSinceAttempt = 0;
+        List<LaneEdgeInfo> lanes;
+        try {
+            lanes = laneMapper.getAllLaneEdgeMappings();
+        } catch (Exception e) {
+            logger.warn("Heatmap cannot load lane shapes yet: {}", e.getMessage());
+            return false;
+        }
+
+        // parse shapes and find the bounds
+        Map<String, List<double[]>> shapes = new LinkedHashMap<>();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (LaneEdgeInfo lane : lanes) {
+            if (lane.getEdgeId() == null || lane.getLaneShape() == null) {
+                continue;
+            }
+            double[] points = points(lane.getLaneShape());
+            if (points.length < 4) {
+                continue;
+            }
+            shapes.computeIfAbsent(lane.getEdgeId(), k -> new ArrayList<>()).add(points);
+            for (int i = 0; i < points.length; i += 2) {
+                minX = Math.min(minX, points[i]);
+                maxX = Math.max(maxX, points[i]);
+                minY = Math.min(minY, points[i + 1]);
+                maxY = Math.max(maxY, points[i + 1]);
+            }
+        }
+        if (shapes.isEmpty()) {
+            logger.warn("Heatmap found no lane shapes");
+            return false;
+        }
+        originX = minX;
+        originY = minY;
+        extentX = maxX - minX;
+        extentY = maxY - minY;
+
+        int n = shapes.size();
+        levels = new Level[levelCount];
+        for (int l = 0; l < levelCount; l++) {
+            levels[l] = new Level(l, cellSize * (1 << l));
+        }
+        edgeIndex = new HashMap<>(n * 2);
+        edgeLength = new float[n];
+        edgeCells = new int[n][][];
+        edgeCellLength = new float[n][][];
+        int e = 0;
+        for (Map.Entry<String, List<double[]>> entry : shapes.entrySet()) {
+            edgeIndex.put(entry.getKey(), e);
+            rasterise(e, entry.getValue());
+            e++;
+        }
+        seen = new boolean[n];
+        vehicles = new float[n];
+        speedRatio = new float[n];
+        waiting = new float[n];
+        freeFlow = new float[n];
+        speedSamples = new int[n];
+        loaded = true;
+        logger.info("Heatmap grid over {} edges, {} base cells, {} levels", n, levels[0].count, levelCount);
+        return true;
+    }
+
+    /** Walks the lanes of one edge in short steps and sums lane length per base cell. */
+    private void rasterise(int e, List<double[]> lanes) {
+        Map<Long, Float> base = new HashMap<>();
+        double step = cellSize / 4;
+        float total = 0;
+        for (double[] p : lanes) {
+            for (int i = 2; i < p.length; i += 2) {
+                double x0 = p[i - 2] - originX;
+                double y0 = p[i - 1] - originY;
+                double dx = p[i] - originX - x0;
+                double dy = p[i + 1] - originY - y0;
+                double length = Math.hypot(dx, dy);
+                int steps = Math.max(1, (int) Math.ceil(length / step));
+                float piece = (float) (length / steps);
+                for (int s = 0; s < steps; s++) {
+                    double f = (s + 0.5) / steps;
+                    long key = key((int) ((x0 + dx * f) / cellSize), (int) ((y0 + dy * f) / cellSize));
+                    base.merge(key, piece, Float::sum);
+                }
+                total += (float) length;
+            }
+        }
+        edgeLength[e] = Math.max(total, 1f);
+        edgeCells[e] = new int[levelCount][];
+        edgeCellLength[e] = new float[levelCount][];
+        for (int l = 0; l < levelCount; l++) {
+            Map<Long, Float> merged = new HashMap<>();
+            for (Map.Entry<Long, Float> cell : base.entrySet()) {
+                int cx = (int) (cell.getKey() >> 32) >> l;
+                int cy = (int) (long) cell.getKey() >> l;
+                merged.merge(key(cx, cy), cell.getValue(), Float::sum);
+            }
+            int[] cells = new int[merged.size()];
+            float[] lengths = new float[merged.size()];
+            int i = 0;
+            for (Map.Entry<Long, Float> cell : merged.entrySet()) {
+                cells[i] = levels[l].cell(cell.getKey(), tileCells);
+                lengths[i] = cell.getValue();
+                i++;
+            }
+            edgeCells[e][l] = cells;
+            edgeCellLength[e][l] = lengths;
+        }
+    }
+
+    /** Adds (sign 1) or removes (sign -1) an edge's contribution at every level. */
+    private void apply(int e, float sign) {
+        if (!seen[e]) {
+            return;
+        }
+        float perMetre = 1f / edgeLength[e];
+        boolean rated = speedSamples[e] >= minSpeedSamples;
+        for (int l = 0; l < levels.length; l++) {
+            Level level = levels[l];
+            int[] cells = edgeCells[e][l];
+            float[] lengths = edgeCellLength[e][l];
+            for (int i = 0; i < cells.length; i++) {
+                int c = cells[i];
+                float share = lengths[i] * perMetre;
+                level.vehicles[c] += sign * vehicles[e] * share;
+                level.waiting[c] += sign * waiting[e] * share;
+                if (rated) {
+                    level.ratioLength[c] += sign * speedRatio[e] * lengths[i];
+                    level.ratedLength[c] += sign * lengths[i];
+                }
+                Tile tile = level.tileOfCell[c];
+                tile.stale = true;
+            }
+        }
+    }
+
+    private String render(Level level, int x, int y, Tile tile, long version) {
+        StringBuilder sb = new StringBuilder(64 + (tile == null ? 0 : tile.cellCount * 24));
+        sb.append("{\"level\":").append(level.level)
+                .append(",\"x\":").append(x)
+                .append(",\"y\":").append(y)
+                .append(",\"cellSize\":").append(level.cellSize)
+                .append(",\"originX\":").append(originX + (double) x * tileCells * level.cellSize)
+                .append(",\"originY\":").append(originY + (double) y * tileCells * level.cellSize)
+                .append(",\"version\":").append(version)
+                .append(",\"cells\":[");
+        if (tile != null) {
+            for (int i = 0; i < tile.cellCount; i++) {
+                int c = tile.cells[i];
+                long key = level.keys[c];
+                if (i > 0) {
+                    sb.append(',');
+                }
+                // only the length of edges with a ratio counts; with none the cell is neutral
+                double ratio = level.ratedLength[c] > 0.5 ? level.ratioLength[c] / level.ratedLength[c] : 1;
+                sb.append('[').append((int) (key >> 32) - x * tileCells)
+                        .append(',').append((int) key - y * tileCells)
+                        .append(',').append(round(Math.max(0, level.vehicles[c])))
+                        .append(',').append(round(Math.max(0, Math.min(1, ratio))))
+                        .append(',').append(round(Math.max(0, level.waiting[c])))
+                        .append(']');
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static double[] points(String shape) {
+        String[] parts = shape.trim().split("\\s+");
+        double[] points = new double[parts.length * 2];
+        int n = 0;
+        for (String part : parts) {
+            int comma = part.indexOf(',');
+            if (comma > 0) {
+                points[n++] = Double.parseDouble(part.substring(0, comma));
+                points[n++] = Double.parseDouble(part.substring(comma + 1));
+            }
+        }
+        return Arrays.copyOf(points, n);
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /** A tile body and the version it was rendered at, used as ETag. */
+    public record RenderedTile(String json, long version) {
+        public byte[] bytes() {
+            return json.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Cell accumulators of one zoom level. */
+    private static final class Level {
+        final int level;
+        final double cellSize;
+        final Map<Long, Integer> cellIndex = new HashMap<>();
+        final Map<Long, Tile> tiles = new HashMap<>();
+        int count;
+        long[] keys = new long[256];
+        Tile[] tileOfCell = new Tile[256];
+        double[] vehicles = new double[256];
+        double[] waiting = new double[256];
+        double[] ratioLength = new double[256];
+        double[] ratedLength = new double[256];
+
+        Level(int level, double cellSize) {
+            this.level = level;
+            this.cellSize = cellSize;
+        }
+
+        int cell(long key, int tileCells) {
+            Integer c = cellIndex.get(key);
+            if (c != null) {
+                return c;
+            }
+            if (count == keys.length) {
+                int grown = count * 2;
+                keys = Arrays.copyOf(keys, grown);
+                tileOfCell = Arrays.copyOf(tileOfCell, grown);
+                vehicles = Arrays.copyOf(vehicles, grown);
+                waiting = Arrays.copyOf(waiting, grown);
+                ratioLength = Arrays.copyOf(ratioLength, grown);
+                ratedLength = Arrays.copyOf(ratedLength, grown);
+            }
+            int index = count++;
+            keys[index] = key;
+            cellIndex.put(key, index);
+            int tx = Math.floorDiv((int) (key >> 32), tileCells);
+            int ty = Math.floorDiv((int) key, tileCells);
+            Tile tile = tiles.computeIfAbsent(key(tx, ty), k -> new Tile());
+            tile.add(index);
+            tileOfCell[index] = tile;
+            return index;
+        }
+
+        /** Zeroes the live accumulators. */
+        void clear() {
+            Arrays.fill(vehicles, 0, count, 0);
+            Arrays.fill(waiting, 0, count, 0);
+            Arrays.fill(ratioLength, 0, count, 0);
+            Arrays.fill(ratedLength, 0, count, 0);
+            for (Tile tile : tiles.values()) {
+                tile.stale = true;
+            }
+        }
+    }
+
+    /** Cells of one tile and its last rendering. */
+    private static final class Tile {
+        int[] cells = new int[16];
+        int cellCount;
+        volatile boolean stale = true;
+        String json;
+        long version;
+
+        void add(int cell) {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount * 2);
+            }
+            cells[cellCount++] = cell;
+        }
+    }
+}
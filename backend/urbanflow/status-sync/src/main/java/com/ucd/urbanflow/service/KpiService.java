@@ -0,0 +1,308 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.common.sumo.TlsLink;
+import com.ucd.urbanflow.common.sumo.TlsState;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import com.ucd.urbanflow.model.Kpi;
+import com.ucd.urbanflow.model.KpiSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Network-wide and per-district KPIs maintained from edge deltas.
+ * <p>
+ * Every district keeps running sums (vehicles, vehicle-weighted speed, waiting
+ * vehicles, congested junctions); an edge delta subtracts the edge's old values from
+ * its district and the network and adds the new ones, and re-checks only the junctions
+ * that edge leads into. An edge that leaves sumo:edge is subtracted the same way. After each read the sums are turned into one immutable
+ * {@link KpiSnapshot}, so REST and WebSocket readers get it in O(1).
+ * <p>
+ * Districts are grid cells or configured polygons ({@link ZoneIndex}); junctions and
+ * their incoming edges come from the connection lists in sumo:tls. The sums are reset
+ * and replayed from the current edge state whenever that topology is reloaded, which
+ * also removes any floating point drift.
+ */
+@Service
+public class KpiService implements EdgeDeltaListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(KpiService.class);
+    private static final int TLS_SCAN_PAGE = 500;
+    private static final int RETRY_TICKS = 30;
+
+    @Autowired
+    private LaneMapper laneMapper;
+
+    @Autowired
+    private SumoStateReader sumoStateReader;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${status.kpi.district-size-m:2000}")
+    private double districtSize;
+
+    @Value("${status.kpi.districts-location:}")
+    private String districtsLocation;
+
+    @Value("${status.od.index-cell-m:500}")
+    private double indexCellSize;
+
+    @Value("${status.kpi.congested-vehicles:10}")
+    private float congestedVehicles;
+
+    @Value("${status.kpi.topology-refresh-ticks:300}")
+    private int refreshTicks;
+
+    // topology, replaced on refresh
+    private boolean ready;
+    private int ticks;
+    private ZoneIndex districts;
+    private Map<String, int[]> edgeJunctions = new HashMap<>();
+    private String[][] junctionEdges = new String[0][];
+    private int[] junctionDistrict = new int[0];
+    private boolean[] junctionCongested = new boolean[0];
+    private final Map<String, Float> edgeVehicles = new HashMap<>();
+
+    // running sums; index districtCount is the whole network
+    private int[] edges = new int[1];
+    private double[] vehicles = new double[1];
+    private double[] speedVehicles = new double[1];
+    private double[] speedSum = new double[1];
+    private int[] speedEdges = new int[1];
+    private double[] waitingVehicles = new double[1];
+    private int[] junctions = new int[1];
+    private int[] congested = new int[1];
+    private boolean dirty;
+
+    private volatile KpiSnapshot snapshot = new KpiSnapshot(0, 0, new Kpi("network", 0, 0, 0, 0, 0, 0), List.of());
+    private volatile Map<String, Kpi> districtKpis = Map.of();
+
+    public KpiSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public Kpi getDistrict(String districtId) {
+        return districtKpis.get(districtId);
+    }
+
+    @Override
+    public synchronized void onEdgeChanged(String edgeId, EdgeValues previous, EdgeValues current) {
+        if (!ready) {
+            return;
+        }
+        int d = districts.zoneOf(edgeId);
+        int network = junctions.length - 1;
+        if (previous == null) {
+            add(network, 1, current, 1f);
+            if (d >= 0) {
+                add(d, 1, current, 1f);
+            }
+        } else {
+            add(network, 0, previous, -1f);
+            add(network, 0, current, 1f);
+            if (d >= 0) {
+                add(d, 0, previous, -1f);
+                add(d, 0, current, 1f);
+            }
+        }
+        edgeVehicles.put(edgeId, current.vehicles());
+        int[] affected = edgeJunctions.get(edgeId);
+        if (affected != null) {
+            for (int j : affected) {
+                recheck(j);
+            }
+        }
+        dirty = true;
+    }
+
+    @Override
+    public synchronized void onEdgeRemoved(String edgeId, EdgeValues previous) {
+        if (!ready) {
+            return;
+        }
+        int d = districts.zoneOf(edgeId);
+        add(junctions.length - 1, -1, previous, -1f);
+        if (d >= 0) {
+            add(d, -1, previous, -1f);
+        }
+        edgeVehicles.remove(edgeId);
+        int[] affected = edgeJunctions.get(edgeId);
+        if (affected != null) {
+            for (int j : affected) {
+                recheck(j);
+            }
+        }
+        dirty = true;
+    }
+
+    @Override
+    public void afterUpdate(EdgeStateService state) {
+        synchronized (this) {
+            ticks++;
+            boolean reload = ready ? refreshTicks > 0 && ticks % refreshTicks == 0 : ticks % RETRY_TICKS == 1;
+            if (!reload) {
+                publish();
+                return;
+            }
+            if (!loadTopology()) {
+                return;
+            }
+        }
+        // rebuild the sums from the current edge values under the new topology
+        state.replay(this);
+        synchronized (this) {
+            publish();
+        }
+    }
+
+    private void add(int scope, int edgeCount, EdgeValues values, float sign) {
+        edges[scope] += edgeCount;
+        vehicles[scope] += sign * values.vehicles();
+        waitingVehicles[scope] += sign * values.waitingVehicles();
+        if (!Float.isNaN(values.speed())) {
+            speedVehicles[scope] += sign * values.speed() * values.vehicles();
+            speedSum[scope] += sign * values.speed();
+            speedEdges[scope] += (int) sign;
+        }
+    }
+
+    /** Re-evaluates one junction after a change on one of its incoming edges. */
+    private void recheck(int j) {
+        float max = 0;
+        for (String edge : junctionEdges[j]) {
+            Float v = edgeVehicles.get(edge);
+            if (v != null && v > max) {
+                max = v;
+            }
+        }
+        boolean now = max >= congestedVehicles;
+        if (now == junctionCongested[j]) {
+            return;
+        }
+        junctionCongested[j] = now;
+        int delta = now ? 1 : -1;
+        congested[junctions.length - 1] += delta;
+        if (junctionDistrict[j] >= 0) {
+            congested[junctionDistrict[j]] += delta;
+        }
+    }
+
+    private void publish() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        int network = junctions.length - 1;
+        List<Kpi> list = new ArrayList<>(network);
+        Map<String, Kpi> index = new LinkedHashMap<>();
+        for (int d = 0; d < network; d++) {
+            Kpi kpi = kpi(districts.zoneId(d), d);
+            list.add(kpi);
+            index.put(kpi.getScope(), kpi);
+        }
+        KpiSnapshot previous = snapshot;
+        districtKpis = index;
+        snapshot = new KpiSnapshot(previous.getVersion() + 1, System.currentTimeMillis(), kpi("network", network), list);
+    }
+
+    private Kpi kpi(String scope, int s) {
+        double v = Math.max(0, vehicles[s]);
+        double meanSpeed;
+        if (v >= 0.5) {
+            meanSpeed = speedVehicles[s] / v;
+        } else {
+            meanSpeed = speedEdges[s] > 0 ? speedSum[s] / speedEdges[s] : 0;
+        }
+        return new Kpi(scope, edges[s], Math.round(v), Math.round(Math.max(0, meanSpeed) * 100) / 100.0,
+                Math.round(Math.max(0, waitingVehicles[s])), junctions[s], congested[s]);
+    }
+
+    /** (Re)loads districts and junction topology and zeroes the sums; true on success. */
+    private boolean loadTopology() {
+        try {
+            if (districts == null) {
+                districts = ZoneIndex.build(laneMapper.getAllLaneEdgeMappings(),
+                        ZoneIndex.readDefinitions(resourceLoader, objectMapper, districtsLocation),
+                        districtSize, indexCellSize);
+                logger.info("KPI districts: {}", districts.zoneCount());
+            }
+            Map<String, List<String>> incoming = readIncomingEdges();
+
+            int count = districts.zoneCount() + 1;
+            edges = new int[count];
+            vehicles = new double[count];
+            speedVehicles = new double[count];
+            speedSum = new double[count];
+            speedEdges = new int[count];
+            waitingVehicles = new double[count];
+            junctions = new int[count];
+            congested = new int[count];
+
+            int n = incoming.size();
+            junctionEdges = new String[n][];
+            junctionDistrict = new int[n];
+            junctionCongested = new boolean[n];
+            Map<String, List<Integer>> byEdge = new HashMap<>();
+            int j = 0;
+            for (List<String> edgeIds : incoming.values()) {
+                junctionEdges[j] = edgeIds.toArray(new String[0]);
+                junctionDistrict[j] = -1;
+                for (String edgeId : edgeIds) {
+                    byEdge.computeIfAbsent(edgeId, k -> new ArrayList<>()).add(j);
+                    if (junctionDistrict[j] < 0) {
+                        junctionDistrict[j] = districts.zoneOf(edgeId);
+                    }
+                }
+                junctions[count - 1]++;
+                if (junctionDistrict[j] >= 0) {
+                    junctions[junctionDistrict[j]]++;
+                }
+                j++;
+            }
+            edgeJunctions = new HashMap<>();
+            for (Map.Entry<String, List<Integer>> entry : byEdge.entrySet()) {
+                edgeJunctions.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            edgeVehicles.clear();
+            ready = true;
+            dirty = true;
+            return true;
+        } catch (Exception e) {
+            logger.warn("KPI topology not available yet: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /** junctionId -> incoming edges, from the link lists of sumo:tls. */
+    private Map<String, List<String>> readIncomingEdges() {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        sumoStateReader.scanTls(TLS_SCAN_PAGE, new TlsState(), tls -> {
+            if (tls.getJunctionId() == null) {
+                return;
+            }
+            List<String> edgeIds = result.computeIfAbsent(tls.getJunctionId(), k -> new ArrayList<>());
+            for (TlsLink link : tls.getLinks()) {
+                String edgeId = link == null ? null : link.fromEdge();
+                if (edgeId != null && !edgeIds.contains(edgeId)) {
+                    edgeIds.add(edgeId);
+                }
+            }
+        });
+        return result;
+    }
+}
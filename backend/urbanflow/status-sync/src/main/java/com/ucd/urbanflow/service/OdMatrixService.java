@@ -0,0 +1,433 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.mapper.LaneMapper;
+import com.ucd.urbanflow.model.LaneEdgeInfo;
+import com.ucd.urbanflow.model.OdCell;
+import com.ucd.urbanflow.model.OdMatrix;
+import com.ucd.urbanflow.model.ZoneDefinition;
+import com.ucd.urbanflow.service.VehicleTrackingService.TransitionLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Origin-destination matrices built from vehicle trajectories.
+ * <p>
+ * The input is a transition log, either the live ring of {@link VehicleTrackingService}
+ * or a recorded trajectories-*.csv file. Transitions are grouped by vehicle with a
+ * stable counting sort, so each vehicle's transitions stay in time order, and the
+ * vehicle range is then split over a fork-join pool. Each leaf cuts its vehicles'
+ * transitions into trips at exit markers and counts (slice, origin zone, destination
+ * zone) in a primitive hash table; the tables are merged on join. The first and last
+ * edge of a trip are mapped to zones through {@link ZoneIndex}.
+ * <p>
+ * A trip is counted once its vehicle has left the network; a live window cuts trips that
+ * began before it at the first edge seen inside it.
+ */
+@Service
+public class OdMatrixService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OdMatrixService.class);
+    private static final int MAX_JOBS = 20;
+
+    @Autowired
+    private VehicleTrackingService vehicleTrackingService;
+
+    @Autowired
+    private LaneMapper laneMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Value("${status.od.zone-size-m:1000}")
+    private double zoneSize;
+
+    @Value("${status.od.zones-location:}")
+    private String zonesLocation;
+
+    @Value("${status.od.index-cell-m:500}")
+    private double indexCellSize;
+
+    @Value("${status.od.parallelism:0}")
+    private int parallelism;
+
+    @Value("${status.od.leaf-vehicles:2048}")
+    private int leafVehicles;
+
+    private ForkJoinPool pool;
+    private volatile ZoneIndex zones;
+    private final Map<String, OdMatrix> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, OdMatrix> eldest) {
+            return size() > MAX_JOBS;
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Matrix over the live trajectories of the last minutes. */
+    public OdMatrix live(double minutes, double sliceMinutes) {
+        if (minutes <= 0 || sliceMinutes <= 0) {
+            throw new IllegalArgumentException("minutes and sliceMinutes must be positive");
+        }
+        double from = vehicleTrackingService.getSimTime() - minutes * 60;
+        OdMatrix matrix = new OdMatrix();
+        matrix.setSource("live");
+        compute(vehicleTrackingService.snapshot(from), sliceMinutes * 60, matrix);
+        return matrix;
+    }
+
+    /** Recorded trajectory files available to batch jobs. */
+    public List<String> getRecordings() throws IOException {
+        Path dir = vehicleTrackingService.getRecordDir();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith("trajectories-") && name.endsWith(".csv"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /** Starts a batch job over one recorded file; poll it with {@link #getJob}. */
+    public OdMatrix startJob(String fileName, double sliceMinutes) {
+        Path dir = vehicleTrackingService.getRecordDir();
+        if (dir == null) {
+            throw new IllegalStateException("Trajectory recording is off (status.tracking.record-dir)");
+        }
+        if (sliceMinutes <= 0) {
+            throw new IllegalArgumentException("sliceMinutes must be positive");
+        }
+        Path file = dir.resolve(fileName).normalize();
+        if (!file.getParent().equals(dir.normalize()) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Unknown recording " + fileName);
+        }
+
+        OdMatrix matrix = new OdMatrix();
+        matrix.setJobId(UUID.randomUUID().toString());
+        matrix.setSource(fileName);
+        matrix.setStatus("RUNNING");
+        jobs.put(matrix.getJobId(), matrix);
+        pool.execute(() -> {
+            try {
+                compute(read(file), sliceMinutes * 60, matrix);
+                logger.info("OD job {} over {}: {} trips from {} transitions in {} ms", matrix.getJobId(),
+                        fileName, matrix.getTrips(), matrix.getTransitions(), matrix.getComputeMillis());
+            } catch (Exception e) {
+                logger.warn("OD job {} over {} failed: {}", matrix.getJobId(), fileName, e.getMessage());
+                matrix.setError(e.getMessage());
+                matrix.setStatus("FAILED");
+            }
+        });
+        return matrix;
+    }
+
+    public OdMatrix getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private void compute(TransitionLog log, double sliceSeconds, OdMatrix matrix) {
+        long start = System.currentTimeMillis();
+        ZoneIndex zoneIndex = zones();
+        int n = log.count();
+
+        // edge handle -> zone, resolved once per run
+        String[] edgeNames = log.edgeNames();
+        int[] edgeZone = new int[edgeNames.length];
+        for (int e = 0; e < edgeNames.length; e++) {
+            edgeZone[e] = zoneIndex.zoneOf(edgeNames[e]);
+        }
+
+        // stable counting sort of transitions by vehicle
+        int vehicles = log.vehicleNames().length;
+        int[] offsets = new int[vehicles + 1];
+        float minTime = Float.POSITIVE_INFINITY;
+        float maxTime = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            offsets[log.vehicles()[i] + 1]++;
+            minTime = Math.min(minTime, log.times()[i]);
+            maxTime = Math.max(maxTime, log.times()[i]);
+        }
+        for (int v = 0; v < vehicles; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] order = new int[n];
+        int[] fill = Arrays.copyOf(offsets, vehicles);
+        for (int i = 0; i < n; i++) {
+            order[fill[log.vehicles()[i]]++] = i;
+        }
+
+        double t0 = n == 0 ? 0 : Math.floor(minTime / sliceSeconds) * sliceSeconds;
+        TripCounter counter = pool.invoke(new TripTask(new TripInput(log, offsets, order, edgeZone, t0, sliceSeconds,
+                Math.max(1, leafVehicles)), 0, vehicles));
+
+        List<OdCell> cells = new ArrayList<>(counter.size);
+        for (int i = 0; i < counter.keys.length; i++) {
+            if (counter.counts[i] == 0) {
+                continue;
+            }
+            long key = counter.keys[i];
+            int slice = (int) (key >>> 42);
+            int origin = (int) ((key >>> 21) & 0x1FFFFF);
+            int destination = (int) (key & 0x1FFFFF);
+            cells.add(new OdCell(slice, t0 + slice * sliceSeconds, zoneIndex.zoneId(origin),
+                    zoneIndex.zoneId(destination), counter.counts[i]));
+        }
+        cells.sort((a, b) -> a.getSlice() != b.getSlice() ? Integer.compare(a.getSlice(), b.getSlice())
+                : Integer.compare(b.getTrips(), a.getTrips()));
+
+        matrix.setSliceSeconds(sliceSeconds);
+        matrix.setFromSimTime(n == 0 ? 0 : minTime);
+        matrix.setToSimTime(n == 0 ? 0 : maxTime);
+        matrix.setZoneCount(zoneIndex.zoneCount());
+        matrix.setTransitions(n);
+        matrix.setVehicles(vehicles);
+        matrix.setTrips(counter.trips);
+        matrix.setUnzonedTrips(counter.unzoned);
+        matrix.setOpenTrips(counter.open);
+        matrix.setCells(cells);
+        matrix.setComputeMillis(System.currentTimeMillis() - start);
+        matrix.setStatus("DONE");
+    }
+
+    /** Reads a recorded file into the same columnar form as the live ring. */
+    private TransitionLog read(Path file) throws IOException {
+        Map<String, Integer> vehicleIds = new HashMap<>();
+        Map<String, Integer> edgeIds = new HashMap<>();
+        List<String> vehicleNames = new ArrayList<>();
+        List<String> edgeNames = new ArrayList<>();
+        int[] vehicles = new int[1 << 16];
+        int[] edges = new int[1 << 16];
+        float[] times = new float[1 << 16];
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int a = line.indexOf(',');
+                int b = a < 0 ? -1 : line.indexOf(',', a + 1);
+                if (b < 0) {
+                    continue;
+                }
+                float time;
+                try {
+                    time = Float.parseFloat(line.substring(0, a));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                String vehicleId = line.substring(a + 1, b);
+                String edgeId = line.substring(b + 1);
+                Integer v = vehicleIds.get(vehicleId);
+                if (v == null) {
+                    v = vehicleNames.size();
+                    vehicleIds.put(vehicleId, v);
+                    vehicleNames.add(vehicleId);
+                }
+                int e = -1;
+                if (!edgeId.isEmpty()) {
+                    Integer known = edgeIds.get(edgeId);
+                    if (known == null) {
+                        known = edgeNames.size();
+                        edgeIds.put(edgeId, known);
+                        edgeNames.add(edgeId);
+                    }
+                    e = known;
+                }
+                if (count == vehicles.length) {
+                    vehicles = Arrays.copyOf(vehicles, count * 2);
+                    edges = Arrays.copyOf(edges, count * 2);
+                    times = Arrays.copyOf(times, count * 2);
+                }
+                vehicles[count] = v;
+                edges[count] = e;
+                times[count] = time;
+                count++;
+            }
+        }
+        return new TransitionLog(count, vehicles, edges, times,
+                vehicleNames.toArray(new String[0]), edgeNames.toArray(new String[0]));
+    }
+
+    private ZoneIndex zones() {
+        ZoneIndex index = zones;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (zones == null) {
+                List<LaneEdgeInfo> lanes = laneMapper.getAllLaneEdgeMappings();
+                List<ZoneDefinition> definitions = readZoneDefinitions();
+                zones = ZoneIndex.build(lanes, definitions, zoneSize, indexCellSize);
+                logger.info("OD zone index: {} zones over {} lanes", zones.zoneCount(), lanes.size());
+            }
+            return zones;
+        }
+    }
+
+    private List<ZoneDefinition> readZoneDefinitions() {
+        try {
+            return ZoneIndex.readDefinitions(resourceLoader, objectMapper, zonesLocation);
+        } catch (IOException e) {
+            logger.warn("Cannot read OD zones from {}, using grid zones: {}", zonesLocation, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Read-only inputs shared by all trip tasks of one run. */
+    private record TripInput(TransitionLog log, int[] offsets, int[] order, int[] edgeZone,
+                             double t0, double sliceSeconds, int leafVehicles) {
+    }
+
+    /** Counts the trips of vehicles [from, to), splitting the range until it is small. */
+    private static final class TripTask extends RecursiveTask<TripCounter> {
+        private final TripInput input;
+        private final int from;
+        private final int to;
+
+        TripTask(TripInput input, int from, int to) {
+            this.input = input;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TripCounter compute() {
+            if (to - from <= input.leafVehicles()) {
+                return count();
+            }
+            int mid = (from + to) >>> 1;
+            TripTask left = new TripTask(input, from, mid);
+            left.fork();
+            TripCounter right = new TripTask(input, mid, to).compute();
+            return left.join().merge(right);
+        }
+
+        private TripCounter count() {
+            int[] edges = input.log().edges();
+            float[] times = input.log().times();
+            int[] order = input.order();
+            int[] edgeZone = input.edgeZone();
+            TripCounter counter = new TripCounter();
+            for (int v = from; v < to; v++) {
+                int origin = -1;
+                int last = -1;
+                float departed = 0;
+                for (int k = input.offsets()[v]; k < input.offsets()[v + 1]; k++) {
+                    int i = order[k];
+                    int edge = edges[i];
+                    if (edge >= 0) {
+                        if (origin < 0) {
+                            origin = edge;
+                            departed = times[i];
+                        }
+                        last = edge;
+                        continue;
+                    }
+                    if (origin >= 0) {
+                        int o = edgeZone[origin];
+                        int d = edgeZone[last];
+                        if (o < 0 || d < 0) {
+                            counter.unzoned++;
+                        } else {
+                            int slice = (int) ((departed - input.t0()) / input.sliceSeconds());
+                            counter.add(((long) slice << 42) | ((long) o << 21) | d, 1);
+                        }
+                        counter.trips++;
+                    }
+                    origin = -1;
+                    last = -1;
+                }
+                if (origin >= 0) {
+                    counter.open++;
+                }
+            }
+            return counter;
+        }
+    }
+
+    /** Open-addressing long -> int counter for packed (slice, origin, destination) keys. */
+    private static final class TripCounter {
+        long[] keys = new long[64];
+        int[] counts = new int[64];
+        int size;
+        long trips;
+        long unzoned;
+        long open;
+
+        void add(long key, int count) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+            while (counts[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (counts[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            counts[slot] += count;
+        }
+
+        TripCounter merge(TripCounter other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.keys[i], other.counts[i]);
+                }
+            }
+            trips += other.trips;
+            unzoned += other.unzoned;
+            open += other.open;
+            return this;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldCounts[i] != 0) {
+                    add(oldKeys[i], oldCounts[i]);
+                }
+            }
+        }
+    }
+}
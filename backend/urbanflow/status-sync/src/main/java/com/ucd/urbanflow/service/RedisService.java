@@ -1,10 +1,11 @@
 package com.ucd.urbanflow.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.sumo.SumoFrame;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
 import com.ucd.urbanflow.model.Edge;
 import com.ucd.urbanflow.model.Junction;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
@@ -14,24 +15,25 @@ import java.util.Map;
 public class RedisService {
 
     @Autowired
-    private StringRedisTemplate redisTemplate;
+    private SumoStateReader sumoStateReader;
 
     @Autowired
     private ObjectMapper objectMapper;
 
     // ✅ 读取 Redis 中所有 edge（Hash 存储）
     public Map<String, Edge> getAllEdgesFromHash() {
-        Map<Object, Object> rawMap = redisTemplate.opsForHash().entries("sumo:edge");
+        // JSON documents whichever schema the bridge writes
+        SumoFrame frame = sumoStateReader.readFrame(true, true, false);
         Map<String, Edge> result = new HashMap<>();
 
-        for (Map.Entry<Object, Object> entry : rawMap.entrySet()) {
+        for (int i = 0; i < frame.getEdgeCount(); i++) {
             try {
-                String key = entry.getKey().toString();
-                String json = entry.getValue().toString();
+                String key = frame.getEdgeId(i);
+                String json = frame.edgeJson(i);
                 Edge edge = objectMapper.readValue(json, Edge.class);
                 result.put(key, edge);
             } catch (Exception e) {
-                System.err.println("❌ [RedisService] Failed to parse edge JSON for key: " + entry.getKey());
+                System.err.println("❌ [RedisService] Failed to parse edge JSON for key: " + frame.getEdgeId(i));
                 e.printStackTrace();
             }
         }
@@ -41,18 +43,19 @@ public class RedisService {
 
     // ✅ 读取 Redis 中所有 junction（Hash 存储）
     public Map<String, Junction> getAllJunctionsFromHash() {
-        Map<Object, Object> rawMap = redisTemplate.opsForHash().entries("sumo:tls");
+        SumoFrame frame = sumoStateReader.readFrame(false, true);
         Map<String, Junction> result = new HashMap<>();
 
-        for (Map.Entry<Object, Object> entry : rawMap.entrySet()) {
+        for (int i = 0; i < frame.getTlsCount(); i++) {
+            String json = null;
             try {
-                String key = entry.getKey().toString();
-                String json = entry.getValue().toString();
+                String key = frame.getTlsId(i);
+                json = frame.tlsJson(i);
                 Junction junction = objectMapper.readValue(json, Junction.class);
                 result.put(key, junction);
             } catch (Exception e) {
-                System.err.println("❌ [RedisService] Failed to parse junction JSON for key: " + entry.getKey());
-                System.err.println("🔍 Value: " + entry.getValue());  // 加上这行打印原始 Redis 字符串
+                System.err.println("❌ [RedisService] Failed to parse junction JSON for key: " + frame.getTlsId(i));
+                System.err.println("🔍 Value: " + json);  // 加上这行打印原始 Redis 字符串
                 e.printStackTrace();
             }
         }
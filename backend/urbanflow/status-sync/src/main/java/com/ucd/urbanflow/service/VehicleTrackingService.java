@@ -0,0 +1,578 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.model.PathStep;
+import com.ucd.urbanflow.model.TravelTimeStats;
+import com.ucd.urbanflow.model.VehiclePosition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Vehicle tracking store fed by the per-second sumo:edge read of the status broadcast.
+ * <p>
+ * Vehicle and edge IDs are interned into int handles. Each vehicle keeps its current
+ * edge and the sequence number of its last transition; transitions go to an
+ * append-only ring of parallel primitive arrays (vehicle, edge, time, previous
+ * transition of the same vehicle), so a trajectory is a backwards walk along that
+ * chain and nothing is stored while a vehicle stays on its edge. A vehicle that
+ * disappears from the feed gets a transition to edge -1.
+ * <p>
+ * A vehicle not seen for status.tracking.forget-steps reads is forgotten. Its handle
+ * goes to a free list and is reused once its last transition has left the ring, so
+ * retained transitions never change owner and the per-vehicle arrays stay bounded by
+ * the vehicles on the network plus those with retained history.
+ * <p>
+ * The same streaming pass that reads the vehicle lists also writes each edge back out
+ * without them, which is what the status WebSocket sends by default.
+ * <p>
+ * With status.tracking.record-dir set, every transition is also appended to a daily
+ * trajectories-yyyyMMdd.csv file (simTime,vehicleId,edgeId; an empty edge marks an
+ * exit) for offline jobs such as OD estimation.
+ */
+@Service
+public class VehicleTrackingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VehicleTrackingService.class);
+    private static final int MAX_HOPS = 500;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int capacity;
+    private final int forgetSteps;
+
+    // interning
+    private final Map<String, Integer> vehicleHandles = new HashMap<>();
+    private String[] vehicleNames = new String[1024];
+    private int vehicleCount;
+    // forgotten handles, reused oldest first once their history is out of the ring
+    private final IntQueue freeHandles = new IntQueue();
+    private final Map<String, Integer> edgeHandles = new HashMap<>();
+    private String[] edgeNames = new String[1024];
+    private int edgeCount;
+
+    // per vehicle
+    private int[] currentEdge = new int[1024];
+    private float[] enteredAt = new float[1024];
+    private float[] lastSeen = new float[1024];
+    private long[] lastStep = new long[1024];
+    private int[] seenStamp = new int[1024];
+
+    // vehicles on the network at the last tick
+    private int[] active = new int[1024];
+    private int activeCount;
+    private int[] nextActive = new int[1024];
+    private int stamp;
+    private float latestTime;
+    // vehicles that left, with the read they left at, oldest first
+    private final IntQueue departed = new IntQueue();
+    private final IntQueue departedAt = new IntQueue();
+
+    // transition ring
+    private final int[] logVehicle;
+    private final int[] logEdge;
+    private final float[] logTime;
+    private final long[] logPrev;
+    private long logSeq;
+
+    // optional transition recording
+    private final Path recordDir;
+    private BufferedWriter recorder;
+    private LocalDate recordDay;
+
+    public VehicleTrackingService(@Value("${status.tracking.trajectory-capacity:1048576}") int capacity,
+                                  @Value("${status.tracking.record-dir:}") String recordDir,
+                                  @Value("${status.tracking.forget-steps:300}") int forgetSteps) {
+        this.capacity = capacity;
+        this.forgetSteps = Math.max(1, forgetSteps);
+        this.recordDir = recordDir == null || recordDir.isBlank() ? null : Paths.get(recordDir);
+        this.logVehicle = new int[capacity];
+        this.logEdge = new int[capacity];
+        this.logTime = new float[capacity];
+        this.logPrev = new long[capacity];
+    }
+
+    /**
+     * Records the vehicle lists of one sumo:edge read and returns the edge documents
+     * without vehicleIDs and waitingVehicleIDs, keyed like the input.
+     */
+    public Map<String, String> ingest(Map<Object, Object> rawEdges, double simTime) {
+        int n = rawEdges.size();
+        Map<String, String> stripped = new HashMap<>(n * 2);
+        String[] edgeIds = new String[n];
+        List<List<String>> vehicles = new ArrayList<>(n);
+        int k = 0;
+        for (Map.Entry<Object, Object> entry : rawEdges.entrySet()) {
+            String edgeId = entry.getKey().toString();
+            List<String> ids = new ArrayList<>();
+            stripped.put(edgeId, strip(entry.getValue().toString(), ids));
+            edgeIds[k++] = edgeId;
+            vehicles.add(ids);
+        }
+
+        lock.writeLock().lock();
+        try {
+            openRecorder();
+            apply(edgeIds, vehicles, (float) simTime);
+            flushRecorder();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return stripped;
+    }
+
+    /** Simulation time of the last ingested read. */
+    public double getSimTime() {
+        lock.readLock().lock();
+        try {
+            return latestTime;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Directory of the recorded trajectory files, or null when recording is off. */
+    public Path getRecordDir() {
+        return recordDir;
+    }
+
+    /**
+     * Copies the retained transitions at or after fromSimTime, oldest first. Vehicle
+     * handles index the returned vehicle names, edge handles the edge names.
+     */
+    public TransitionLog snapshot(double fromSimTime) {
+        lock.readLock().lock();
+        try {
+            long oldest = Math.max(0, logSeq - capacity);
+            long first = logSeq;
+            while (first > oldest && logTime[(int) ((first - 1) % capacity)] >= fromSimTime) {
+                first--;
+            }
+            int count = (int) (logSeq - first);
+            int[] vehicles = new int[count];
+            int[] edges = new int[count];
+            float[] times = new float[count];
+            for (int i = 0; i < count; i++) {
+                int pos = (int) ((first + i) % capacity);
+                vehicles[i] = logVehicle[pos];
+                edges[i] = logEdge[pos];
+                times[i] = logTime[pos];
+            }
+            return new TransitionLog(count, vehicles, edges, times,
+                    Arrays.copyOf(vehicleNames, vehicleCount), Arrays.copyOf(edgeNames, edgeCount));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String strip(String json, List<String> ids) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            StringWriter out = new StringWriter(Math.min(json.length(), 512));
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return json;
+                }
+                gen.writeStartObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("vehicleIDs".equals(field) && value == JsonToken.START_ARRAY) {
+                        JsonToken item;
+                        while ((item = parser.nextToken()) != JsonToken.END_ARRAY && item != null) {
+                            if (item == JsonToken.VALUE_STRING) {
+                                ids.add(parser.getText());
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else if ("waitingVehicleIDs".equals(field)) {
+                        parser.skipChildren();
+                    } else {
+                        gen.writeFieldName(field);
+                        gen.copyCurrentStructure(parser);
+                    }
+                }
+                gen.writeEndObject();
+            }
+            return out.toString();
+        } catch (Exception e) {
+            logger.warn("Failed to read edge JSON: {}", e.getMessage());
+            return json;
+        }
+    }
+
+    private void apply(String[] edgeIds, List<List<String>> vehicles, float time) {
+        stamp++;
+        latestTime = time;
+        int next = 0;
+        for (int i = 0; i < edgeIds.length; i++) {
+            int edge = internEdge(edgeIds[i]);
+            for (String vehicleId : vehicles.get(i)) {
+                int v = internVehicle(vehicleId);
+                if (seenStamp[v] == stamp) {
+                    continue;
+                }
+                seenStamp[v] = stamp;
+                if (next == nextActive.length) {
+                    nextActive = Arrays.copyOf(nextActive, next * 2);
+                }
+                nextActive[next++] = v;
+                if (currentEdge[v] != edge) {
+                    append(v, edge, time);
+                    currentEdge[v] = edge;
+                    enteredAt[v] = time;
+                }
+                lastSeen[v] = time;
+            }
+        }
+        for (int i = 0; i < activeCount; i++) {
+            int v = active[i];
+            if (seenStamp[v] != stamp && currentEdge[v] >= 0) {
+                append(v, -1, time);
+                currentEdge[v] = -1;
+                departed.add(v);
+                departedAt.add(stamp);
+            }
+        }
+        int[] swap = active;
+        active = nextActive;
+        nextActive = swap.length >= active.length ? swap : new int[active.length];
+        activeCount = next;
+        forgetDeparted();
+    }
+
+    /** Forgets vehicles that left forgetSteps reads ago and have not come back since. */
+    private void forgetDeparted() {
+        while (!departed.isEmpty() && stamp - departedAt.peek() >= forgetSteps) {
+            int v = departed.poll();
+            departedAt.poll();
+            // a vehicle that came back (and maybe left again) is handled by its later entry
+            if (currentEdge[v] >= 0 || stamp - seenStamp[v] < forgetSteps) {
+                continue;
+            }
+            Integer handle = vehicleHandles.get(vehicleNames[v]);
+            if (handle != null && handle == v) {
+                // the name stays until the handle is reused, the ring may still refer to it
+                vehicleHandles.remove(vehicleNames[v]);
+                freeHandles.add(v);
+            }
+        }
+    }
+
+    private void append(int vehicle, int edge, float time) {
+        long seq = logSeq++;
+        int pos = (int) (seq % capacity);
+        logVehicle[pos] = vehicle;
+        logEdge[pos] = edge;
+        logTime[pos] = time;
+        logPrev[pos] = lastStep[vehicle];
+        lastStep[vehicle] = seq;
+        if (recorder != null) {
+            record(vehicle, edge, time);
+        }
+    }
+
+    private void openRecorder() {
+        if (recordDir == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        if (recorder != null && today.equals(recordDay)) {
+            return;
+        }
+        closeRecorder();
+        try {
+            Files.createDirectories(recordDir);
+            Path file = recordDir.resolve("trajectories-" + today.toString().replace("-", "") + ".csv");
+            recorder = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            recordDay = today;
+        } catch (IOException e) {
+            logger.warn("Cannot open trajectory recording in {}: {}", recordDir, e.getMessage());
+        }
+    }
+
+    private void record(int vehicle, int edge, float time) {
+        try {
+            recorder.write(Float.toString(time));
+            recorder.write(',');
+            recorder.write(vehicleNames[vehicle]);
+            recorder.write(',');
+            if (edge >= 0) {
+                recorder.write(edgeNames[edge]);
+            }
+            recorder.newLine();
+        } catch (IOException e) {
+            logger.warn("Trajectory recording failed, stopping it: {}", e.getMessage());
+            closeRecorder();
+        }
+    }
+
+    private void flushRecorder() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.flush();
+        } catch (IOException e) {
+            logger.warn("Trajectory recording flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void closeRecorder() {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            // nothing left to do with a broken file
+        }
+        recorder = null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lock.writeLock().lock();
+        try {
+            closeRecorder();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean retained(long seq) {
+        return seq >= 0 && seq >= logSeq - capacity;
+    }
+
+    public VehiclePosition getPosition(String vehicleId) {
+        lock.readLock().lock();
+        try {
+            Integer v = vehicleHandles.get(vehicleId);
+            if (v == null) {
+                return null;
+            }
+            int edge = currentEdge[v];
+            return new VehiclePosition(vehicleId, edge >= 0 ? edgeNames[edge] : null, enteredAt[v], lastSeen[v], edge >= 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Edges visited in the last minutes, oldest first; null for an unknown vehicle. */
+    public List<PathStep> getPath(String vehicleId, double minutes) {
+        lock.readLock().lock();
+        try {
+            Integer v = vehicleHandles.get(vehicleId);
+            if (v == null) {
+                return null;
+            }
+            double cutoff = latestTime - minutes * 60;
+            List<PathStep> path = new ArrayList<>();
+            double left = -1;
+            for (long seq = lastStep[v]; retained(seq); seq = logPrev[(int) (seq % capacity)]) {
+                int pos = (int) (seq % capacity);
+                float time = logTime[pos];
+                if (logEdge[pos] >= 0) {
+                    path.add(new PathStep(edgeNames[logEdge[pos]], time, left));
+                }
+                left = time;
+                if (time < cutoff) {
+                    break;
+                }
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Travel times of vehicles that entered fromEdge and later toEdge, for arrivals at
+     * toEdge within the last minutes.
+     */
+    public TravelTimeStats getTravelTime(String fromEdge, String toEdge, double minutes) {
+        lock.readLock().lock();
+        try {
+            Integer from = edgeHandles.get(fromEdge);
+            Integer to = edgeHandles.get(toEdge);
+            TravelTimeStats stats = new TravelTimeStats(fromEdge, toEdge, 0, 0, 0, 0, 0, 0);
+            if (from == null || to == null) {
+                return stats;
+            }
+            double cutoff = latestTime - minutes * 60;
+            float[] samples = new float[64];
+            int count = 0;
+            long oldest = Math.max(0, logSeq - capacity);
+            for (long seq = logSeq - 1; seq >= oldest; seq--) {
+                int pos = (int) (seq % capacity);
+                if (logTime[pos] < cutoff) {
+                    break;
+                }
+                if (logEdge[pos] != to) {
+                    continue;
+                }
+                // walk the vehicle's chain back to its last entry into fromEdge
+                long prev = logPrev[pos];
+                for (int hops = 0; hops < MAX_HOPS && retained(prev); hops++) {
+                    int p = (int) (prev % capacity);
+                    int edge = logEdge[p];
+                    if (edge == to || edge < 0) {
+                        break;
+                    }
+                    if (edge == from) {
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = logTime[pos] - logTime[p];
+                        break;
+                    }
+                    prev = logPrev[p];
+                }
+            }
+            if (count == 0) {
+                return stats;
+            }
+            Arrays.sort(samples, 0, count);
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += samples[i];
+            }
+            stats.setSamples(count);
+            stats.setMeanSeconds(sum / count);
+            stats.setMedianSeconds(samples[count / 2]);
+            stats.setP90Seconds(samples[Math.min(count - 1, (int) Math.ceil(count * 0.9) - 1)]);
+            stats.setMinSeconds(samples[0]);
+            stats.setMaxSeconds(samples[count - 1]);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("vehiclesKnown", vehicleHandles.size());
+            stats.put("vehicleHandles", vehicleCount);
+            stats.put("vehiclesActive", activeCount);
+            stats.put("edgesKnown", edgeCount);
+            stats.put("transitionsRecorded", logSeq);
+            stats.put("transitionsRetained", Math.min(logSeq, capacity));
+            stats.put("simTime", latestTime);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int internVehicle(String vehicleId) {
+        Integer handle = vehicleHandles.get(vehicleId);
+        if (handle != null) {
+            return handle;
+        }
+        if (!freeHandles.isEmpty() && !retained(lastStep[freeHandles.peek()])) {
+            int v = freeHandles.poll();
+            vehicleNames[v] = vehicleId;
+            currentEdge[v] = -1;
+            lastStep[v] = -1;
+            vehicleHandles.put(vehicleId, v);
+            return v;
+        }
+        int v = vehicleCount++;
+        if (v == vehicleNames.length) {
+            int grown = v * 2;
+            vehicleNames = Arrays.copyOf(vehicleNames, grown);
+            currentEdge = Arrays.copyOf(currentEdge, grown);
+            enteredAt = Arrays.copyOf(enteredAt, grown);
+            lastSeen = Arrays.copyOf(lastSeen, grown);
+            lastStep = Arrays.copyOf(lastStep, grown);
+            seenStamp = Arrays.copyOf(seenStamp, grown);
+        }
+        vehicleNames[v] = vehicleId;
+        currentEdge[v] = -1;
+        lastStep[v] = -1;
+        vehicleHandles.put(vehicleId, v);
+        return v;
+    }
+
+    private int internEdge(String edgeId) {
+        Integer handle = edgeHandles.get(edgeId);
+        if (handle != null) {
+            return handle;
+        }
+        int e = edgeCount++;
+        if (e == edgeNames.length) {
+            edgeNames = Arrays.copyOf(edgeNames, e * 2);
+        }
+        edgeNames[e] = edgeId;
+        edgeHandles.put(edgeId, e);
+        return e;
+    }
+
+    /** Growable FIFO of ints. */
+    private static final class IntQueue {
+        private int[] values = new int[256];
+        private int head;
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = values[(head + i) % values.length];
+                }
+                values = grown;
+                head = 0;
+            }
+            values[(head + size++) % values.length] = value;
+        }
+
+        int peek() {
+            return values[head];
+        }
+
+        int poll() {
+            int value = values[head];
+            head = (head + 1) % values.length;
+            size--;
+            return value;
+        }
+    }
+
+    /** Columnar copy of the transition ring; an edge of -1 marks an exit. */
+    public record TransitionLog(int count, int[] vehicles, int[] edges, float[] times,
+                                String[] vehicleNames, String[] edgeNames) {
+    }
+}
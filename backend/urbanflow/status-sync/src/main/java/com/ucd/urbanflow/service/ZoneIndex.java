@@ -0,0 +1,218 @@
+package com.ucd.urbanflow.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.model.LaneEdgeInfo;
+import com.ucd.urbanflow.model.ZoneDefinition;
+import org.springframework.core.io.ResourceLoader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps edges to planning zones. Each edge is reduced to the midpoint of its lane
+ * shape; the point is then either binned into square grid zones or located in one of
+ * the configured zone polygons through a uniform bucket grid over the polygon bounds,
+ * so a lookup tests only the few polygons that share its bucket.
+ */
+final class ZoneIndex {
+
+    private final List<String> zoneIds = new ArrayList<>();
+    private final Map<String, Integer> edgeZones = new HashMap<>();
+
+    private ZoneIndex() {
+    }
+
+    /** Polygon zones when definitions are given, square grid zones otherwise. */
+    static ZoneIndex build(List<LaneEdgeInfo> lanes, List<ZoneDefinition> definitions, double gridSize, double bucketSize) {
+        return definitions == null ? grid(lanes, gridSize) : polygons(lanes, definitions, bucketSize);
+    }
+
+    /** Reads a JSON array of {@link ZoneDefinition}; null for a blank location. */
+    static List<ZoneDefinition> readDefinitions(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                                                String location) throws IOException {
+        if (location == null || location.isBlank()) {
+            return null;
+        }
+        try (InputStream in = resourceLoader.getResource(location).getInputStream()) {
+            return objectMapper.readValue(in, new TypeReference<List<ZoneDefinition>>() {});
+        }
+    }
+
+    /** Square zones of cellSize metres, named G{column}_{row}. */
+    static ZoneIndex grid(List<LaneEdgeInfo> lanes, double cellSize) {
+        ZoneIndex index = new ZoneIndex();
+        Map<String, Integer> zoneIndex = new HashMap<>();
+        for (Map.Entry<String, double[]> entry : edgePoints(lanes).entrySet()) {
+            double[] p = entry.getValue();
+            String zone = "G" + (long) Math.floor(p[0] / cellSize) + "_" + (long) Math.floor(p[1] / cellSize);
+            Integer z = zoneIndex.get(zone);
+            if (z == null) {
+                z = index.zoneIds.size();
+                zoneIndex.put(zone, z);
+                index.zoneIds.add(zone);
+            }
+            index.edgeZones.put(entry.getKey(), z);
+        }
+        return index;
+    }
+
+    /** Configured polygons; edges outside every polygon stay unzoned. */
+    static ZoneIndex polygons(List<LaneEdgeInfo> lanes, List<ZoneDefinition> zones, double bucketSize) {
+        ZoneIndex index = new ZoneIndex();
+        int n = zones.size();
+        double[][] xs = new double[n][];
+        double[][] ys = new double[n][];
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int z = 0; z < n; z++) {
+            List<List<Double>> polygon = zones.get(z).getPolygon();
+            xs[z] = new double[polygon.size()];
+            ys[z] = new double[polygon.size()];
+            for (int i = 0; i < polygon.size(); i++) {
+                xs[z][i] = polygon.get(i).get(0);
+                ys[z][i] = polygon.get(i).get(1);
+                minX = Math.min(minX, xs[z][i]);
+                minY = Math.min(minY, ys[z][i]);
+                maxX = Math.max(maxX, xs[z][i]);
+                maxY = Math.max(maxY, ys[z][i]);
+            }
+            index.zoneIds.add(zones.get(z).getId());
+        }
+        if (n == 0) {
+            return index;
+        }
+
+        int cols = Math.max(1, (int) Math.ceil((maxX - minX) / bucketSize));
+        int rows = Math.max(1, (int) Math.ceil((maxY - minY) / bucketSize));
+        List<List<Integer>> buckets = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) {
+            buckets.add(null);
+        }
+        for (int z = 0; z < n; z++) {
+            double bx0 = Double.POSITIVE_INFINITY;
+            double by0 = Double.POSITIVE_INFINITY;
+            double bx1 = Double.NEGATIVE_INFINITY;
+            double by1 = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < xs[z].length; i++) {
+                bx0 = Math.min(bx0, xs[z][i]);
+                by0 = Math.min(by0, ys[z][i]);
+                bx1 = Math.max(bx1, xs[z][i]);
+                by1 = Math.max(by1, ys[z][i]);
+            }
+            int c0 = clamp((int) ((bx0 - minX) / bucketSize), cols);
+            int c1 = clamp((int) ((bx1 - minX) / bucketSize), cols);
+            int r0 = clamp((int) ((by0 - minY) / bucketSize), rows);
+            int r1 = clamp((int) ((by1 - minY) / bucketSize), rows);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    int b = r * cols + c;
+                    if (buckets.get(b) == null) {
+                        buckets.set(b, new ArrayList<>(2));
+                    }
+                    buckets.get(b).add(z);
+                }
+            }
+        }
+
+        for (Map.Entry<String, double[]> entry : edgePoints(lanes).entrySet()) {
+            double x = entry.getValue()[0];
+            double y = entry.getValue()[1];
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                continue;
+            }
+            List<Integer> candidates = buckets.get(clamp((int) ((y - minY) / bucketSize), rows) * cols
+                    + clamp((int) ((x - minX) / bucketSize), cols));
+            if (candidates == null) {
+                continue;
+            }
+            for (int z : candidates) {
+                if (contains(xs[z], ys[z], x, y)) {
+                    index.edgeZones.put(entry.getKey(), z);
+                    break;
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Zone index of an edge, -1 when the edge is unknown or outside every zone. */
+    int zoneOf(String edgeId) {
+        Integer z = edgeZones.get(edgeId);
+        return z == null ? -1 : z;
+    }
+
+    String zoneId(int zone) {
+        return zoneIds.get(zone);
+    }
+
+    int zoneCount() {
+        return zoneIds.size();
+    }
+
+    private static Map<String, double[]> edgePoints(List<LaneEdgeInfo> lanes) {
+        Map<String, double[]> points = new HashMap<>();
+        for (LaneEdgeInfo lane : lanes) {
+            if (lane.getEdgeId() == null || lane.getLaneShape() == null || points.containsKey(lane.getEdgeId())) {
+                continue;
+            }
+            double[] mid = midpoint(lane.getLaneShape());
+            if (mid != null) {
+                points.put(lane.getEdgeId(), mid);
+            }
+        }
+        return points;
+    }
+
+    /** Point halfway along a "x,y x,y ..." polyline. */
+    private static double[] midpoint(String shape) {
+        String[] parts = shape.trim().split("\\s+");
+        List<double[]> points = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            int comma = part.indexOf(',');
+            if (comma > 0) {
+                points.add(new double[]{Double.parseDouble(part.substring(0, comma)),
+                        Double.parseDouble(part.substring(comma + 1))});
+            }
+        }
+        if (points.isEmpty()) {
+            return null;
+        }
+        double total = 0;
+        for (int i = 1; i < points.size(); i++) {
+            total += Math.hypot(points.get(i)[0] - points.get(i - 1)[0], points.get(i)[1] - points.get(i - 1)[1]);
+        }
+        double remaining = total / 2;
+        for (int i = 1; i < points.size(); i++) {
+            double[] a = points.get(i - 1);
+            double[] b = points.get(i);
+            double segment = Math.hypot(b[0] - a[0], b[1] - a[1]);
+            if (segment >= remaining && segment > 0) {
+                double f = remaining / segment;
+                return new double[]{a[0] + (b[0] - a[0]) * f, a[1] + (b[1] - a[1]) * f};
+            }
+            remaining -= segment;
+        }
+        return points.get(0);
+    }
+
+    private static boolean contains(double[] xs, double[] ys, double x, double y) {
+        boolean inside = false;
+        for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+            if ((ys[i] > y) != (ys[j] > y) && x < (xs[j] - xs[i]) * (y - ys[i]) / (ys[j] - ys[i]) + xs[i]) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
@@ -0,0 +1,77 @@
+package com.ucd.urbanflow.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.model.KpiSnapshot;
+import com.ucd.urbanflow.service.KpiService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.*;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Small KPI topic: pushes the KPI snapshot once per second, only when it changed, and
+ * the current one right after connecting.
+ */
+@Component
+public class KpiWebSocketHandler extends TextWebSocketHandler {
+
+    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private long sentVersion = -1;
+
+    @Autowired
+    private KpiService kpiService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleAtFixedRate(this::broadcastKpi, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        sessions.add(session);
+        String json = objectMapper.writeValueAsString(kpiService.getSnapshot());
+        synchronized (session) {
+            session.sendMessage(new TextMessage(json));
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session);
+    }
+
+    private void broadcastKpi() {
+        try {
+            KpiSnapshot snapshot = kpiService.getSnapshot();
+            if (snapshot.getVersion() == sentVersion || sessions.isEmpty()) {
+                return;
+            }
+            sentVersion = snapshot.getVersion();
+            TextMessage message = new TextMessage(objectMapper.writeValueAsString(snapshot));
+            for (WebSocketSession session : sessions) {
+                if (session.isOpen()) {
+                    synchronized (session) {
+                        session.sendMessage(message);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[WebSocket] KPI broadcast failed");
+            e.printStackTrace();
+        }
+    }
+}
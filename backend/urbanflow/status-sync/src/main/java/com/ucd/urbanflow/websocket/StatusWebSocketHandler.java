@@ -3,6 +3,12 @@ package com.ucd.urbanflow.websocket;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.exchange.CongestedJunction;
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import com.ucd.urbanflow.common.sumo.SumoFrame;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
+import com.ucd.urbanflow.service.EdgeStateService;
+import com.ucd.urbanflow.service.VehicleTrackingService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
@@ -16,13 +22,29 @@ import java.util.concurrent.*;
 public class StatusWebSocketHandler extends TextWebSocketHandler {
 
     private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+    // sessions that connected with ?vehicleIds=true and still want the per-edge vehicle lists
+    private final Set<WebSocketSession> vehicleIdSessions = ConcurrentHashMap.newKeySet();
+    private final long startedAt = System.currentTimeMillis();
 
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private SumoStateReader sumoStateReader;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private VehicleTrackingService vehicleTrackingService;
+
+    @Autowired
+    private EdgeStateService edgeStateService;
+
+    /** Present only under the launcher, where traffic-sensing hands over its ranking in process. */
+    @Autowired(required = false)
+    private InProcessExchange exchange;
+
     public StatusWebSocketHandler() {
         Executors.newSingleThreadScheduledExecutor()
                 .scheduleAtFixedRate(this::broadcastStatus, 0, 1, TimeUnit.SECONDS);
@@ -31,24 +53,41 @@ public class StatusWebSocketHandler extends TextWebSocketHandler {
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         sessions.add(session);
+        String query = session.getUri() != null ? session.getUri().getQuery() : null;
+        if (query != null && Arrays.asList(query.split("&")).contains("vehicleIds=true")) {
+            vehicleIdSessions.add(session);
+        }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         sessions.remove(session);
+        vehicleIdSessions.remove(session);
     }
 
     private void broadcastStatus() {
         try {
             // === 原始 edge 和 tls 数据 ===
-            Map<String, String> edgeData = new HashMap<>();
             Map<String, String> tlsData = new HashMap<>();
 
-            Map<Object, Object> edgeMap = redisTemplate.opsForHash().entries("sumo:edge");
-            Map<Object, Object> tlsMap = redisTemplate.opsForHash().entries("sumo:tls");
+            // both hashes in one round trip, as JSON documents whichever schema the bridge writes
+            SumoFrame frame = sumoStateReader.readFrame(true, true, true);
+            Map<Object, Object> edgeMap = new HashMap<>(frame.getEdgeCount() * 2);
+            for (int i = 0; i < frame.getEdgeCount(); i++) {
+                edgeMap.put(frame.getEdgeId(i), frame.edgeJson(i));
+            }
+            Map<Object, Object> tlsMap = new HashMap<>(frame.getTlsCount() * 2);
+            for (int i = 0; i < frame.getTlsCount(); i++) {
+                tlsMap.put(frame.getTlsId(i), frame.tlsJson(i));
+            }
 
-            for (Map.Entry<Object, Object> entry : edgeMap.entrySet()) {
-                edgeData.put(entry.getKey().toString(), entry.getValue().toString());
+            // vehicle lists go to the tracking store; the default broadcast carries edges without them
+            Map<String, String> edgeData = vehicleTrackingService.ingest(edgeMap, simulationTime());
+            try {
+                edgeStateService.update(edgeData);
+            } catch (Exception e) {
+                System.err.println("[WebSocket] edge state update failed");
+                e.printStackTrace();
             }
 
             for (Map.Entry<Object, Object> entry : tlsMap.entrySet()) {
@@ -73,7 +112,18 @@ public class StatusWebSocketHandler extends TextWebSocketHandler {
             // === 拥堵数据处理 ===
             List<Map<String, Object>> congestedResults = new ArrayList<>();
             try {
-                String congestedJson = redisTemplate.opsForValue().get("traffic:cache:top6_congested_junctions");
+                List<?> local = exchange == null ? null : exchange.get(InProcessExchange.CONGESTED_JUNCTIONS, List.class);
+                if (local != null) {
+                    for (Object item : local) {
+                        CongestedJunction junction = (CongestedJunction) item;
+                        Map<String, Object> resultItem = new HashMap<>();
+                        resultItem.put("j", junctionIdToName.getOrDefault(junction.junctionId(), junction.junctionId()));
+                        resultItem.put("q", junction.congestionCount());
+                        congestedResults.add(resultItem);
+                    }
+                }
+                String congestedJson = local != null ? null
+                        : redisTemplate.opsForValue().get("traffic:cache:top6_congested_junctions");
                 if (congestedJson != null) {
                     List<Map<String, Object>> congestedList = objectMapper.readValue(
                             congestedJson,
@@ -98,16 +148,42 @@ public class StatusWebSocketHandler extends TextWebSocketHandler {
                 e.printStackTrace();
             }
 
+            // === incidents detected by special-event-handling, edgeId -> incident JSON ===
+            Map<String, String> incidentData = new HashMap<>();
+            try {
+                for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries("event:incident").entrySet()) {
+                    incidentData.put(entry.getKey().toString(), entry.getValue().toString());
+                }
+            } catch (Exception e) {
+                System.err.println("[WebSocket] failed to read event:incident");
+                e.printStackTrace();
+            }
+
             // === 构造广播内容 ===
             Map<String, Object> message = new HashMap<>();
             message.put("edges", edgeData);
             message.put("trafficLights", tlsData);
             message.put("congested", congestedResults);
+            message.put("incidents", incidentData);
 
             String json = objectMapper.writeValueAsString(message);
+            String fullJson = null;
 
             for (WebSocketSession session : sessions) {
-                if (session.isOpen()) {
+                if (!session.isOpen()) {
+                    continue;
+                }
+                if (vehicleIdSessions.contains(session)) {
+                    if (fullJson == null) {
+                        Map<String, String> fullEdgeData = new HashMap<>();
+                        for (Map.Entry<Object, Object> entry : edgeMap.entrySet()) {
+                            fullEdgeData.put(entry.getKey().toString(), entry.getValue().toString());
+                        }
+                        message.put("edges", fullEdgeData);
+                        fullJson = objectMapper.writeValueAsString(message);
+                    }
+                    session.sendMessage(new TextMessage(fullJson));
+                } else {
                     session.sendMessage(new TextMessage(json));
                 }
             }
@@ -117,4 +193,16 @@ public class StatusWebSocketHandler extends TextWebSocketHandler {
             e.printStackTrace();
         }
     }
+
+    private double simulationTime() {
+        String value = redisTemplate.opsForValue().get("sumo:simulation_time");
+        if (value != null) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException ignored) {
+                // fall through to wall clock
+            }
+        }
+        return (System.currentTimeMillis() - startedAt) / 1000.0;
+    }
 }
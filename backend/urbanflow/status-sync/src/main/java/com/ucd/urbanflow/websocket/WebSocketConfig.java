@@ -8,13 +8,16 @@ import org.springframework.web.socket.config.annotation.*;
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final StatusWebSocketHandler statusHandler;
+    private final KpiWebSocketHandler kpiHandler;
 
-    public WebSocketConfig(StatusWebSocketHandler statusHandler) {
+    public WebSocketConfig(StatusWebSocketHandler statusHandler, KpiWebSocketHandler kpiHandler) {
         this.statusHandler = statusHandler;
+        this.kpiHandler = kpiHandler;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(statusHandler, "/api/status/ws").setAllowedOrigins("*");
+        registry.addHandler(kpiHandler, "/api/status/kpi/ws").setAllowedOrigins("*");
     }
 }
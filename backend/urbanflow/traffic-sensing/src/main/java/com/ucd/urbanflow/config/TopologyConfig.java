@@ -0,0 +1,43 @@
+package com.ucd.urbanflow.config;
+
+import com.ucd.urbanflow.common.topology.ConditionalOnTopologySnapshot;
+import com.ucd.urbanflow.common.topology.TopologySnapshot;
+import com.ucd.urbanflow.domain.pojo.JunctionIncomingEdge;
+import com.ucd.urbanflow.mapper.JunctionMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When topology.snapshot.path names a compiled topology file, the junction → incoming
+ * edge table is read from it instead of MySQL. Without the property the MyBatis mapper
+ * is used as before.
+ */
+@Configuration
+@ConditionalOnTopologySnapshot
+public class TopologyConfig {
+
+    @Bean
+    @Primary
+    public JunctionMapper snapshotJunctionMapper(TopologySnapshot snapshot) {
+        return () -> {
+            List<JunctionIncomingEdge> rows = new ArrayList<>();
+            for (int junction = 0; junction < snapshot.getJunctionCount(); junction++) {
+                String junctionId = snapshot.junctionId(junction);
+                String junctionName = snapshot.junctionName(junction);
+                for (int k = snapshot.incomingStart(junction); k < snapshot.incomingEnd(junction); k++) {
+                    JunctionIncomingEdge row = new JunctionIncomingEdge();
+                    row.setJunctionId(junctionId);
+                    row.setJunctionName(junctionName);
+                    row.setIncomingEdgeId(snapshot.incomingEdgeId(k));
+                    row.setIncomingEdgeName(snapshot.incomingEdgeName(k));
+                    rows.add(row);
+                }
+            }
+            return rows;
+        };
+    }
+}
@@ -1,17 +0,0 @@
-package com.ucd.urbanflow.domain.vo;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import lombok.Data;
-
-@Data
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class EdgeData {
-
-    @JsonProperty("edgeID")
-    private String edgeID;
-
-    @JsonProperty("vehicleCount")
-    private int vehicleCount;
-
-}
\ No newline at end of file
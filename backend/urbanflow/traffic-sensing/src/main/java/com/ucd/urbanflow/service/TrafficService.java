@@ -2,12 +2,16 @@ package com.ucd.urbanflow.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ucd.urbanflow.common.exchange.CongestedJunction;
+import com.ucd.urbanflow.common.exchange.InProcessExchange;
+import com.ucd.urbanflow.common.sumo.EdgeState;
+import com.ucd.urbanflow.common.sumo.SumoStateReader;
 import com.ucd.urbanflow.domain.dto.JunctionCongestionDTO;
 import com.ucd.urbanflow.domain.pojo.JunctionIncomingEdge;
-import com.ucd.urbanflow.domain.vo.EdgeData;
 import com.ucd.urbanflow.mapper.JunctionMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -26,8 +30,9 @@ public class TrafficService {
     private final JunctionMapper junctionMapper;
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final SumoStateReader sumoStateReader;
+    private final ObjectProvider<InProcessExchange> exchange;
 
-    private static final String REDIS_EDGE_KEY_PREFIX = "sumo:edge:";
     private static final int TOP_N_JUNCTIONS = 6;
 
     // 定义用于缓存计算结果的 Redis Key
@@ -52,11 +57,18 @@ public class TrafficService {
             // 1. 执行核心计算
             List<JunctionCongestionDTO> topJunctions = this.calculateTopCongestedJunctions();
 
-            // 2. 将结果列表序列化为JSON字符串
-            String jsonCacheData = objectMapper.writeValueAsString(topJunctions);
-
-            // 3. 将JSON字符串存入指定的Redis Key中
-            redisTemplate.opsForValue().set(CACHE_KEY_CONGESTED_JUNCTIONS, jsonCacheData);
+            // 2. 与 status-sync 同进程运行（launcher）时直接交给它，不再经过 Redis
+            InProcessExchange local = exchange.getIfAvailable();
+            if (local != null) {
+                local.put(InProcessExchange.CONGESTED_JUNCTIONS, topJunctions.stream()
+                        .map(j -> new CongestedJunction(j.getJunctionId(), j.getJunctionName(), j.getCongestionCount()))
+                        .toList());
+            }
+            if (local == null || !local.isLocal("status-sync")) {
+                // 3. 将结果列表序列化为JSON字符串，存入指定的Redis Key中
+                String jsonCacheData = objectMapper.writeValueAsString(topJunctions);
+                redisTemplate.opsForValue().set(CACHE_KEY_CONGESTED_JUNCTIONS, jsonCacheData);
+            }
 
             log.info("Successfully updated congested junctions cache. Found {} junctions.", topJunctions.size());
 
@@ -83,6 +95,11 @@ public class TrafficService {
         Map<String, List<JunctionIncomingEdge>> edgesByJunction = allJunctionEdges.stream()
                 .collect(Collectors.groupingBy(JunctionIncomingEdge::getJunctionId));
 
+        // 所有路口的入口 edge 一次性从 sumo:edge 哈希中批量读取
+        Map<String, EdgeState> edges = sumoStateReader.readEdges(allJunctionEdges.stream()
+                .map(JunctionIncomingEdge::getIncomingEdgeId)
+                .collect(Collectors.toSet()));
+
         // 为每个路口计算拥堵指数
         List<JunctionCongestionDTO> junctionCongestions = edgesByJunction.entrySet().stream()
                 .map(entry -> {
@@ -90,7 +107,7 @@ public class TrafficService {
                     List<JunctionIncomingEdge> incomingEdges = entry.getValue();
                     // 因为同一个junctionId的路口名称都是一样的，所以从第一个元素获取即可
                     String junctionName = incomingEdges.isEmpty() ? "Unknown" : incomingEdges.get(0).getJunctionName();
-                    int maxCongestion = calculateMaxCongestionForJunction(incomingEdges);
+                    int maxCongestion = calculateMaxCongestionForJunction(incomingEdges, edges);
                     return new JunctionCongestionDTO(junctionId,junctionName, maxCongestion);
                 })
                 .collect(Collectors.toList());
@@ -102,32 +119,11 @@ public class TrafficService {
                 .collect(Collectors.toList());
     }
 
-    private int calculateMaxCongestionForJunction(List<JunctionIncomingEdge> incomingEdges) {
-
-        if (incomingEdges == null || incomingEdges.isEmpty()) {
-            return 0;
-        }
-        List<String> redisKeys = incomingEdges.stream()
-                .map(edge -> REDIS_EDGE_KEY_PREFIX + edge.getIncomingEdgeId())
-                .collect(Collectors.toList());
-        List<String> edgeJsonValues = redisTemplate.opsForValue().multiGet(redisKeys);
-        if (edgeJsonValues == null) {
-            return 0;
-        }
-        return edgeJsonValues.stream()
-                .mapToInt(jsonString -> {
-                    if (jsonString == null || jsonString.isEmpty()) {
-                        return 0;
-                    }
-                    try {
-                        EdgeData edgeData = objectMapper.readValue(jsonString, EdgeData.class);
-                        return edgeData.getVehicleCount();
-                    } catch (JsonProcessingException e) {
-                        log.error("Failed to parse edge data JSON: {}", jsonString, e);
-                        return 0;
-                    }
-                })
+    private int calculateMaxCongestionForJunction(List<JunctionIncomingEdge> incomingEdges, Map<String, EdgeState> edges) {
+        return incomingEdges.stream()
+                .map(edge -> edges.get(edge.getIncomingEdgeId()))
+                .mapToInt(edge -> edge == null ? 0 : edge.getVehicleCount())
                 .max()
                 .orElse(0);
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package com.ucd.urbanflow;
 
+import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
+@MapperScan("com.ucd.urbanflow.mapper")
 public class UserAuthenticationApplication {
 
 	public static void main(String[] args) {
@@ -1,4 +0,0 @@
-package com.ucd.urbanflow.config;
-
-public class JwtAuthenticationFilter {
-}
@@ -0,0 +1,31 @@
+package com.ucd.urbanflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool for the blocking part of a login that follows the password check (Redis
+ * throttle updates, token issue, the hash-upgrade write to MySQL), so it never holds a
+ * hashing thread. Its intake is bounded by the hashing pool upstream.
+ */
+@Configuration
+public class LoginExecutorConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService loginIoExecutor(@Value("${auth.io.threads:8}") int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-io-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
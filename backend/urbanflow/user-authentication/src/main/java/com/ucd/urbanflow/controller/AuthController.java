@@ -1,4 +1,68 @@
 package com.ucd.urbanflow.controller;
 
+import com.ucd.urbanflow.common.security.TokenPrincipal;
+import com.ucd.urbanflow.domain.vo.ApiResponse;
+import com.ucd.urbanflow.domain.vo.LoginRequest;
+import com.ucd.urbanflow.domain.vo.LoginResponse;
+import com.ucd.urbanflow.domain.vo.RoleChangeRequest;
+import com.ucd.urbanflow.domain.vo.UserVO;
+import com.ucd.urbanflow.service.AuthService;
+import com.ucd.urbanflow.service.LoginAttemptService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/auth")
+@RequiredArgsConstructor
 public class AuthController {
+
+    private final AuthService authService;
+    private final LoginAttemptService loginAttemptService;
+
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<ApiResponse<LoginResponse>>> login(@Valid @RequestBody LoginRequest request,
+                                                                               HttpServletRequest httpRequest) {
+        String clientIp = loginAttemptService.resolveClientIp(httpRequest);
+        return authService.login(request, clientIp)
+                .thenApply(response -> ResponseEntity.ok(ApiResponse.success("Login successful", response)));
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<ApiResponse<Void>> logout(@AuthenticationPrincipal TokenPrincipal principal) {
+        authService.logout(principal);
+        return ResponseEntity.ok(ApiResponse.success("Logged out", null));
+    }
+
+    @GetMapping("/verify-token")
+    public ResponseEntity<ApiResponse<UserVO>> verifyToken(@AuthenticationPrincipal TokenPrincipal principal) {
+        return ResponseEntity.ok(ApiResponse.success("Token is valid", authService.verify(principal)));
+    }
+
+    @PostMapping("/users/{email}/revoke")
+    public ResponseEntity<ApiResponse<Void>> revokeSessions(@PathVariable String email) {
+        authService.revokeSessions(email, "admin");
+        return ResponseEntity.ok(ApiResponse.success("Sessions revoked", null));
+    }
+
+    @PutMapping("/users/{email}/role")
+    public ResponseEntity<ApiResponse<Void>> changeRole(@PathVariable String email,
+                                                        @Valid @RequestBody RoleChangeRequest request) {
+        if (!authService.changeRole(email, request.getRole())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(404, "User not found"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Role changed", null));
+    }
 }
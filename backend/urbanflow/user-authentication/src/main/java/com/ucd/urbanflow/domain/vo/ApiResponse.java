@@ -1,4 +1,26 @@
 package com.ucd.urbanflow.domain.vo;
 
-public class ApiResponse {
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Unified response body: statusCode, message, optional data and the server time in epoch millis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiResponse<T> {
+    private int statusCode;
+    private String message;
+    private T data;
+    private long timestamp;
+
+    public static <T> ApiResponse<T> success(String message, T data) {
+        return new ApiResponse<>(200, message, data, System.currentTimeMillis());
+    }
+
+    public static <T> ApiResponse<T> error(int statusCode, String message) {
+        return new ApiResponse<>(statusCode, message, null, System.currentTimeMillis());
+    }
 }
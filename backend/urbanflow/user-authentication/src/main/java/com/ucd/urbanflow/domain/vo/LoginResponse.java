@@ -1,4 +1,17 @@
 package com.ucd.urbanflow.domain.vo;
 
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Issued access token, its expiry in epoch millis and the logged-in user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class LoginResponse {
+    private String token;
+    private long expiresAt;
+    private UserVO user;
 }
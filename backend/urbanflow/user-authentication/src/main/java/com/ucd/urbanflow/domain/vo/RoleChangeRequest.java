@@ -0,0 +1,14 @@
+package com.ucd.urbanflow.domain.vo;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * DTO for changing a user's role, e.g. "ROLE_ADMIN".
+ */
+@Data
+public class RoleChangeRequest {
+
+    @NotBlank(message = "Role cannot be blank")
+    private String role;
+}
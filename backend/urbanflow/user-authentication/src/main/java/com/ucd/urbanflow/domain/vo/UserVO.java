@@ -1,4 +1,17 @@
 package com.ucd.urbanflow.domain.vo;
 
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * User information returned to the frontend, without credentials.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class UserVO {
+    private Long id;
+    private String email;
+    private String role;
 }
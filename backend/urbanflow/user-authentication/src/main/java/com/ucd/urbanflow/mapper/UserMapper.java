@@ -1,4 +1,15 @@
 package com.ucd.urbanflow.mapper;
 
-public class UserMapper {
+import com.ucd.urbanflow.domain.pojo.User;
+import org.apache.ibatis.annotations.Param;
+
+public interface UserMapper {
+
+    /** Looks a user up by username or email. */
+    User findByLogin(@Param("login") String login);
+
+    /** Replaces the hash only if it is still oldHash. */
+    int updatePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    int updateRole(@Param("email") String email, @Param("role") String role);
 }
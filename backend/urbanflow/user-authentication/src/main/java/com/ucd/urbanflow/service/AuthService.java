@@ -1,4 +1,138 @@
 package com.ucd.urbanflow.service;
 
+import com.ucd.urbanflow.common.audit.AuditEvent;
+import com.ucd.urbanflow.common.audit.AuditPublisher;
+import com.ucd.urbanflow.common.security.TokenPrincipal;
+import com.ucd.urbanflow.domain.pojo.User;
+import com.ucd.urbanflow.domain.vo.LoginRequest;
+import com.ucd.urbanflow.domain.vo.LoginResponse;
+import com.ucd.urbanflow.domain.vo.UserVO;
+import com.ucd.urbanflow.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
 public class AuthService {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final UserMapper userMapper;
+    private final PasswordHashingService passwordHashingService;
+    private final JwtService jwtService;
+    private final LoginAttemptService loginAttemptService;
+    private final AuditPublisher auditPublisher;
+    private final ExecutorService loginIoExecutor;
+
+    /**
+     * Throttled per account and client IP pair and per client IP: an address known to be
+     * blocked is refused before the user lookup, a locked pair before the password hash.
+     * User.locked stays the administrative lock. The
+     * password check runs on the hashing pool, so the request thread is released while
+     * BCrypt runs; the rest of the login (Redis, token, audit) continues on the login I/O
+     * pool, so blocking calls never hold a hashing thread.
+     */
+    public CompletableFuture<LoginResponse> login(LoginRequest request, String clientIp) {
+        String login = request.getUserId();
+        loginAttemptService.checkAddress(clientIp);
+        User user;
+        try {
+            user = userDetailsService.loadUserByUsername(login);
+        } catch (UsernameNotFoundException e) {
+            loginAttemptService.checkAllowed(clientIp, null, login);
+            return passwordHashingService.verify(request.getPassword(), null).thenApplyAsync(matches -> {
+                throw loginFailed(clientIp, null, login, "unknown user");
+            }, loginIoExecutor);
+        }
+        loginAttemptService.checkAllowed(clientIp, user.getId(), login);
+        if (!user.isAccountNonLocked()) {
+            audit("LOGIN_FAILED", user.getUsername(), "FAILURE", "locked");
+            throw new LockedException("Account is locked");
+        }
+        if (!user.isEnabled()) {
+            audit("LOGIN_FAILED", user.getUsername(), "FAILURE", "disabled");
+            throw new DisabledException("Account is disabled");
+        }
+        return passwordHashingService.verify(request.getPassword(), user.getPassword()).thenApplyAsync(matches -> {
+            if (!matches) {
+                throw loginFailed(clientIp, user.getId(), login, "bad password");
+            }
+            loginAttemptService.loginSucceeded(clientIp, user.getId());
+            if (passwordHashingService.needsUpgrade(user.getPassword())) {
+                upgradeHash(user, request.getPassword());
+            }
+            String token = jwtService.issue(user);
+            // validating once also puts the claims into this instance's cache
+            TokenPrincipal principal = jwtService.validate(token);
+            audit("LOGIN", user.getUsername(), "SUCCESS", null);
+            return new LoginResponse(token, principal.getExpiresAt(), new UserVO(user.getId(), user.getUsername(), user.getRole()));
+        }, loginIoExecutor);
+    }
+
+    /**
+     * Rehashes with the current cost in the background. Best effort: skipped when the
+     * pool is busy, and the update only applies if the stored hash is still the old one.
+     */
+    private void upgradeHash(User user, String rawPassword) {
+        try {
+            passwordHashingService.hash(rawPassword).thenAcceptAsync(newHash -> {
+                if (userMapper.updatePassword(user.getId(), user.getPassword(), newHash) > 0) {
+                    log.info("Upgraded password hash of user {} to cost {}", user.getId(), passwordHashingService.getCost());
+                }
+            }, loginIoExecutor).exceptionally(e -> {
+                log.warn("Password hash upgrade for user {} failed: {}", user.getId(), e.getMessage());
+                return null;
+            });
+        } catch (PasswordHashingBusyException e) {
+            log.debug("Hashing pool busy, hash upgrade of user {} deferred", user.getId());
+        }
+    }
+
+    public void logout(TokenPrincipal principal) {
+        jwtService.revoke(principal, "logout");
+        audit("LOGOUT", principal.getSubject(), "SUCCESS", null);
+    }
+
+    /** Built from the token claims; no database lookup. */
+    public UserVO verify(TokenPrincipal principal) {
+        return new UserVO(principal.getUserId(), principal.getSubject(), principal.getRole());
+    }
+
+    public void revokeSessions(String email, String reason) {
+        jwtService.revokeUser(email, reason);
+        audit("SESSIONS_REVOKED", email, "SUCCESS", reason);
+    }
+
+    /** Changes the role and ends existing sessions, whose tokens still carry the old one. */
+    public boolean changeRole(String email, String role) {
+        if (userMapper.updateRole(email, role) == 0) {
+            return false;
+        }
+        jwtService.revokeUser(email, "role-change");
+        audit("ROLE_CHANGED", email, "SUCCESS", role);
+        return true;
+    }
+
+    private BadCredentialsException loginFailed(String clientIp, Long userId, String login, String reason) {
+        audit("LOGIN_FAILED", login, "FAILURE", reason + " from " + clientIp);
+        if (loginAttemptService.loginFailed(clientIp, userId, login)) {
+            audit("ACCOUNT_LOCKED", login, "SUCCESS", "too many failed attempts from " + clientIp);
+        }
+        return new BadCredentialsException("Invalid user ID or password");
+    }
+
+    private void audit(String action, String userId, String outcome, String detail) {
+        AuditEvent event = new AuditEvent(action, null, userId, outcome);
+        event.setUserId(userId);
+        event.setDetail(detail);
+        auditPublisher.publish(event);
+    }
 }
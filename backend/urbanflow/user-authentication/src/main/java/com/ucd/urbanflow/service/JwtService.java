@@ -1,4 +1,52 @@
 package com.ucd.urbanflow.service;
 
+import com.ucd.urbanflow.common.security.AuthEventBus;
+import com.ucd.urbanflow.common.security.JwtTokenCodec;
+import com.ucd.urbanflow.common.security.TokenPrincipal;
+import com.ucd.urbanflow.common.security.TokenValidator;
+import com.ucd.urbanflow.domain.pojo.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Issues access tokens and revokes them. Validation itself happens in memory in every
+ * service through {@link TokenValidator}; revocations go out over {@link AuthEventBus}
+ * so all instances stop accepting the token within one pub/sub round trip.
+ */
+@Slf4j
+@Service
 public class JwtService {
+
+    private final JwtTokenCodec codec;
+    private final TokenValidator validator;
+    private final AuthEventBus eventBus;
+    private final long ttlMillis;
+
+    public JwtService(JwtTokenCodec codec, TokenValidator validator, AuthEventBus eventBus,
+                      @Value("${security.jwt.ttl-seconds:3600}") long ttlSeconds) {
+        this.codec = codec;
+        this.validator = validator;
+        this.eventBus = eventBus;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    public String issue(User user) {
+        return codec.issue(user.getUsername(), user.getId(), user.getRole(), ttlMillis);
+    }
+
+    /** The token's principal, or null when it is invalid, expired or revoked. */
+    public TokenPrincipal validate(String token) {
+        return validator.validate(token);
+    }
+
+    public void revoke(TokenPrincipal principal, String reason) {
+        eventBus.revokeToken(principal, reason);
+    }
+
+    /** Ends every session of the user, e.g. after a lockout or a role change. */
+    public void revokeUser(String subject, String reason) {
+        log.info("Revoking all tokens of {} ({})", subject, reason);
+        eventBus.revokeUser(subject, reason);
+    }
 }
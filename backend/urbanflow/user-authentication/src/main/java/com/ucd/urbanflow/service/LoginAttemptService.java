@@ -1,4 +1,265 @@
 package com.ucd.urbanflow.service;
 
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sliding-window throttling of failed logins, per account and client IP pair and per
+ * client IP.
+ * <p>
+ * The account scope is keyed by the user id, so the username and the email of one
+ * account share a count (logins of unknown users fall back to the normalised login),
+ * and by the client IP, so failures from one address never lock the account for the
+ * others: guessing from many addresses is bounded by the per-IP limit instead.
+ * <p>
+ * Failures are counted twice: in striped in-process counters, and in Redis by one Lua
+ * script call that updates both scopes atomically, so the limits hold across all
+ * user-authentication instances. Whichever count crosses a limit first blocks the key
+ * and starts its count afresh, and blocks are cached locally until they expire: a key under attack is rejected with
+ * a map lookup, without Redis, MySQL or a password hash. Legitimate logins cost one
+ * script call before the password check and one after. If Redis is unreachable the
+ * local counters keep enforcing the limits per instance.
+ */
+@Slf4j
+@Service
 public class LoginAttemptService {
+
+    private static final String PREFIX = "auth:throttle:";
+    private static final int MAX_LOGIN_LENGTH = 254;
+    private static final long REDIS_RETRY_MS = 5000;
+
+    /**
+     * KEYS: per scope (account, ip) the current window counter, previous window counter
+     * and block key. ARGV: window ms, ms elapsed in the current window, then per scope
+     * the limit and the block ms. Returns the remaining block ms per scope, 0 if none.
+     */
+    private static final RedisScript<List> FAILURE_SCRIPT = new DefaultRedisScript<>(
+            "local window = tonumber(ARGV[1])\n"
+                    + "local overlap = (window - tonumber(ARGV[2])) / window\n"
+                    + "local result = {}\n"
+                    + "for scope = 0, 1 do\n"
+                    + "  local k = scope * 3\n"
+                    + "  local current = redis.call('INCR', KEYS[k + 1])\n"
+                    + "  if current == 1 then redis.call('PEXPIRE', KEYS[k + 1], 2 * window) end\n"
+                    + "  local previous = tonumber(redis.call('GET', KEYS[k + 2]) or '0')\n"
+                    + "  local blocked = 0\n"
+                    + "  if previous * overlap + current >= tonumber(ARGV[3 + scope * 2]) then\n"
+                    + "    blocked = redis.call('PTTL', KEYS[k + 3])\n"
+                    + "    if blocked <= 0 then\n"
+                    + "      blocked = tonumber(ARGV[4 + scope * 2])\n"
+                    + "      redis.call('SET', KEYS[k + 3], '1', 'PX', blocked)\n"
+                    + "      redis.call('DEL', KEYS[k + 1], KEYS[k + 2])\n"
+                    + "    end\n"
+                    + "  end\n"
+                    + "  result[scope + 1] = blocked\n"
+                    + "end\n"
+                    + "return result", List.class);
+
+    /** KEYS: the account and ip block keys. Returns their remaining ms, negative if absent. */
+    private static final RedisScript<List> CHECK_SCRIPT = new DefaultRedisScript<>(
+            "return {redis.call('PTTL', KEYS[1]), redis.call('PTTL', KEYS[2])}", List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final long windowMillis;
+    private final int accountMaxFailures;
+    private final long accountLockMillis;
+    private final int ipMaxFailures;
+    private final long ipBlockMillis;
+    private final int maxKeys;
+    private final boolean trustForwardedFor;
+    private final int trustedProxies;
+    private final SlidingWindowCounters counters;
+    private final Map<String, Long> blockedUntil = new ConcurrentHashMap<>();
+    private volatile long redisRetryAt;
+
+    public LoginAttemptService(StringRedisTemplate redisTemplate,
+                               @Value("${auth.throttle.window-seconds:300}") long windowSeconds,
+                               @Value("${auth.throttle.account-max-failures:3}") int accountMaxFailures,
+                               @Value("${auth.throttle.account-lock-seconds:300}") long accountLockSeconds,
+                               @Value("${auth.throttle.ip-max-failures:20}") int ipMaxFailures,
+                               @Value("${auth.throttle.ip-block-seconds:300}") long ipBlockSeconds,
+                               @Value("${auth.throttle.stripes:64}") int stripes,
+                               @Value("${auth.throttle.max-keys:100000}") int maxKeys,
+                               @Value("${auth.throttle.trust-forwarded-for:false}") boolean trustForwardedFor,
+                               @Value("${auth.throttle.trusted-proxies:1}") int trustedProxies) {
+        this.redisTemplate = redisTemplate;
+        this.windowMillis = windowSeconds * 1000;
+        this.accountMaxFailures = accountMaxFailures;
+        this.accountLockMillis = accountLockSeconds * 1000;
+        this.ipMaxFailures = ipMaxFailures;
+        this.ipBlockMillis = ipBlockSeconds * 1000;
+        this.maxKeys = maxKeys;
+        this.trustForwardedFor = trustForwardedFor;
+        this.trustedProxies = Math.max(1, trustedProxies);
+        this.counters = new SlidingWindowCounters(stripes, maxKeys, windowMillis);
+    }
+
+    /**
+     * Throws {@link LoginThrottledException} while the IP is known here to be blocked.
+     * Local only, so a blocked client is refused before the user lookup.
+     */
+    public void checkAddress(String ip) {
+        long wait = localBlock(ipKey(ip), System.currentTimeMillis());
+        if (wait > 0) {
+            throw new LoginThrottledException("Too many failed login attempts", false, wait);
+        }
+    }
+
+    /**
+     * Throws {@link LoginThrottledException} while the account is locked for this IP or
+     * the IP is blocked.
+     *
+     * @param userId the account's id, null when no user matches the login
+     */
+    public void checkAllowed(String ip, Long userId, String login) {
+        String account = accountKey(ip, userId, login);
+        String address = ipKey(ip);
+        long now = System.currentTimeMillis();
+        long accountWait = localBlock(account, now);
+        long ipWait = localBlock(address, now);
+        if (accountWait <= 0 && ipWait <= 0 && redisAvailable(now)) {
+            try {
+                List<?> ttl = redisTemplate.execute(CHECK_SCRIPT, List.of(PREFIX + "lock:" + account, PREFIX + "lock:" + address));
+                accountWait = block(account, toLong(ttl.get(0)), now);
+                ipWait = block(address, toLong(ttl.get(1)), now);
+            } catch (DataAccessException e) {
+                redisFailed(now, e);
+            }
+        }
+        if (accountWait > 0) {
+            throw new LoginThrottledException("Account is temporarily locked", true, accountWait);
+        }
+        if (ipWait > 0) {
+            throw new LoginThrottledException("Too many failed login attempts", false, ipWait);
+        }
+    }
+
+    /** Records a failed attempt; true when it locked the account for this IP. */
+    public boolean loginFailed(String ip, Long userId, String login) {
+        String account = accountKey(ip, userId, login);
+        String address = ipKey(ip);
+        long now = System.currentTimeMillis();
+        boolean locked = false;
+        if (counters.increment(account, now) >= accountMaxFailures) {
+            counters.reset(account);
+            locked = block(account, accountLockMillis, now) > 0;
+        }
+        if (counters.increment(address, now) >= ipMaxFailures) {
+            counters.reset(address);
+            block(address, ipBlockMillis, now);
+        }
+        if (redisAvailable(now)) {
+            long index = now / windowMillis;
+            try {
+                List<?> blocked = redisTemplate.execute(FAILURE_SCRIPT, List.of(
+                                PREFIX + account + ":" + index, PREFIX + account + ":" + (index - 1), PREFIX + "lock:" + account,
+                                PREFIX + address + ":" + index, PREFIX + address + ":" + (index - 1), PREFIX + "lock:" + address),
+                        String.valueOf(windowMillis), String.valueOf(now % windowMillis),
+                        String.valueOf(accountMaxFailures), String.valueOf(accountLockMillis),
+                        String.valueOf(ipMaxFailures), String.valueOf(ipBlockMillis));
+                locked |= block(account, toLong(blocked.get(0)), now) > 0;
+                block(address, toLong(blocked.get(1)), now);
+            } catch (DataAccessException e) {
+                redisFailed(now, e);
+            }
+        }
+        return locked;
+    }
+
+    /** Clears the account's failure count for this IP; the IP count is left to expire. */
+    public void loginSucceeded(String ip, Long userId) {
+        String account = accountKey(ip, userId, null);
+        counters.reset(account);
+        long now = System.currentTimeMillis();
+        if (redisAvailable(now)) {
+            long index = now / windowMillis;
+            try {
+                redisTemplate.delete(List.of(PREFIX + account + ":" + index, PREFIX + account + ":" + (index - 1)));
+            } catch (DataAccessException e) {
+                redisFailed(now, e);
+            }
+        }
+    }
+
+    /**
+     * The client address as seen by the outermost trusted proxy. Each proxy appends the
+     * peer it saw to X-Forwarded-For, so only the last trusted-proxies entries are
+     * trustworthy; anything left of them was sent by the client and is ignored.
+     */
+    public String resolveClientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                String[] hops = forwarded.split(",");
+                String ip = hops[Math.max(0, hops.length - trustedProxies)].trim();
+                if (!ip.isEmpty()) {
+                    return ip;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static String accountKey(String ip, Long userId, String login) {
+        if (userId != null) {
+            return "acct:" + userId + "@" + ip;
+        }
+        String normalized = login == null ? "" : login.trim().toLowerCase(Locale.ROOT);
+        return "login:" + (normalized.length() > MAX_LOGIN_LENGTH ? normalized.substring(0, MAX_LOGIN_LENGTH) : normalized)
+                + "@" + ip;
+    }
+
+    private static String ipKey(String ip) {
+        return "ip:" + ip;
+    }
+
+    private long localBlock(String key, long now) {
+        Long until = blockedUntil.get(key);
+        if (until == null) {
+            return 0;
+        }
+        if (until <= now) {
+            blockedUntil.remove(key, until);
+            return 0;
+        }
+        return until - now;
+    }
+
+    /** Caches a block of millis from now; returns millis, or 0 when there is none. */
+    private long block(String key, long millis, long now) {
+        if (millis <= 0) {
+            return 0;
+        }
+        if (blockedUntil.size() >= maxKeys) {
+            blockedUntil.values().removeIf(until -> until <= now);
+        }
+        blockedUntil.merge(key, now + millis, Math::max);
+        return millis;
+    }
+
+    private boolean redisAvailable(long now) {
+        return now >= redisRetryAt;
+    }
+
+    private void redisFailed(long now, DataAccessException e) {
+        if (redisRetryAt <= now) {
+            log.warn("Redis unavailable, throttling logins per instance for {} ms: {}", REDIS_RETRY_MS, e.getMessage());
+        }
+        redisRetryAt = now + REDIS_RETRY_MS;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0;
+    }
 }
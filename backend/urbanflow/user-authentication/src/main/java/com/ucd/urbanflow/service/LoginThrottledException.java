@@ -0,0 +1,21 @@
+package com.ucd.urbanflow.service;
+
+import lombok.Getter;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Login refused before checking the password: the account is temporarily locked, or the
+ * client address sent too many failed attempts.
+ */
+@Getter
+public class LoginThrottledException extends AuthenticationException {
+
+    private final boolean accountLocked;
+    private final long retryAfterMillis;
+
+    public LoginThrottledException(String message, boolean accountLocked, long retryAfterMillis) {
+        super(message);
+        this.accountLocked = accountLocked;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
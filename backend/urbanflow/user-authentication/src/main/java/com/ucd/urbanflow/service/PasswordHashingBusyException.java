@@ -0,0 +1,11 @@
+package com.ucd.urbanflow.service;
+
+/**
+ * The password hashing pool is saturated; the client should retry shortly.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Login service is busy, please retry");
+    }
+}
@@ -0,0 +1,142 @@
+package com.ucd.urbanflow.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * BCrypt hashing and verification on a dedicated, bounded pool, so a login storm uses
+ * at most auth.password.threads cores and leaves Tomcat threads free for every other
+ * endpoint.
+ * <p>
+ * Admission is decided by queue depth: when all workers are busy and the queue is full,
+ * or a task has already waited longer than max-queue-wait-ms when a worker picks it up,
+ * the call fails fast with {@link PasswordHashingBusyException} instead of queueing work
+ * whose client has likely given up.
+ * <p>
+ * With auth.password.cost=0 the BCrypt cost is calibrated at startup: the highest cost
+ * whose hash takes at most target-ms on this machine, within [min-cost, max-cost].
+ * Hashes stored with a lower cost report {@link #needsUpgrade} and are rehashed after a
+ * successful login.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService {
+
+    private static final int CALIBRATION_COST = 8;
+
+    private final ThreadPoolExecutor executor;
+    private final BCryptPasswordEncoder encoder;
+    private final long maxQueueWaitNanos;
+    private final int cost;
+    /** Compared against when the user does not exist, so unknown accounts take as long. */
+    private final String dummyHash;
+
+    public PasswordHashingService(@Value("${auth.password.threads:0}") int threads,
+                                  @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.password.max-queue-wait-ms:2000}") long maxQueueWaitMs,
+                                  @Value("${auth.password.cost:0}") int cost,
+                                  @Value("${auth.password.target-ms:250}") long targetMs,
+                                  @Value("${auth.password.min-cost:10}") int minCost,
+                                  @Value("${auth.password.max-cost:16}") int maxCost) {
+        int workers = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMs);
+        this.cost = cost > 0 ? cost : calibrate(targetMs, minCost, maxCost);
+        this.encoder = new BCryptPasswordEncoder(this.cost);
+        this.dummyHash = encoder.encode("dummy-password-for-unknown-users");
+        log.info("Password hashing: BCrypt cost {}, {} threads, queue {}", this.cost, workers, queueCapacity);
+    }
+
+    public CompletableFuture<String> hash(CharSequence rawPassword) {
+        return submit(() -> encoder.encode(rawPassword));
+    }
+
+    /** Completes with whether rawPassword matches; a null hash is checked against a dummy. */
+    public CompletableFuture<Boolean> verify(CharSequence rawPassword, String storedHash) {
+        if (storedHash == null) {
+            return submit(() -> {
+                encoder.matches(rawPassword, dummyHash);
+                return false;
+            });
+        }
+        return submit(() -> encoder.matches(rawPassword, storedHash));
+    }
+
+    /** True when the stored hash uses a lower cost than the current one. */
+    public boolean needsUpgrade(String storedHash) {
+        return storedHash != null && encoder.upgradeEncoding(storedHash);
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                if (System.nanoTime() - enqueuedAt > maxQueueWaitNanos) {
+                    future.completeExceptionally(new PasswordHashingBusyException());
+                    return;
+                }
+                try {
+                    future.complete(task.get());
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingBusyException();
+        }
+        return future;
+    }
+
+    /** Each cost step doubles the work, so one measurement at a low cost is enough to extrapolate. */
+    private static int calibrate(long targetMs, int minCost, int maxCost) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_COST);
+        probe.encode("warm-up");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double millis = best / 1e6;
+        int cost = CALIBRATION_COST;
+        while (cost < maxCost && millis * 2 <= targetMs) {
+            millis *= 2;
+            cost++;
+        }
+        int chosen = Math.max(minCost, Math.min(maxCost, cost));
+        log.info("Calibrated BCrypt cost {} for a {} ms target ({} ms at cost {})",
+                chosen, targetMs, String.format("%.1f", best / 1e6), CALIBRATION_COST);
+        return chosen;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
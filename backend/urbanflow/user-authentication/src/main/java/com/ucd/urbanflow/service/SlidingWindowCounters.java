@@ -0,0 +1,104 @@
+package com.ucd.urbanflow.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per-key sliding-window event counts, split into lock stripes by key hash so that
+ * concurrent logins for different IPs and accounts rarely contend.
+ * <p>
+ * Each key keeps the count of the current and the previous fixed window; the sliding
+ * count weights the previous window by how much of it still overlaps the last
+ * windowMillis. That is the same approximation the Redis script uses, so local and
+ * shared counts agree. Each stripe holds at most maxKeys / stripes keys; once full,
+ * keys with nothing in the last two windows are purged and, if that is not enough,
+ * new keys are not tracked locally and only the shared counter sees them.
+ */
+final class SlidingWindowCounters {
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final long windowMillis;
+    private final int maxKeysPerStripe;
+
+    SlidingWindowCounters(int stripes, int maxKeys, long windowMillis) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = n - 1;
+        this.windowMillis = windowMillis;
+        this.maxKeysPerStripe = Math.max(16, maxKeys / n);
+    }
+
+    /** Records one event for key and returns the sliding count including it. */
+    double increment(String key, long now) {
+        long index = now / windowMillis;
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            Window window = stripe.windows.get(key);
+            if (window == null) {
+                if (stripe.windows.size() >= maxKeysPerStripe && !purge(stripe, index)) {
+                    return 1;
+                }
+                window = new Window(index);
+                stripe.windows.put(key, window);
+            }
+            window.roll(index);
+            window.current++;
+            return window.count(now, windowMillis);
+        }
+    }
+
+    void reset(String key) {
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            stripe.windows.remove(key);
+        }
+    }
+
+    private Stripe stripe(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    /** Drops keys idle for two windows; true when room was made. */
+    private boolean purge(Stripe stripe, long index) {
+        for (Iterator<Window> it = stripe.windows.values().iterator(); it.hasNext(); ) {
+            if (it.next().start < index - 1) {
+                it.remove();
+            }
+        }
+        return stripe.windows.size() < maxKeysPerStripe;
+    }
+
+    private static final class Stripe {
+        final Map<String, Window> windows = new HashMap<>();
+    }
+
+    private static final class Window {
+        long start;
+        int previous;
+        int current;
+
+        Window(long start) {
+            this.start = start;
+        }
+
+        void roll(long index) {
+            if (index == start) {
+                return;
+            }
+            previous = index == start + 1 ? current : 0;
+            current = 0;
+            start = index;
+        }
+
+        double count(long now, long windowMillis) {
+            double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return previous * overlap + current;
+        }
+    }
+}
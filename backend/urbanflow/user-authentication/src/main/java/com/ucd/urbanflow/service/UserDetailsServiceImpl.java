@@ -1,4 +1,28 @@
 package com.ucd.urbanflow.service;
 
-public class UserDetailsServiceImpl {
+import com.ucd.urbanflow.domain.pojo.User;
+import com.ucd.urbanflow.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads users from MySQL. Only the login path comes here; authenticated requests are
+ * resolved from the token alone by the JWT filter.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserDetailsServiceImpl implements UserDetailsService {
+
+    private final UserMapper userMapper;
+
+    @Override
+    public User loadUserByUsername(String login) throws UsernameNotFoundException {
+        User user = userMapper.findByLogin(login);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found: " + login);
+        }
+        return user;
+    }
 }
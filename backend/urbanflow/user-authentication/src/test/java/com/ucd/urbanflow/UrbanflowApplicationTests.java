@@ -3,7 +3,7 @@ package com.ucd.urbanflow;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "JWT_SECRET=test-only-secret-not-used-outside-tests")
 class UrbanflowApplicationTests {
 
 	@Test
@@ -0,0 +1,48 @@
+package com.ucd.urbanflow.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Client address resolution behind the gateway: the gateway appends the peer it saw to
+ * whatever X-Forwarded-For the client sent, so entries left of it must not be used as
+ * the throttling key.
+ */
+class LoginAttemptServiceTest {
+
+    @Test
+    void spoofedLeftmostForwardedForIsIgnored() {
+        LoginAttemptService service = service(true, 1);
+        assertEquals("203.0.113.7", service.resolveClientIp(request("10.0.0.5", "198.51.100.1, 203.0.113.7")));
+        assertEquals("203.0.113.7", service.resolveClientIp(request("10.0.0.5", "192.0.2.99, 203.0.113.7")));
+    }
+
+    @Test
+    void countsTrustedProxiesFromTheRight() {
+        LoginAttemptService service = service(true, 2);
+        assertEquals("203.0.113.7",
+                service.resolveClientIp(request("10.0.0.5", "198.51.100.1, 203.0.113.7, 10.0.0.9")));
+    }
+
+    @Test
+    void usesThePeerWhenForwardedForIsNotTrusted() {
+        LoginAttemptService service = service(false, 1);
+        assertEquals("10.0.0.5", service.resolveClientIp(request("10.0.0.5", "198.51.100.1, 203.0.113.7")));
+        assertEquals("10.0.0.5", service(true, 1).resolveClientIp(request("10.0.0.5", null)));
+    }
+
+    private static LoginAttemptService service(boolean trustForwardedFor, int trustedProxies) {
+        return new LoginAttemptService(null, 300, 3, 300, 20, 300, 4, 1000, trustForwardedFor, trustedProxies);
+    }
+
+    private static MockHttpServletRequest request(String peer, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(peer);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}